@@ -11,6 +11,34 @@ public class ConfigKeys
 	public static final String VERSION_PERSISTENCE_DIRECTORY = "versionPersistenceDirectory";
 	//Builds directory
 	public static final String BUILDS_DIRECTORY = "buildsDirectory";
+	//Format that versions are persisted in
+	public static final String VERSION_PERSISTENCE_FORMAT = "versionPersistenceFormat";
+	//Interval between versions held in full in a version archive, with the others held as their changes
+	public static final String VERSION_KEYFRAME_INTERVAL = "versionKeyframeInterval";
+	//Maximum estimated size of the versions held in memory by the version cache in megabytes
+	public static final String VERSION_CACHE_SIZE_LIMIT = "versionCacheSizeLimit";
+	//Number of versions read ahead on background threads when scanning a range of versions
+	public static final String VERSION_READ_AHEAD = "versionReadAhead";
+	
+	/***** Extraction *****/
+	//Number of versions to extract concurrently
+	public static final String EXTRACTION_THREAD_COUNT = "extractionThreadCount";
+	//Number of threads parsing the classes of a single version
+	public static final String PARSER_THREAD_COUNT = "parserThreadCount";
+	//Capacity of the queue between the class reader and the parser threads
+	public static final String PARSER_QUEUE_CAPACITY = "parserQueueCapacity";
+	//Engine used to extract class metrics from bytecode
+	public static final String EXTRACTION_ENGINE = "extractionEngine";
+	//Reader used to read classes from archives
+	public static final String ARCHIVE_READER = "archiveReader";
+	//Whether classes unchanged since the previous version are reused rather than extracted again
+	public static final String REUSE_UNCHANGED_CLASSES = "reuseUnchangedClasses";
+	//Directory of the class metric cache shared by all extractions
+	public static final String CLASS_CACHE_DIRECTORY = "classCacheDirectory";
+	//Maximum size of the class metric cache in megabytes
+	public static final String CLASS_CACHE_SIZE_LIMIT = "classCacheSizeLimit";
+	//Whether new versions are added to a processed history without reprocessing its earlier versions
+	public static final String INCREMENTAL_EXTRACTION = "incrementalExtraction";
 	
 	/***** Gamma measure thresholds *****/
 	//Method Count Gamma Threshold
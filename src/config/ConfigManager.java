@@ -32,6 +32,19 @@ public class ConfigManager
 		return getProperties().getProperty(key);
 	}
 	
+	/**
+	 * Retrieves a string value associated with the specified key, falling back to a default
+	 * value if the key has not been set
+	 * @param key The configuration key that is associated the value to be retrieved
+	 * @param defaultValue The value to return if the key has not been set
+	 * @return The string value that matched the specified key, or the default value
+	 */
+	public static String getStringProperty(String key, String defaultValue)
+	{
+		String stringValue = getStringProperty(key);
+		return stringValue != null ? stringValue.trim() : defaultValue;
+	}
+	
 	//TODO: Handle formatting errors
 	/**
 	 * Retrieves an integer value associated with the specified key
@@ -46,6 +59,52 @@ public class ConfigManager
 		return Integer.parseInt(stringValue);
 	}
 	
+	/**
+	 * Retrieves an integer value associated with the specified key, falling back to a default
+	 * value if the key has not been set or the value is not a valid integer
+	 * @param key The configuration key that is associated the value to be retrieved
+	 * @param defaultValue The value to return if no valid value is found for the key
+	 * @return The integer value that matched the specified key, or the default value
+	 */
+	public static int getIntProperty(String key, int defaultValue)
+	{
+		//Retrieve the value in it's string format from the configuration file
+		String stringValue = getStringProperty(key);
+		
+		//No value set, use the default
+		if (stringValue == null) return defaultValue;
+		
+		try
+		{
+			//Parse the value as an integer and return
+			return Integer.parseInt(stringValue.trim());
+		}
+		catch (NumberFormatException nfe)
+		{
+			System.err.println("Invalid integer value '" + stringValue + "' for " + key + " in " + configFileName
+							   + ", using the default of " + defaultValue);
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * Retrieves a boolean value associated with the specified key, falling back to a default
+	 * value if the key has not been set
+	 * @param key The configuration key that is associated the value to be retrieved
+	 * @param defaultValue The value to return if no value is found for the key
+	 * @return The boolean value that matched the specified key, or the default value
+	 */
+	public static boolean getBooleanProperty(String key, boolean defaultValue)
+	{
+		//Retrieve the value in it's string format from the configuration file
+		String stringValue = getStringProperty(key);
+		
+		//No value set, use the default
+		if (stringValue == null) return defaultValue;
+		
+		return Boolean.parseBoolean(stringValue.trim());
+	}
+	
 	//TODO: Handle formatting errors
 	/**
 	 * Retrieves a double value associated with the specified key
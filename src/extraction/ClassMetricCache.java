@@ -0,0 +1,463 @@
+package extraction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.ClassMetricData;
+import model.SymbolSet;
+import model.vocab.EClassMetricName;
+import model.vocab.EProcessingStatus;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * Persistent cache of the base (i.e. not yet post-processed) classes extracted from class files, shared by
+ * every history extraction using the same cache directory. Entries are addressed by the SHA-1 digest of the
+ * class files bytes, so a class file bundled by several systems, or extracted again in a later run, is only
+ * parsed once.<br />
+ * <br />
+ * Each entry is held in a file of its own, written to a temporary file and renamed into place so that other
+ * JVMs sharing the cache never read a partially written entry. Reading an entry marks it as recently used, and
+ * once the cache exceeds its size limit the least recently used entries are evicted by whichever JVM holds the
+ * caches eviction lock
+ * @author Allan Jones
+ */
+public class ClassMetricCache
+{
+	private static ClassMetricCache instance;
+
+	//Version of the entry format, held in the path of the entries so that a change in format (or in the
+	//extracted information) does not read entries written in an earlier format
+	private static final String FORMAT_VERSION = "v1";
+	//Suffix of the files holding the cache entries
+	private static final String ENTRY_SUFFIX = ".json";
+	//Suffix of entries that are still being written
+	private static final String TEMP_SUFFIX = ".tmp";
+	//Age after which a temporary file is considered abandoned by a failed writer
+	private static final long ABANDONED_TEMP_AGE = 60 * 60 * 1000L;
+	//Proportion of the size limit that the cache is reduced to when evicting entries
+	private static final double EVICTION_TARGET = 0.9;
+
+	//The directory holding the cache entries, or null if the cache is disabled
+	private File cacheDirectory;
+	//The maximum size of the cache entries in bytes
+	private long sizeLimit;
+	//The known size of the cache entries in bytes, which excludes entries written by other JVMs
+	//since the cache was last scanned
+	private long size;
+
+	private ClassMetricCache()
+	{
+		String directory = ConfigManager.getStringProperty(ConfigKeys.CLASS_CACHE_DIRECTORY, "");
+
+		//No directory configured, the cache is disabled
+		if (directory.length() == 0) return;
+
+		cacheDirectory = new File(directory, FORMAT_VERSION);
+		sizeLimit = ConfigManager.getIntProperty(ConfigKeys.CLASS_CACHE_SIZE_LIMIT, 512) * 1024L * 1024L;
+
+		for (File entryFile : getEntryFiles()) size += entryFile.length();
+	}
+
+	public static synchronized ClassMetricCache getInstance()
+	{
+		if (instance == null) instance = new ClassMetricCache();
+		return instance;
+	}
+
+	/**
+	 * Determines whether a cache directory has been configured
+	 * @return Whether the cache is enabled
+	 */
+	public boolean isEnabled()
+	{
+		return cacheDirectory != null;
+	}
+
+	/**
+	 * Retrieves the base class extracted from the given class bytes, from the cache if the class bytes have
+	 * been extracted previously or otherwise by extracting the class and adding it to the cache. Each base
+	 * class retrieved is a separate object that may be modified by the caller
+	 * @param buffer The buffer holding the classes bytecode
+	 * @param offset The offset of the classes bytecode within the buffer
+	 * @param length The length of the classes bytecode
+	 * @return The ClassMetricData object corresponding to the class bytes
+	 */
+	public ClassMetricData getClassMetricData(byte[] buffer, int offset, int length)
+	{
+		File entryFile = getEntryFile(buffer, offset, length);
+		ClassMetricData classMetricData = readEntry(entryFile);
+
+		if (classMetricData == null)
+		{
+			classMetricData = ClassMetricDataFactory.getInstance().getClassMetricData(buffer, offset, length);
+			writeEntry(entryFile, classMetricData);
+		}
+
+		return classMetricData;
+	}
+
+	/**
+	 * Gets the file holding the cache entry for the given class bytes, named by the SHA-1 digest of the bytes
+	 * and held within a sub-directory named by the digests first byte to keep directories small
+	 * @param buffer The buffer holding the classes bytecode
+	 * @param offset The offset of the classes bytecode within the buffer
+	 * @param length The length of the classes bytecode
+	 * @return The file holding the entry for the class bytes
+	 */
+	private File getEntryFile(byte[] buffer, int offset, int length)
+	{
+		MessageDigest digest;
+
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException nsae)
+		{
+			//Every Java platform is required to support SHA-1
+			throw new IllegalStateException(nsae);
+		}
+
+		digest.update(buffer, offset, length);
+
+		StringBuilder key = new StringBuilder(40);
+
+		for (byte b : digest.digest())
+		{
+			key.append(Character.forDigit((b >> 4) & 0xf, 16));
+			key.append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return new File(new File(cacheDirectory, key.substring(0, 2)), key.substring(2) + ENTRY_SUFFIX);
+	}
+
+	/**
+	 * Reads a cache entry, marking it as recently used
+	 * @param entryFile The file holding the entry
+	 * @return The base class held by the entry, or null if there is no such entry or it could not be read
+	 */
+	private ClassMetricData readEntry(File entryFile)
+	{
+		if (!entryFile.exists()) return null;
+
+		try
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(entryFile));
+			ClassMetricData classMetricData;
+
+			try
+			{
+				classMetricData = fromJSON((JSONObject)new JSONParser().parse(reader));
+			}
+			finally
+			{
+				reader.close();
+			}
+
+			//Record the time the entry was last used
+			entryFile.setLastModified(System.currentTimeMillis());
+
+			return classMetricData;
+		}
+		catch (IOException ioe)
+		{
+			//The entry may have been evicted by another JVM since it was found, extract it again
+			return null;
+		}
+		catch (ParseException pe)
+		{
+			//TODO: Log warning
+			entryFile.delete();
+			return null;
+		}
+		catch (RuntimeException re)
+		{
+			//Entry does not hold a valid class
+			//TODO: Log warning
+			entryFile.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a cache entry, evicting the least recently used entries if the cache has grown beyond its limit.
+	 * The entry is written to a temporary file which is then renamed, so it appears to other readers whole
+	 * @param entryFile The file to hold the entry
+	 * @param classMetricData The base class to be held by the entry
+	 */
+	private void writeEntry(File entryFile, ClassMetricData classMetricData)
+	{
+		File entryDirectory = entryFile.getParentFile();
+		File tempFile = null;
+
+		try
+		{
+			//Folders may have been created concurrently by another writer
+			if (!entryDirectory.mkdirs() && !entryDirectory.isDirectory())
+				throw new IOException("Could not create folders for path: " + entryDirectory.getPath());
+
+			tempFile = File.createTempFile("entry", TEMP_SUFFIX, entryDirectory);
+
+			BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile));
+
+			try
+			{
+				toJSON(classMetricData).writeJSONString(writer);
+			}
+			finally
+			{
+				writer.close();
+			}
+
+			//Another writer may have added the same entry in the meantime, in which case either entry will do
+			if (!tempFile.renameTo(entryFile))
+			{
+				tempFile.delete();
+				return;
+			}
+		}
+		catch (IOException ioe)
+		{
+			//The class is still extracted without being cached
+			//TODO: Log error
+			ioe.printStackTrace();
+			if (tempFile != null) tempFile.delete();
+			return;
+		}
+
+		boolean evict;
+
+		synchronized (this)
+		{
+			size += entryFile.length();
+			evict = size > sizeLimit;
+		}
+
+		if (evict) evict();
+	}
+
+	/**
+	 * Evicts the least recently used entries until the cache is within its size limit. Only one JVM evicts
+	 * entries at a time, with any other JVM needing to evict entries at the same time leaving it to the JVM
+	 * holding the eviction lock
+	 */
+	private synchronized void evict()
+	{
+		//Entries may have been evicted while waiting to evict
+		if (size <= sizeLimit) return;
+
+		try
+		{
+			RandomAccessFile lockFile = new RandomAccessFile(new File(cacheDirectory, "eviction.lock"), "rw");
+
+			try
+			{
+				FileLock lock = lockFile.getChannel().tryLock();
+
+				//Another JVM is evicting entries
+				if (lock == null) return;
+
+				try
+				{
+					evictLeastRecentlyUsed();
+				}
+				finally
+				{
+					lock.release();
+				}
+			}
+			finally
+			{
+				lockFile.close();
+			}
+		}
+		catch (IOException ioe)
+		{
+			//TODO: Log error
+			ioe.printStackTrace();
+		}
+	}
+
+	/**
+	 * Scans the cache, which may hold entries written by other JVMs, and deletes the least recently used
+	 * entries until the cache has been reduced below its size limit
+	 */
+	private void evictLeastRecentlyUsed()
+	{
+		List<File> entryFiles = getEntryFiles();
+		final Map<File, Long> lastUsed = new HashMap<File, Long>(entryFiles.size());
+
+		size = 0;
+
+		for (File entryFile : entryFiles)
+		{
+			lastUsed.put(entryFile, entryFile.lastModified());
+			size += entryFile.length();
+		}
+
+		//Order the entries from least to most recently used
+		Collections.sort(entryFiles, new Comparator<File>()
+		{
+			public int compare(File a, File b)
+			{
+				return lastUsed.get(a).compareTo(lastUsed.get(b));
+			}
+		});
+
+		long targetSize = (long)(sizeLimit * EVICTION_TARGET);
+
+		for (int i = 0; i < entryFiles.size() && size > targetSize; i++)
+		{
+			File entryFile = entryFiles.get(i);
+			long entrySize = entryFile.length();
+
+			if (entryFile.delete()) size -= entrySize;
+		}
+	}
+
+	/**
+	 * Lists the files holding the cache entries, deleting any temporary files abandoned by failed writers
+	 * @return The files holding the cache entries
+	 */
+	private List<File> getEntryFiles()
+	{
+		List<File> entryFiles = new ArrayList<File>();
+		File[] entryDirectories = cacheDirectory.listFiles();
+
+		if (entryDirectories == null) return entryFiles;
+
+		long abandonedTime = System.currentTimeMillis() - ABANDONED_TEMP_AGE;
+
+		for (File entryDirectory : entryDirectories)
+		{
+			File[] files = entryDirectory.listFiles();
+
+			if (files == null) continue;
+
+			for (File file : files)
+			{
+				if (file.getName().endsWith(ENTRY_SUFFIX))
+					entryFiles.add(file);
+				else if (file.getName().endsWith(TEMP_SUFFIX) && file.lastModified() < abandonedTime)
+					file.delete();
+			}
+		}
+
+		return entryFiles;
+	}
+
+	/**
+	 * Gets a JSON representation of a base class
+	 * @param classMetricData The base class to obtain a JSON representation of
+	 * @return The JSON representation of the base class
+	 */
+	@SuppressWarnings("unchecked")
+	private static JSONObject toJSON(ClassMetricData classMetricData)
+	{
+		JSONObject classObject = new JSONObject();
+
+		classObject.put("metaData", classMetricData.getMetaData());
+		classObject.put("metrics", classMetricData.getMetrics());
+		classObject.put("methods", new ArrayList<String>(classMetricData.getMethods()));
+		classObject.put("shortMethods", new ArrayList<String>(classMetricData.getShortMethods()));
+		classObject.put("fields", new ArrayList<String>(classMetricData.getFields()));
+		classObject.put("dependencies", new ArrayList<String>(classMetricData.getDependencies()));
+		classObject.put("users", new ArrayList<String>(classMetricData.getUsers()));
+		classObject.put("children", new ArrayList<String>(classMetricData.getChildren()));
+		classObject.put("interfaces", new ArrayList<String>(classMetricData.getInterfaces()));
+		classObject.put("internalDependencies", new ArrayList<String>(classMetricData.getInternalDependencies()));
+		classObject.put("externalCalls", classMetricData.getExternalCalls());
+		classObject.put("internalLibCalls", classMetricData.getInternalLibraryCalls());
+		classObject.put("externalLibCalls", classMetricData.getExternalLibraryCalls());
+		classObject.put("processingStatus", classMetricData.getProcessingStatus().name());
+
+		return classObject;
+	}
+
+	/**
+	 * Extracts a base class from its JSON representation. Unlike a persisted version, call counts are read
+	 * as integers as the base class is still to be post-processed
+	 * @param classObject The JSON representation of the base class
+	 * @return The base class extracted from its JSON representation
+	 */
+	private static ClassMetricData fromJSON(JSONObject classObject)
+	{
+		ClassMetricData classMetricData = new ClassMetricData();
+
+		Map<EClassMetricName, String> metaData = new HashMap<EClassMetricName, String>();
+
+		for (Object entryObject : ((Map<?, ?>)classObject.get("metaData")).entrySet())
+		{
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>)entryObject;
+			metaData.put(EClassMetricName.valueOf((String)entry.getKey()), (String)entry.getValue());
+		}
+
+		Map<EClassMetricName, Integer> metrics = new HashMap<EClassMetricName, Integer>();
+
+		for (Object entryObject : ((Map<?, ?>)classObject.get("metrics")).entrySet())
+		{
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>)entryObject;
+			metrics.put(EClassMetricName.valueOf((String)entry.getKey()), ((Long)entry.getValue()).intValue());
+		}
+
+		classMetricData.setMetaData(metaData);
+		classMetricData.setMetrics(metrics);
+		classMetricData.setMethods(getStringSet(classObject, "methods"));
+		classMetricData.setShortMethods(getStringSet(classObject, "shortMethods"));
+		classMetricData.setFields(getStringSet(classObject, "fields"));
+		classMetricData.setDependencies(getStringSet(classObject, "dependencies"));
+		classMetricData.setUsers(getStringSet(classObject, "users"));
+		classMetricData.setChildren(getStringSet(classObject, "children"));
+		classMetricData.setInterfaces(getStringSet(classObject, "interfaces"));
+		classMetricData.setInternalDependencies(getStringSet(classObject, "internalDependencies"));
+		classMetricData.setExternalCalls(getCountMap(classObject, "externalCalls"));
+		classMetricData.setInternalLibraryCalls(getCountMap(classObject, "internalLibCalls"));
+		classMetricData.setExternalLibraryCalls(getCountMap(classObject, "externalLibCalls"));
+		classMetricData.setProcessingStatus(EProcessingStatus.valueOf((String)classObject.get("processingStatus")));
+
+		return classMetricData;
+	}
+
+	private static Set<String> getStringSet(JSONObject classObject, String key)
+	{
+		Set<String> strings = new SymbolSet();
+
+		for (Object string : (List<?>)classObject.get(key)) strings.add((String)string);
+
+		return strings;
+	}
+
+	private static Map<String, Integer> getCountMap(JSONObject classObject, String key)
+	{
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+
+		for (Object entryObject : ((Map<?, ?>)classObject.get(key)).entrySet())
+		{
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>)entryObject;
+			counts.put((String)entry.getKey(), ((Long)entry.getValue()).intValue());
+		}
+
+		return counts;
+	}
+}
@@ -2,25 +2,36 @@ package extraction;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.EmptyVisitor;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import util.StringUtil;
+import io.FileUtil;
+import config.ConfigKeys;
+import config.ConfigManager;
 
 import model.ClassMetricData;
-import model.MethodMetricData;
-import model.MetricUtil;
 import model.vocab.EClassMetricName;
 import model.vocab.EMethodMetricName;
 import model.vocab.EProcessingStatus;
@@ -33,7 +44,19 @@ import model.vocab.ETypeModifier;
  */
 public class ClassMetricDataFactory
 {
-	private static ClassMetricDataFactory instance;
+	//Names of the extraction engines that may be configured
+	public static final String TREE_ENGINE = "tree";
+	public static final String STREAMING_ENGINE = "streaming";
+	
+	//Each thread is given its own factory, as extraction state is held in fields
+	private static final ThreadLocal<ClassMetricDataFactory> instance = new ThreadLocal<ClassMetricDataFactory>()
+	{
+		@Override
+		protected ClassMetricDataFactory initialValue()
+		{
+			return new ClassMetricDataFactory();
+		}
+	};
 	
 	//ASM class node storing information extracted from
 	//the classes bytecode
@@ -41,13 +64,17 @@ public class ClassMetricDataFactory
 	
 	private int rawSize;
 	
+	//Whether classes are extracted using the single pass streaming engine rather than ClassNode trees
+	private boolean streamingEngine;
+	
 	private ClassMetricDataFactory()
-	{ }
+	{
+		streamingEngine = STREAMING_ENGINE.equalsIgnoreCase(ConfigManager.getStringProperty(ConfigKeys.EXTRACTION_ENGINE, TREE_ENGINE));
+	}
 
 	public static ClassMetricDataFactory getInstance()
 	{
-		if (instance == null) instance = new ClassMetricDataFactory();
-		return instance;
+		return instance.get();
 	}
 	
 	/**
@@ -60,9 +87,51 @@ public class ClassMetricDataFactory
 	{
 		//Create a ClassReader to read from the InputStream
 		ClassReader classReader = new ClassReader(classStream);
-		
+		return getClassMetricData(classReader, classReader.b.length);
+	}
+	
+	/**
+	 * Retrieves a ClassMetricData object with metrics that have been extracted from the given class bytes
+	 * @param classBytes The classes bytecode
+	 * @return The ClassMetricData object corresponding to the class bytes
+	 */
+	public ClassMetricData getClassMetricData(byte[] classBytes)
+	{
+		return getClassMetricData(new ClassReader(classBytes), classBytes.length);
+	}
+	
+	/**
+	 * Retrieves a ClassMetricData object with metrics that have been extracted from part of a buffer
+	 * holding the class bytes, allowing buffers to be reused between classes
+	 * @param buffer The buffer holding the classes bytecode
+	 * @param offset The offset of the classes bytecode within the buffer
+	 * @param length The length of the classes bytecode
+	 * @return The ClassMetricData object corresponding to the class bytes
+	 */
+	public ClassMetricData getClassMetricData(byte[] buffer, int offset, int length)
+	{
+		return getClassMetricData(new ClassReader(buffer, offset, length), length);
+	}
+	
+	/**
+	 * Retrieves a ClassMetricData object with metrics that have been extracted using the given ClassReader
+	 * @param classReader The ClassReader holding the classes bytecode
+	 * @param classSize The size of the classes bytecode
+	 * @return The ClassMetricData object corresponding to the ClassReader
+	 */
+	private ClassMetricData getClassMetricData(ClassReader classReader, int classSize)
+	{
 		//Store the raw size of the class
-		rawSize = classReader.b.length;
+		rawSize = classSize;
+		
+		//Extract all metrics in a single pass over the bytecode if the streaming engine is in use
+		if (streamingEngine)
+		{
+			ClassMetricVisitor classVisitor = new ClassMetricVisitor();
+			classReader.accept(classVisitor, ClassReader.SKIP_DEBUG);
+			
+			return classVisitor.classMetricData;
+		}
 		
 		//Create the ClassNode and accept it using the ClassReader to read in class data from the stream
 		//and store it in the ClassNode
@@ -101,10 +170,10 @@ public class ClassMetricDataFactory
 	 */
 	private void extractClassMetrics(ClassMetricData classMetricData)
 	{
-		extractMetaData(classMetricData);
+		extractMetaData(classMetricData, classNode.name, classNode.superName);
 		extractMemberCounts(classMetricData);
-		extractTypeMetrics(classMetricData);
-		extractAccessMetrics(classMetricData);
+		extractTypeMetrics(classMetricData, classNode.access);
+		extractAccessMetrics(classMetricData, classNode.access);
 		extractFieldMetrics(classMetricData);
 		extractSizeMetrics(classMetricData);
 	}
@@ -120,39 +189,51 @@ public class ClassMetricDataFactory
 		List<FieldNode> fields = classNode.fields;
 
 		for (FieldNode field : fields)
-		{
-			if ((field.access & Opcodes.ACC_PRIVATE) != 0) //Private field
-				classMetricData.incrementMetric(EClassMetricName.PRIVATE_FIELD_COUNT);
-			if ((field.access & Opcodes.ACC_PROTECTED) != 0) //Protected field
-				classMetricData.incrementMetric(EClassMetricName.PROTECTED_FIELD_COUNT);
-			if ((field.access & Opcodes.ACC_PUBLIC) != 0) //Public field
-				classMetricData.incrementMetric(EClassMetricName.PUBLIC_FIELD_COUNT);
-			if ((field.access & Opcodes.ACC_STATIC) != 0) //Static field
-				classMetricData.incrementMetric(EClassMetricName.STATIC_FIELD_COUNT);
-			if ((field.access & Opcodes.ACC_FINAL) != 0) // Final Field
-				classMetricData.incrementMetric(EClassMetricName.FINAL_FIELD_COUNT);
-
-			//Add the field to the ClassMetricData objects set of fields
-			//and add the fields type as a dependency
-			classMetricData.addField(field.name + " " + field.desc);
-			addDependency(classMetricData, Type.getType(field.desc));
-
-			if (field.value == null) //Field has no initialisation value
-				classMetricData.incrementMetric(EClassMetricName.UNINITIALIZED_FIELD_COUNT);
-			else //Field has an initialisation value
-				classMetricData.incrementMetric(EClassMetricName.INITIALIZED_FIELD_COUNT);
-		}
+			extractFieldMetrics(classMetricData, field.access, field.name, field.desc, field.value);
+	}
+	
+	/**
+	 * Extract access/modifier information and initialisation status regarding a single field within the class
+	 * @param classMetricData The ClassMetricData object housing the extracted field information
+	 * @param access The fields access flags
+	 * @param name The fields name
+	 * @param desc The fields type descriptor
+	 * @param value The fields initial value, or null if it has none
+	 */
+	private void extractFieldMetrics(ClassMetricData classMetricData, int access, String name, String desc, Object value)
+	{
+		if ((access & Opcodes.ACC_PRIVATE) != 0) //Private field
+			classMetricData.incrementMetric(EClassMetricName.PRIVATE_FIELD_COUNT);
+		if ((access & Opcodes.ACC_PROTECTED) != 0) //Protected field
+			classMetricData.incrementMetric(EClassMetricName.PROTECTED_FIELD_COUNT);
+		if ((access & Opcodes.ACC_PUBLIC) != 0) //Public field
+			classMetricData.incrementMetric(EClassMetricName.PUBLIC_FIELD_COUNT);
+		if ((access & Opcodes.ACC_STATIC) != 0) //Static field
+			classMetricData.incrementMetric(EClassMetricName.STATIC_FIELD_COUNT);
+		if ((access & Opcodes.ACC_FINAL) != 0) // Final Field
+			classMetricData.incrementMetric(EClassMetricName.FINAL_FIELD_COUNT);
+
+		//Add the field to the ClassMetricData objects set of fields
+		//and add the fields type as a dependency
+		classMetricData.addField(name + " " + desc);
+		addDependency(classMetricData, Type.getType(desc));
+
+		if (value == null) //Field has no initialisation value
+			classMetricData.incrementMetric(EClassMetricName.UNINITIALIZED_FIELD_COUNT);
+		else //Field has an initialisation value
+			classMetricData.incrementMetric(EClassMetricName.INITIALIZED_FIELD_COUNT);
 	}
 
 	/**
 	 * Extracts basic meta-data (class name, super class name, package name) for the class
 	 * @param classMetricData The ClassMetricData object housing the extracted meta-data
+	 * @param className The classes fully qualified name
+	 * @param superName The classes superclass name
 	 */
-	private void extractMetaData(ClassMetricData classMetricData)
+	private void extractMetaData(ClassMetricData classMetricData, String className, String superName)
 	{
 		//Extract the class name, super class, package name and short name for the class
-		String className = classNode.name; //Classes fully qualified (i.e. includes packages)
-		String superClassName = classNode.superName.trim(); //The classes superclass
+		String superClassName = superName.trim(); //The classes superclass
 		String packageName = className.indexOf('/') == -1 ? "" : className.substring(0, className.lastIndexOf('/')); //The package the class belongs to
 		String shortClassName = className.substring(className.lastIndexOf('/') + 1); //The classes short name (i.e. without packages)
 		
@@ -171,17 +252,35 @@ public class ClassMetricDataFactory
 	@SuppressWarnings("unchecked")
 	private void extractMemberCounts(ClassMetricData classMetricData)
 	{
-		int innerClassCount = classNode.innerClasses.size();
-		int interfaceCount = classNode.interfaces.size();
-		int fieldCount = classNode.fields.size();
-		int methodCount = classNode.methods.size();
-
 		//Get the classes methods
 		List<MethodNode> methods = classNode.methods;
+		
+		int methodInstructionCount = 0;
 
 		//Absorb the instruction count from each method
 		for (MethodNode method : methods)
-			classMetricData.incrementMetric(EClassMetricName.INSTRUCTION_COUNT, method.instructions.size());
+			methodInstructionCount += method.instructions.size();
+		
+		setMemberCounts(classMetricData, classNode.innerClasses.size(), classNode.interfaces, classNode.fields.size(),
+						methods.size(), methodInstructionCount);
+	}
+	
+	/**
+	 * Sets the metrics regarding the classes members
+	 * @param classMetricData The ClassMetricData object housing the extracted member information
+	 * @param innerClassCount The number of inner classes declared by the class
+	 * @param interfaces The interfaces implemented by the class
+	 * @param fieldCount The number of fields declared by the class
+	 * @param methodCount The number of methods declared by the class
+	 * @param methodInstructionCount The total number of instructions held by the classes methods
+	 */
+	private void setMemberCounts(ClassMetricData classMetricData, int innerClassCount, List<String> interfaces, int fieldCount,
+			int methodCount, int methodInstructionCount)
+	{
+		int interfaceCount = interfaces.size();
+		
+		//Absorb the instruction count from each method
+		classMetricData.incrementMetric(EClassMetricName.INSTRUCTION_COUNT, methodInstructionCount);
 
 		//Add the number of methods, fields and interfaces to the instruction count
 		classMetricData.incrementMetric(EClassMetricName.INSTRUCTION_COUNT, methodCount + fieldCount + interfaceCount);
@@ -191,8 +290,8 @@ public class ClassMetricDataFactory
 		classMetricData.setMetricValue(EClassMetricName.METHOD_COUNT, methodCount);
 
 		//Add to interfaces implemented to the classes internal set
-		for (Object interfaceImplemented : classNode.interfaces)
-        	classMetricData.addInterface((String)interfaceImplemented); 
+		for (String interfaceImplemented : interfaces)
+        	classMetricData.addInterface(interfaceImplemented); 
 		
 		String className = classMetricData.getClassName(); 
 		
@@ -215,7 +314,7 @@ public class ClassMetricDataFactory
 		classMetricData.setMetricValue(EClassMetricName.IS_INNER_CLASS, 1);
 		
 		//Get the depth of the inner class
-		int innerClassCount = classNode.name.split("$").length - 1;
+		int innerClassCount = className.split("$").length - 1;
 		classMetricData.setMetricValue(EClassMetricName.INNER_CLASS_COUNT, innerClassCount);
 		
 		//Get the classes outer (owning) class
@@ -226,8 +325,9 @@ public class ClassMetricDataFactory
 	/**
 	 * Extracts type metrics (super class count, whether the class is an exception) for the class
 	 * @param classMetricData The ClassMetricData object housing the extracted type information
+	 * @param access The classes access flags
 	 */
-	private void extractTypeMetrics(ClassMetricData classMetricData)
+	private void extractTypeMetrics(ClassMetricData classMetricData, int access)
 	{
 		//Indicate 1 super class if deriving directly from 'Object'
 		if (!classMetricData.getMetaDataValue(EClassMetricName.SUPER_CLASS_NAME).equals("java/lang/Object"))
@@ -240,27 +340,28 @@ public class ClassMetricDataFactory
 			classMetricData.setMetricValue(EClassMetricName.IS_EXCEPTION, 1);
 
 		//Flag whether the class is abstract/interface
-		if ((classNode.access & Opcodes.ACC_ABSTRACT) != 0) classMetricData.setMetricValue(EClassMetricName.IS_ABSTRACT, 1);
-		if ((classNode.access & Opcodes.ACC_INTERFACE) != 0) classMetricData.setMetricValue(EClassMetricName.IS_INTERFACE, 1);
+		if ((access & Opcodes.ACC_ABSTRACT) != 0) classMetricData.setMetricValue(EClassMetricName.IS_ABSTRACT, 1);
+		if ((access & Opcodes.ACC_INTERFACE) != 0) classMetricData.setMetricValue(EClassMetricName.IS_INTERFACE, 1);
 	}
 
 	/**
 	 * Extracts metrics regarding the access (public, private, protected) of the class
 	 * @param classMetricData The ClassMetricData object housing the extracted access information
+	 * @param access The classes access flags
 	 */
-	private void extractAccessMetrics(ClassMetricData classMetricData)
+	private void extractAccessMetrics(ClassMetricData classMetricData, int access)
 	{
-		if ((classNode.access & Opcodes.ACC_PUBLIC) != 0) //Public class
+		if ((access & Opcodes.ACC_PUBLIC) != 0) //Public class
 		{
 			classMetricData.setMetricValue(EClassMetricName.IS_PUBLIC, 1);
 			classMetricData.setMetricValue(EClassMetricName.ACCESS, ETypeModifier.PUBLIC.value());
 		}
-		else if ((classNode.access & Opcodes.ACC_PRIVATE) != 0) //Private class
+		else if ((access & Opcodes.ACC_PRIVATE) != 0) //Private class
 		{
 			classMetricData.setMetricValue(EClassMetricName.IS_PRIVATE, 1);
 			classMetricData.setMetricValue(EClassMetricName.ACCESS, ETypeModifier.PRIVATE.value());
 		}
-		else if ((classNode.access & Opcodes.ACC_PROTECTED) != 0) //Protected class
+		else if ((access & Opcodes.ACC_PROTECTED) != 0) //Protected class
 		{
 			classMetricData.setMetricValue(EClassMetricName.IS_PROTECTED, 1);
 			classMetricData.setMetricValue(EClassMetricName.ACCESS, ETypeModifier.PROTECTED.value());
@@ -277,39 +378,46 @@ public class ClassMetricDataFactory
 	{
 		//Get the classes set of methods
 		List<MethodNode> methodsToExtract = classNode.methods;
-		//Initialise a MethodMetricData set to house the extracted method metrics
-		Set<MethodMetricData> methodSet = new HashSet<MethodMetricData>(methodsToExtract.size());
 
 		//Get the MethodMetricData factory to extract method metrics
 		MethodMetricDataFactory methodDataFactory = MethodMetricDataFactory.getInstance();
 		
-		//TODO: Make this configurable
 		//Establish the list of classes that are considered internal
-		List<String> classesConsideredInternal = new ArrayList<String>();		
-		classesConsideredInternal.add(classNode.name); //Class itself
-		classesConsideredInternal.add(classNode.superName.trim()); //Classes superclass
-		classesConsideredInternal.add(StringUtil.getParent(classNode.name)); //Classes parent (if inner class)
-		classesConsideredInternal.add("java/lang/Object"); //Default base class
+		List<String> classesConsideredInternal = getClassesConsideredInternal(classNode.name, classNode.superName);
 
 		//Get the classes access
 		ETypeModifier classesAccess = ETypeModifier.fromValue(classMetricData.getMetricValue(EClassMetricName.ACCESS));
 		
-		//Extract each methods metric and add it to the set
+		//Extract each methods metrics and consume them using the ClassMetricData object
 		for (MethodNode method : methodsToExtract)
-			methodSet.add(methodDataFactory.getMethodMetricData(method, classesConsideredInternal,
-																classNode.name, classesAccess));
-
-		//Consume all of the method metrics extracted using the ClassMetricData object
-		for(MethodMetricData method : methodSet)
-			consumeMethodMetrics(classMetricData, method);
+			consumeMethodMetrics(classMetricData, methodDataFactory.accumulateMethodMetrics(method, classesConsideredInternal,
+																							classNode.name, classesAccess));
+	}
+	
+	/**
+	 * Establishes the list of classes that are considered internal to the methods of a class
+	 * @param className The classes name
+	 * @param superName The classes superclass name
+	 * @return The list of classes considered internal
+	 */
+	private List<String> getClassesConsideredInternal(String className, String superName)
+	{
+		//TODO: Make this configurable
+		List<String> classesConsideredInternal = new ArrayList<String>();		
+		classesConsideredInternal.add(className); //Class itself
+		classesConsideredInternal.add(superName.trim()); //Classes superclass
+		classesConsideredInternal.add(StringUtil.getParent(className)); //Classes parent (if inner class)
+		classesConsideredInternal.add("java/lang/Object"); //Default base class
+		
+		return classesConsideredInternal;
 	}
 	
 	/**
 	 * Consumes all of a methods extracted metrics using a ClassMetricData object
 	 * @param classMetricData The ClassMetricData object housing the extracted method metrics
-	 * @param methodData The method to be consumed
+	 * @param methodData The accumulator holding the method to be consumed
 	 */
-	private void consumeMethodMetrics(ClassMetricData classMetricData, MethodMetricData methodData)
+	private void consumeMethodMetrics(ClassMetricData classMetricData, MethodMetricAccumulator methodData)
 	{
 		//Increment class-level constructor count
 	    if (methodData.getMetricValue(EMethodMetricName.IS_CONSTRUCTOR) ==  1)
@@ -421,22 +529,42 @@ public class ClassMetricDataFactory
 		
 		//Extract dependencies from methods
 		for (MethodNode method : methods)
-		{
-			//Add all exception types as dependencies
-			for (Object exception : method.exceptions)
-				classMetricData.addDependency((String)exception);
-			
-			//Add return type as a dependency
-			Type type = Type.getReturnType(method.desc);
-			addDependency(classMetricData, type);
+			extractMethodDependencies(classMetricData, (List<String>)method.exceptions, method.desc);
+		
+		completeDependencies(classMetricData);
+	}
+	
+	/**
+	 * Extract the dependencies held by a methods signature (exceptions, return and argument types)
+	 * into the ClassMetricData object
+	 * @param classMetricData The ClassMetricData object housing the extracted dependencies
+	 * @param exceptions The internal names of the exceptions thrown by the method
+	 * @param desc The methods descriptor
+	 */
+	private void extractMethodDependencies(ClassMetricData classMetricData, List<String> exceptions, String desc)
+	{
+		//Add all exception types as dependencies
+		for (String exception : exceptions)
+			classMetricData.addDependency(exception);
+		
+		//Add return type as a dependency
+		Type type = Type.getReturnType(desc);
+		addDependency(classMetricData, type);
 
-			//Add arg types as dependencies
-			Type[] argTypes = Type.getArgumentTypes(method.desc);
-			
-			for (int i = 0; i < argTypes.length; i++)
-				addDependency(classMetricData, argTypes[i]);
-		}
+		//Add arg types as dependencies
+		Type[] argTypes = Type.getArgumentTypes(desc);
 		
+		for (int i = 0; i < argTypes.length; i++)
+			addDependency(classMetricData, argTypes[i]);
+	}
+	
+	/**
+	 * Removes all redundant dependencies once every dependency has been extracted and sets the
+	 * classes out degree count
+	 * @param classMetricData The ClassMetricData object housing the extracted dependencies
+	 */
+	private void completeDependencies(ClassMetricData classMetricData)
+	{
 		//Remove all redundant dependencies from the class
 		removeRedundantDependencies(classMetricData);
 		
@@ -462,7 +590,7 @@ public class ClassMetricDataFactory
 	 */
 	private void removeSelfDependency(ClassMetricData classMetricData)
 	{
-		classMetricData.removeDependency(classNode.name);
+		classMetricData.removeDependency(classMetricData.getClassName());
 	}
 
 	/**
@@ -550,11 +678,11 @@ public class ClassMetricDataFactory
 
 			//Flag the class as an I/O class if dependency is an I/O type
 			if(typeIsIO(dependency))
-				MetricUtil.setMetricValue(classMetricData.getMetrics(), EClassMetricName.IS_IO_CLASS, 1);
+				classMetricData.setMetricValue(EClassMetricName.IS_IO_CLASS, 1);
 			
 			//Flag the class as an I/O class if dependency is a GUI type
 			if(typeIsGUI(dependency))
-				MetricUtil.setMetricValue(classMetricData.getMetrics(), EClassMetricName.IS_GUI_CLASS, 1);
+				classMetricData.setMetricValue(EClassMetricName.IS_GUI_CLASS, 1);
 		}
 		else if (type.getSort() == Type.ARRAY) //Array type
 		{
@@ -624,4 +752,233 @@ public class ClassMetricDataFactory
 		
 		classMetricData.setMetricValue(EClassMetricName.NORMALIZED_BRANCH_COUNT, normalizedBranchCount);
 	}
+	
+	/**
+	 * Class visitor that extracts all class-level metrics, method-level metrics and dependencies in a single
+	 * pass over the classes bytecode as it is read, producing the same ClassMetricData as the ClassNode based
+	 * extraction without building a ClassNode tree
+	 */
+	private class ClassMetricVisitor extends EmptyVisitor
+	{
+		//The ClassMetricData object housing the extracted information
+		private ClassMetricData classMetricData = new ClassMetricData();
+		
+		//The classes interfaces
+		private List<String> interfaces;
+		//The number of inner classes declared by the class
+		private int innerClassCount;
+		//The number of fields declared by the class
+		private int fieldCount;
+
+		//The visitor of the classes methods, consuming each method as its visit ends
+		private MethodMetricVisitor methodVisitor;
+		//The number of methods declared by the class
+		private int methodCount;
+		//The number of instructions within the classes methods
+		private int methodInstructionCount;
+		
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+		{
+			this.interfaces = interfaces == null ? new ArrayList<String>() : Arrays.asList(interfaces);
+			
+			extractMetaData(classMetricData, name, superName);
+			extractTypeMetrics(classMetricData, access);
+			extractAccessMetrics(classMetricData, access);
+			//Size metrics are extracted before method metrics are consumed, as with the ClassNode based extraction
+			extractSizeMetrics(classMetricData);
+			
+			List<String> classesConsideredInternal = getClassesConsideredInternal(name, superName);
+			ETypeModifier classesAccess = ETypeModifier.fromValue(classMetricData.getMetricValue(EClassMetricName.ACCESS));
+			
+			methodVisitor = new MethodMetricVisitor(classesConsideredInternal, classMetricData.getClassName(), classesAccess)
+			{
+				public void visitEnd()
+				{
+					methodInstructionCount += getInstructionCount();
+					
+					//Consume the method metrics extracted using the ClassMetricData object
+					consumeMethodMetrics(classMetricData, getAccumulator());
+				}
+			};
+		}
+		
+		//Annotations are skipped, as the EmptyVisitor would otherwise visit their values, and end each of them,
+		//as if they were the class
+		public AnnotationVisitor visitAnnotationDefault()
+		{
+			return null;
+		}
+		
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+		{
+			return null;
+		}
+		
+		public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible)
+		{
+			return null;
+		}
+		
+		public void visitInnerClass(String name, String outerName, String innerName, int access)
+		{
+			innerClassCount++;
+		}
+		
+		public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
+		{
+			fieldCount++;
+			extractFieldMetrics(classMetricData, access, name, desc, value);
+			
+			return null;
+		}
+		
+		public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+		{
+			//Add the dependencies held by the methods signature
+			List<String> exceptionList = exceptions == null ? new ArrayList<String>() : Arrays.asList(exceptions);
+			extractMethodDependencies(classMetricData, exceptionList, desc);
+			
+			methodCount++;
+			methodVisitor.visitMethod(access, name, desc, exceptions);
+			
+			return methodVisitor;
+		}
+		
+		public void visitEnd()
+		{
+			setMemberCounts(classMetricData, innerClassCount, interfaces, fieldCount, methodCount, methodInstructionCount);
+			
+			classMetricData.setProcessingStatus(EProcessingStatus.BASE_EXTRACTED);
+			
+			completeDependencies(classMetricData);
+			classMetricData.setProcessingStatus(EProcessingStatus.DEPENDENCIES_EXTRACTED);
+		}
+	}
+	
+	/**
+	 * Annotation used by the test harness, with a default value
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	private @interface HarnessAnnotation
+	{
+		String value() default "default";
+	}
+	
+	/**
+	 * Class used by the test harness, with class, field, method and parameter annotations
+	 */
+	@Deprecated
+	@HarnessAnnotation("class")
+	private static class AnnotatedClass
+	{
+		@HarnessAnnotation("field")
+		public int field;
+		
+		@Deprecated
+		@HarnessAnnotation
+		public void annotatedMethod(@HarnessAnnotation("parameter") int value)
+		{
+			field = value;
+		}
+		
+		public int plainMethod()
+		{
+			return field;
+		}
+	}
+	
+	/** Test harness: extracts the annotated harness classes, and each class in the given archives, with both the
+	 * tree and streaming engines, reporting any class for which the engines extract different information */
+	public static void main(String[] args) throws IOException
+	{
+		ClassMetricDataFactory factory = new ClassMetricDataFactory();
+		List<String> classNames = new ArrayList<String>();
+		List<byte[]> classes = new ArrayList<byte[]>();
+		
+		for (Class<?> harnessClass : new Class<?>[] {HarnessAnnotation.class, AnnotatedClass.class})
+		{
+			String classFileName = harnessClass.getName().substring(harnessClass.getName().lastIndexOf('.') + 1) + ".class";
+			classNames.add(harnessClass.getName());
+			classes.add(FileUtil.readBytes(harnessClass.getResourceAsStream(classFileName)));
+		}
+		
+		for (String archiveName : args)
+		{
+			ZipFile archive = new ZipFile(archiveName);
+			
+			try
+			{
+				Enumeration<? extends ZipEntry> entries = archive.entries();
+				
+				while (entries.hasMoreElements())
+				{
+					ZipEntry entry = entries.nextElement();
+					
+					if (!FileUtil.isClassFile(entry.getName())) continue;
+					
+					classNames.add(entry.getName());
+					classes.add(FileUtil.readBytes(archive.getInputStream(entry)));
+				}
+			}
+			finally
+			{
+				archive.close();
+			}
+		}
+		
+		int mismatches = 0;
+		
+		for (int i = 0; i < classes.size(); i++)
+		{
+			factory.streamingEngine = false;
+			ClassMetricData treeClass = factory.getClassMetricData(classes.get(i));
+			factory.streamingEngine = true;
+			ClassMetricData streamedClass = factory.getClassMetricData(classes.get(i));
+			
+			String difference = findDifference(treeClass, streamedClass);
+			
+			if (difference != null)
+			{
+				System.out.println("FAIL: " + classNames.get(i) + " " + difference);
+				mismatches++;
+			}
+		}
+		
+		System.out.println(classes.size() + " classes, " + mismatches + " mismatches");
+	}
+	
+	/**
+	 * Compares the information extracted for a class by each engine
+	 * @param treeClass The class extracted by the tree engine
+	 * @param streamedClass The class extracted by the streaming engine
+	 * @return A description of the first difference found, or null if the classes hold the same information
+	 */
+	private static String findDifference(ClassMetricData treeClass, ClassMetricData streamedClass)
+	{
+		for (EClassMetricName metric : EClassMetricName.values())
+		{
+			Integer treeValue = treeClass.getMetricValue(metric);
+			Integer streamedValue = streamedClass.getMetricValue(metric);
+			
+			if (treeValue == null ? streamedValue != null : !treeValue.equals(streamedValue))
+				return metric + " " + treeValue + " vs " + streamedValue;
+		}
+		
+		Object[][] members = {
+			{"meta data", treeClass.getMetaData(), streamedClass.getMetaData()},
+			{"methods", treeClass.getMethods(), streamedClass.getMethods()},
+			{"short methods", treeClass.getShortMethods(), streamedClass.getShortMethods()},
+			{"fields", treeClass.getFields(), streamedClass.getFields()},
+			{"dependencies", treeClass.getDependencies(), streamedClass.getDependencies()},
+			{"interfaces", treeClass.getInterfaces(), streamedClass.getInterfaces()},
+			{"internal dependencies", treeClass.getInternalDependencies(), streamedClass.getInternalDependencies()},
+			{"external calls", treeClass.getExternalCalls(), streamedClass.getExternalCalls()},
+			{"internal library calls", treeClass.getInternalLibraryCalls(), streamedClass.getInternalLibraryCalls()},
+			{"external library calls", treeClass.getExternalLibraryCalls(), streamedClass.getExternalLibraryCalls()}};
+		
+		for (Object[] member : members)
+			if (!member[1].equals(member[2])) return member[0] + " " + member[1] + " vs " + member[2];
+		
+		return null;
+	}
 }
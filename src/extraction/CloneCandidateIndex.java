@@ -0,0 +1,185 @@
+package extraction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.ClassMetricData;
+import model.MetricUtil;
+import model.vocab.EClassMetricName;
+
+/**
+ * Index of the classes that are new in a version, used to find the new classes that may be clones of a
+ * class deleted from the previous version without checking every new class. Each way in which a pair of
+ * classes can be considered clones requires the classes to share something that can be indexed exactly:
+ * <ul>
+ * <li>the same class name or short class name, ignoring case</li>
+ * <li>the same distance metric values (a deleted exception class at a distance of less than 1)</li>
+ * <li>the same methods (an exact method match at a distance of less than 1)</li>
+ * <li>all of the deleted classes short methods, or if it has none all of it's fields (a subset of over
+ * 99.998% and 99.98% respectively, which for fewer than 50000 methods or 5000 fields means all of them)</li>
+ * </ul>
+ * The candidates found for a deleted class therefore include every new class it would be found to be a clone
+ * of, so clone detection over the candidates reaches the same decisions as clone detection over all pairs
+ * @author Allan Jones
+ */
+class CloneCandidateIndex
+{
+	//Sizes from which a subset percentage above the clone threshold no longer requires a complete subset
+	private static final int MIN_PARTIAL_METHOD_SUBSET_SIZE = 50000;
+	private static final int MIN_PARTIAL_FIELD_SUBSET_SIZE = 5000;
+
+	//The new classes, with the classes being indexed by their position in the list
+	private List<ClassMetricData> newClasses;
+
+	private Map<String, List<Integer>> classNameIndex = new HashMap<String, List<Integer>>();
+	private Map<String, List<Integer>> shortClassNameIndex = new HashMap<String, List<Integer>>();
+	private Map<List<Integer>, List<Integer>> distanceMetricsIndex = new HashMap<List<Integer>, List<Integer>>();
+	private Map<Set<String>, List<Integer>> methodsIndex = new HashMap<Set<String>, List<Integer>>();
+	private Map<String, List<Integer>> shortMethodIndex = new HashMap<String, List<Integer>>();
+	private Map<String, List<Integer>> fieldIndex = new HashMap<String, List<Integer>>();
+
+	/**
+	 * Creates an index of the given new classes
+	 * @param newClasses The classes that are new in a version
+	 */
+	CloneCandidateIndex(List<ClassMetricData> newClasses)
+	{
+		this.newClasses = newClasses;
+
+		for (int i = 0; i < newClasses.size(); i++)
+		{
+			ClassMetricData newClass = newClasses.get(i);
+
+			addToIndex(classNameIndex, caseFold(newClass.getClassName()), i);
+			addToIndex(shortClassNameIndex, caseFold(newClass.getShortClassName()), i);
+			addToIndex(distanceMetricsIndex, getDistanceMetricValues(newClass), i);
+			addToIndex(methodsIndex, newClass.getMethods(), i);
+
+			for (String shortMethod : newClass.getShortMethods()) addToIndex(shortMethodIndex, shortMethod, i);
+			for (String field : newClass.getFields()) addToIndex(fieldIndex, field, i);
+		}
+	}
+
+	/**
+	 * Gets the new classes that may be clones of a deleted class
+	 * @param deletedClass The class deleted from the previous version
+	 * @return The candidate new classes, in the order the new classes were indexed
+	 */
+	List<ClassMetricData> getCandidates(ClassMetricData deletedClass)
+	{
+		BitSet candidates = new BitSet(newClasses.size());
+
+		addCandidates(candidates, classNameIndex.get(caseFold(deletedClass.getClassName())));
+		addCandidates(candidates, shortClassNameIndex.get(caseFold(deletedClass.getShortClassName())));
+		addCandidates(candidates, methodsIndex.get(deletedClass.getMethods()));
+
+		if (deletedClass.getMetricValue(EClassMetricName.IS_EXCEPTION).intValue() == 1)
+			addCandidates(candidates, distanceMetricsIndex.get(getDistanceMetricValues(deletedClass)));
+
+		//Classes holding (almost) all of the deleted classes short methods, or failing that all of it's fields
+		if (deletedClass.getShortMethodCount() > 0)
+			addSubsetCandidates(candidates, shortMethodIndex, deletedClass.getShortMethods(), MIN_PARTIAL_METHOD_SUBSET_SIZE);
+		else if (deletedClass.getFieldCount() > 0)
+			addSubsetCandidates(candidates, fieldIndex, deletedClass.getFields(), MIN_PARTIAL_FIELD_SUBSET_SIZE);
+		else
+			candidates.set(0, newClasses.size()); //Any class holds all of no methods and fields
+
+		List<ClassMetricData> candidateClasses = new ArrayList<ClassMetricData>(candidates.cardinality());
+
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1))
+			candidateClasses.add(newClasses.get(i));
+
+		return candidateClasses;
+	}
+
+	/**
+	 * Adds the classes that may hold a subset of a deleted classes members. Where the subset must be complete
+	 * only the classes holding the rarest member are added, otherwise the classes holding any member are added
+	 * @param candidates The candidates to add to
+	 * @param memberIndex The index of classes by member
+	 * @param members The deleted classes members
+	 * @param minPartialSubsetSize The number of members from which the subset need not be complete
+	 */
+	private void addSubsetCandidates(BitSet candidates, Map<String, List<Integer>> memberIndex, Set<String> members,
+			int minPartialSubsetSize)
+	{
+		if (members.size() >= minPartialSubsetSize)
+		{
+			for (String member : members) addCandidates(candidates, memberIndex.get(member));
+			return;
+		}
+
+		List<Integer> rarest = null;
+
+		for (String member : members)
+		{
+			List<Integer> classes = memberIndex.get(member);
+
+			//No class holds the member, so no class holds all members
+			if (classes == null) return;
+
+			if (rarest == null || classes.size() < rarest.size()) rarest = classes;
+		}
+
+		addCandidates(candidates, rarest);
+	}
+
+	private static void addCandidates(BitSet candidates, Collection<Integer> classes)
+	{
+		if (classes == null) return;
+
+		for (int i : classes) candidates.set(i);
+	}
+
+	private static <K> void addToIndex(Map<K, List<Integer>> index, K key, int position)
+	{
+		if (key == null) return;
+
+		List<Integer> positions = index.get(key);
+
+		if (positions == null)
+		{
+			positions = new ArrayList<Integer>(1);
+			index.put(key, positions);
+		}
+
+		positions.add(position);
+	}
+
+	/**
+	 * Gets the values of the metrics used to measure the distance between classes
+	 * @param classMetricData The class to get the values of
+	 * @return The distance metric values
+	 */
+	private static List<Integer> getDistanceMetricValues(ClassMetricData classMetricData)
+	{
+		EClassMetricName[] distanceMetrics = MetricUtil.getDistanceMetrics();
+		List<Integer> values = new ArrayList<Integer>(distanceMetrics.length);
+
+		for (EClassMetricName metric : distanceMetrics) values.add(classMetricData.getMetricValue(metric));
+
+		return values;
+	}
+
+	/**
+	 * Folds the case of a name, such that names that are equal ignoring case have the same folded name
+	 * @param name The name to fold
+	 * @return The folded name, or null if the name is null
+	 */
+	private static String caseFold(String name)
+	{
+		if (name == null) return null;
+
+		char[] folded = new char[name.length()];
+
+		for (int i = 0; i < folded.length; i++)
+			folded[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+
+		return new String(folded);
+	}
+}
@@ -13,17 +13,28 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import model.ClassMetricData;
 import model.History;
 import model.MetricUtil;
+import model.SymbolTable;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.EEvolutionCategory;
 import model.vocab.EModificationStatus;
 import model.vocab.EVersionMetricName;
 import persistence.IVersionWriter;
+import persistence.VersionCache;
+import persistence.VersionScan;
 import persistence.VersionWriterFactory;
+import config.ConfigKeys;
+import config.ConfigManager;
 
 /**
  * Factory class for extracting information about a software systems history and the collection of versions associated
@@ -49,6 +60,8 @@ public class HistoryFactory
 
 	//A map of class names -> ClassMetricData indicating the first appearance of classes
 	private Map<String, ClassMetricData> firstAppearances;
+	//Index of the post-processed versions, persisted to allow the history to be extended
+	private HistoryIndex historyIndex;
 	
 	private HistoryFactory()
 	{ }
@@ -68,18 +81,33 @@ public class HistoryFactory
 	 */
 	public History getHistory(File historyFile) throws IOException
 	{
+		//Release the classes of any history processed previously
+		releaseClasses();
+		
 		//TODO: Incorporate processing status checks
 		extractHistoryInfo(historyFile);
 
 		//If versions aren't already extracted, extract them from the InputDataSet and process them
 		if(!versionsExtracted())
 		{
-			//TODO: Log
-//			System.out.println("Versions have not been extracted, starting extraction processing.");
-			//Extract versions
-			extractVersionsFromInputData();
-			//Post-process once all versions once they have been extracted
-			postProcessVersions();
+			//Get the number of versions that have been post-processed already and may be extended
+			int processedVersionCount = getExtendableVersionCount();
+			
+			if(processedVersionCount > 0)
+			{
+				//Extract only the new versions and post-process the tail of the history they affect
+				extractVersionsFromInputData(processedVersionCount + 1);
+				postProcessVersions(processedVersionCount);
+			}
+			else
+			{
+				//TODO: Log
+//				System.out.println("Versions have not been extracted, starting extraction processing.");
+				//Extract versions
+				extractVersionsFromInputData(1);
+				//Post-process once all versions once they have been extracted
+				postProcessVersions(0);
+			}
 		}
 //		else
 //			System.out.println("All versions have been extracted already, skipping extraction process."); //TODO: Log
@@ -87,6 +115,20 @@ public class HistoryFactory
 		return new History(versions, metaData);
 	}
 	
+	/**
+	 * Releases the classes held from histories processed previously, along with the symbols they hold, so
+	 * that memory use does not grow with each history processed by the JVM. Versions of previous histories
+	 * must no longer be used once a further history has been requested
+	 */
+	private void releaseClasses()
+	{
+		firstAppearances = null;
+		
+		//Cached versions hold symbol IDs, so are released before the symbol table is cleared
+		VersionCache.getInstance().clear();
+		SymbolTable.getInstance().clear();
+	}
+	
 	/**
 	 * Extracts the history information for the software system from file
 	 * @param historyFile The history file to extract information from
@@ -183,106 +225,258 @@ public class HistoryFactory
 		return true;
 	}
 	
+	/**
+	 * Determines whether the history may be extended with its new versions rather than being extracted and
+	 * post-processed in full. This is the case if incremental extraction is enabled and the history index
+	 * shows that the earlier versions have already been extracted and post-processed, with the same IDs
+	 * @return The number of versions that have been post-processed already, or 0 if the history must be
+	 * extracted in full
+	 */
+	private int getExtendableVersionCount()
+	{
+		if(!ConfigManager.getBooleanProperty(ConfigKeys.INCREMENTAL_EXTRACTION, false)) return 0;
+		
+		HistoryIndex index;
+		
+		try
+		{
+			index = HistoryIndex.read(HistoryIndex.getIndexFile(metaData.get("short-name")));
+		}
+		catch (IOException e)
+		{
+			//TODO: Log error
+			e.printStackTrace();
+			return 0;
+		}
+		
+		//History has not been post-processed, or has no new versions to add
+		if(index == null || index.getVersionCount() == 0 || index.getVersionCount() >= versionFilesToProcess.size()) return 0;
+		
+		VersionFactory versionFactory = VersionFactory.getInstance();
+		
+		//Each post-processed version must still be the same version and still be persisted
+		for(int i = 1; i <= index.getVersionCount(); i++)
+		{
+			if(!index.getVersionIds().get(i - 1).equals(versions.get(i))) return 0;
+			if(!versionFactory.versionExtracted(metaData.get("short-name"), i)) return 0;
+		}
+		
+		historyIndex = index;
+		
+		return index.getVersionCount();
+	}
+	
 	/**
 	 * Extracts the software systems version history from the input files list
 	 * containing version classes
+	 * @param firstRSN The RSN of the first version to extract, with earlier versions having been extracted previously
 	 * @throws IOException
 	 */
-	private void extractVersionsFromInputData() throws IOException
+	private void extractVersionsFromInputData(int firstRSN) throws IOException
 	{
-		InputDataSet versionData = null;
+		//Get the number of versions that may be extracted at the same time
+		int threadCount = ConfigManager.getIntProperty(ConfigKeys.EXTRACTION_THREAD_COUNT, 1);
 		
-		//For each version file
-		for(int i = 1; i <= versionFilesToProcess.size(); i++)
+		if(threadCount > 1 && versionFilesToProcess.size() > firstRSN)
+			extractVersionsConcurrently(threadCount, firstRSN);
+		else
 		{
-			//Wrap version file in an InputDataSet container
-			versionData = new InputDataSet();
-			
-			File fileToProcess = versionFilesToProcess.get(i - 1);
-			
-			if(fileToProcess.isDirectory())
-				versionData.addInputDir(fileToProcess.getPath(), false);
-			else
-				versionData.addInputFile(versionFilesToProcess.get(i - 1));
-			
-			Version version = null;
-			
-			try
-			{
-				//Extract the version using the InputDataSet
-				version = VersionFactory.getInstance().getVersion(versionData, i, versions.get(i),
-						includePackages, excludePackages);
-				
-			}
-			catch (Exception e)
-			{
-				e.printStackTrace();
-				System.err.println("Failed to extract - RSN: " + i + ", ID: " + versions.get(i));
-			}
-			
-			//Dump the version to an underlying data store using a VersionWriter
-			//TODO: Change to dynamically load class
-			VersionWriterFactory.getInstance().getWriter().writeVersion(metaData.get("short-name"), version);
+			//For each version file
+			for(int i = firstRSN; i <= versionFilesToProcess.size(); i++)
+				extractVersionFromInputData(i);
 		}
 		
+		//Release the base classes held for reuse by following versions
+		VersionFactory.releaseManifests(metaData.get("short-name"));
+		
 		versionFilesToProcess = null;
 		includePackages = null;
 		excludePackages = null;
 	}
 	
 	/**
-	 * Post-process version data once all versions have been extracted
+	 * Extracts the software systems versions using a pool of threads, with each version being
+	 * extracted and written independently of the others
+	 * @param threadCount The number of versions to extract at the same time
+	 * @param firstRSN The RSN of the first version to extract
+	 * @throws IOException if a version could not be extracted from it's input file
 	 */
-	private void postProcessVersions()
+	private void extractVersionsConcurrently(int threadCount, int firstRSN) throws IOException
 	{
-		scanAndMarkSurvivors();
-		extractFirstAppearances();
-		updateDistanceMovedSinceBirth();
-		checkForSimpleRenames();
+		int versionCount = versionFilesToProcess.size() - firstRSN + 1;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, versionCount));
+		List<Future<Void>> extractions = new ArrayList<Future<Void>>(versionCount);
+		
+		try
+		{
+			//Submit an extraction task for each version file
+			for(int i = firstRSN; i <= versionFilesToProcess.size(); i++)
+			{
+				final int rsn = i;
+				
+				extractions.add(executor.submit(new Callable<Void>()
+				{
+					public Void call() throws IOException
+					{
+						extractVersionFromInputData(rsn);
+						return null;
+					}
+				}));
+			}
+			
+			//Wait for each version in RSN order, surfacing the first failure
+			for(Future<Void> extraction : extractions)
+				extraction.get();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while extracting versions", ie);
+		}
+		catch (ExecutionException ee)
+		{
+			Throwable cause = ee.getCause();
+			
+			if(cause instanceof IOException) throw (IOException)cause;
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			
+			throw new IOException("Failed to extract versions", cause);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
 	}
-
+	
 	/**
-	 * Process all versions, updating the relative age of each version, setting it's evolution
-	 * metrics and marking classes that have been deleted
+	 * Extracts a single version from it's input file and writes it to the underlying data store
+	 * @param rsn The Release Sequence Number of the version to extract
+	 * @throws IOException if the version input file could not be read from
 	 */
-	private void scanAndMarkSurvivors()
+	private void extractVersionFromInputData(int rsn) throws IOException
 	{
-		//If only one version, skip, no evolution metrics can be extracted
-		if (versions.size() < 2) return;
+		//Wrap version file in an InputDataSet container
+		InputDataSet versionData = new InputDataSet();
+		
+		File fileToProcess = versionFilesToProcess.get(rsn - 1);
 		
-		VersionFactory versionFactory = VersionFactory.getInstance(); 
+		if(fileToProcess.isDirectory())
+			versionData.addInputDir(fileToProcess.getPath(), false);
+		else
+			versionData.addInputFile(fileToProcess);
 		
-		//Set RSN 1 age to baseline and persist changes
-		Version firstVersion = versionFactory.getVersion(metaData.get("short-name"), 1);
-		firstVersion.setMetricValue(EVersionMetricName.DAYS_SINCE_BIRTH, 1);
+		Version version = null;
+		
+		try
+		{
+			//Extract the version using the InputDataSet
+			version = VersionFactory.getInstance().getVersion(metaData.get("short-name"), versionData, rsn,
+					versions.get(rsn), includePackages, excludePackages);
+			
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			System.err.println("Failed to extract - RSN: " + rsn + ", ID: " + versions.get(rsn));
+		}
+		
+		//Dump the version to an underlying data store using a VersionWriter
+		//TODO: Change to dynamically load class
+		VersionWriterFactory.getInstance().getWriter().writeVersion(metaData.get("short-name"), version);
+	}
+	
+	/**
+	 * Post-process version data once all versions have been extracted. Each version is read and written once,
+	 * in RSN order, holding only the previous version, the versions being read ahead and the first appearances
+	 * of classes in memory. A version is completed once it has been compared to the following version, which
+	 * determines the next version status of it's classes
+	 * @param processedVersionCount The number of versions that have been post-processed previously, or 0 if
+	 * the whole history is to be post-processed
+	 */
+	private void postProcessVersions(int processedVersionCount)
+	{
+		VersionFactory versionFactory = VersionFactory.getInstance();
 		IVersionWriter versionWriter = VersionWriterFactory.getInstance().getWriter();
-		versionWriter.writeVersion(metaData.get("short-name"), firstVersion);
+		
+		//Start a new index when processing the whole history
+		if(processedVersionCount == 0) historyIndex = new HistoryIndex();
+		firstAppearances = new HashMap<String, ClassMetricData>();
+		
+		//The last version processed previously is processed again, as the status of it's classes in the next version is now known
+		int fromRSN = Math.max(processedVersionCount, 1);
+		
+		//Only the modification time of the first version is needed when it is not being processed
+		long firstVersionModifiedTime = 0;
+		if(fromRSN > 1) firstVersionModifiedTime = versionFactory.getVersion(metaData.get("short-name"), 1).getLastModifiedTime();
+		
+		Version previousVersion = null;
+		
+		//Versions are modified before being written back, so are read directly rather than shared through the version cache
+		VersionScan versionScan = new VersionScan(metaData.get("short-name"), fromRSN, versions.size(), VersionProjection.ALL, false);
 		
 		//For each version
-		for (int i = 2; i <= versions.size(); i++)
+		for(int i = fromRSN; i <= versions.size(); i++)
 		{
-			//Get previous version for comparison
-			Version comparingVersion = versionFactory.getVersion(metaData.get("short-name"), i - 1);
-			//Get current versions
-			Version version = versionFactory.getVersion(metaData.get("short-name"), i);
+			Version version = versionScan.next();
+			
+			if(i == 1)
+			{
+				firstVersionModifiedTime = version.getLastModifiedTime();
+				
+				//Set RSN 1 age to baseline, unless there are no later versions to extract evolution metrics from
+				if(versions.size() > 1) version.setMetricValue(EVersionMetricName.DAYS_SINCE_BIRTH, 1);
+			}
 			
-			//Set relative age of version
-			setRelativeAge(version, comparingVersion.getLastModifiedTime(), firstVersion.getLastModifiedTime());
+			//Compare the version to the previous version
+			if(previousVersion != null) markSurvivors(version, previousVersion, firstVersionModifiedTime);
 			
-			//TODO: Log error
-			if (version.getLastModifiedTime() < comparingVersion.getLastModifiedTime())
-				System.out.println("THATS ODD - V2 age is negative " + version.getRSN() + " " + comparingVersion.getRSN());
+			recordFirstAppearances(version, i);
 			
-			//Set evolution flags for version
-			setEvolutionFlags(version, comparingVersion);
-
-			//Mark deleted classes within the version
-			markDeletedClasses(version, comparingVersion);
+			if(previousVersion != null)
+			{
+				//The previous version is complete, update it's distances and write it to the underlying data store
+				updateDistanceMovedSinceBirth(previousVersion);
+				versionWriter.writeVersion(metaData.get("short-name"), previousVersion);
+				
+				checkForSimpleRenames(previousVersion, version);
+			}
 			
-			//Persist version changes to underlying data store
-			versionWriter.writeVersion(metaData.get("short-name"), comparingVersion);
-			versionWriter.writeVersion(metaData.get("short-name"), version);
+			previousVersion = version;
 		}
+		
+		//Complete the last version
+		if(previousVersion != null)
+		{
+			updateDistanceMovedSinceBirth(previousVersion);
+			versionWriter.writeVersion(metaData.get("short-name"), previousVersion);
+		}
+		
+		writeHistoryIndex();
+	}
+
+	/**
+	 * Compares a version to the previous version, updating the relative age of the version, setting it's
+	 * evolution metrics and marking classes in the previous version that have been deleted
+	 * @param version The version being processed
+	 * @param comparingVersion The previous version
+	 * @param firstVersionModifiedTime The last modification time of the first version
+	 */
+	private void markSurvivors(Version version, Version comparingVersion, long firstVersionModifiedTime)
+	{
+		//Set relative age of version
+		setRelativeAge(version, comparingVersion.getLastModifiedTime(), firstVersionModifiedTime);
+		
+		//TODO: Log error
+		if (version.getLastModifiedTime() < comparingVersion.getLastModifiedTime())
+			System.out.println("THATS ODD - V2 age is negative " + version.getRSN() + " " + comparingVersion.getRSN());
+		
+		//Set evolution flags for version
+		setEvolutionFlags(version, comparingVersion);
+
+		//Mark deleted classes within the version
+		markDeletedClasses(version, comparingVersion);
 	}
 
 	/**
@@ -418,52 +612,40 @@ public class HistoryFactory
 	}
 	
 	/**
-	 * Updates the distance moved for each class in each version
+	 * Updates the distance moved for each class in a version
+	 * @param version The version to update
 	 */
-	private void updateDistanceMovedSinceBirth()
+	private void updateDistanceMovedSinceBirth(Version version)
 	{
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		IVersionWriter versionWriter = VersionWriterFactory.getInstance().getWriter();
-	
-		//For each version
-    	for (int i = 1; i <= versions.size(); i++)
-    	{
-    		//Get the Version object
-    		Version version =  versionFactory.getVersion(metaData.get("short-name"), i);
-    		
-    		//For each class in the version
-    		for (ClassMetricData classMetricData : version.getClasses().values())
-    		{
-    			//If next version status is modified, flag as being modified in the next version
-    			if (classMetricData.getMetricValue(EClassMetricName.NEXT_VERSION_STATUS) == EEvolutionCategory.MODIFIED.getValue())
-    				classMetricData.setMetricValue(EClassMetricName.IS_MODIFIED_NEXT_VERSION, 1);
-    			
-    			//If class was born in this version
-    			if (classMetricData.getMetricValue(EClassMetricName.BORN_RSN) == version.getRSN())
-    			{
-    				//Set zero distance movement
-    				classMetricData.setMetricValue(EClassMetricName.DISTANCE_MOVED_SINCE_BIRTH, 0);
-    				//Set status since birth as new born
-    				classMetricData.setMetricValue(EClassMetricName.MODIFICATION_STATUS_SINCE_BIRTH, EModificationStatus.NEW_BORN.getValue());
-    				continue;
-    			}
-    			
-    			//Sanity check to ensure class was not marked as being born in a later version,
-    			//but found in this version
-    			if (classMetricData.getMetricValue(EClassMetricName.BORN_RSN) > version.getRSN())
-    			{
-    				//TODO: Log error
-//    				System.out.println("FATAL ERROR! INVESTIGATE THIS NOW!!");
-    				continue; // keep moving
-    			}
-    			
-    			//Update the distance the class has moved based on it's first version
-    			updateDistanceBasedOnAncestor(classMetricData);
-    		}
-    		
-    		//Write the version to the underlying data store
-    		versionWriter.writeVersion(metaData.get("short-name"), version);
-    	}
+		//For each class in the version
+		for (ClassMetricData classMetricData : version.getClasses().values())
+		{
+			//If next version status is modified, flag as being modified in the next version
+			if (classMetricData.getMetricValue(EClassMetricName.NEXT_VERSION_STATUS) == EEvolutionCategory.MODIFIED.getValue())
+				classMetricData.setMetricValue(EClassMetricName.IS_MODIFIED_NEXT_VERSION, 1);
+			
+			//If class was born in this version
+			if (classMetricData.getMetricValue(EClassMetricName.BORN_RSN) == version.getRSN())
+			{
+				//Set zero distance movement
+				classMetricData.setMetricValue(EClassMetricName.DISTANCE_MOVED_SINCE_BIRTH, 0);
+				//Set status since birth as new born
+				classMetricData.setMetricValue(EClassMetricName.MODIFICATION_STATUS_SINCE_BIRTH, EModificationStatus.NEW_BORN.getValue());
+				continue;
+			}
+			
+			//Sanity check to ensure class was not marked as being born in a later version,
+			//but found in this version
+			if (classMetricData.getMetricValue(EClassMetricName.BORN_RSN) > version.getRSN())
+			{
+				//TODO: Log error
+//				System.out.println("FATAL ERROR! INVESTIGATE THIS NOW!!");
+				continue; // keep moving
+			}
+			
+			//Update the distance the class has moved based on it's first version
+			updateDistanceBasedOnAncestor(classMetricData);
+		}
 	}
 	
 	/**
@@ -475,7 +657,7 @@ public class HistoryFactory
 		try
 		{ 
 			//Get the first appearance of the class
-			ClassMetricData ancestor = firstAppearances.get(classMetricData.getClassName());
+			ClassMetricData ancestor = getFirstAppearance(classMetricData.getClassName());
 			
 			//Mark as never modified if class is an exact match,
 			//else calculate distance moved
@@ -499,104 +681,167 @@ public class HistoryFactory
 	}
 	
 	/**
-	 * Extracts the first appearances for each class that has been apart of the systems history
+	 * Records the first appearance of each class in a version that has not appeared previously. Classes
+	 * that first appeared in versions post-processed previously are found using the history index
+	 * @param version The version whose classes are to be recorded
+	 * @param rsn The versions Release Sequence Number
 	 */
-	private void extractFirstAppearances()
+	private void recordFirstAppearances(Version version, int rsn)
 	{
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		int releaseCount = versions.size();
-		
-		//Get the number of classes in the last version and initialise the map
-		Version lastVersion = versionFactory.getVersion(metaData.get("short-name"), releaseCount);
-		int lastVersionClassCount = lastVersion.getClassCount();
-		firstAppearances = new HashMap<String, ClassMetricData>(lastVersionClassCount);
+		for(Entry<String, ClassMetricData> classEntry : version.getClasses().entrySet())
+		{
+			String className = classEntry.getKey();
+			Integer firstRSN = historyIndex.getFirstAppearances().get(className);
+			
+			//First appeared in an earlier version, which has already been recorded or is loaded when needed
+			if(firstRSN != null && firstRSN < rsn) continue;
+			
+			if(!firstAppearances.containsKey(className))
+			{
+				firstAppearances.put(className, getFirstAppearanceSnapshot(classEntry.getValue()));
+				historyIndex.addFirstAppearance(className, rsn);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the first appearance of a class, loading the version it first appeared in if that version was
+	 * post-processed previously
+	 * @param className The name of the class
+	 * @return The first appearance of the class, or null if the class has not appeared
+	 */
+	private ClassMetricData getFirstAppearance(String className)
+	{
+		ClassMetricData firstAppearance = firstAppearances.get(className);
+		Integer firstRSN = historyIndex.getFirstAppearances().get(className);
 		
-		//For each version
-		for(int i = 1; i <= releaseCount; i++)
+		if(firstAppearance == null && firstRSN != null)
 		{
-			//Get the version object
-			Version version = versionFactory.getVersion(metaData.get("short-name"), i);
-			//Get the versions classes
-			Map<String, ClassMetricData> versionClasses = version.getClasses();
+			//Record all classes that first appeared in the version, so it is only loaded once
+			Version version = VersionFactory.getInstance().getVersion(metaData.get("short-name"), firstRSN);
 			
-			//Add each class that has not appeared previously to the first appearances map
-			for(Entry<String, ClassMetricData> classEntry : versionClasses.entrySet())
+			for(Entry<String, ClassMetricData> classEntry : version.getClasses().entrySet())
 			{
-				String className = classEntry.getKey();
-				
-				if(!firstAppearances.containsKey(className))
-					firstAppearances.put(className, classEntry.getValue());
+				if(firstRSN.equals(historyIndex.getFirstAppearances().get(classEntry.getKey())))
+					firstAppearances.put(classEntry.getKey(), getFirstAppearanceSnapshot(classEntry.getValue()));
 			}
+			
+			firstAppearance = firstAppearances.get(className);
 		}
+		
+		return firstAppearance;
+	}
+	
+	/**
+	 * Creates a compact snapshot of a class to be held as it's first appearance. The snapshot holds only the
+	 * information compared with later versions of the class (it's names, metrics, methods, fields and
+	 * dependencies), sharing all but the metric values with the class as post-processing does not change
+	 * the information compared
+	 * @param classMetricData The class to take a snapshot of
+	 * @return The snapshot of the class
+	 */
+	private ClassMetricData getFirstAppearanceSnapshot(ClassMetricData classMetricData)
+	{
+		ClassMetricData snapshot = new ClassMetricData();
+		
+		snapshot.setMetaData(classMetricData.getMetaData());
+		snapshot.setMetrics(classMetricData.getMetrics());
+		snapshot.setMethods(classMetricData.getMethods());
+		snapshot.setFields(classMetricData.getFields());
+		snapshot.setDependencies(classMetricData.getDependencies());
+		
+		return snapshot;
 	}
 	
 	/**
-	 * Process each class in each version and determines whether simple class renames have occurred
+	 * Records the post-processed versions in the history index and persists the index, allowing
+	 * the history to be extended later
+	 */
+	private void writeHistoryIndex()
+	{
+		for(int i = historyIndex.getVersionCount() + 1; i <= versions.size(); i++)
+			historyIndex.addVersion(versions.get(i));
+		
+		try
+		{
+			historyIndex.write(HistoryIndex.getIndexFile(metaData.get("short-name")));
+		}
+		catch (IOException e)
+		{
+			//TODO: Log error
+			e.printStackTrace();
+		}
+		
+		historyIndex = null;
+		firstAppearances = null;
+	}
+	
+	/**
+	 * Process each class in a version and determines whether simple class renames have occurred
+	 * since the previous version
+	 * @param previousVersion The previous version
+	 * @param currentVersion The version to check for classes renamed from the previous version
 	 */
 	//TODO: This contains a bug...fix it! -- Suspect the bug is in clone checking
 	//TODO: Refactor...break down to be smaller and more readable
-	private void checkForSimpleRenames()
+	private void checkForSimpleRenames(Version previousVersion, Version currentVersion)
 	{
-		VersionFactory versionFactory = VersionFactory.getInstance();
+		//Previous has no deleted classes, skip to the next version
+		if (previousVersion.hasDeletedClasses() == false) return;
+
+		//Get a map of classes that match a class to a list of classes that appear to be clones
+		Map<ClassMetricData, List<ClassMetricData>> deletedClassesMap = getDeletedClasses(previousVersion);
 		
-		//For each version
-		for (int i = 2; i <= versions.size(); i++)
+		//Get the new classes for the current version. As when renames were checked once all versions had been
+		//written, the flags set for renamed classes are not persisted, so the current versions new classes
+		//(which are yet to be written) are checked as copies
+		List<ClassMetricData> currentVersionNewClasses = new ArrayList<ClassMetricData>();
+		
+		for (ClassMetricData newClass : getNewClassesInVersion(currentVersion))
+			currentVersionNewClasses.add(newClass.copy());
+		
+		//Index the new classes, so each deleted class is only compared to the new classes it may be a clone of
+		CloneCandidateIndex candidateIndex = new CloneCandidateIndex(currentVersionNewClasses);
+		
+		//For all deleted classes, compare to each candidate new class in the current version
+		for (Entry<ClassMetricData, List<ClassMetricData>> deletedClassEntry : deletedClassesMap.entrySet())
 		{
-			//Get the previous version
-			Version previousVersion = versionFactory.getVersion(metaData.get("short-name"), i - 1);
-			
-			//Previous has no deleted classes, skip to the next version
-			if (previousVersion.hasDeletedClasses() == false) continue;
-
-			//Get the current version
-			Version currentVersion = versionFactory.getVersion(metaData.get("short-name"), i);
-			
-			//Get a map of classes that match a class to a list of classes that appear to be clones
-			Map<ClassMetricData, List<ClassMetricData>> deletedClassesMap = getDeletedClasses(previousVersion);
-			
-			//Get the new classes for the current version
-			List<ClassMetricData> currentVersionNewClasses = getNewClassesInVersion(currentVersion);
+			//Get the deleted class object
+			ClassMetricData deletedClass = deletedClassEntry.getKey();
 			
-			//For all deleted classes, compare to each new class in the current version
-			for (Entry<ClassMetricData, List<ClassMetricData>> deletedClassEntry : deletedClassesMap.entrySet())
+			//For each class that is new in the current version and may be a clone of the deleted class
+			for (ClassMetricData currentVersionNewClass : candidateIndex.getCandidates(deletedClass))
 			{
-				//Get the deleted class object
-				ClassMetricData deletedClass = deletedClassEntry.getKey();
-				
-				//For each class that is new in the current version
-				for (ClassMetricData currentVersionNewClass : currentVersionNewClasses)
+				//If the deleted class and new class are clones, add the new class
+				//to the list of clones for the deleted class
+				if (isClone(deletedClass, currentVersionNewClass))
 				{
-					//If the deleted class and new class are clones, add the new class
-					//to the list of clones for the deleted class
-					if (isClone(deletedClass, currentVersionNewClass))
-					{
-						//NOTE: If class identified multiple times, then clone
-						//detection is weak
-						if (deletedClassesMap.get(deletedClass) == null)
-							deletedClassesMap.put(deletedClass, new ArrayList<ClassMetricData>());
-						
-						deletedClassesMap.get(deletedClass).add(currentVersionNewClass);
-					}
+					//NOTE: If class identified multiple times, then clone
+					//detection is weak
+					if (deletedClassesMap.get(deletedClass) == null)
+						deletedClassesMap.put(deletedClass, new ArrayList<ClassMetricData>());
+					
+					deletedClassesMap.get(deletedClass).add(currentVersionNewClass);
 				}
 			}
+		}
 
-			//For each deleted class
-			for (Entry<ClassMetricData, List<ClassMetricData>> deletedClassEntry : deletedClassesMap.entrySet())
+		//For each deleted class
+		for (Entry<ClassMetricData, List<ClassMetricData>> deletedClassEntry : deletedClassesMap.entrySet())
+		{
+			//Get the deleted class object
+			ClassMetricData deletedClass = deletedClassEntry.getKey();
+			
+			//If no list matching the deleted class, continue
+			if (deletedClassEntry.getValue() == null) continue;
+			
+			//Else if a unique clone was found for the deleted class
+			else if (deletedClassesMap.get(deletedClass).size() == 1)
 			{
-				//Get the deleted class object
-				ClassMetricData deletedClass = deletedClassEntry.getKey();
-				
-				//If no list matching the deleted class, continue
-				if (deletedClassEntry.getValue() == null) continue;
-				
-				//Else if a unique clone was found for the deleted class
-				else if (deletedClassesMap.get(deletedClass).size() == 1)
-				{
-					//Get the class the deleted class was renamed to
-					ClassMetricData modifiedAs = deletedClassesMap.get(deletedClass).get(0);
-					//Set modification flags for the deleted class
-					setModificationFlags(modifiedAs, deletedClass);
-				}
+				//Get the class the deleted class was renamed to
+				ClassMetricData modifiedAs = deletedClassesMap.get(deletedClass).get(0);
+				//Set modification flags for the deleted class
+				setModificationFlags(modifiedAs, deletedClass);
 			}
 		}
 	}
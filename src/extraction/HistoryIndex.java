@@ -0,0 +1,156 @@
+package extraction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * Records the state of a systems history once its versions have been post-processed, allowing the
+ * history to later be extended with new versions without reprocessing the versions already recorded.
+ * The index holds the IDs of the post-processed versions, so that changes to earlier entries in the
+ * history file can be detected, and the RSN in which each class first appeared
+ * @author Allan Jones
+ */
+public class HistoryIndex
+{
+	//The IDs of the post-processed versions, in RSN order
+	private List<String> versionIds = new ArrayList<String>();
+	//Maps the class names to the RSN of the version they first appeared in
+	private Map<String, Integer> firstAppearances = new HashMap<String, Integer>();
+
+	/**
+	 * Records a post-processed version
+	 * @param versionId The versions ID, recorded in RSN order
+	 */
+	public void addVersion(String versionId)
+	{
+		versionIds.add(versionId);
+	}
+
+	/**
+	 * @return The IDs of the post-processed versions, in RSN order
+	 */
+	public List<String> getVersionIds()
+	{
+		return versionIds;
+	}
+
+	/**
+	 * @return The number of post-processed versions
+	 */
+	public int getVersionCount()
+	{
+		return versionIds.size();
+	}
+
+	/**
+	 * Records the version a class first appeared in, unless it has already been recorded
+	 * @param className The classes name
+	 * @param rsn The Release Sequence Number of the version
+	 */
+	public void addFirstAppearance(String className, int rsn)
+	{
+		if (!firstAppearances.containsKey(className)) firstAppearances.put(className, rsn);
+	}
+
+	/**
+	 * @return Map of class names to the RSN of the version they first appeared in
+	 */
+	public Map<String, Integer> getFirstAppearances()
+	{
+		return firstAppearances;
+	}
+
+	/**
+	 * Gets the file that the index for a system is persisted to
+	 * @param system The system that the index belongs to
+	 * @return The index file for the system
+	 */
+	public static File getIndexFile(String system)
+	{
+		return new File(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_DIRECTORY) + system + "/"
+						+ system + ".history.json");
+	}
+
+	/**
+	 * Writes the index to file
+	 * @param indexFile The file to write the index to
+	 * @throws IOException if the index could not be written
+	 */
+	@SuppressWarnings("unchecked")
+	public void write(File indexFile) throws IOException
+	{
+		JSONObject indexObject = new JSONObject();
+		indexObject.put("versions", versionIds);
+		indexObject.put("firstAppearances", firstAppearances);
+
+		File outputFolder = indexFile.getParentFile();
+
+		if (outputFolder != null && !outputFolder.mkdirs() && !outputFolder.isDirectory())
+			throw new IOException("Could not create folders for path: " + outputFolder.getPath());
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(indexFile));
+
+		try
+		{
+			indexObject.writeJSONString(writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads a persisted index
+	 * @param indexFile The file to read the index from
+	 * @return The index read, or null if there is no index file
+	 * @throws IOException if the index file could not be read or is incorrectly formed
+	 */
+	@SuppressWarnings("rawtypes")
+	public static HistoryIndex read(File indexFile) throws IOException
+	{
+		if (!indexFile.exists()) return null;
+
+		BufferedReader reader = new BufferedReader(new FileReader(indexFile));
+
+		try
+		{
+			JSONObject indexObject = (JSONObject)new JSONParser().parse(reader);
+			HistoryIndex index = new HistoryIndex();
+
+			for (Object versionId : (List)indexObject.get("versions"))
+				index.addVersion((String)versionId);
+
+			for (Object entryObject : ((Map)indexObject.get("firstAppearances")).entrySet())
+			{
+				Map.Entry entry = (Map.Entry)entryObject;
+				index.firstAppearances.put((String)entry.getKey(), ((Long)entry.getValue()).intValue());
+			}
+
+			return index;
+		}
+		catch (ParseException pe)
+		{
+			throw new IOException("Could not parse history index " + indexFile.getPath(), pe);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package extraction;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import model.MethodMetricData;
+import model.vocab.EMethodMetricName;
+
+import util.StringUtil;
+
+/**
+ * Accumulates the information (metrics, dependencies, external calls) extracted from a method. Metric values
+ * are held as primitives indexed by the ordinal of the metric name, and the accumulator is reset and reused
+ * for each method extracted by a thread, so that the information can be consumed by the owning class
+ * without being allocated per method
+ *
+ * @author Allan Jones
+ */
+class MethodMetricAccumulator
+{
+	//The metric names, indexed by ordinal
+	private static final EMethodMetricName[] METRIC_NAMES = EMethodMetricName.values();
+
+	//Method-related metric values, indexed by the ordinal of the metric name
+	private int[] metrics = new int[METRIC_NAMES.length];
+	//The classes that the method depends upon
+	private Set<String> dependencies = new HashSet<String>();
+	//The calls made by the method that are considered external
+	private Map<String, Integer> externalCalls = new HashMap<String, Integer>();
+
+	//The methods name (a combination of the method name and bytecode signature)
+	private String methodName;
+	//The methods short name (a combination of the method name and shortened parameters)
+	private String shortMethodName;
+
+	/**
+	 * Resets the accumulator to begin accumulating the information of a method, with all metric values at 0
+	 * @param name The methods name
+	 * @param desc The methods descriptor
+	 */
+	void reset(String name, String desc)
+	{
+		for (int i = 0; i < metrics.length; i++) metrics[i] = 0;
+
+		//The collections are cleared and reused. A cleared hash map keeps the capacity it grew to, so the order
+		//that a methods entries are consumed in depends on the methods before it, which the consuming class
+		//must not rely upon
+		dependencies.clear();
+		externalCalls.clear();
+
+		methodName = name + " " + desc;
+		shortMethodName = name + " " + MethodMetricDataFactory.shrinkTypeInformationInMethod(desc);
+	}
+
+	public String getMethodName()
+	{
+		return methodName;
+	}
+
+	public String getShortMethodName()
+	{
+		return shortMethodName;
+	}
+
+	public int getMetricValue(EMethodMetricName metric)
+	{
+		return metrics[metric.ordinal()];
+	}
+
+	public void setMetricValue(EMethodMetricName metric, int value)
+	{
+		metrics[metric.ordinal()] = value;
+	}
+
+	/**
+	 * Increments the value of a given metric by 1
+	 * @param metric The metric to increment
+	 */
+	public void incrementMetric(EMethodMetricName metric)
+	{
+		metrics[metric.ordinal()]++;
+	}
+
+	/**
+	 * Increments the value of a metric by a specified value
+	 * @param metric The metric to increment
+	 * @param value The value to increment the metric by
+	 */
+	public void incrementMetric(EMethodMetricName metric, int value)
+	{
+		metrics[metric.ordinal()] += value;
+	}
+
+	public Set<String> getDependencies()
+	{
+		return dependencies;
+	}
+
+	public void addDependency(String dependency)
+	{
+		dependencies.add(dependency);
+	}
+
+	public Map<String, Integer> getExternalCalls()
+	{
+		return externalCalls;
+	}
+
+	/**
+	 * Registers an external call to the outermost class of the given owner
+	 * @param owner The name of the class owning the method being called
+	 */
+	public void addExternalCall(String owner)
+	{
+		incrementMetric(EMethodMetricName.EXTERNAL_METHOD_CALL_COUNT);
+
+		// Get outermost class
+		String target = StringUtil.getParent(owner);
+		Integer currentCallCount = externalCalls.get(target);
+
+		if (currentCallCount == null) //Register a new external call if count does not exist
+			externalCalls.put(target, Integer.valueOf(1));
+		else //Increment count if it does exist
+			externalCalls.put(target, currentCallCount.intValue() + 1);
+	}
+
+	/**
+	 * Creates a MethodMetricData object holding its own copy of the accumulated information
+	 * @return The MethodMetricData object for the method
+	 */
+	MethodMetricData toMethodMetricData()
+	{
+		Map<EMethodMetricName, Integer> metricMap = new HashMap<EMethodMetricName, Integer>(50);
+
+		for (EMethodMetricName metric : METRIC_NAMES)
+			metricMap.put(metric, metrics[metric.ordinal()]);
+
+		return new MethodMetricData(metricMap, new HashMap<String, Integer>(externalCalls),
+									new HashSet<String>(dependencies), methodName, shortMethodName);
+	}
+}
@@ -1,13 +1,8 @@
 package extraction;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import model.MethodMetricData;
-import model.MetricUtil;
 import model.vocab.EMethodMetricName;
 import model.vocab.ETypeModifier;
 
@@ -30,7 +25,15 @@ import util.StringUtil;
  */
 public class MethodMetricDataFactory
 {
-	private static MethodMetricDataFactory instance;
+	//Each thread is given its own factory, as extraction state is held in fields
+	private static final ThreadLocal<MethodMetricDataFactory> instance = new ThreadLocal<MethodMetricDataFactory>()
+	{
+		@Override
+		protected MethodMetricDataFactory initialValue()
+		{
+			return new MethodMetricDataFactory();
+		}
+	};
 	
 	//Node containing method information extracted from
 	//classes bytecode
@@ -42,21 +45,16 @@ public class MethodMetricDataFactory
 	//The scope of the owning class
 	private ETypeModifier owningClassScope;
 	
-	//Map of method-related metrics matching the values that
-	//have been extracted from the MethodNode
-	private Map<EMethodMetricName, Integer> metricMap;
-	//The classes that the method depends upon
-	private Set<String> dependencies;
-	//The calls made by the method that are considered external
-	private Map<String, Integer> externalCalls;
+	//Accumulates the metrics, dependencies and external calls extracted from
+	//the MethodNode, reused for each method extracted by the thread
+	private MethodMetricAccumulator accumulator = new MethodMetricAccumulator();
 	
 	private MethodMetricDataFactory()
 	{ }
 
 	public static MethodMetricDataFactory getInstance()
 	{
-		if (instance == null) instance = new MethodMetricDataFactory();
-		return instance;
+		return instance.get();
 	}
 	
 	/**
@@ -70,48 +68,54 @@ public class MethodMetricDataFactory
 	 */
 	public MethodMetricData getMethodMetricData(MethodNode methodNode, List<String> classesConsideredInternal, String owningClassName,
 			ETypeModifier owningClassScope)
+	{
+		return accumulateMethodMetrics(methodNode, classesConsideredInternal, owningClassName, owningClassScope).toMethodMetricData();
+	}
+	
+	/**
+	 * Extracts the information held by the given MethodNode into the threads method metric accumulator, which
+	 * holds the information until the next method is extracted by the thread
+	 * 
+	 * @param methodNode The ASM MethodNode to extract the method information from
+	 * @param classesConsideredInternal A list of classes that are considered internal to the method
+	 * @param owningClassName The name of the class that owns the method
+	 * @param owningClassScope The scope (i.e. private, protected, public) of the class that owns the method
+	 * @return The accumulator holding the extracted method information
+	 */
+	MethodMetricAccumulator accumulateMethodMetrics(MethodNode methodNode, List<String> classesConsideredInternal, String owningClassName,
+			ETypeModifier owningClassScope)
 	{
 		this.methodNode = methodNode;
 		this.classesConsideredInternal = classesConsideredInternal;
 		this.owningClassName = owningClassName;
 		this.owningClassScope = owningClassScope;
 		
-		return extractMethodMetricData();
+		extractMethodMetricData();
+		
+		return accumulator;
 	}
 	
 	/**
-	 * Extracts various information about a method (variable counts, instructions, type modifiers and scope)
-	 * and produces a MethodMetricData object containing this extracted information
-	 * @return
+	 * Gets the threads method metric accumulator, to be used by extraction that does not build a MethodNode
+	 * @return The threads method metric accumulator
 	 */
-	private MethodMetricData extractMethodMetricData()
+	MethodMetricAccumulator getAccumulator()
 	{
-		initialiseMetricMap();
-		
-		this.dependencies = new HashSet<String>();
-		this.externalCalls = new HashMap<String, Integer>();
-		
-		extractVariableCounts();
-		extractInstructions();
-		extractTypeModifiers();
-		extractScope();
-		
-		return new MethodMetricData(metricMap, externalCalls, dependencies,
-									methodNode.name + " " + methodNode.desc,
-									methodNode.name + " " + shrinkTypeInformationInMethod(methodNode.desc));
+		return accumulator;
 	}
 	
 	/**
-	 * Initialises all metric values within the metric map at 0
+	 * Extracts various information about a method (variable counts, instructions, type modifiers and scope)
+	 * into the accumulator
 	 */
-	private void initialiseMetricMap()
+	private void extractMethodMetricData()
 	{
-		metricMap = new HashMap<EMethodMetricName, Integer>(50);
-		
-		EMethodMetricName[] metrics = EMethodMetricName.values();
+		accumulator.reset(methodNode.name, methodNode.desc);
 		
-		for (EMethodMetricName metric : metrics)
-			metricMap.put(metric, 0);
+		extractVariableCounts();
+		extractInstructions();
+		extractTypeModifiers(accumulator, methodNode.access);
+		extractScope(accumulator, methodNode.access, owningClassScope);
 	}
 	
 	/**
@@ -120,12 +124,12 @@ public class MethodMetricDataFactory
 	 */
 	private void extractVariableCounts()
 	{
-		metricMap.put(EMethodMetricName.PARAM_COUNT, Type.getArgumentTypes(methodNode.desc).length);
-		metricMap.put(EMethodMetricName.EXCEPTION_COUNT, methodNode.exceptions.size());
-		metricMap.put(EMethodMetricName.LOCAL_VAR_COUNT, methodNode.maxLocals);
+		accumulator.setMetricValue(EMethodMetricName.PARAM_COUNT, Type.getArgumentTypes(methodNode.desc).length);
+		accumulator.setMetricValue(EMethodMetricName.EXCEPTION_COUNT, methodNode.exceptions.size());
+		accumulator.setMetricValue(EMethodMetricName.LOCAL_VAR_COUNT, methodNode.maxLocals);
         
 		//Determine if method is a constructor and flag accordingly
-        if (methodNode.name.equals("<init>")) metricMap.put(EMethodMetricName.IS_CONSTRUCTOR, 1);
+        if (methodNode.name.equals("<init>")) accumulator.setMetricValue(EMethodMetricName.IS_CONSTRUCTOR, 1);
 	}
 	
 	/**
@@ -134,7 +138,7 @@ public class MethodMetricDataFactory
 	 * @param argumentsString The arguments to shorten
 	 * @return The shortened arguments string
 	 */
-	private String shrinkTypeInformationInMethod(String argumentsString)
+	static String shrinkTypeInformationInMethod(String argumentsString)
 	{
 		//Split the arguments string into separate types
 		String[] params = argumentsString.split("[(;)]");
@@ -194,7 +198,7 @@ public class MethodMetricDataFactory
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit a variable instruction node and extract
-	 * all of it's associated metrics into the internal metric map
+	 * all of it's associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract variable instruction information
 	 */
 	private TraceMethodVisitor getVariableInstructionVisitor()
@@ -205,23 +209,23 @@ public class MethodMetricDataFactory
 			{
 				//Instruction load
 				if (opcode >= Opcodes.ILOAD && opcode <= Opcodes.DLOAD)
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.I_LOAD_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.I_LOAD_COUNT);
 				//Instruction store
 				if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.DSTORE)
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.I_STORE_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.I_STORE_COUNT);
 				//Reference load
 				if (opcode == Opcodes.ALOAD)
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.REF_LOAD_OP_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.REF_LOAD_OP_COUNT);
 				//Reference store
 				if (opcode == Opcodes.ASTORE)
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.REF_STORE_OP_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.REF_STORE_OP_COUNT);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit an try/catch block instruction node and extract
-	 * all of it's associated metrics into the internal metric map
+	 * all of it's associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract try/catch block instruction information
 	 */
 	private TraceMethodVisitor getTryCatchBlockVisitor()
@@ -230,14 +234,14 @@ public class MethodMetricDataFactory
 		{
 			public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
 			{
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.TRY_CATCH_BLOCK_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.TRY_CATCH_BLOCK_COUNT);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit a field instruction node and extract
-	 * all of it's associated metrics into the internal metric map
+	 * all of it's associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract field instruction information
 	 */
 	private TraceMethodVisitor getFieldVisitor()
@@ -247,16 +251,16 @@ public class MethodMetricDataFactory
 			public void visitFieldInsn(int opcode, String owner, String name, String desc)
 			{
 				if (opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC) //Field store
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.STORE_FIELD_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.STORE_FIELD_COUNT);
 				else if (opcode == Opcodes.GETFIELD || opcode == Opcodes.GETSTATIC) //Field load
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.LOAD_FIELD_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.LOAD_FIELD_COUNT);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit a jump instruction node and extract
-	 * all of it's associated metrics into the internal metric map
+	 * all of it's associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract jump instruction information
 	 */
 	private TraceMethodVisitor getJumpInstructionVisitor()
@@ -265,14 +269,14 @@ public class MethodMetricDataFactory
 		{
 			public void visitJumpInsn(int opcode, Label label)
 			{
-				if (opcode != Opcodes.GOTO) MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.BRANCH_COUNT);
+				if (opcode != Opcodes.GOTO) accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit a type instruction node and extract
-	 * all of it's associated metrics into the internal metric map
+	 * all of it's associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract type instruction information
 	 */
 	private TraceMethodVisitor getTypeVisitor()
@@ -282,40 +286,40 @@ public class MethodMetricDataFactory
 			public void visitTypeInsn(int opcode, String desc)
 			{
 				//instanceof keyword
-				if (opcode == Opcodes.INSTANCEOF) MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.INSTANCE_OF_COUNT);
+				if (opcode == Opcodes.INSTANCEOF) accumulator.incrementMetric(EMethodMetricName.INSTANCE_OF_COUNT);
 				
 				//Type cast
-				if (opcode == Opcodes.CHECKCAST) MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.CHECK_CAST_COUNT);
+				if (opcode == Opcodes.CHECKCAST) accumulator.incrementMetric(EMethodMetricName.CHECK_CAST_COUNT);
 				
 				//New keyword
 				if (opcode == Opcodes.NEW)
 				{
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.NEW_COUNT);
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.NEW_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
 				}
 				
 				// New array declaration
 				if (opcode == Opcodes.ANEWARRAY)
 				{
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.NEW_ARRAY_COUNT);
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.NEW_ARRAY_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
 				}
 
 				//Increment type instruction count
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.TYPE_INSN_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.TYPE_INSN_COUNT);
 			}
 
 			public void visitInsn(int opcode)
 			{
 				//Increment count of instruction with zero operations
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.ZERO_OP_INSN_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.ZERO_OP_INSN_COUNT);
 				
 				//Exception thrown
 				if (opcode == Opcodes.ATHROW)
 				{
 					//Increment branch count and throw count
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.BRANCH_COUNT);
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.THROW_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT);
+					accumulator.incrementMetric(EMethodMetricName.THROW_COUNT);
 				}
 			}
 		};
@@ -323,7 +327,7 @@ public class MethodMetricDataFactory
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit op and load instruction nodes and extract
-	 * all of their associated metrics into the internal metric map
+	 * all of their associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract op and load instruction information
 	 */
 	private TraceMethodVisitor getOpAndLoadVisitor()
@@ -333,20 +337,20 @@ public class MethodMetricDataFactory
 			public void visitLdcInsn(Object cst)
 			{
 				//Increment constant load count
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.CONSTANT_LOAD_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.CONSTANT_LOAD_COUNT);
 			}
 
 			public void visitIincInsn(int var, int increment)
 			{
 				//Increment increment operator count
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.INCREMENT_OP_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.INCREMENT_OP_COUNT);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit switch instruction nodes and extract
-	 * all of their associated metrics into the internal metric map
+	 * all of their associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract switch instruction information
 	 */
 	private TraceMethodVisitor getSwitchVisitor()
@@ -356,20 +360,20 @@ public class MethodMetricDataFactory
 			public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
 			{
 				//Increment branch count by the number of lookups in the switch statement
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.BRANCH_COUNT, labels.length);
+				accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT, labels.length);
 			}
 
 			public void visitTableSwitchInsn(int min, int max, Label dflt, Label[] labels)
 			{
 				//Increment branch count by the number of cases in the switch table
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.BRANCH_COUNT, labels.length);
+				accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT, labels.length);
 			}
 		};
 	}
 
 	/**
 	 * Creates a TraceMethodVisitor that will visit method invocation instruction nodes and extract
-	 * all of their associated metrics into the internal metric map
+	 * all of their associated metrics into the accumulator
 	 * @return The TraceMethodVisitor to extract method invocation instruction information
 	 */
 	private MethodVisitor getMethodVisitor()
@@ -379,85 +383,83 @@ public class MethodMetricDataFactory
 			public void visitMethodInsn(int opcode, String owner, String n, String d)
 			{
 				//Increment method call count
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.METHOD_CALL_COUNT);
+				accumulator.incrementMetric(EMethodMetricName.METHOD_CALL_COUNT);
 				
-				if(isInternalCall(owner)) //Is internal, increment call count
-					MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.INTERNAL_METHOD_CALL_COUNT); 
+				if(isInternalCall(owner, classesConsideredInternal, owningClassName)) //Is internal, increment call count
+					accumulator.incrementMetric(EMethodMetricName.INTERNAL_METHOD_CALL_COUNT); 
 				else
-					addExternalCall(owner); //Register as an external call
+					accumulator.addExternalCall(owner); //Register as an external call
 			
 				//Add owner as dependency
-				dependencies.add(owner);
-			}
-			
-			private boolean isInternalCall(String owner)
-			{
-				//Owning class is internal
-				if (classesConsideredInternal.contains(owner))
-					return true;
-				else
-				{
-					int targetDI = owner.indexOf("$");
-					int callerDI = owningClassName.indexOf("$");
-
-					//Parent class, calls it's inner class
-					if ((callerDI < 0) && (targetDI > 0) && (StringUtil.getParent(owner).equals(owningClassName))
-					// Inner-class, calls its own normal-parent-class
-					|| (callerDI > 0) && (targetDI < 0) && (StringUtil.getParent(owningClassName).equals(owner))
-					// Inner-class, calls another inner-class in the same scope
-					|| (callerDI > 0) && (targetDI > 0) && (StringUtil.getParent(owner).equals(StringUtil.getParent(owningClassName))))
-						return true;
-				}
-				
-				return false;
-			}
-			
-			private void addExternalCall(String owner)
-			{
-				MetricUtil.incrementMetricValue(metricMap, EMethodMetricName.EXTERNAL_METHOD_CALL_COUNT);
-
-				// Get outermost class
-				String target = StringUtil.getParent(owner);
-				Integer currentCallCount = externalCalls.get(target);
-
-				if (currentCallCount == null) //Register a new external call if count does not exist
-					externalCalls.put(target, Integer.valueOf(1));
-				else //Increment count if it does exist
-					externalCalls.put(target, currentCallCount.intValue() + 1);
+				accumulator.addDependency(owner);
 			}
 		};
 	}
 	
 	/**
-	 * Extract types modifiers (abstract, final, static, synchronised) from the MethodNode
-	 * and stores them into the internal metric map
+	 * Determines whether a method call made from within the owning class is considered internal
+	 * @param owner The name of the class owning the method being called
+	 * @param classesConsideredInternal A list of classes that are considered internal to the calling method
+	 * @param owningClassName The name of the class that owns the calling method
+	 * @return Whether the call is internal
+	 */
+	static boolean isInternalCall(String owner, List<String> classesConsideredInternal, String owningClassName)
+	{
+		//Owning class is internal
+		if (classesConsideredInternal.contains(owner))
+			return true;
+		else
+		{
+			int targetDI = owner.indexOf("$");
+			int callerDI = owningClassName.indexOf("$");
+
+			//Parent class, calls it's inner class
+			if ((callerDI < 0) && (targetDI > 0) && (StringUtil.getParent(owner).equals(owningClassName))
+			// Inner-class, calls its own normal-parent-class
+			|| (callerDI > 0) && (targetDI < 0) && (StringUtil.getParent(owningClassName).equals(owner))
+			// Inner-class, calls another inner-class in the same scope
+			|| (callerDI > 0) && (targetDI > 0) && (StringUtil.getParent(owner).equals(StringUtil.getParent(owningClassName))))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Extract types modifiers (abstract, final, static, synchronised) from the methods access flags
+	 * and stores them into the given accumulator
+	 * @param accumulator The accumulator of the method
+	 * @param access The methods access flags
 	 */
-	private void extractTypeModifiers()
+	static void extractTypeModifiers(MethodMetricAccumulator accumulator, int access)
     {
 		//Abstract method
-		if ((methodNode.access & Opcodes.ACC_ABSTRACT) != 0) metricMap.put(EMethodMetricName.IS_ABSTRACT, 1);
+		if ((access & Opcodes.ACC_ABSTRACT) != 0) accumulator.setMetricValue(EMethodMetricName.IS_ABSTRACT, 1);
 		//Final method
-		if ((methodNode.access & Opcodes.ACC_FINAL) != 0) metricMap.put(EMethodMetricName.IS_FINAL, 1);
+		if ((access & Opcodes.ACC_FINAL) != 0) accumulator.setMetricValue(EMethodMetricName.IS_FINAL, 1);
 		//Static method
-		if ((methodNode.access & Opcodes.ACC_STATIC) != 0) metricMap.put(EMethodMetricName.IS_STATIC, 1);
+		if ((access & Opcodes.ACC_STATIC) != 0) accumulator.setMetricValue(EMethodMetricName.IS_STATIC, 1);
 		//Synchronised method
-		if ((methodNode.access & Opcodes.ACC_SYNCHRONIZED) != 0) metricMap.put(EMethodMetricName.IS_SYNCHRONIZED, 1);
+		if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) accumulator.setMetricValue(EMethodMetricName.IS_SYNCHRONIZED, 1);
     }
 	
 	/**
-	 * Extracts the methods scope (private, protected, public) from the MethodNode and stores
-	 * it in the internal metric map 
+	 * Extracts the methods scope (private, protected, public) from the methods access flags and stores
+	 * it in the given accumulator
+	 * @param accumulator The accumulator of the method
+	 * @param access The methods access flags
+	 * @param owningClassScope The scope (i.e. private, protected, public) of the class that owns the method
 	 */
-	private void extractScope()
+	static void extractScope(MethodMetricAccumulator accumulator, int access, ETypeModifier owningClassScope)
 	{
 		//Private method
-		if ((methodNode.access & Opcodes.ACC_PRIVATE) != 0)
-			metricMap.put(EMethodMetricName.SCOPE, ETypeModifier.PRIVATE.value());
+		if ((access & Opcodes.ACC_PRIVATE) != 0)
+			accumulator.setMetricValue(EMethodMetricName.SCOPE, ETypeModifier.PRIVATE.value());
 		//Protected method
-		else if ((methodNode.access & Opcodes.ACC_PROTECTED) != 0)
-			metricMap.put(EMethodMetricName.SCOPE, ETypeModifier.PROTECTED.value());
+		else if ((access & Opcodes.ACC_PROTECTED) != 0)
+			accumulator.setMetricValue(EMethodMetricName.SCOPE, ETypeModifier.PROTECTED.value());
 		//Public method
-		else if (((methodNode.access & Opcodes.ACC_PUBLIC) != 0) && owningClassScope == ETypeModifier.PUBLIC)
-			metricMap.put(EMethodMetricName.SCOPE, ETypeModifier.PUBLIC.value());
+		else if (((access & Opcodes.ACC_PUBLIC) != 0) && owningClassScope == ETypeModifier.PUBLIC)
+			accumulator.setMetricValue(EMethodMetricName.SCOPE, ETypeModifier.PUBLIC.value());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package extraction;
+
+import java.util.List;
+
+import model.vocab.EMethodMetricName;
+import model.vocab.ETypeModifier;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.EmptyVisitor;
+
+/**
+ * Method visitor that extracts method information (metrics, dependencies, external calls) in a single pass
+ * over a methods bytecode as it is read, without building an ASM MethodNode. The extracted information matches
+ * that of the MethodMetricDataFactory. A visitor is reused for each method of a class, accumulating the
+ * information of the current method into the threads method metric accumulator
+ *
+ * @author Allan Jones
+ */
+class MethodMetricVisitor extends EmptyVisitor
+{
+	//The classes that are considered internal according to the method
+	private List<String> classesConsideredInternal;
+	//The name of the class that owns this method
+	private String owningClassName;
+	//The scope (i.e. private, protected, public) of the class that owns the method
+	private ETypeModifier owningClassScope;
+
+	//Accumulates the metrics, dependencies and external calls extracted from the bytecode
+	private MethodMetricAccumulator accumulator = MethodMetricDataFactory.getInstance().getAccumulator();
+	//The number of instructions (including labels and frames) visited
+	private int instructionCount;
+
+	/**
+	 * Creates a visitor for the methods of a class
+	 * @param classesConsideredInternal A list of classes that are considered internal to the methods
+	 * @param owningClassName The name of the class that owns the methods
+	 * @param owningClassScope The scope (i.e. private, protected, public) of the class that owns the methods
+	 */
+	MethodMetricVisitor(List<String> classesConsideredInternal, String owningClassName, ETypeModifier owningClassScope)
+	{
+		this.classesConsideredInternal = classesConsideredInternal;
+		this.owningClassName = owningClassName;
+		this.owningClassScope = owningClassScope;
+	}
+
+	/**
+	 * Begins visiting a method, extracting the information held in the methods header
+	 * @param access The methods access flags
+	 * @param name The methods name
+	 * @param desc The methods descriptor
+	 * @param exceptions The internal names of the exceptions thrown by the method
+	 */
+	void visitMethod(int access, String name, String desc, String[] exceptions)
+	{
+		accumulator.reset(name, desc);
+		instructionCount = 0;
+
+		accumulator.setMetricValue(EMethodMetricName.PARAM_COUNT, Type.getArgumentTypes(desc).length);
+		accumulator.setMetricValue(EMethodMetricName.EXCEPTION_COUNT, exceptions == null ? 0 : exceptions.length);
+
+		//Determine if method is a constructor and flag accordingly
+		if (name.equals("<init>")) accumulator.setMetricValue(EMethodMetricName.IS_CONSTRUCTOR, 1);
+
+		MethodMetricDataFactory.extractTypeModifiers(accumulator, access);
+		MethodMetricDataFactory.extractScope(accumulator, access, owningClassScope);
+	}
+
+	/**
+	 * Gets the accumulator holding the information extracted from the visited method, which is only valid
+	 * until the next method is visited
+	 * @return The accumulator for the visited method
+	 */
+	MethodMetricAccumulator getAccumulator()
+	{
+		return accumulator;
+	}
+
+	/**
+	 * Gets the number of instructions visited, counted as they would be held by an ASM MethodNode
+	 * @return The methods instruction count
+	 */
+	int getInstructionCount()
+	{
+		return instructionCount;
+	}
+
+	//Annotations are skipped, as the EmptyVisitor would otherwise visit their values, and end each of them,
+	//as if they were part of the method
+	public AnnotationVisitor visitAnnotationDefault()
+	{
+		return null;
+	}
+
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible)
+	{
+		return null;
+	}
+
+	public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible)
+	{
+		return null;
+	}
+
+	public void visitMaxs(int maxStack, int maxLocals)
+	{
+		accumulator.setMetricValue(EMethodMetricName.LOCAL_VAR_COUNT, maxLocals);
+	}
+
+	public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
+	{
+		accumulator.incrementMetric(EMethodMetricName.TRY_CATCH_BLOCK_COUNT);
+	}
+
+	public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] stack)
+	{
+		instructionCount++;
+	}
+
+	public void visitLabel(Label label)
+	{
+		instructionCount++;
+	}
+
+	public void visitLineNumber(int line, Label start)
+	{
+		instructionCount++;
+	}
+
+	public void visitIntInsn(int opcode, int operand)
+	{
+		instructionCount++;
+	}
+
+	public void visitMultiANewArrayInsn(String desc, int dims)
+	{
+		instructionCount++;
+	}
+
+	public void visitVarInsn(int opcode, int var)
+	{
+		instructionCount++;
+
+		//Instruction load
+		if (opcode >= Opcodes.ILOAD && opcode <= Opcodes.DLOAD)
+			accumulator.incrementMetric(EMethodMetricName.I_LOAD_COUNT);
+		//Instruction store
+		if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.DSTORE)
+			accumulator.incrementMetric(EMethodMetricName.I_STORE_COUNT);
+		//Reference load
+		if (opcode == Opcodes.ALOAD)
+			accumulator.incrementMetric(EMethodMetricName.REF_LOAD_OP_COUNT);
+		//Reference store
+		if (opcode == Opcodes.ASTORE)
+			accumulator.incrementMetric(EMethodMetricName.REF_STORE_OP_COUNT);
+	}
+
+	public void visitFieldInsn(int opcode, String owner, String name, String desc)
+	{
+		instructionCount++;
+
+		if (opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC) //Field store
+			accumulator.incrementMetric(EMethodMetricName.STORE_FIELD_COUNT);
+		else if (opcode == Opcodes.GETFIELD || opcode == Opcodes.GETSTATIC) //Field load
+			accumulator.incrementMetric(EMethodMetricName.LOAD_FIELD_COUNT);
+	}
+
+	public void visitJumpInsn(int opcode, Label label)
+	{
+		instructionCount++;
+
+		if (opcode != Opcodes.GOTO) accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT);
+	}
+
+	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels)
+	{
+		instructionCount++;
+
+		//Increment branch count by the number of lookups in the switch statement
+		accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT, labels.length);
+	}
+
+	public void visitTableSwitchInsn(int min, int max, Label dflt, Label[] labels)
+	{
+		instructionCount++;
+
+		//Increment branch count by the number of cases in the switch table
+		accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT, labels.length);
+	}
+
+	public void visitLdcInsn(Object cst)
+	{
+		instructionCount++;
+
+		//Increment constant load count
+		accumulator.incrementMetric(EMethodMetricName.CONSTANT_LOAD_COUNT);
+	}
+
+	public void visitIincInsn(int var, int increment)
+	{
+		instructionCount++;
+
+		//Increment increment operator count
+		accumulator.incrementMetric(EMethodMetricName.INCREMENT_OP_COUNT);
+	}
+
+	public void visitTypeInsn(int opcode, String desc)
+	{
+		instructionCount++;
+
+		//instanceof keyword
+		if (opcode == Opcodes.INSTANCEOF) accumulator.incrementMetric(EMethodMetricName.INSTANCE_OF_COUNT);
+
+		//Type cast
+		if (opcode == Opcodes.CHECKCAST) accumulator.incrementMetric(EMethodMetricName.CHECK_CAST_COUNT);
+
+		//New keyword
+		if (opcode == Opcodes.NEW)
+		{
+			accumulator.incrementMetric(EMethodMetricName.NEW_COUNT);
+			accumulator.incrementMetric(EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
+		}
+
+		// New array declaration
+		if (opcode == Opcodes.ANEWARRAY)
+		{
+			accumulator.incrementMetric(EMethodMetricName.NEW_ARRAY_COUNT);
+			accumulator.incrementMetric(EMethodMetricName.TYPE_CONSTRUCTION_COUNT);
+		}
+
+		//Increment type instruction count
+		accumulator.incrementMetric(EMethodMetricName.TYPE_INSN_COUNT);
+	}
+
+	public void visitInsn(int opcode)
+	{
+		instructionCount++;
+
+		//Increment count of instruction with zero operations
+		accumulator.incrementMetric(EMethodMetricName.ZERO_OP_INSN_COUNT);
+
+		//Exception thrown
+		if (opcode == Opcodes.ATHROW)
+		{
+			//Increment branch count and throw count
+			accumulator.incrementMetric(EMethodMetricName.BRANCH_COUNT);
+			accumulator.incrementMetric(EMethodMetricName.THROW_COUNT);
+		}
+	}
+
+	public void visitMethodInsn(int opcode, String owner, String name, String desc)
+	{
+		instructionCount++;
+
+		//Increment method call count
+		accumulator.incrementMetric(EMethodMetricName.METHOD_CALL_COUNT);
+
+		if (MethodMetricDataFactory.isInternalCall(owner, classesConsideredInternal, owningClassName)) //Is internal, increment call count
+			accumulator.incrementMetric(EMethodMetricName.INTERNAL_METHOD_CALL_COUNT);
+		else
+			accumulator.addExternalCall(owner); //Register as an external call
+
+		//Add owner as dependency
+		accumulator.addDependency(owner);
+	}
+}
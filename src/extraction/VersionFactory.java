@@ -1,24 +1,42 @@
 package extraction;
 
+import io.ClassFile;
+import io.FileUtil;
 import io.InputDataSet;
+import io.PackageFilter;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import model.ClassMetricData;
 import model.MetricUtil;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.EProcessingStatus;
 import persistence.IVersionReader;
+import persistence.VersionCache;
 import persistence.VersionReaderFactory;
+import persistence.VersionScan;
 import util.MathUtil;
 import util.StringUtil;
+import config.ConfigKeys;
+import config.ConfigManager;
 
 /**
  * Factory class that will load a Version object comprised of a number of ClassMetricData objects
@@ -38,21 +56,33 @@ public class VersionFactory
 	private String versionId;
 	
 	//TODO: Consider moving include/exclude packages to Config Manager/Util
-	//Specific package names to include in extraction
-	private Set<String> includePackages;
-	//Specific package names to exclude in extraction
-	private Set<String> excludePackages;
+	//Filter of the specific package names to include and exclude in extraction
+	private PackageFilter packageFilter;
 	
 	//Maps the class names to their corresponding metric data containers
 	private Map<String, ClassMetricData> classes;
 	//Maps usage of external classes to the number of times they are used
 	private Map<String, Integer> externalUsage;
 	
+	//The software system the version belongs to, if known
+	private String system;
+	//Manifest of the class files the version is extracted from, if unchanged classes are being reused
+	private VersionManifest manifest;
+	//Manifest of the previous version, holding the base classes that may be reused
+	private VersionManifest previousManifest;
+	
+	//Marks the end of the input in the class extraction pipeline
+	private static final ClassEntry END_OF_INPUT = new ClassEntry(null);
+	
+	//Manifests of recently extracted versions (keyed by system, then RSN), holding their base classes
+	//for reuse by the following version
+	private static final Map<String, Map<Integer, VersionManifest>> recentManifests = new HashMap<String, Map<Integer, VersionManifest>>();
+	
 	
 	private VersionFactory()
 	{ }
 
-	public static VersionFactory getInstance()
+	public static synchronized VersionFactory getInstance()
 	{
 		if (instance == null) instance = new VersionFactory();
 		return instance;
@@ -73,19 +103,60 @@ public class VersionFactory
 	}
 	
 	/**
-	 * Uses a VersionReader to obtain a pre-extracted Version object
+	 * Obtains a pre-extracted Version object from the VersionCache, which uses a VersionReader to load it if it is
+	 * not cached. The version returned may be shared with other callers, so must not be modified (versions to be
+	 * modified and written back should be read with a VersionReader)
 	 * @param system The software system the version belongs to
 	 * @param rsn The versions Release Sequence Number
 	 * @return The Version object that was loaded
 	 */
 	public Version getVersion(String system, int rsn)
 	{
-		//TODO: Use Config Manager to load Reader class
-		IVersionReader versionReader = VersionReaderFactory.getInstance().getVersionReader();
-		
 		//TODO: Log de-serialization time info
-		Version version = versionReader.readVersion(system, rsn); 
-		return version;
+		return getVersion(system, rsn, VersionProjection.ALL);
+	}
+	
+	/**
+	 * Obtains the parts of a pre-extracted Version object that are included by a projection from the VersionCache,
+	 * which uses a VersionReader to load them if they are not cached, skipping the metrics and collections of it's
+	 * classes that are not required. The version returned is only suitable for reporting, and should not be
+	 * processed further or written back
+	 * @param system The software system the version belongs to
+	 * @param rsn The versions Release Sequence Number
+	 * @param projection The parts of the versions classes required
+	 * @return The Version object that was loaded
+	 */
+	public Version getVersion(String system, int rsn, VersionProjection projection)
+	{
+		return VersionCache.getInstance().readVersion(system, rsn, projection);
+	}
+	
+	/**
+	 * Scans a range of pre-extracted versions in RSN order, with the versions following the current version being
+	 * read on background threads (see VersionScan). As with getVersion, the versions are obtained from the
+	 * VersionCache and must not be modified
+	 * @param system The software system the versions belong to
+	 * @param fromRSN The RSN of the first version to scan
+	 * @param toRSN The RSN of the last version to scan
+	 * @return The scan of the versions
+	 */
+	public VersionScan scan(String system, int fromRSN, int toRSN)
+	{
+		return scan(system, fromRSN, toRSN, VersionProjection.ALL);
+	}
+	
+	/**
+	 * Scans the parts of a range of pre-extracted versions that are included by a projection, in RSN order, with
+	 * the versions following the current version being read on background threads (see VersionScan)
+	 * @param system The software system the versions belong to
+	 * @param fromRSN The RSN of the first version to scan
+	 * @param toRSN The RSN of the last version to scan
+	 * @param projection The parts of the versions classes required
+	 * @return The scan of the versions
+	 */
+	public VersionScan scan(String system, int fromRSN, int toRSN, VersionProjection projection)
+	{
+		return new VersionScan(system, fromRSN, toRSN, projection, true);
 	}
 	
 	/**
@@ -100,13 +171,36 @@ public class VersionFactory
 	 */
 	public Version getVersion(InputDataSet inputData, int rsn, String versionId, Set<String> includePackages, Set<String> excludePackages) throws IOException
 	{
-		this.inputData = inputData;
-		this.rsn = rsn;
-		this.versionId = versionId;
-		this.includePackages = includePackages;
-		this.excludePackages = excludePackages;
+		return getVersion(null, inputData, rsn, versionId, includePackages, excludePackages);
+	}
+	
+	/**
+	 * Gets a version of a system by indicating an InputDataSet containing it's classes and extracting classes from
+	 * the data set. Classes that are unchanged since the previous version of the system may be reused rather
+	 * than extracted again
+	 * @param system The software system the version belongs to
+	 * @param inputData The InputDataSet containing the classes
+	 * @param rsn The versions Release Sequence Number
+	 * @param versionId The versions ID
+	 * @param includePackages Specific packages to include in the extraction process
+	 * @param excludePackages Specific packages to exclude in the extraction process
+	 * @return The Version object extracted from the InputDataSet
+	 * @throws IOException if there was an error reading from the InputDataSet
+	 */
+	public Version getVersion(String system, InputDataSet inputData, int rsn, String versionId, Set<String> includePackages,
+			Set<String> excludePackages) throws IOException
+	{
+		//Extraction state is held in fields, so each extraction is performed by its own factory
+		//instance to allow multiple versions to be extracted concurrently
+		VersionFactory extractor = new VersionFactory();
+		
+		extractor.system = system;
+		extractor.inputData = inputData;
+		extractor.rsn = rsn;
+		extractor.versionId = versionId;
+		extractor.packageFilter = new PackageFilter(includePackages, excludePackages);
 		
-		return extractVersion();
+		return extractor.extractVersion();
 	}
 	
 	/**
@@ -119,10 +213,23 @@ public class VersionFactory
 		classes = new HashMap<String, ClassMetricData>(inputData.size());
 		externalUsage = new HashMap<String, Integer>();
 		
+		//Skip archived classes in packages that are not to be extracted without parsing them
+		if (!packageFilter.acceptsAll()) inputData.setPackageFilter(packageFilter);
+		
+		//Prepare to reuse the unchanged classes of the previous version
+		if (system != null && ConfigManager.getBooleanProperty(ConfigKeys.REUSE_UNCHANGED_CLASSES, false))
+		{
+			manifest = new VersionManifest();
+			previousManifest = getRecentManifest(system, rsn - 1);
+		}
+		
 		//TODO: Incorporate status changes
 		// Extract raw class metrics
 		extractClasses();
 		
+		//Keep the manifest for the following version
+		if (manifest != null) storeManifest();
+		
 		// Perform post-processing once all classes have been loaded
 		postProcessClasses();
 
@@ -141,7 +248,51 @@ public class VersionFactory
 	 */
 	private Map<String, ClassMetricData> extractClasses() throws IOException
 	{
+		//Get the number of threads that may parse the versions classes
+		int parserThreadCount = ConfigManager.getIntProperty(ConfigKeys.PARSER_THREAD_COUNT, 1);
+		
+		if (parserThreadCount > 1)
+		{
+			extractClassesConcurrently(parserThreadCount);
+			return classes;
+		}
+		
 		ClassMetricDataFactory classFactory = ClassMetricDataFactory.getInstance();
+		
+		if (useClassFileReader())
+		{
+			InputDataSet.ClassFileReader classFileReader = inputData.getClassFileReader();
+			
+			try
+			{
+				//For each class, parsed straight from the readers reused buffer unless it is unchanged
+				while (classFileReader.hasNext())
+				{
+					try
+					{
+						ClassFile classFile = classFileReader.next();
+						ClassMetricData baseClass = getUnchangedClass(classFile);
+						
+						if (baseClass == null)
+							baseClass = parseClass(classFactory, classFile.getBuffer(), 0, classFile.getLength());
+						
+						addExtractedClass(classFile.getName(), classFile.getCrc(), classFile.getLength(), baseClass);
+					}
+					catch (IOException ioe)
+					{
+						// TODO: Log error
+						System.err.println("Error processing Input Stream from IDS...skipping class");
+						continue;
+					}
+				}
+			}
+			finally
+			{
+				classFileReader.close();
+			}
+			
+			return classes;
+		}
 
 		//For each class
 		for (InputStream classStream : inputData)
@@ -151,29 +302,7 @@ public class VersionFactory
 				//Get the CLassMetricData object containing information about the current class
 				ClassMetricData classMetricData = classFactory.getClassMetricData(classStream);
 
-				//If there are exclude packages, check if the current class is to be skipped
-				if (excludePackages != null && excludePackages.size() > 0)
-				{
-					boolean mustSkip = false;
-
-					//Check classes package name against exclude packages
-					for (String excludePackage : excludePackages)
-						if (classMetricData.getMetaDataValue(EClassMetricName.PACKAGE_NAME).contains(excludePackage))
-							mustSkip = true;
-
-					if (mustSkip) continue;
-				}
-
-				//If there are include packages, check if the current class is to be skipped
-				if (includePackages != null && includePackages.size() > 0) 
-				{
-					//Check classes package name against exclude packages
-					for (String includedPackage : includePackages)
-						if (classMetricData.getMetaDataValue(EClassMetricName.PACKAGE_NAME).contains(includedPackage))
-							classes.put(classMetricData.getClassName(), classMetricData);
-				}
-				else //No include packages specified, assume the class is to be processed
-					classes.put(classMetricData.getClassName(), classMetricData);
+				addExtractedClass(classMetricData);
 				
 				classStream.close();
 			}
@@ -187,6 +316,315 @@ public class VersionFactory
 
 		return classes;
 	}
+	
+	/**
+	 * Extracts all classes from the InputDataSet using a pipeline. The calling thread reads each class
+	 * into memory and passes it to a pool of parser threads through a bounded queue, which caps the
+	 * number of read but unparsed classes held at any one time. Parsed classes are added to the
+	 * Class Name -> ClassMetricData map in the order they were read, so the result is the same as
+	 * a sequential extraction. Once a class fails to parse, no further classes are read, and the failure
+	 * is raised on the calling thread
+	 * @param parserThreadCount The number of threads parsing classes
+	 * @throws IOException if the pipeline was interrupted
+	 */
+	private void extractClassesConcurrently(int parserThreadCount) throws IOException
+	{
+		int queueCapacity = Math.max(1, ConfigManager.getIntProperty(ConfigKeys.PARSER_QUEUE_CAPACITY, 256));
+		
+		final BlockingQueue<ClassEntry> classQueue = new ArrayBlockingQueue<ClassEntry>(queueCapacity);
+		List<ClassEntry> readClasses = new ArrayList<ClassEntry>();
+		//The first failure to parse a class, which stops the reading of classes
+		final AtomicReference<Throwable> parserFailure = new AtomicReference<Throwable>();
+		
+		ExecutorService parsers = Executors.newFixedThreadPool(parserThreadCount);
+		List<Future<?>> parserResults = new ArrayList<Future<?>>(parserThreadCount);
+		
+		try
+		{
+			//Start the parser threads, each taking classes from the queue until the end of the input
+			for (int i = 0; i < parserThreadCount; i++)
+			{
+				parserResults.add(parsers.submit(new Callable<Void>()
+				{
+					public Void call() throws InterruptedException
+					{
+						ClassMetricDataFactory classFactory = ClassMetricDataFactory.getInstance();
+						
+						for (ClassEntry entry = classQueue.take(); entry != END_OF_INPUT; entry = classQueue.take())
+						{
+							try
+							{
+								entry.classMetricData = parseClass(classFactory, entry.bytes, 0, entry.bytes.length);
+							}
+							catch (Throwable t)
+							{
+								//Keep the failure to be raised when the classes are merged. Errors (e.g. a stack
+								//overflow in ASM) are caught too, so that the parser keeps draining the queue
+								//rather than leaving the reader blocked on it
+								entry.failure = t;
+								parserFailure.compareAndSet(null, t);
+							}
+							
+							//Release the classes bytes once it has been parsed
+							entry.bytes = null;
+						}
+						
+						return null;
+					}
+				}));
+			}
+			
+			//Read each class into memory and queue it for parsing
+			if (useClassFileReader())
+				queueClassFiles(classQueue, readClasses, parserFailure);
+			else
+			{
+				for (InputStream classStream : inputData)
+				{
+					if (parserFailure.get() != null) break;
+					
+					try
+					{
+						if (classStream == null) throw new IOException("Class not found");
+						
+						ClassEntry entry = new ClassEntry(FileUtil.readBytes(classStream));
+						readClasses.add(entry);
+						classQueue.put(entry);
+					}
+					catch (IOException ioe)
+					{
+						// TODO: Log error
+						System.err.println("Error processing Input Stream from IDS...skipping class");
+						continue;
+					}
+				}
+			}
+			
+			//Signal the end of the input to each parser and wait for them to finish
+			for (int i = 0; i < parserThreadCount; i++)
+				classQueue.put(END_OF_INPUT);
+			
+			for (Future<?> parserResult : parserResults)
+				parserResult.get();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while extracting classes", ie);
+		}
+		catch (ExecutionException ee)
+		{
+			throw new IOException("Failed to parse classes", ee.getCause());
+		}
+		finally
+		{
+			parsers.shutdownNow();
+		}
+		
+		//Merge the parsed classes in the order they were read
+		for (ClassEntry entry : readClasses)
+		{
+			if (entry.failure instanceof RuntimeException) throw (RuntimeException)entry.failure;
+			if (entry.failure instanceof Error) throw (Error)entry.failure;
+			if (entry.failure != null) throw new IOException("Failed to parse class", entry.failure);
+			
+			addExtractedClass(entry.name, entry.crc, entry.size, entry.classMetricData);
+		}
+	}
+	
+	/**
+	 * Reads each class from the InputDataSet using a ClassFileReader and queues it for parsing, unless it is
+	 * unchanged since the previous version. As the reader reuses its buffer, each class is copied into an
+	 * array of its own before being queued
+	 * @param classQueue The queue of classes to be parsed
+	 * @param readClasses The classes that have been read, in the order they were read
+	 * @param parserFailure The first failure to parse a class, which stops the reading of classes once set
+	 * @throws InterruptedException if interrupted while waiting for space in the queue
+	 */
+	private void queueClassFiles(BlockingQueue<ClassEntry> classQueue, List<ClassEntry> readClasses, AtomicReference<Throwable> parserFailure)
+			throws InterruptedException
+	{
+		InputDataSet.ClassFileReader classFileReader = inputData.getClassFileReader();
+		
+		try
+		{
+			while (classFileReader.hasNext() && parserFailure.get() == null)
+			{
+				try
+				{
+					ClassFile classFile = classFileReader.next();
+					ClassMetricData baseClass = getUnchangedClass(classFile);
+					
+					ClassEntry entry = new ClassEntry(baseClass == null ? classFile.toByteArray() : null);
+					entry.name = classFile.getName();
+					entry.crc = classFile.getCrc();
+					entry.size = classFile.getLength();
+					entry.classMetricData = baseClass;
+					
+					readClasses.add(entry);
+					
+					//Only queue the class for parsing if it has changed
+					if (baseClass == null) classQueue.put(entry);
+				}
+				catch (IOException ioe)
+				{
+					// TODO: Log error
+					System.err.println("Error processing Input Stream from IDS...skipping class");
+					continue;
+				}
+			}
+		}
+		finally
+		{
+			classFileReader.close();
+		}
+	}
+	
+	/**
+	 * Determines whether classes are to be read using a ClassFileReader, rather than from zip file streams.
+	 * This is the case when memory mapped archives are in use, when unchanged classes are being reused
+	 * as their CRC-32 is then required, or when the class metric cache requires the classes bytes
+	 * @return Whether a ClassFileReader is to be used
+	 */
+	private boolean useClassFileReader()
+	{
+		return manifest != null || ClassMetricCache.getInstance().isEnabled() || InputDataSet.MAPPED_ARCHIVE_READER.equalsIgnoreCase(
+				ConfigManager.getStringProperty(ConfigKeys.ARCHIVE_READER, InputDataSet.ZIP_ARCHIVE_READER));
+	}
+	
+	/**
+	 * Extracts a base class from the given class bytes, retrieving it from the class metric cache if enabled
+	 * @param classFactory The factory extracting classes for the current thread
+	 * @param buffer The buffer holding the classes bytecode
+	 * @param offset The offset of the classes bytecode within the buffer
+	 * @param length The length of the classes bytecode
+	 * @return The extracted base class
+	 */
+	private ClassMetricData parseClass(ClassMetricDataFactory classFactory, byte[] buffer, int offset, int length)
+	{
+		ClassMetricCache classCache = ClassMetricCache.getInstance();
+		
+		if (classCache.isEnabled()) return classCache.getClassMetricData(buffer, offset, length);
+		
+		return classFactory.getClassMetricData(buffer, offset, length);
+	}
+	
+	/**
+	 * Gets the base class extracted from a class file in the previous version, if the class file is unchanged
+	 * @param classFile The class file to check
+	 * @return The previous versions base class, or null if the class file has changed or is not being reused
+	 */
+	private ClassMetricData getUnchangedClass(ClassFile classFile)
+	{
+		if (previousManifest == null) return null;
+		
+		return previousManifest.getUnchangedClass(classFile.getName(), classFile.getCrc(), classFile.getLength());
+	}
+	
+	/**
+	 * Adds an extracted base class to the Class Name -> ClassMetricData map, first recording it in the versions
+	 * manifest if unchanged classes are being reused. As post-processing modifies the classes in the map, the
+	 * class recorded in the manifest is kept unmodified and a copy is added to the map instead
+	 * @param name The path of the class file the class was extracted from
+	 * @param crc The CRC-32 of the class file
+	 * @param size The size of the class file
+	 * @param baseClass The extracted base class
+	 */
+	private void addExtractedClass(String name, long crc, int size, ClassMetricData baseClass)
+	{
+		if (manifest != null)
+		{
+			manifest.addEntry(name, crc, size, baseClass);
+			baseClass = baseClass.copy();
+		}
+		
+		addExtractedClass(baseClass);
+	}
+	
+	/**
+	 * Stores the versions manifest so that its base classes may be reused by the following version, releasing
+	 * the previous versions manifest
+	 */
+	private void storeManifest()
+	{
+		synchronized (recentManifests)
+		{
+			Map<Integer, VersionManifest> systemManifests = recentManifests.get(system);
+			
+			if (systemManifests == null)
+			{
+				systemManifests = new HashMap<Integer, VersionManifest>();
+				recentManifests.put(system, systemManifests);
+			}
+			
+			systemManifests.remove(rsn - 1);
+			systemManifests.put(rsn, manifest);
+		}
+		
+		previousManifest = null;
+	}
+	
+	/**
+	 * Gets the manifest of a recently extracted version of a system, holding the versions base classes
+	 * @param system The software system the version belongs to
+	 * @param rsn The versions Release Sequence Number
+	 * @return The versions manifest, or null if the version has not been extracted recently
+	 */
+	private static VersionManifest getRecentManifest(String system, int rsn)
+	{
+		synchronized (recentManifests)
+		{
+			Map<Integer, VersionManifest> systemManifests = recentManifests.get(system);
+			
+			return systemManifests == null ? null : systemManifests.get(rsn);
+		}
+	}
+	
+	/**
+	 * Releases the manifests (and the base classes they hold) of all recently extracted versions of a system.
+	 * This should be invoked once all versions of the system have been extracted
+	 * @param system The software system to release the manifests of
+	 */
+	public static void releaseManifests(String system)
+	{
+		synchronized (recentManifests)
+		{
+			recentManifests.remove(system);
+		}
+	}
+	
+	/**
+	 * Adds an extracted class to the Class Name -> ClassMetricData map, unless it is not
+	 * part of the include packages or is part of the exclude packages
+	 * @param classMetricData The extracted class
+	 */
+	private void addExtractedClass(ClassMetricData classMetricData)
+	{
+		//Check the classes package name against the include and exclude packages, as classes
+		//that are not in archives (or not stored under their package path) have yet to be filtered
+		if (packageFilter.accept(classMetricData.getMetaDataValue(EClassMetricName.PACKAGE_NAME)))
+			classes.put(classMetricData.getClassName(), classMetricData);
+	}
+	
+	/**
+	 * A class passed through the extraction pipeline, holding its bytes until it is
+	 * parsed and then the result of parsing it
+	 */
+	private static class ClassEntry
+	{
+		byte[] bytes;
+		//The path, CRC-32 and size of the class file, when read using a ClassFileReader
+		String name;
+		long crc = -1;
+		int size;
+		ClassMetricData classMetricData;
+		Throwable failure;
+		
+		ClassEntry(byte[] bytes)
+		{
+			this.bytes = bytes;
+		}
+	}
 
 	/**
 	 * Post-processes all classes as a whole, following their initial extraction
@@ -209,6 +647,8 @@ public class VersionFactory
 		computeClusteringCoeff();
 		//Compute metrics relating the the inheritence hierarchy
 		computeInheritanceMetrics();
+		//Compute the fingerprints of the classes structures, to be persisted with the classes
+		computeFingerprints();
 		
 		//Mark all classes as having been post-processed
 		markClassesAsPostProcessed();
@@ -245,8 +685,13 @@ public class VersionFactory
 				}
 				else
 				{
-					//Map internal call to count as an internal library
-					classMetricData.getInternalLibraryCalls().put(StringUtil.getParent(classMetricData.getClassName()), timesCalled);
+					//Add the internal call to the count of internal library calls, so that the count does not
+					//depend on the order the external calls are iterated in
+					Map<String, Integer> internalLibraryCalls = classMetricData.getInternalLibraryCalls();
+					String internalLibrary = StringUtil.getParent(classMetricData.getClassName());
+					Integer previousTimesCalled = internalLibraryCalls.get(internalLibrary);
+					
+					internalLibraryCalls.put(internalLibrary, previousTimesCalled == null ? timesCalled : previousTimesCalled + timesCalled);
 					classMetricData.incrementMetric(EClassMetricName.INTERNAL_LIB_METHOD_CALL_COUNT, timesCalled);
 				}
 			}
@@ -858,6 +1303,15 @@ public class VersionFactory
 		return noOfDescendants;
 	}
 	
+	/**
+	 * Computes the fingerprint of each classes structure, once the structure has been finalised
+	 */
+	private void computeFingerprints()
+	{
+		for(ClassMetricData classMetricData : classes.values())
+			classMetricData.getFingerprint();
+	}
+	
 	/**
 	 * Marks each class within the version (processing status) as having been post-processed
 	 */
@@ -0,0 +1,75 @@
+package extraction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import model.ClassMetricData;
+
+/**
+ * Records the CRC-32 and size of each class file that a version was extracted from, allowing the
+ * class files that are unchanged in the following version to be identified without parsing them.
+ * The manifest also holds the base (i.e. not yet post-processed) class extracted from each class
+ * file so that it may be reused. Manifests are only held in memory, as without their base classes
+ * the unchanged class files would still need to be parsed
+ * @author Allan Jones
+ */
+public class VersionManifest
+{
+	//Maps the class file names to their manifest entries
+	private Map<String, ManifestEntry> entries = new HashMap<String, ManifestEntry>();
+
+	/**
+	 * Adds a class file to the manifest
+	 * @param name The path of the class file within its archive or directory
+	 * @param crc The CRC-32 of the class file
+	 * @param size The size of the class file
+	 * @param baseClass The base class extracted from the class file, which must not be modified
+	 */
+	public void addEntry(String name, long crc, int size, ClassMetricData baseClass)
+	{
+		entries.put(name, new ManifestEntry(crc, size, baseClass));
+	}
+
+	/**
+	 * Gets the base class extracted from a class file, provided that the class file recorded in the
+	 * manifest has the same CRC-32 and size as the class file being checked
+	 * @param name The path of the class file within its archive or directory
+	 * @param crc The CRC-32 of the class file being checked
+	 * @param size The size of the class file being checked
+	 * @return The unmodified base class, or null if the class file has changed or no base class is held
+	 */
+	public ClassMetricData getUnchangedClass(String name, long crc, int size)
+	{
+		ManifestEntry entry = entries.get(name);
+
+		if (entry == null || entry.crc != crc || entry.size != size) return null;
+
+		return entry.baseClass;
+	}
+
+	/**
+	 * Calculates the number of class files recorded in the manifest
+	 * @return The number of class files in the manifest
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * A class file recorded in the manifest
+	 */
+	private static class ManifestEntry
+	{
+		long crc;
+		int size;
+		ClassMetricData baseClass;
+
+		ManifestEntry(long crc, int size, ClassMetricData baseClass)
+		{
+			this.crc = crc;
+			this.size = size;
+			this.baseClass = baseClass;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package io;
+
+import java.util.Arrays;
+
+/**
+ * Holds the bytes of a class file read from an input data set along with information
+ * about the entry it was read from. The bytes are held in a buffer that may be larger
+ * than the class file, with the class file occupying the first length bytes
+ * @author Allan Jones
+ */
+public class ClassFile
+{
+	//The path of the class file within its archive or directory
+	String name;
+	//The buffer holding the class files bytes
+	byte[] buffer;
+	//The number of bytes in the buffer that belong to the class file
+	int length;
+	//The CRC-32 of the class file, as recorded by its archive or calculated when read, or -1 if unknown
+	long crc = -1;
+
+	/**
+	 * @return The path of the class file within its archive or directory
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Gets the buffer holding the class files bytes. Only the first length bytes
+	 * belong to the class file
+	 * @return The buffer holding the class files bytes
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+
+	/**
+	 * @return The number of bytes in the class file
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return The CRC-32 of the class file, as recorded by its archive or calculated when read, or -1 if unknown
+	 */
+	public long getCrc()
+	{
+		return crc;
+	}
+
+	/**
+	 * Copies the class files bytes into an array of their own, which remains valid
+	 * once the buffer is reused
+	 * @return A copy of the class files bytes
+	 */
+	public byte[] toByteArray()
+	{
+		return Arrays.copyOf(buffer, length);
+	}
+}
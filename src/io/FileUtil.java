@@ -2,6 +2,8 @@ package io;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -123,4 +125,35 @@ public class FileUtil
 		
 		return file;
 	}
+	
+	/**
+	 * Reads the remaining contents of the specified InputStream into a byte array. The stream is
+	 * closed once it has been read
+	 * @param inputStream The InputStream to read from
+	 * @return The bytes read from the InputStream
+	 * @throws IOException - if the InputStream could not be read from
+	 */
+	public static byte[] readBytes(InputStream inputStream) throws IOException
+	{
+		byte[] buffer = new byte[Math.max(inputStream.available(), 8192)];
+		int length = 0;
+		
+		try
+		{
+			int read;
+			
+			//Read until the end of the stream, growing the buffer when it is full
+			while ((read = inputStream.read(buffer, length, buffer.length - length)) != -1)
+			{
+				length += read;
+				if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+		}
+		finally
+		{
+			inputStream.close();
+		}
+		
+		return (length == buffer.length) ? buffer : Arrays.copyOf(buffer, length);
+	}
 }
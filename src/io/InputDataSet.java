@@ -7,7 +7,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipFile;
 
 /**
@@ -18,6 +20,10 @@ import java.util.zip.ZipFile;
  */
 public class InputDataSet implements Iterable<InputStream>
 {
+	//Names of the readers that may be configured for reading archives
+	public static final String ZIP_ARCHIVE_READER = "zip";
+	public static final String MAPPED_ARCHIVE_READER = "mapped";
+	
 	//The set of files that are part of the input data set
 	private Set<File> files = new HashSet<File>();
 	//Flag indicating whether the current element being processed is an archive
@@ -26,6 +32,8 @@ public class InputDataSet implements Iterable<InputStream>
     private long fileSize = 0;
     //The time at which the input data set was last modified
     public long lastModTime = -1;
+    //Filter deciding which class files within archives are read, or null if all are read
+    private PackageFilter packageFilter;
     
     /**
      * Calculates the cumulative total file size of the files in the input data set
@@ -79,6 +87,16 @@ public class InputDataSet implements Iterable<InputStream>
 		for (File f : dirFiles) addInputFile(f);
 	}
 	
+	/**
+	 * Sets the filter deciding which class files within archives are read, according to the package
+	 * path of their entries. Class files that are not within archives are always read
+	 * @param packageFilter The filter to apply, or null to read all class files
+	 */
+	public void setPackageFilter(PackageFilter packageFilter)
+	{
+		this.packageFilter = packageFilter;
+	}
+	
 	/**
 	 * Calculates the size (i.e. no. of elements) within the input data set
 	 * @return The total number of elements within the input data set
@@ -156,7 +174,7 @@ public class InputDataSet implements Iterable<InputStream>
     				//Create a new zip file using the next files file handles
     				zipFile = new ZipFile(nextFile);
     				//Create a new ZipFileIterator for the archive
-    				archiveIterator = new ZipFileIterator(zipFile);
+    				archiveIterator = new ZipFileIterator(zipFile, packageFilter);
     				
     				//Get the next input stream in the archive
     				inputStream = archiveIterator.next();
@@ -193,6 +211,150 @@ public class InputDataSet implements Iterable<InputStream>
 		}
 	}
 
+	/**
+	 * Creates a reader allowing the class files within the input data set to be read as bytes, with
+	 * archives being memory mapped rather than opened as zip files
+	 * @return The reader for the class files in the input data set
+	 */
+	public ClassFileReader getClassFileReader()
+	{
+		return new ClassFileReader();
+	}
+	
+	/**
+	 * Reads each of the class files within the input data set into the buffer of a single ClassFile,
+	 * which is reused for every class file read. The contents of a ClassFile returned by the reader are
+	 * only valid until the next class file is read
+	 * @author Allan Jones
+	 */
+	public class ClassFileReader
+	{
+		//The ClassFile that each class file is read into
+		private ClassFile classFile = new ClassFile();
+		private Iterator<File> fileSetIterator = files.iterator();
+		//The archive currently being read and the index of the next class file within it
+		private MappedArchive archive;
+		private int archiveIndex;
+		//A class file (not within an archive) that is to be read next
+		private File nextFile;
+		
+		/**
+		 * Determines whether there is another class file to be read, opening the next archive
+		 * in the input data set if the current archive has been read
+		 * @return Whether there is another class file
+		 */
+		public boolean hasNext()
+		{
+			while (nextFile == null && (archive == null || archiveIndex >= archive.size()))
+			{
+				closeArchive();
+				
+				if (!fileSetIterator.hasNext()) return false;
+				
+				File file = fileSetIterator.next();
+				
+				if (FileUtil.isArchive(file.toString()))
+				{
+					try
+					{
+						archive = new MappedArchive(file, packageFilter);
+						
+						//If the archive has been modified later than the current latest modified time, set the last modified time
+						//to that of the archive
+						if (archive.lastModTime > lastModTime) lastModTime = archive.lastModTime;
+					}
+					catch (IOException e)
+					{
+						// TODO Log error
+						e.printStackTrace();
+					}
+				}
+				else
+					nextFile = file;
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Reads the next class file. The reader moves on to the following class file even if
+		 * the class file could not be read
+		 * @return The ClassFile holding the class files bytes
+		 * @throws IOException if the class file could not be read
+		 */
+		public ClassFile next() throws IOException
+		{
+			if (!hasNext()) throw new NoSuchElementException();
+			
+			if (nextFile != null)
+			{
+				File file = nextFile;
+				nextFile = null;
+				
+				readFile(file);
+				
+				//Set the last modified time to that of the file
+				lastModTime = file.lastModified();
+			}
+			else
+				archive.read(archiveIndex++, classFile);
+			
+			return classFile;
+		}
+		
+		/**
+		 * Releases the resources held by the reader
+		 */
+		public void close()
+		{
+			closeArchive();
+		}
+		
+		private void closeArchive()
+		{
+			if (archive != null) archive.close();
+			
+			archive = null;
+			archiveIndex = 0;
+		}
+		
+		/**
+		 * Reads a class file that is not within an archive into the ClassFile, calculating its CRC-32
+		 * as there is no archive entry recording it
+		 * @param file The class file to read
+		 * @throws IOException if the file could not be read
+		 */
+		private void readFile(File file) throws IOException
+		{
+			int length = (int)file.length();
+			
+			if (classFile.buffer == null || classFile.buffer.length < length)
+				classFile.buffer = new byte[Math.max(length, 8192)];
+			
+			//Named relative to its directory, so the same class file is named alike in each version
+			classFile.name = file.getName();
+			classFile.length = 0;
+			
+			FileInputStream fileStream = new FileInputStream(file);
+			
+			try
+			{
+				int read;
+				
+				while (classFile.length < length && (read = fileStream.read(classFile.buffer, classFile.length, length - classFile.length)) != -1)
+					classFile.length += read;
+			}
+			finally
+			{
+				fileStream.close();
+			}
+			
+			CRC32 crc = new CRC32();
+			crc.update(classFile.buffer, 0, classFile.length);
+			classFile.crc = crc.getValue();
+		}
+	}
+
 	/** Test harness 
 	 * @throws FileNotFoundException */
 	public static void main(String[] args) throws IOException
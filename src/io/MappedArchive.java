@@ -0,0 +1,392 @@
+package io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the class files held within a Zip/Jar archive by memory mapping the archive and
+ * parsing its central directory directly, rather than opening it as a ZipFile. Class files
+ * are read into the buffer of a ClassFile that is reused from one class file to the next, so
+ * no streams or per-class arrays are allocated. An archive should only be read by one
+ * thread at a time
+ * @author Allan Jones
+ */
+public class MappedArchive
+{
+	//Signatures of the archive records
+	private static final int END_HEADER_SIGNATURE = 0x06054b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	//Fixed sizes of the archive records
+	private static final int END_HEADER_SIZE = 22;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	//Maximum length of the archive comment following the end header
+	private static final int MAX_COMMENT_SIZE = 0xffff;
+
+	//Compression methods
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	//Extra field holding extended timestamps and NTFS timestamps
+	private static final int EXTENDED_TIMESTAMP_FIELD = 0x5455;
+	private static final int NTFS_FIELD = 0x000a;
+	//Difference between the NTFS epoch (1601) and the Java epoch (1970) in milliseconds
+	private static final long NTFS_EPOCH_OFFSET = 11644473600000L;
+
+	//The memory mapped archive
+	private ByteBuffer archive;
+	//The class file entries within the archive, in central directory order
+	private List<Entry> entries = new ArrayList<Entry>();
+	//The time that the archive was last modified, being the latest modification time of its entries
+	public long lastModTime;
+
+	//Filter deciding which class files are read, or null if all are
+	private PackageFilter packageFilter;
+	//The ClassFile that class files not accepted by their path are read into, to check the package of the class
+	private ClassFile rejectedClassFile;
+
+	//Inflater and buffer for compressed entry data, reused for each class file
+	private Inflater inflater;
+	private byte[] compressed = new byte[0];
+
+	/**
+	 * Memory maps the specified archive and reads its central directory
+	 * @param file The archive to read
+	 * @throws IOException if the archive could not be mapped or is not a valid archive
+	 */
+	public MappedArchive(File file) throws IOException
+	{
+		this(file, null);
+	}
+
+	/**
+	 * Memory maps the specified archive and reads its central directory, keeping only the class
+	 * files accepted by a package filter. Class files that are not accepted by their path are read
+	 * to check the package of the class itself, as the class may not be stored under its package path
+	 * @param file The archive to read
+	 * @param packageFilter The filter deciding which class files are read, or null for all
+	 * @throws IOException if the archive could not be mapped or is not a valid archive
+	 */
+	public MappedArchive(File file, PackageFilter packageFilter) throws IOException
+	{
+		this.packageFilter = packageFilter;
+
+		RandomAccessFile archiveFile = new RandomAccessFile(file, "r");
+
+		try
+		{
+			FileChannel channel = archiveFile.getChannel();
+
+			if (channel.size() > Integer.MAX_VALUE) throw new ZipException("Archive too large to map: " + file);
+
+			//The mapping remains valid once the file has been closed
+			archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			archive.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		finally
+		{
+			archiveFile.close();
+		}
+
+		readCentralDirectory();
+	}
+
+	/**
+	 * Calculates the number of class files within the archive
+	 * @return The number of class files within the archive
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Reads the class file at the given index into the given ClassFile, reusing its buffer
+	 * if it is large enough
+	 * @param index The index of the class file within the archive
+	 * @param classFile The ClassFile to read into
+	 * @throws IOException if the class files data is corrupt or uses an unsupported compression method
+	 */
+	public void read(int index, ClassFile classFile) throws IOException
+	{
+		read(entries.get(index), classFile);
+	}
+
+	/**
+	 * Reads a class file entry into the given ClassFile, reusing its buffer if it is large enough
+	 * @param entry The class file entry
+	 * @param classFile The ClassFile to read into
+	 * @throws IOException if the class files data is corrupt or uses an unsupported compression method
+	 */
+	private void read(Entry entry, ClassFile classFile) throws IOException
+	{
+		//Locate the entries data following its local header
+		int localHeader = entry.localHeaderOffset;
+
+		if (localHeader + LOCAL_HEADER_SIZE > archive.limit() || archive.getInt(localHeader) != LOCAL_HEADER_SIGNATURE)
+			throw new ZipException("Invalid local header for " + entry.name);
+
+		int dataOffset = localHeader + LOCAL_HEADER_SIZE + unsignedShort(localHeader + 26) + unsignedShort(localHeader + 28);
+
+		if (dataOffset + entry.compressedSize > archive.limit())
+			throw new ZipException("Truncated data for " + entry.name);
+
+		classFile.name = entry.name;
+		classFile.crc = entry.crc;
+		classFile.length = entry.size;
+
+		if (classFile.buffer == null || classFile.buffer.length < entry.size)
+			classFile.buffer = new byte[Math.max(entry.size, 8192)];
+
+		ByteBuffer data = archive.duplicate();
+		data.position(dataOffset);
+
+		if (entry.method == STORED)
+		{
+			//Stored data is copied straight from the mapping
+			data.get(classFile.buffer, 0, entry.size);
+		}
+		else if (entry.method == DEFLATED)
+		{
+			if (compressed.length < entry.compressedSize)
+				compressed = new byte[Math.max(entry.compressedSize, compressed.length * 2)];
+
+			data.get(compressed, 0, entry.compressedSize);
+
+			if (inflater == null) inflater = new Inflater(true);
+
+			inflater.reset();
+			inflater.setInput(compressed, 0, entry.compressedSize);
+
+			try
+			{
+				int inflated = 0;
+
+				//Inflate until the class file is complete or no more data can be inflated
+				while (inflated < entry.size)
+				{
+					int count = inflater.inflate(classFile.buffer, inflated, entry.size - inflated);
+
+					if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+
+					inflated += count;
+				}
+
+				if (inflated != entry.size) throw new ZipException("Invalid compressed data for " + entry.name);
+			}
+			catch (DataFormatException dfe)
+			{
+				throw new ZipException("Invalid compressed data for " + entry.name + ": " + dfe.getMessage());
+			}
+		}
+		else
+			throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+	}
+
+	/**
+	 * Releases the resources held by the archive. The archive may not be read from once closed
+	 */
+	public void close()
+	{
+		if (inflater != null) inflater.end();
+
+		inflater = null;
+		compressed = null;
+		rejectedClassFile = null;
+		archive = null;
+		entries = null;
+	}
+
+	/**
+	 * Reads the archives central directory, recording the class file entries and the latest
+	 * modification time of all entries
+	 * @throws IOException if the central directory could not be found or is invalid
+	 */
+	private void readCentralDirectory() throws IOException
+	{
+		int endHeader = findEndHeader();
+
+		int entryCount = unsignedShort(endHeader + 10);
+		long directoryOffset = unsignedInt(endHeader + 16);
+
+		if (entryCount == 0xffff || directoryOffset == 0xffffffffL)
+			throw new ZipException("ZIP64 archives are not supported");
+
+		int position = (int)directoryOffset;
+
+		for (int i = 0; i < entryCount; i++)
+		{
+			if (position + CENTRAL_HEADER_SIZE > archive.limit() || archive.getInt(position) != CENTRAL_HEADER_SIGNATURE)
+				throw new ZipException("Invalid central directory header");
+
+			int nameLength = unsignedShort(position + 28);
+			int extraLength = unsignedShort(position + 30);
+			int commentLength = unsignedShort(position + 32);
+
+			String name = readName(position + CENTRAL_HEADER_SIZE, nameLength);
+
+			//Track the latest modification time of all entries, as done when iterating over a ZipFile
+			long modifiedTime = getModifiedTime(unsignedInt(position + 12), position + CENTRAL_HEADER_SIZE + nameLength, extraLength);
+			if (modifiedTime > lastModTime) lastModTime = modifiedTime;
+
+			if (FileUtil.isClassFile(name))
+			{
+				Entry entry = new Entry();
+				entry.name = name;
+				entry.method = unsignedShort(position + 10);
+				entry.crc = unsignedInt(position + 16);
+				entry.compressedSize = (int)unsignedInt(position + 20);
+				entry.size = (int)unsignedInt(position + 24);
+				entry.localHeaderOffset = (int)unsignedInt(position + 42);
+
+				if (entry.size < 0 || entry.compressedSize < 0) throw new ZipException("Invalid entry size for " + name);
+
+				if (packageFilter == null || packageFilter.acceptEntry(name) || acceptClass(entry)) entries.add(entry);
+			}
+
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+	}
+
+	/**
+	 * Determines whether a class file that is not accepted by its path is to be read, reading the name of
+	 * the class from the class file
+	 * @param entry The class file entry
+	 * @return Whether the class file is to be read
+	 */
+	private boolean acceptClass(Entry entry)
+	{
+		if (rejectedClassFile == null) rejectedClassFile = new ClassFile();
+
+		try
+		{
+			read(entry, rejectedClassFile);
+		}
+		catch (IOException e)
+		{
+			//Keep the class file, so that the error is raised when it is read
+			return true;
+		}
+
+		return packageFilter.acceptClass(rejectedClassFile.buffer, 0, rejectedClassFile.length);
+	}
+
+	/**
+	 * Finds the end of central directory record by searching backwards from the end of the archive,
+	 * allowing for an archive comment
+	 * @return The offset of the end of central directory record
+	 * @throws IOException if the record could not be found
+	 */
+	private int findEndHeader() throws IOException
+	{
+		int lowestOffset = Math.max(0, archive.limit() - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+
+		for (int offset = archive.limit() - END_HEADER_SIZE; offset >= lowestOffset; offset--)
+			if (archive.getInt(offset) == END_HEADER_SIGNATURE) return offset;
+
+		throw new ZipException("Archive end header not found");
+	}
+
+	/**
+	 * Determines an entries modification time in the same manner as ZipEntry.getTime(), preferring
+	 * an extended or NTFS timestamp held in the extra field over the MS-DOS time
+	 * @param dosTime The entries MS-DOS date and time
+	 * @param extraOffset The offset of the entries extra field
+	 * @param extraLength The length of the entries extra field
+	 * @return The entries modification time in milliseconds since the epoch
+	 */
+	private long getModifiedTime(long dosTime, int extraOffset, int extraLength)
+	{
+		int position = extraOffset;
+		int end = extraOffset + extraLength;
+		long modifiedTime = -1;
+
+		while (position + 4 <= end)
+		{
+			int tag = unsignedShort(position);
+			int size = unsignedShort(position + 2);
+			position += 4;
+
+			if (position + size > end) break;
+
+			if (tag == EXTENDED_TIMESTAMP_FIELD)
+			{
+				//Flags followed by the modification time in seconds, if flagged as present
+				if ((archive.get(position) & 0x1) != 0 && size >= 5)
+					modifiedTime = archive.getInt(position + 1) * 1000L;
+			}
+			else if (tag == NTFS_FIELD && size >= 32)
+			{
+				//Reserved bytes followed by an attribute holding the modification time in 100ns intervals
+				if (unsignedShort(position + 4) == 0x0001 && unsignedShort(position + 6) == 24)
+					modifiedTime = archive.getLong(position + 8) / 10000 - NTFS_EPOCH_OFFSET;
+			}
+
+			position += size;
+		}
+
+		return modifiedTime != -1 ? modifiedTime : dosToJavaTime(dosTime);
+	}
+
+	/**
+	 * Converts an MS-DOS date and time to milliseconds since the epoch in the local time zone
+	 * @param dosTime The MS-DOS date and time
+	 * @return The time in milliseconds since the epoch
+	 */
+	private static long dosToJavaTime(long dosTime)
+	{
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set((int)(((dosTime >> 25) & 0x7f) + 1980), (int)(((dosTime >> 21) & 0x0f) - 1), (int)((dosTime >> 16) & 0x1f),
+					 (int)((dosTime >> 11) & 0x1f), (int)((dosTime >> 5) & 0x3f), (int)((dosTime << 1) & 0x3e));
+
+		return calendar.getTimeInMillis();
+	}
+
+	private String readName(int offset, int length) throws UnsupportedEncodingException
+	{
+		byte[] name = new byte[length];
+
+		ByteBuffer data = archive.duplicate();
+		data.position(offset);
+		data.get(name);
+
+		return new String(name, "UTF-8");
+	}
+
+	private int unsignedShort(int offset)
+	{
+		return archive.getShort(offset) & 0xffff;
+	}
+
+	private long unsignedInt(int offset)
+	{
+		return archive.getInt(offset) & 0xffffffffL;
+	}
+
+	/**
+	 * A class file entry within the archives central directory
+	 */
+	private static class Entry
+	{
+		String name;
+		int method;
+		long crc;
+		int compressedSize;
+		int size;
+		int localHeaderOffset;
+	}
+}
@@ -0,0 +1,215 @@
+package io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Decides which classes are extracted according to the include and exclude package directives of a
+ * system. A class is excluded if its package name contains any of the exclude packages and, if there are
+ * include packages, is only included if its package name contains one of them.<br />
+ * <br />
+ * Each set of directives is compiled into a trie of the package names, with each node linked to the node
+ * of its longest proper suffix, so that a package name is matched against every directive in a single
+ * pass over its characters rather than a scan of each directive in turn
+ * @author Allan Jones
+ */
+public class PackageFilter
+{
+	//Matchers for the include and exclude directives, or null if there are no such directives
+	private Node includeRoot;
+	private Node excludeRoot;
+
+	/**
+	 * Creates a filter for the given directives
+	 * @param includePackages The packages to be included, or null/empty to include all packages
+	 * @param excludePackages The packages to be excluded, or null/empty to exclude no packages
+	 */
+	public PackageFilter(Set<String> includePackages, Set<String> excludePackages)
+	{
+		includeRoot = compile(includePackages);
+		excludeRoot = compile(excludePackages);
+	}
+
+	/**
+	 * Determines whether the filter accepts every package, in which case there is no need to apply it
+	 * @return Whether there are no include or exclude directives
+	 */
+	public boolean acceptsAll()
+	{
+		return includeRoot == null && excludeRoot == null;
+	}
+
+	/**
+	 * Determines whether a class in the given package is to be extracted
+	 * @param packageName The package name of the class, in internal form (e.g. java/lang)
+	 * @return Whether classes in the package are to be extracted
+	 */
+	public boolean accept(String packageName)
+	{
+		if (excludeRoot != null && matches(excludeRoot, packageName)) return false;
+
+		return includeRoot == null || matches(includeRoot, packageName);
+	}
+
+	/**
+	 * Determines whether a class file within an archive is to be extracted, taking its package to be the
+	 * path of the entry within the archive. This allows class files to be skipped before being read. As a
+	 * class may not be stored under its package path, a class file that is not accepted by its path must
+	 * be checked with acceptClass before it is skipped
+	 * @param entryName The name of the archive entry holding the class file
+	 * @return Whether the class file is to be extracted
+	 */
+	public boolean acceptEntry(String entryName)
+	{
+		return accept(getPackageName(entryName));
+	}
+
+	/**
+	 * Determines whether a class is to be extracted, reading its package from the name held in the class
+	 * bytes without parsing the rest of the class. A class stored under its package path is rejected just
+	 * as it was by its path, while a class stored elsewhere is judged by its actual package
+	 * @param buffer The buffer holding the classes bytecode
+	 * @param offset The offset of the classes bytecode within the buffer
+	 * @param length The length of the classes bytecode
+	 * @return Whether the class is to be extracted, which it is if its name could not be read, so that the
+	 * class fails when it is parsed
+	 */
+	public boolean acceptClass(byte[] buffer, int offset, int length)
+	{
+		String className;
+
+		try
+		{
+			className = new ClassReader(buffer, offset, length).getClassName();
+		}
+		catch (RuntimeException e)
+		{
+			return true;
+		}
+
+		return accept(getPackageName(className));
+	}
+
+	/**
+	 * @param path The path of a class file, or the internal name of a class (e.g. java/lang/String)
+	 * @return The package name of the class (e.g. java/lang)
+	 */
+	private static String getPackageName(String path)
+	{
+		int lastSeparator = path.lastIndexOf('/');
+
+		return lastSeparator == -1 ? "" : path.substring(0, lastSeparator);
+	}
+
+	/**
+	 * Determines whether the given text contains any of the directives compiled into a trie
+	 * @param root The root node of the trie
+	 * @param text The text to match
+	 * @return Whether the text contains any of the directives
+	 */
+	private static boolean matches(Node root, String text)
+	{
+		if (root.matched) return true;
+
+		Node node = root;
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+
+			//Fall back to shorter suffixes until one can be extended by the character
+			while (node != root && !node.children.containsKey(c)) node = node.suffix;
+
+			Node child = node.children.get(c);
+			if (child != null) node = child;
+
+			if (node.matched) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compiles a set of directives into a trie, linking each node to the node of its longest proper suffix
+	 * @param packages The directives to compile
+	 * @return The root node of the trie, or null if there are no directives
+	 */
+	private static Node compile(Set<String> packages)
+	{
+		if (packages == null || packages.isEmpty()) return null;
+
+		Node root = new Node();
+
+		for (String packageName : packages)
+		{
+			Node node = root;
+
+			for (int i = 0; i < packageName.length(); i++)
+			{
+				Node child = node.children.get(packageName.charAt(i));
+
+				if (child == null)
+				{
+					child = new Node();
+					node.children.put(packageName.charAt(i), child);
+				}
+
+				node = child;
+			}
+
+			node.matched = true;
+		}
+
+		//Every name contains an empty directive, so no links are needed
+		if (root.matched) return root;
+
+		//Link the nodes breadth first, so each nodes suffix is linked before its children
+		List<Node> queue = new ArrayList<Node>();
+
+		for (Node child : root.children.values())
+		{
+			child.suffix = root;
+			queue.add(child);
+		}
+
+		for (int i = 0; i < queue.size(); i++)
+		{
+			Node node = queue.get(i);
+
+			for (Map.Entry<Character, Node> entry : node.children.entrySet())
+			{
+				Node child = entry.getValue();
+				Node suffix = node.suffix;
+
+				while (suffix != root && !suffix.children.containsKey(entry.getKey())) suffix = suffix.suffix;
+
+				Node suffixChild = suffix.children.get(entry.getKey());
+				child.suffix = suffixChild != null ? suffixChild : root;
+
+				//A node matches if any of its suffixes is a directive
+				child.matched |= child.suffix.matched;
+
+				queue.add(child);
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * A node within a trie of directives
+	 */
+	private static class Node
+	{
+		Map<Character, Node> children = new HashMap<Character, Node>();
+		//The node of the longest proper suffix of this nodes prefix that is also in the trie
+		Node suffix;
+		//Whether the prefix of this node ends with a directive
+		boolean matched;
+	}
+}
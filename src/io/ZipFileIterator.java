@@ -1,4 +1,5 @@
 package io;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
@@ -22,10 +23,25 @@ public class ZipFileIterator implements Iterator<InputStream>
 	InputStream entry = null;
 	//The time that the zip file was last modified
     public long lastModTime;
+    //Filter deciding which class files are iterated over, or null if all are
+    PackageFilter packageFilter;
 
 	public ZipFileIterator(ZipFile zipFile)
+	{
+		this(zipFile, null);
+	}
+	
+	/**
+	 * Creates an iterator over the class files within a zip file that are accepted by a package filter.
+	 * Class files that are not accepted by their path are only inflated to read their class name, and are
+	 * skipped if the package of the class is not accepted either
+	 * @param zipFile The zip file
+	 * @param packageFilter The filter deciding which class files are iterated over, or null for all
+	 */
+	public ZipFileIterator(ZipFile zipFile, PackageFilter packageFilter)
 	{
         this.zipFile = zipFile;
+        this.packageFilter = packageFilter;
 		
         //Initialise the enumeration with the entries contained in the zip file
         zipIterator = zipFile.entries();
@@ -64,10 +80,19 @@ public class ZipFileIterator implements Iterator<InputStream>
                 	if (modifiedTime > lastModTime) lastModTime = modifiedTime;
                 }
                 
-                //If the next entry is a class file, return it's corresponding InputStream 
-    			if (FileUtil.isClassFile(nextEntry.getName())) 
+                //Skip entries that are not class files
+                if (!FileUtil.isClassFile(nextEntry.getName())) continue;
+                
+                //If the next entry is a class file in an accepted package, return it's corresponding InputStream 
+    			if (packageFilter == null || packageFilter.acceptEntry(nextEntry.getName())) 
                     return zipFile.getInputStream(nextEntry);
     			
+    			//The class may not be stored under it's package path, so check the package of the class itself
+    			byte[] classBytes = FileUtil.readBytes(zipFile.getInputStream(nextEntry));
+    			
+    			if (packageFilter.acceptClass(classBytes, 0, classBytes.length))
+    				return new ByteArrayInputStream(classBytes);
+    			
             }
             catch (IOException ioex)
             {
@@ -0,0 +1,178 @@
+package model;
+
+import java.util.Set;
+
+/**
+ * A 128-bit fingerprint of the structure of a class, taken over the class and super class names, the values
+ * of the comparison metrics (see MetricUtil.getComparisonMetrics()) and the classes methods, fields and
+ * dependencies. Two classes with the same structure have the same fingerprint, and classes with different
+ * structures have the same fingerprint with negligible probability.<br />
+ * <br />
+ * The fingerprint is made up of two independent 64-bit hashes. Sets of names are hashed without regard to the
+ * order in which they are iterated
+ * @author Allan Jones
+ */
+public final class ClassFingerprint
+{
+	//Seeds for the two halves of the fingerprint
+	private static final long HIGH_SEED = 0x9E3779B97F4A7C15L;
+	private static final long LOW_SEED = 0xC2B2AE3D27D4EB4FL;
+
+	private final long high;
+	private final long low;
+
+	public ClassFingerprint(long high, long low)
+	{
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Computes the fingerprint of a classes structure
+	 * @param className The name of the class
+	 * @param superClassName The name of the classes super class
+	 * @param comparisonMetricValues The values of the comparison metrics, in a fixed order
+	 * @param methods The names of the classes methods
+	 * @param fields The names of the classes fields
+	 * @param dependencies The names of the classes dependencies
+	 * @return The fingerprint
+	 */
+	static ClassFingerprint compute(String className, String superClassName, int[] comparisonMetricValues,
+			Set<String> methods, Set<String> fields, Set<String> dependencies)
+	{
+		return new ClassFingerprint(hash(HIGH_SEED, className, superClassName, comparisonMetricValues, methods, fields, dependencies),
+									hash(LOW_SEED, className, superClassName, comparisonMetricValues, methods, fields, dependencies));
+	}
+
+	public long getHigh()
+	{
+		return high;
+	}
+
+	public long getLow()
+	{
+		return low;
+	}
+
+	/**
+	 * Parses a fingerprint from the form given by toString()
+	 * @param value The 32 hexadecimal digits of the fingerprint
+	 * @return The fingerprint
+	 */
+	public static ClassFingerprint valueOf(String value)
+	{
+		if(value == null || value.length() != 32)
+			throw new IllegalArgumentException("Could not parse class fingerprint " + value + ", expected 32 hexadecimal digits.");
+
+		return new ClassFingerprint(parseHex(value.substring(0, 16)), parseHex(value.substring(16)));
+	}
+
+	@Override
+	public boolean equals(Object compare)
+	{
+		if (!(compare instanceof ClassFingerprint)) return false;
+
+		ClassFingerprint fingerprint = (ClassFingerprint)compare;
+
+		return high == fingerprint.high && low == fingerprint.low;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int)(high ^ (high >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		return toHex(high) + toHex(low);
+	}
+
+	/**
+	 * Computes one half of a fingerprint
+	 */
+	private static long hash(long seed, String className, String superClassName, int[] comparisonMetricValues,
+			Set<String> methods, Set<String> fields, Set<String> dependencies)
+	{
+		long hash = seed;
+
+		hash = combine(hash, hash(seed, className));
+		hash = combine(hash, hash(seed, superClassName));
+
+		for (int value : comparisonMetricValues)
+			hash = combine(hash, value);
+
+		//Each set is tagged, so that the same name held in different sets contributes differently
+		hash = combine(hash, hash(seed + 1, methods));
+		hash = combine(hash, hash(seed + 2, fields));
+		hash = combine(hash, hash(seed + 3, dependencies));
+
+		return mix(hash);
+	}
+
+	/**
+	 * Hashes a set of names as the sum of the hashes of each name, which does not depend on iteration order
+	 */
+	private static long hash(long seed, Set<String> names)
+	{
+		long hash = names.size();
+
+		for (String name : names)
+			hash += mix(hash(seed, name));
+
+		return hash;
+	}
+
+	/**
+	 * Hashes a name using 64-bit FNV-1a, with null having a hash distinct from the empty string
+	 */
+	private static long hash(long seed, String name)
+	{
+		if (name == null) return mix(seed - 1);
+
+		long hash = 0xCBF29CE484222325L ^ seed;
+
+		for (int i = 0; i < name.length(); i++)
+		{
+			hash ^= name.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+
+		return hash;
+	}
+
+	private static long combine(long hash, long value)
+	{
+		return mix(hash ^ value) * 31 + value;
+	}
+
+	/**
+	 * Mixes the bits of a value (the finalisation step of MurmurHash3)
+	 */
+	private static long mix(long value)
+	{
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value >>> 33;
+
+		return value;
+	}
+
+	private static String toHex(long value)
+	{
+		String hex = Long.toHexString(value);
+
+		while (hex.length() < 16) hex = "0" + hex;
+
+		return hex;
+	}
+
+	private static long parseHex(String hex)
+	{
+		//Parse the halves separately, as Long.parseLong does not accept values above Long.MAX_VALUE
+		return (Long.parseLong(hex.substring(0, 8), 16) << 32) | Long.parseLong(hex.substring(8), 16);
+	}
+}
@@ -1,8 +1,11 @@
 package model;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -36,29 +39,41 @@ import model.vocab.EProcessingStatus;
  */
 public class ClassMetricData
 {
+	//The metric names, indexed by ordinal
+	private static final EClassMetricName[] METRIC_NAMES = EClassMetricName.values();
+	//The metrics compared when checking for an exact match, and whether each metric is one of them (by ordinal)
+	private static final EClassMetricName[] COMPARISON_METRICS = MetricUtil.getComparisonMetrics();
+	private static final boolean[] IS_COMPARISON_METRIC = new boolean[METRIC_NAMES.length];
+	
+	static
+	{
+		for(EClassMetricName metric : COMPARISON_METRICS)
+			IS_COMPARISON_METRIC[metric.ordinal()] = true;
+	}
+	
 	//Meta-data associated with the class
 	private Map<EClassMetricName, String> metaData = new HashMap<EClassMetricName, String>(20);
-	//Metric values for the class
-	private Map<EClassMetricName, Integer> metrics;
+	//Metric values for the class, indexed by the ordinal of the metric name
+	private int[] metrics;
 	
 	//The names of the methods within the class
-	private Set<String> methods = new HashSet<String>();
+	private SymbolSet methods = new SymbolSet();
 	//The short names of the methods within the class
-	private Set<String> shortMethods = new HashSet<String>();
+	private SymbolSet shortMethods = new SymbolSet();
 	//The names of the fields within the class
-	private Set<String> fields = new HashSet<String>();
+	private SymbolSet fields = new SymbolSet();
 	
 	//The names of the classes that the class depends on (includes library classes)
-	private Set<String> dependencies = new HashSet<String>();
+	private SymbolSet dependencies = new SymbolSet();
 	//The names of the classes that use the class
-	private Set<String> users = new HashSet<String>();
+	private SymbolSet users = new SymbolSet();
 	//The names of the classes that inherit from this class
-	private Set<String> children = new HashSet<String>();
+	private SymbolSet children = new SymbolSet();
 	//The names of the interfaces that the class implements
-	private Set<String> interfaces = new HashSet<String>();    
+	private SymbolSet interfaces = new SymbolSet();    
     
 	//The names of the classes considered internal (non-library classes) that the class depends upon
-	private Set<String> internalDependencies = new HashSet<String>();
+	private SymbolSet internalDependencies = new SymbolSet();
 	//The names of the classes external to the class that are called and the number of times they are called 
 	private Map<String, Integer> externalCalls = new HashMap<String, Integer>();
 	//The names of the classes that are considered internal (TODO: Define what is considered internal) and the number of times they are called
@@ -69,6 +84,9 @@ public class ClassMetricData
 	//The extent to which this class has been processed (TODO: Add explanation of possible values and when they are set)
 	private EProcessingStatus processingStatus = EProcessingStatus.UNPROCESSED;
 	
+	//Fingerprint of the classes structure, computed when first requested and discarded when the structure changes
+	private ClassFingerprint fingerprint;
+	
 	/**
 	 * Constructs a new ClassMetricData object with initialised metric values
 	 */
@@ -78,39 +96,53 @@ public class ClassMetricData
 	}
 	
 	/**
-	 * Initialises the values of the metric map to sensible values
+	 * Initialises the metric values to sensible values
 	 */
 	private void initialiseMetricMap()
 	{
-		//Create the metric map with space for 100 metrics
-		metrics = new HashMap<EClassMetricName, Integer>(100);
-		
-		//Get the list of metric names
-		EClassMetricName[] names = EClassMetricName.values();
-    	
-		//Set the value of each metric to 0
-    	for(EClassMetricName name : names)
-    		if(name != EClassMetricName.UNKNOWN)
-    			metrics.put(name, 0);
-    	
+		//Create the metric values with a value of 0 for each metric name
+		metrics = new int[METRIC_NAMES.length];
     	
     	//Set the age to 1 (this assumes that the class is new -- value is likely to change in processing)
-    	metrics.put(EClassMetricName.AGE, 1);
+    	metrics[EClassMetricName.AGE.ordinal()] = 1;
     	//Set the RSN the class was new in to 1 (this assumes that the class has been present since the start -- value is likely to change in processing)
-    	metrics.put(EClassMetricName.BORN_RSN, 1); //Assume in first version
+    	metrics[EClassMetricName.BORN_RSN.ordinal()] = 1; //Assume in first version
     	
     	//Set the Evolution Status to 'Unchanged' (this assumes it is unchanged unless otherwise specified)
-    	metrics.put(EClassMetricName.EVOLUTION_STATUS, EEvolutionCategory.UNCHANGED.ordinal());
+    	metrics[EClassMetricName.EVOLUTION_STATUS.ordinal()] = EEvolutionCategory.UNCHANGED.ordinal();
     	//Set the Next Version Status to 'Unchanged' (this assumes it is unchanged unless otherwise specified)
-    	metrics.put(EClassMetricName.NEXT_VERSION_STATUS, EEvolutionCategory.UNCHANGED.ordinal()); //Unknown initially
+    	metrics[EClassMetricName.NEXT_VERSION_STATUS.ordinal()] = EEvolutionCategory.UNCHANGED.ordinal(); //Unknown initially
     	
     	//Set the Distance Moved as unknown
-    	metrics.put(EClassMetricName.DISTANCE_MOVED, -1); //Unknown initially
+    	metrics[EClassMetricName.DISTANCE_MOVED.ordinal()] = -1; //Unknown initially
     	//Set the Distance Moved as unknown
-    	metrics.put(EClassMetricName.DISTANCE_MOVED_SINCE_BIRTH, -1); //Unknown initially
+    	metrics[EClassMetricName.DISTANCE_MOVED_SINCE_BIRTH.ordinal()] = -1; //Unknown initially
     	
     	//Set the status of modification since birth to 'Never Modified' (this assumes the class has never changed -- value is likely to change in processing)
-    	metrics.put(EClassMetricName.MODIFICATION_STATUS_SINCE_BIRTH, EModificationStatus.NEVER_MODIFIED.ordinal()); //Unknown initially
+    	metrics[EClassMetricName.MODIFICATION_STATUS_SINCE_BIRTH.ordinal()] = EModificationStatus.NEVER_MODIFIED.ordinal(); //Unknown initially
+	}
+	
+	/**
+	 * Gets the index of a metric within the metric values
+	 * @param metric The metric name
+	 * @return The index of the metric
+	 */
+	private static int indexOf(EClassMetricName metric)
+	{
+		if(metric == EClassMetricName.UNKNOWN)
+			throw new IllegalArgumentException("Could not access metric value, " + metric + " is not a valid metric name.");
+		
+		return metric.ordinal();
+	}
+	
+	/**
+	 * Gets a set of names as a SymbolSet, so that the names are held by their symbol table IDs
+	 * @param names The set of names
+	 * @return The given set if it is a SymbolSet, otherwise a SymbolSet holding the same names
+	 */
+	private static SymbolSet toSymbolSet(Set<String> names)
+	{
+		return names instanceof SymbolSet ? (SymbolSet)names : new SymbolSet(names);
 	}
 	
 	public Map<EClassMetricName, String> getMetaData()
@@ -124,6 +156,7 @@ public class ClassMetricData
 			throw new NullPointerException("Could not set meta data map, given value was null.");
 		
 		this.metaData = metaData;
+		fingerprint = null;
 	}
 	
 	public String getMetaDataValue(EClassMetricName metric)
@@ -143,19 +176,35 @@ public class ClassMetricData
 			throw new NullPointerException("Could not set metric value, given value was null.");
 		
 		metaData.put(metric, value);
+		
+		if(metric == EClassMetricName.CLASS_NAME || metric == EClassMetricName.SUPER_CLASS_NAME) fingerprint = null;
 	}
 	
+	/**
+	 * Gets a map view of the classes metric values, holding an entry for each metric name other than
+	 * UNKNOWN. Changes made through the view are made to the classes metric values
+	 * @return The map view of the metric values
+	 */
 	public Map<EClassMetricName, Integer> getMetrics()
 	{
-		return metrics;
+		return new MetricMap();
 	}
 	
+	/**
+	 * Sets the classes metric values to those held in a map. Any metric not held in the map keeps it's
+	 * initial value
+	 * @param metrics The map of metric values to set
+	 */
 	public void setMetrics(Map<EClassMetricName, Integer> metrics)
 	{
 		if(metrics == null)
 			throw new NullPointerException("Could not set metrics map, given value was null.");
 		
-		this.metrics = metrics;
+		initialiseMetricMap();
+		fingerprint = null;
+		
+		for(Map.Entry<EClassMetricName, Integer> metric : metrics.entrySet())
+			setMetricValue(metric.getKey(), metric.getValue());
 	}
 	
 	public Integer getMetricValue(EClassMetricName metric)
@@ -163,12 +212,19 @@ public class ClassMetricData
 		if(metric == null)
 			throw new NullPointerException("Could not get metric value, given metric name was null.");
 		
-		return metrics.get(metric);
+		if(metric == EClassMetricName.UNKNOWN) return null;
+		
+		return metrics[metric.ordinal()];
 	}
 	
 	public void setMetricValue(EClassMetricName metric, int value)
 	{
-		MetricUtil.setMetricValue(metrics, metric, value);
+		if(metric == null)
+			throw new NullPointerException("Cannot set value for metric, as the metric name specified was null.");
+		
+		metrics[indexOf(metric)] = value;
+		
+		if(IS_COMPARISON_METRIC[metric.ordinal()]) fingerprint = null;
 	}
 	
 	public String getClassName()
@@ -215,7 +271,8 @@ public class ClassMetricData
 		if(methods == null)
 			throw new NullPointerException("Could not set methods for " + getClassName() + ", the set passed was null.");
 		
-		this.methods = methods;
+		this.methods = toSymbolSet(methods);
+		fingerprint = null;
 	}
 	
 	public Set<String> getShortMethods()
@@ -228,7 +285,7 @@ public class ClassMetricData
 		if(shortMethods == null)
 			throw new NullPointerException("Could not set short methods for " + getClassName() + ", the set passed was null.");
 		
-		this.shortMethods = shortMethods;
+		this.shortMethods = toSymbolSet(shortMethods);
 	}
 	
 	public Set<String> getFields()
@@ -241,7 +298,8 @@ public class ClassMetricData
 		if(methods == null)
 			throw new NullPointerException("Could not set fields for " + getClassName() + ", the set passed was null.");
 		
-		this.fields = fields;
+		this.fields = toSymbolSet(fields);
+		fingerprint = null;
 	}
 	
 	public Set<String> getDependencies()
@@ -254,7 +312,8 @@ public class ClassMetricData
 		if(dependencies == null)
 			throw new NullPointerException("Could not set dependencies for " + getClassName() + ", the set passed was null.");
 		
-		this.dependencies = dependencies;
+		this.dependencies = toSymbolSet(dependencies);
+		fingerprint = null;
 	}
 	
 	public Set<String> getUsers()
@@ -267,7 +326,7 @@ public class ClassMetricData
 		if(users == null)
 			throw new NullPointerException("Could not set users for " + getClassName() + ", the set passed was null.");
 		
-		this.users = users;
+		this.users = toSymbolSet(users);
 	}
 
 	public Set<String> getChildren()
@@ -280,7 +339,7 @@ public class ClassMetricData
 		if(children == null)
 			throw new NullPointerException("Could not set methods for " + getClassName() + ", the set passed was null.");
 		
-		this.children = children;
+		this.children = toSymbolSet(children);
 	}
 
 	public Set<String> getInterfaces()
@@ -293,7 +352,7 @@ public class ClassMetricData
 		if(interfaces == null)
 			throw new NullPointerException("Could not set interfaces for " + getClassName() + ", the set passed was null.");
 		
-		this.interfaces = interfaces;
+		this.interfaces = toSymbolSet(interfaces);
 	}
 	
 	public Set<String> getInternalDependencies()
@@ -306,7 +365,7 @@ public class ClassMetricData
 		if(internalDependencies == null)
 			throw new NullPointerException("Could not set internal dependencies for " + getClassName() + ", the set passed was null.");
 		
-		this.internalDependencies = internalDependencies;
+		this.internalDependencies = toSymbolSet(internalDependencies);
 	}
 	
 	public Map<String, Integer> getExternalCalls()
@@ -361,6 +420,44 @@ public class ClassMetricData
 		this.processingStatus = processingStatus;
 	}
 	
+	/**
+	 * Gets the fingerprint of the classes structure (see ClassFingerprint), computing it if it has not been
+	 * computed since the structure last changed. Changes to the structure must be made through the class
+	 * (rather than through the collections it returns) for the fingerprint to reflect them
+	 * @return The classes fingerprint
+	 */
+	public ClassFingerprint getFingerprint()
+	{
+		ClassFingerprint fingerprint = this.fingerprint;
+		
+		if(fingerprint == null)
+		{
+			int[] comparisonMetricValues = new int[COMPARISON_METRICS.length];
+			
+			for(int i = 0; i < COMPARISON_METRICS.length; i++)
+				comparisonMetricValues[i] = metrics[COMPARISON_METRICS[i].ordinal()];
+			
+			fingerprint = ClassFingerprint.compute(getClassName(), getSuperClassName(), comparisonMetricValues,
+													methods, fields, dependencies);
+			this.fingerprint = fingerprint;
+		}
+		
+		return fingerprint;
+	}
+	
+	/**
+	 * Sets the fingerprint of the classes structure, such as one persisted with the class. Must be set after
+	 * the rest of the classes structure, as changing the structure discards the fingerprint
+	 * @param fingerprint The classes fingerprint
+	 */
+	public void setFingerprint(ClassFingerprint fingerprint)
+	{
+		if(fingerprint == null)
+			throw new NullPointerException("Could not set fingerprint for " + getClassName() + ", the fingerprint passed was null.");
+		
+		this.fingerprint = fingerprint;
+	}
+	
 	public int getMethodCount()
 	{
 		return methods.size();
@@ -416,6 +513,7 @@ public class ClassMetricData
 			throw new NullPointerException("Could not add method to " + getClassName() + ", the method name passed was null.");
 		
 		methods.add(methodName);
+		fingerprint = null;
 	}
 	
 	/**
@@ -440,6 +538,7 @@ public class ClassMetricData
 			throw new NullPointerException("Could not add field to " + getClassName() + ", the field passed was null.");
 		
 		fields.add(field);
+		fingerprint = null;
 	}
 	
 	/**
@@ -452,6 +551,7 @@ public class ClassMetricData
 			throw new NullPointerException("Could not add dependency to " + getClassName() + ", the dependency passed was null.");
 		
 		dependencies.add(dependency);
+		fingerprint = null;
 	}
 	
 	/**
@@ -467,6 +567,7 @@ public class ClassMetricData
 //			throw new NoSuchElementException("Could not remove dependency from " + getClassName() + ", the dependency was not found in the classes set.");
 		
 		dependencies.remove(dependency);
+		fingerprint = null;
 	}
 	
 	/**
@@ -538,7 +639,7 @@ public class ClassMetricData
 	 */
 	public void incrementMetric(EClassMetricName metric)
 	{
-		MetricUtil.incrementMetricValue(metrics, metric);
+		incrementMetric(metric, 1);
 	}
 	
 	/**
@@ -548,7 +649,12 @@ public class ClassMetricData
 	 */
 	public void incrementMetric(EClassMetricName metric, int value)
 	{
-		MetricUtil.incrementMetricValue(metrics, metric, value);
+		if(metric == null)
+			throw new NullPointerException("Cannot increment value of metric, as the metric name specified was null.");
+		
+		metrics[indexOf(metric)] += value;
+		
+		if(IS_COMPARISON_METRIC[metric.ordinal()]) fingerprint = null;
 	}
 
 	/**
@@ -558,64 +664,65 @@ public class ClassMetricData
 	public void mergeMetrics(ClassMetricData classToMergeWith)
 	{
 		//Check if class is inner and merge interface count if so (inner class do not implement interfaces)
-		if (classToMergeWith.metrics.get(EClassMetricName.IS_INNER_CLASS) != 1)
+		if (classToMergeWith.metrics[EClassMetricName.IS_INNER_CLASS.ordinal()] != 1)
 		{
 			this.incrementMetric(EClassMetricName.INTERFACE_COUNT,
-					classToMergeWith.metrics.get(EClassMetricName.INTERFACE_COUNT));        	
+					classToMergeWith.metrics[EClassMetricName.INTERFACE_COUNT.ordinal()]);        	
 		}
 		
 		//TODO: Might be able to extract the individual increments in favour of iterating over ClassMetricName values
-		this.incrementMetric(EClassMetricName.BRANCH_COUNT, classToMergeWith.metrics.get(EClassMetricName.BRANCH_COUNT));
-    	this.incrementMetric(EClassMetricName.EXTERNAL_METHOD_CALL_COUNT, classToMergeWith.metrics.get(EClassMetricName.EXTERNAL_METHOD_CALL_COUNT));
-    	this.incrementMetric(EClassMetricName.INTERNAL_METHOD_CALL_COUNT, classToMergeWith.metrics.get(EClassMetricName.INTERNAL_METHOD_CALL_COUNT));
-    	this.incrementMetric(EClassMetricName.STATIC_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.STATIC_METHOD_COUNT));
-    	this.incrementMetric(EClassMetricName.METHOD_CALL_COUNT, classToMergeWith.metrics.get(EClassMetricName.METHOD_CALL_COUNT));  	    	
-    	this.incrementMetric(EClassMetricName.METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.METHOD_COUNT));
-    	this.incrementMetric(EClassMetricName.INSTRUCTION_COUNT, classToMergeWith.metrics.get(EClassMetricName.INSTRUCTION_COUNT));
-        this.incrementMetric(EClassMetricName.PUBLIC_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PUBLIC_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.INNER_CLASS_COUNT, classToMergeWith.metrics.get(EClassMetricName.INNER_CLASS_COUNT));
-        this.incrementMetric(EClassMetricName.THROW_COUNT, classToMergeWith.metrics.get(EClassMetricName.THROW_COUNT));
-        this.incrementMetric(EClassMetricName.PARAM_COUNT, classToMergeWith.metrics.get(EClassMetricName.PARAM_COUNT));
-        this.incrementMetric(EClassMetricName.EXCEPTION_COUNT, classToMergeWith.metrics.get(EClassMetricName.EXCEPTION_COUNT));
-        this.incrementMetric(EClassMetricName.INSTANCE_OF_COUNT, classToMergeWith.metrics.get(EClassMetricName.INSTANCE_OF_COUNT));
-        this.incrementMetric(EClassMetricName.CHECK_CAST_COUNT, classToMergeWith.metrics.get(EClassMetricName.CHECK_CAST_COUNT));
-        this.incrementMetric(EClassMetricName.NEW_COUNT, classToMergeWith.metrics.get(EClassMetricName.NEW_COUNT));
-        this.incrementMetric(EClassMetricName.NEW_ARRAY_COUNT, classToMergeWith.metrics.get(EClassMetricName.NEW_ARRAY_COUNT));
-        this.incrementMetric(EClassMetricName.TYPE_CONSTRUCTION_COUNT, classToMergeWith.metrics.get(EClassMetricName.TYPE_CONSTRUCTION_COUNT));
-        this.incrementMetric(EClassMetricName.REF_LOAD_OP_COUNT, classToMergeWith.metrics.get(EClassMetricName.REF_LOAD_OP_COUNT)); // Number of reference loads
-        this.incrementMetric(EClassMetricName.REF_STORE_OP_COUNT, classToMergeWith.metrics.get(EClassMetricName.REF_STORE_OP_COUNT)); // Number of reference stores
-        this.incrementMetric(EClassMetricName.LOAD_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.LOAD_FIELD_COUNT));  // Number of times a field was loaded
-        this.incrementMetric(EClassMetricName.STORE_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.STORE_FIELD_COUNT)); // Number of times a field was stored
-        this.incrementMetric(EClassMetricName.TRY_CATCH_BLOCK_COUNT, classToMergeWith.metrics.get(EClassMetricName.TRY_CATCH_BLOCK_COUNT)); // Number of try-catch blocks
-        this.incrementMetric(EClassMetricName.LOCAL_VAR_COUNT, classToMergeWith.metrics.get(EClassMetricName.LOCAL_VAR_COUNT));
-        this.incrementMetric(EClassMetricName.PRIVATE_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PRIVATE_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.PROTECTED_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PROTECTED_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.PUBLIC_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PUBLIC_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.STATIC_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.STATIC_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.FINAL_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.FINAL_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.LOAD_COUNT, classToMergeWith.metrics.get(EClassMetricName.LOAD_COUNT));
-        this.incrementMetric(EClassMetricName.STORE_COUNT, classToMergeWith.metrics.get(EClassMetricName.STORE_COUNT));
-        this.incrementMetric(EClassMetricName.I_STORE_COUNT, classToMergeWith.metrics.get(EClassMetricName.I_STORE_COUNT));
-        this.incrementMetric(EClassMetricName.I_LOAD_COUNT, classToMergeWith.metrics.get(EClassMetricName.I_LOAD_COUNT));
-        this.incrementMetric(EClassMetricName.TYPE_INSN_COUNT, classToMergeWith.metrics.get(EClassMetricName.TYPE_INSN_COUNT));
-        this.incrementMetric(EClassMetricName.ZERO_OP_INSN_COUNT, classToMergeWith.metrics.get(EClassMetricName.ZERO_OP_INSN_COUNT));
-        this.incrementMetric(EClassMetricName.INITIALIZED_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.INITIALIZED_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.UNINITIALIZED_FIELD_COUNT, classToMergeWith.metrics.get(EClassMetricName.UNINITIALIZED_FIELD_COUNT));
-        this.incrementMetric(EClassMetricName.FINAL_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.FINAL_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.PRIVATE_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PRIVATE_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.SYNCHRONIZED_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.SYNCHRONIZED_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.PROTECTED_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.PROTECTED_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.ABSTRACT_METHOD_COUNT, classToMergeWith.metrics.get(EClassMetricName.ABSTRACT_METHOD_COUNT));
-        this.incrementMetric(EClassMetricName.CONSTANT_LOAD_COUNT, classToMergeWith.metrics.get(EClassMetricName.CONSTANT_LOAD_COUNT));
-        this.incrementMetric(EClassMetricName.INCREMENT_OP_COUNT, classToMergeWith.metrics.get(EClassMetricName.INCREMENT_OP_COUNT));
-        this.incrementMetric(EClassMetricName.INTERNAL_LIB_METHOD_CALL_COUNT, classToMergeWith.metrics.get(EClassMetricName.INTERNAL_LIB_METHOD_CALL_COUNT));
-        this.incrementMetric(EClassMetricName.EXTERNAL_LIB_METHOD_CALL_COUNT, classToMergeWith.metrics.get(EClassMetricName.EXTERNAL_LIB_METHOD_CALL_COUNT));
+		this.incrementMetric(EClassMetricName.BRANCH_COUNT, classToMergeWith.metrics[EClassMetricName.BRANCH_COUNT.ordinal()]);
+    	this.incrementMetric(EClassMetricName.EXTERNAL_METHOD_CALL_COUNT, classToMergeWith.metrics[EClassMetricName.EXTERNAL_METHOD_CALL_COUNT.ordinal()]);
+    	this.incrementMetric(EClassMetricName.INTERNAL_METHOD_CALL_COUNT, classToMergeWith.metrics[EClassMetricName.INTERNAL_METHOD_CALL_COUNT.ordinal()]);
+    	this.incrementMetric(EClassMetricName.STATIC_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.STATIC_METHOD_COUNT.ordinal()]);
+    	this.incrementMetric(EClassMetricName.METHOD_CALL_COUNT, classToMergeWith.metrics[EClassMetricName.METHOD_CALL_COUNT.ordinal()]);  	    	
+    	this.incrementMetric(EClassMetricName.METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.METHOD_COUNT.ordinal()]);
+    	this.incrementMetric(EClassMetricName.INSTRUCTION_COUNT, classToMergeWith.metrics[EClassMetricName.INSTRUCTION_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PUBLIC_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.PUBLIC_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.INNER_CLASS_COUNT, classToMergeWith.metrics[EClassMetricName.INNER_CLASS_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.THROW_COUNT, classToMergeWith.metrics[EClassMetricName.THROW_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PARAM_COUNT, classToMergeWith.metrics[EClassMetricName.PARAM_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.EXCEPTION_COUNT, classToMergeWith.metrics[EClassMetricName.EXCEPTION_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.INSTANCE_OF_COUNT, classToMergeWith.metrics[EClassMetricName.INSTANCE_OF_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.CHECK_CAST_COUNT, classToMergeWith.metrics[EClassMetricName.CHECK_CAST_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.NEW_COUNT, classToMergeWith.metrics[EClassMetricName.NEW_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.NEW_ARRAY_COUNT, classToMergeWith.metrics[EClassMetricName.NEW_ARRAY_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.TYPE_CONSTRUCTION_COUNT, classToMergeWith.metrics[EClassMetricName.TYPE_CONSTRUCTION_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.REF_LOAD_OP_COUNT, classToMergeWith.metrics[EClassMetricName.REF_LOAD_OP_COUNT.ordinal()]); // Number of reference loads
+        this.incrementMetric(EClassMetricName.REF_STORE_OP_COUNT, classToMergeWith.metrics[EClassMetricName.REF_STORE_OP_COUNT.ordinal()]); // Number of reference stores
+        this.incrementMetric(EClassMetricName.LOAD_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.LOAD_FIELD_COUNT.ordinal()]);  // Number of times a field was loaded
+        this.incrementMetric(EClassMetricName.STORE_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.STORE_FIELD_COUNT.ordinal()]); // Number of times a field was stored
+        this.incrementMetric(EClassMetricName.TRY_CATCH_BLOCK_COUNT, classToMergeWith.metrics[EClassMetricName.TRY_CATCH_BLOCK_COUNT.ordinal()]); // Number of try-catch blocks
+        this.incrementMetric(EClassMetricName.LOCAL_VAR_COUNT, classToMergeWith.metrics[EClassMetricName.LOCAL_VAR_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PRIVATE_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.PRIVATE_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PROTECTED_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.PROTECTED_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PUBLIC_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.PUBLIC_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.STATIC_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.STATIC_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.FINAL_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.FINAL_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.LOAD_COUNT, classToMergeWith.metrics[EClassMetricName.LOAD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.STORE_COUNT, classToMergeWith.metrics[EClassMetricName.STORE_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.I_STORE_COUNT, classToMergeWith.metrics[EClassMetricName.I_STORE_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.I_LOAD_COUNT, classToMergeWith.metrics[EClassMetricName.I_LOAD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.TYPE_INSN_COUNT, classToMergeWith.metrics[EClassMetricName.TYPE_INSN_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.ZERO_OP_INSN_COUNT, classToMergeWith.metrics[EClassMetricName.ZERO_OP_INSN_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.INITIALIZED_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.INITIALIZED_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.UNINITIALIZED_FIELD_COUNT, classToMergeWith.metrics[EClassMetricName.UNINITIALIZED_FIELD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.FINAL_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.FINAL_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PRIVATE_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.PRIVATE_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.SYNCHRONIZED_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.SYNCHRONIZED_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.PROTECTED_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.PROTECTED_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.ABSTRACT_METHOD_COUNT, classToMergeWith.metrics[EClassMetricName.ABSTRACT_METHOD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.CONSTANT_LOAD_COUNT, classToMergeWith.metrics[EClassMetricName.CONSTANT_LOAD_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.INCREMENT_OP_COUNT, classToMergeWith.metrics[EClassMetricName.INCREMENT_OP_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.INTERNAL_LIB_METHOD_CALL_COUNT, classToMergeWith.metrics[EClassMetricName.INTERNAL_LIB_METHOD_CALL_COUNT.ordinal()]);
+        this.incrementMetric(EClassMetricName.EXTERNAL_LIB_METHOD_CALL_COUNT, classToMergeWith.metrics[EClassMetricName.EXTERNAL_LIB_METHOD_CALL_COUNT.ordinal()]);
         
         methods.addAll(classToMergeWith.methods);
         shortMethods.addAll(classToMergeWith.shortMethods);
         fields.addAll(classToMergeWith.fields);
         dependencies.addAll(classToMergeWith.dependencies);
+        fingerprint = null;
         users.addAll(classToMergeWith.users);
         internalDependencies.addAll(classToMergeWith.internalDependencies);
         
@@ -623,6 +730,55 @@ public class ClassMetricData
         this.externalCalls.putAll(classToMergeWith.externalCalls);
 	}
 	
+	/**
+	 * Creates a copy of the class holding its own copies of the classes meta-data, metrics and
+	 * collections, such that changes made to the copy do not affect the class
+	 * @return The copy of the class
+	 */
+	public ClassMetricData copy()
+	{
+		ClassMetricData copy = new ClassMetricData();
+		
+		copy.metaData = new HashMap<EClassMetricName, String>(metaData);
+		copy.metrics = metrics.clone();
+		
+		copy.methods = new SymbolSet(methods);
+		copy.shortMethods = new SymbolSet(shortMethods);
+		copy.fields = new SymbolSet(fields);
+		
+		copy.dependencies = new SymbolSet(dependencies);
+		copy.users = new SymbolSet(users);
+		copy.children = new SymbolSet(children);
+		copy.interfaces = new SymbolSet(interfaces);
+		
+		copy.internalDependencies = new SymbolSet(internalDependencies);
+		copy.externalCalls = copyCalls(externalCalls);
+		copy.internalLibraryCalls = copyCalls(internalLibraryCalls);
+		copy.externalLibraryCalls = copyCalls(externalLibraryCalls);
+		
+		copy.processingStatus = processingStatus;
+		copy.fingerprint = fingerprint;
+		
+		return copy;
+	}
+	
+	/**
+	 * Copies a map of calls by adding each call in turn, so that the copy grows to the same capacity as the
+	 * original and iterates over the calls in the same order (a map presized for the calls may not). Post-processing
+	 * consumes the calls in iteration order, so a copied class is then processed the same as the original
+	 * @param calls The map of class name -> call count to copy
+	 * @return The copy of the map
+	 */
+	private static Map<String, Integer> copyCalls(Map<String, Integer> calls)
+	{
+		Map<String, Integer> copy = new HashMap<String, Integer>();
+		
+		for (Entry<String, Integer> call : calls.entrySet())
+			copy.put(call.getKey(), call.getValue());
+		
+		return copy;
+	}
+	
 	/**
 	 * Checks the class against another class to determine whether it is an exact match
 	 * 
@@ -634,11 +790,22 @@ public class ClassMetricData
 	 * 	- All fields
 	 * 	- All dependencies
 	 * 
+	 * Classes with the same fingerprint are taken to be an exact match. Where the fingerprints differ, the
+	 * classes can only be an exact match if the comparing class holds more methods, fields or dependencies
+	 * 
 	 * @param comparingClass The class that is being compared as a match
 	 * @return Whether the comparing class was an exact match
 	 */
 	public boolean isExactMatch(ClassMetricData comparingClass)
 	{
+		//Classes with the same fingerprint have the same names, comparison metric values and members
+		if (getFingerprint().equals(comparingClass.getFingerprint())) return true;
+		
+		//Holding the same number of each member, the comparing class could only hold all of this classes
+		//members by holding the same members, so the classes differ
+		if (comparingClass.methods.size() == methods.size() && comparingClass.fields.size() == fields.size()
+				&& comparingClass.dependencies.size() == dependencies.size()) return false;
+		
 		//Check for exact class name match 
 		if (!comparingClass.getClassName().equals(getClassName())) return false;
 		//Check for exact super class name match
@@ -647,16 +814,13 @@ public class ClassMetricData
     	if (!equals(comparingClass)) return false;
     	
     	//Check comparing class has all methods that this class has
-    	for (String method : methods)
-			if (!comparingClass.methods.contains(method)) return false;
+    	if (!comparingClass.methods.containsAll(methods)) return false;
     	
     	//Check comparing class has all fields that this class has
-    	for (String field : fields)
-			if (!comparingClass.fields.contains(field)) return false;
+    	if (!comparingClass.fields.containsAll(fields)) return false;
     	
     	//Check comparing class has all dependencies that this class has
-		for (String dependency : dependencies)
-			if (!comparingClass.dependencies.contains(dependency)) return false;
+		if (!comparingClass.dependencies.containsAll(dependencies)) return false;
 		
 		return true;
 	}
@@ -700,14 +864,103 @@ public class ClassMetricData
 	public String toString()
 	{
 		return String.format("%3d, %3d, %3d, %3d, %3d, %3d, %3d, %4d, %3d, %3d, %3d, %4d, %4d, %3d, %3d, %s, %s",
-				metrics.get(EClassMetricName.IN_DEGREE_COUNT), metrics.get(EClassMetricName.OUT_DEGREE_COUNT),
-				metrics.get(EClassMetricName.METHOD_COUNT), metrics.get(EClassMetricName.LOAD_COUNT), metrics
-						.get(EClassMetricName.STORE_COUNT), metrics.get(EClassMetricName.BRANCH_COUNT), metrics
-						.get(EClassMetricName.FIELD_COUNT), metrics.get(EClassMetricName.SUPER_CLASS_COUNT),
-				metrics.get(EClassMetricName.INTERFACE_COUNT), metrics.get(EClassMetricName.LOCAL_VAR_COUNT),
-				metrics.get(EClassMetricName.TYPE_INSN_COUNT), metrics.get(EClassMetricName.ZERO_OP_INSN_COUNT),
-				metrics.get(EClassMetricName.INTERNAL_METHOD_CALL_COUNT), metrics
-						.get(EClassMetricName.EXTERNAL_METHOD_CALL_COUNT), metrics.get(EClassMetricName.AGE),
+				getMetricValue(EClassMetricName.IN_DEGREE_COUNT), getMetricValue(EClassMetricName.OUT_DEGREE_COUNT),
+				getMetricValue(EClassMetricName.METHOD_COUNT), getMetricValue(EClassMetricName.LOAD_COUNT),
+				getMetricValue(EClassMetricName.STORE_COUNT), getMetricValue(EClassMetricName.BRANCH_COUNT),
+				getMetricValue(EClassMetricName.FIELD_COUNT), getMetricValue(EClassMetricName.SUPER_CLASS_COUNT),
+				getMetricValue(EClassMetricName.INTERFACE_COUNT), getMetricValue(EClassMetricName.LOCAL_VAR_COUNT),
+				getMetricValue(EClassMetricName.TYPE_INSN_COUNT), getMetricValue(EClassMetricName.ZERO_OP_INSN_COUNT),
+				getMetricValue(EClassMetricName.INTERNAL_METHOD_CALL_COUNT),
+				getMetricValue(EClassMetricName.EXTERNAL_METHOD_CALL_COUNT), getMetricValue(EClassMetricName.AGE),
 				getClassType(), getClassName());
 	}
+	
+	/**
+	 * A map view of the classes metric values, used where the metric values are handled as a map (e.g.
+	 * when persisted). Holds an entry for each metric name other than UNKNOWN
+	 */
+	private class MetricMap extends AbstractMap<EClassMetricName, Integer>
+	{
+		@Override
+		public int size()
+		{
+			return METRIC_NAMES.length - 1;
+		}
+		
+		@Override
+		public boolean containsKey(Object key)
+		{
+			return key instanceof EClassMetricName && key != EClassMetricName.UNKNOWN;
+		}
+		
+		@Override
+		public Integer get(Object key)
+		{
+			return containsKey(key) ? metrics[((EClassMetricName)key).ordinal()] : null;
+		}
+		
+		@Override
+		public Integer put(EClassMetricName key, Integer value)
+		{
+			if(value == null)
+				throw new NullPointerException("Could not set metric value for " + key + ", given value was null.");
+			
+			Integer previousValue = getMetricValue(key);
+			setMetricValue(key, value);
+			
+			return previousValue;
+		}
+		
+		@Override
+		public Set<Map.Entry<EClassMetricName, Integer>> entrySet()
+		{
+			return new AbstractSet<Map.Entry<EClassMetricName, Integer>>()
+			{
+				@Override
+				public int size()
+				{
+					return MetricMap.this.size();
+				}
+				
+				@Override
+				public Iterator<Map.Entry<EClassMetricName, Integer>> iterator()
+				{
+					return new Iterator<Map.Entry<EClassMetricName, Integer>>()
+					{
+						//The metric names are ordered with UNKNOWN last, so iterate over those before it
+						private int next = 0;
+						
+						public boolean hasNext()
+						{
+							return next < size();
+						}
+						
+						public Map.Entry<EClassMetricName, Integer> next()
+						{
+							if(!hasNext()) throw new NoSuchElementException();
+							
+							final EClassMetricName metric = METRIC_NAMES[next++];
+							
+							return new SimpleEntry<EClassMetricName, Integer>(metric, metrics[metric.ordinal()])
+							{
+								private static final long serialVersionUID = 1L;
+								
+								@Override
+								public Integer setValue(Integer value)
+								{
+									super.setValue(value);
+									return put(metric, value);
+								}
+							};
+						}
+						
+						public void remove()
+						{
+							throw new UnsupportedOperationException("Metric values can not be removed.");
+						}
+					};
+				}
+			};
+		}
+	}
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package model;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import util.MathUtil;
 
@@ -149,43 +150,30 @@ public class MetricUtil
 	// TODO: Extract to model/util
 	public static double dependenciesSubSetPercentage(ClassMetricData classMetricData1, ClassMetricData classMetricData2)
 	{
-		int matchCount = 0;
-		
 		if (classMetricData1.getDependencyCount() == 0) return 1.0;
 		
-		for (String dependency : classMetricData1.getDependencies())
-		{
-			if (classMetricData2.getDependencies().contains(dependency)) matchCount++; // next version does not contain it
-		}
+		int matchCount = countShared(classMetricData1.getDependencies(), classMetricData2.getDependencies());
+		
 		return (double) matchCount / classMetricData1.getDependencies().size();
 	}
 
 	// TODO: Extract to model/util
 	public static double usersSubSetPercentage(ClassMetricData classMetricData1, ClassMetricData classMetricData2)
 	{
-		int matchCount = 0;
-		
 		if (classMetricData1.getUserCount() == 0) return 1.0;
 		
-		for (String user : classMetricData1.getUsers())
-		{
-			if (classMetricData2.getUsers().contains(user)) matchCount++; // next version does not contain it
-		}
+		int matchCount = countShared(classMetricData1.getUsers(), classMetricData2.getUsers());
+		
 		return (double) matchCount / classMetricData1.getUserCount();
 	}
 
 	// TODO: Extract to model/util
 	public static double fieldSubSetPercentage(ClassMetricData classMetricData1, ClassMetricData classMetricData2)
 	{
-		int matchCount = 0;
-		
 		if (classMetricData1.getFieldCount() == 0) return 1.0;
 		
-		for (String field : classMetricData1.getFields())
-		{
-			if (classMetricData2.getFields().contains(field)) matchCount++; // next version does not
-														// contain it
-		}
+		int matchCount = countShared(classMetricData1.getFields(), classMetricData2.getFields());
+		
 		return (double) matchCount / classMetricData1.getFieldCount();
 	}
 
@@ -196,16 +184,10 @@ public class MetricUtil
 	 */
 	public static double methodSubSetPercentage(ClassMetricData classMetricData1, ClassMetricData classMetricData2)
 	{
-		int matchCount = 0;
-		
 		if (classMetricData1.getShortMethodCount() == 0) return 1.0;
 		
-		for (String shortMethod : classMetricData1.getShortMethods())
-		{
-			if (classMetricData2.getShortMethods().contains(shortMethod)) matchCount++; // next version
-																// does not
-																// contain it
-		}
+		int matchCount = countShared(classMetricData1.getShortMethods(), classMetricData2.getShortMethods());
+		
 		return (double) matchCount / classMetricData1.getShortMethods().size();
 	}
 
@@ -215,11 +197,26 @@ public class MetricUtil
 	{
 		if (classMetricData1.getMethodCount() != classMetricData2.getMethodCount()) return false;
 		
-		for (String method : classMetricData1.getMethods())
-		{
-			if (!classMetricData2.getMethods().contains(method)) return false;
-		}
-		return true;
+		return classMetricData2.getMethods().containsAll(classMetricData1.getMethods());
+	}
+	
+	/**
+	 * Counts the names held by both of two sets, comparing the names by their symbol table IDs
+	 * where both sets are SymbolSets
+	 * @param names The first set of names
+	 * @param otherNames The second set of names
+	 * @return The number of names held by both sets
+	 */
+	private static int countShared(Set<String> names, Set<String> otherNames)
+	{
+		if (names instanceof SymbolSet) return ((SymbolSet)names).countShared(otherNames);
+		
+		int sharedCount = 0;
+		
+		for (String name : names)
+			if (otherNames.contains(name)) sharedCount++;
+		
+		return sharedCount;
 	}
 	
 	public static int getEvolutionCategoryClassCount(Version version, EEvolutionCategory evolutionCategory)
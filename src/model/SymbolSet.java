@@ -0,0 +1,314 @@
+package model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of names held as a sorted array of their SymbolTable IDs rather than as strings. Names are iterated in
+ * name order, as the order of the IDs depends on the order names were added to the symbol table, which differs
+ * between threads and runs. Operations between two symbol sets (containment, counting shared names, equality)
+ * are performed on the IDs alone
+ * @author Allan Jones
+ */
+public class SymbolSet extends AbstractSet<String>
+{
+	private static final int[] EMPTY = new int[0];
+
+	private static final SymbolTable symbolTable = SymbolTable.getInstance();
+
+	//The IDs of the names in the set, sorted in ascending order
+	private int[] ids = EMPTY;
+	//The number of names in the set
+	private int size;
+	//The number of times the set has been modified, to detect modification during iteration
+	private int modCount;
+
+	/**
+	 * Creates an empty set
+	 */
+	public SymbolSet()
+	{ }
+
+	/**
+	 * Creates a set holding the given names
+	 * @param names The names to add to the set
+	 */
+	public SymbolSet(Collection<String> names)
+	{
+		addAll(names);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object name)
+	{
+		if (!(name instanceof String)) return false;
+
+		int id = symbolTable.findId((String)name);
+
+		return id >= 0 && Arrays.binarySearch(ids, 0, size, id) >= 0;
+	}
+
+	@Override
+	public boolean add(String name)
+	{
+		if (name == null)
+			throw new NullPointerException("Could not add name to set, the name passed was null.");
+
+		int id = symbolTable.getId(name);
+		int index = Arrays.binarySearch(ids, 0, size, id);
+
+		if (index >= 0) return false;
+
+		insert(-(index + 1), id);
+
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends String> names)
+	{
+		if (names.isEmpty()) return false;
+
+		int[] added;
+		int addedCount = 0;
+
+		if (names instanceof SymbolSet)
+		{
+			SymbolSet symbolSet = (SymbolSet)names;
+			added = symbolSet.ids;
+			addedCount = symbolSet.size;
+		}
+		else
+		{
+			added = new int[names.size()];
+
+			for (String name : names)
+			{
+				if (name == null)
+					throw new NullPointerException("Could not add name to set, the name passed was null.");
+
+				added[addedCount++] = symbolTable.getId(name);
+			}
+
+			Arrays.sort(added, 0, addedCount);
+		}
+
+		return merge(added, addedCount);
+	}
+
+	@Override
+	public boolean remove(Object name)
+	{
+		if (!(name instanceof String)) return false;
+
+		int id = symbolTable.findId((String)name);
+
+		if (id < 0) return false;
+
+		int index = Arrays.binarySearch(ids, 0, size, id);
+
+		if (index < 0) return false;
+
+		removeAt(index);
+
+		return true;
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> names)
+	{
+		if (!(names instanceof SymbolSet)) return super.containsAll(names);
+
+		SymbolSet symbolSet = (SymbolSet)names;
+
+		return countShared(symbolSet) == symbolSet.size;
+	}
+
+	@Override
+	public void clear()
+	{
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Counts the names held by both this set and another
+	 * @param names The other set of names
+	 * @return The number of names held by both sets
+	 */
+	public int countShared(Collection<String> names)
+	{
+		if (!(names instanceof SymbolSet))
+		{
+			int sharedCount = 0;
+
+			for (String name : names)
+				if (contains(name)) sharedCount++;
+
+			return sharedCount;
+		}
+
+		SymbolSet symbolSet = (SymbolSet)names;
+		int sharedCount = 0;
+
+		//Walk both sorted ID arrays together
+		for (int i = 0, j = 0; i < size && j < symbolSet.size;)
+		{
+			if (ids[i] < symbolSet.ids[j]) i++;
+			else if (ids[i] > symbolSet.ids[j]) j++;
+			else
+			{
+				sharedCount++;
+				i++;
+				j++;
+			}
+		}
+
+		return sharedCount;
+	}
+
+	@Override
+	public boolean equals(Object compare)
+	{
+		if (!(compare instanceof SymbolSet)) return super.equals(compare);
+
+		SymbolSet symbolSet = (SymbolSet)compare;
+
+		if (symbolSet.size != size) return false;
+
+		for (int i = 0; i < size; i++)
+			if (ids[i] != symbolSet.ids[i]) return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		//Must match the hash code of any other set holding the same names
+		return super.hashCode();
+	}
+
+	@Override
+	public Iterator<String> iterator()
+	{
+		return new Iterator<String>()
+		{
+			//The names in the set, sorted
+			private String[] names = getSortedNames();
+			//The index of the next name to return
+			private int next;
+			//The index of the last name returned, or -1 if it has been removed
+			private int last = -1;
+			private int expectedModCount = modCount;
+
+			public boolean hasNext()
+			{
+				return next < names.length;
+			}
+
+			public String next()
+			{
+				if (expectedModCount != modCount) throw new ConcurrentModificationException();
+				if (next >= names.length) throw new NoSuchElementException();
+
+				last = next++;
+
+				return names[last];
+			}
+
+			public void remove()
+			{
+				if (last < 0) throw new IllegalStateException();
+				if (expectedModCount != modCount) throw new ConcurrentModificationException();
+
+				SymbolSet.this.remove(names[last]);
+				last = -1;
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	/**
+	 * @return The names in the set, sorted
+	 */
+	private String[] getSortedNames()
+	{
+		String[] names = new String[size];
+
+		for (int i = 0; i < size; i++)
+			names[i] = symbolTable.getSymbol(ids[i]);
+
+		Arrays.sort(names);
+
+		return names;
+	}
+
+	/**
+	 * Inserts an ID into the set
+	 * @param index The index to insert the ID at, keeping the IDs sorted
+	 * @param id The ID to insert
+	 */
+	private void insert(int index, int id)
+	{
+		if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+
+		System.arraycopy(ids, index, ids, index + 1, size - index);
+		ids[index] = id;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the ID at an index from the set
+	 * @param index The index of the ID to remove
+	 */
+	private void removeAt(int index)
+	{
+		System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Merges sorted IDs into the set
+	 * @param added The sorted IDs to merge, which may contain duplicates
+	 * @param addedCount The number of IDs to merge
+	 * @return Whether the set was changed
+	 */
+	private boolean merge(int[] added, int addedCount)
+	{
+		int[] merged = new int[size + addedCount];
+		int mergedCount = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < size || j < addedCount)
+		{
+			int id;
+
+			if (j >= addedCount || (i < size && ids[i] <= added[j])) id = ids[i++];
+			else id = added[j++];
+
+			if (mergedCount == 0 || merged[mergedCount - 1] != id) merged[mergedCount++] = id;
+		}
+
+		if (mergedCount == size) return false;
+
+		ids = mergedCount == merged.length ? merged : Arrays.copyOf(merged, mergedCount);
+		size = mergedCount;
+		modCount++;
+
+		return true;
+	}
+}
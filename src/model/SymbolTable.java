@@ -0,0 +1,118 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of the names (class names, method descriptors, field names) held by the classes of the histories
+ * being processed, giving each distinct name a single String instance and an int ID. Sets of names held by
+ * classes are stored as sets of IDs (see SymbolSet), so that a name repeated across classes and versions is
+ * only held once and sets of names can be compared without comparing strings.<br />
+ * <br />
+ * IDs are not reused until the table is cleared, so IDs from all of the histories processed since then can be
+ * compared with one another. The table may be used by multiple threads
+ * @author Allan Jones
+ */
+public class SymbolTable
+{
+	private static SymbolTable instance;
+
+	//The number of symbols held by each block of the symbols array
+	private static final int BLOCK_SIZE = 1 << 14;
+	//The maximum number of blocks, allowing for 2^28 symbols
+	private static final int MAX_BLOCKS = 1 << 14;
+
+	//Maps each symbol to it's ID
+	private ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	//The symbols, indexed by ID. Held in fixed blocks so that symbols can be read while others are added
+	private String[][] symbols = new String[MAX_BLOCKS][];
+	//The number of symbols held
+	private int size;
+
+	private SymbolTable()
+	{ }
+
+	public static synchronized SymbolTable getInstance()
+	{
+		if (instance == null) instance = new SymbolTable();
+
+		return instance;
+	}
+
+	/**
+	 * Gets the ID of a symbol, adding the symbol to the table if it is not yet held
+	 * @param symbol The symbol to get the ID of
+	 * @return The symbols ID
+	 */
+	public int getId(String symbol)
+	{
+		Integer id = ids.get(symbol);
+
+		if (id != null) return id;
+
+		synchronized (this)
+		{
+			id = ids.get(symbol);
+
+			if (id != null) return id;
+
+			if (size == MAX_BLOCKS * BLOCK_SIZE)
+				throw new IllegalStateException("Could not add symbol " + symbol + ", the symbol table is full.");
+
+			int block = size / BLOCK_SIZE;
+
+			if (symbols[block] == null) symbols[block] = new String[BLOCK_SIZE];
+
+			//The symbol is stored before it's ID is published, so any thread given the ID can read the symbol
+			symbols[block][size % BLOCK_SIZE] = symbol;
+			ids.put(symbol, size);
+
+			return size++;
+		}
+	}
+
+	/**
+	 * Finds the ID of a symbol without adding the symbol to the table
+	 * @param symbol The symbol to find the ID of
+	 * @return The symbols ID, or -1 if the symbol is not held
+	 */
+	public int findId(String symbol)
+	{
+		Integer id = ids.get(symbol);
+
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the symbol with a given ID
+	 * @param id The ID of the symbol
+	 * @return The symbol
+	 */
+	public String getSymbol(int id)
+	{
+		return symbols[id / BLOCK_SIZE][id % BLOCK_SIZE];
+	}
+
+	/**
+	 * Removes every symbol from the table, so that the symbols of histories that have been processed are not
+	 * held for the life of the JVM. Classes holding symbol IDs from before the table was cleared must no longer
+	 * be used, and no other thread may use the table while it is being cleared
+	 */
+	public synchronized void clear()
+	{
+		ids.clear();
+		symbols = new String[MAX_BLOCKS][];
+		size = 0;
+	}
+
+	/**
+	 * Gets the single instance of a symbol held by the table, adding the symbol if it is not yet held
+	 * @param symbol The symbol to intern
+	 * @return The instance of the symbol held by the table, or null if the symbol is null
+	 */
+	public String intern(String symbol)
+	{
+		if (symbol == null) return null;
+
+		return getSymbol(getId(symbol));
+	}
+}
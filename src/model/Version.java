@@ -35,6 +35,9 @@ public class Version
 	
 	//The extent to which this class has been processed (TODO: Add explanation of possible values and when they are set)
 	private EProcessingStatus processingStatus = EProcessingStatus.UNPROCESSED;
+	
+	//Columnar view of the versions classes, created when first requested
+	private VersionColumns columns;
 
 	/**
 	 * Creates a new Version object with a set of classes, RSN (Release Sequence Number) and ID and the time that the version was last modified
@@ -153,6 +156,22 @@ public class Version
 	{
 		return classes;
 	}
+	
+	/**
+	 * Gets a columnar view of the versions classes, creating it the first time it is requested. The view is a
+	 * read-only snapshot for versions that have been loaded for reporting: it holds the classes present when it
+	 * was created and the metric values present when each column was built. Classes added, removed or modified
+	 * through getClasses() or ClassMetricData are not tracked, so code that modifies the classes after using the
+	 * view must call invalidateColumns(). The view is also discarded if the processing status of the version
+	 * changes
+	 * @return The columnar view of the versions classes
+	 */
+	public synchronized VersionColumns getColumns()
+	{
+		if (columns == null) columns = new VersionColumns(classes);
+		
+		return columns;
+	}
 
 	public void setLastModifiedDate(Date lastModifiedDate)
 	{
@@ -203,6 +222,18 @@ public class Version
 			throw new NullPointerException("Could not set processing status for version, specified value was null.");
 		
 		this.processingStatus = processingStatus;
+		
+		//The classes are being processed, so any columnar view may no longer reflect them
+		invalidateColumns();
+	}
+	
+	/**
+	 * Discards the columnar view of the versions classes, so that it is created again from the classes
+	 * and their metric values the next time it is requested
+	 */
+	public synchronized void invalidateColumns()
+	{
+		columns = null;
 	}
 	
 	//TODO: Can probably set this in processing
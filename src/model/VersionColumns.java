@@ -0,0 +1,108 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import model.vocab.EClassMetricName;
+
+/**
+ * A columnar view of the classes in a version, holding the values of a metric across all classes as a single
+ * int array so that analyses over a metric can be performed as a primitive loop. Classes are held at a fixed
+ * index, in the order the versions classes were iterated when the view was created, with each metric column
+ * being built the first time it is requested.<br />
+ * <br />
+ * The view reflects the metric values at the time each column is built, so should only be used for versions
+ * that are no longer being processed
+ * @author Allan Jones
+ */
+public class VersionColumns
+{
+	//The classes, by index
+	private ClassMetricData[] classes;
+	//Maps the class names to their index
+	private Map<String, Integer> classIndex;
+	//The metric columns built, indexed by the ordinal of the metric name
+	private int[][] columns = new int[EClassMetricName.values().length][];
+
+	/**
+	 * Creates a columnar view of the given classes
+	 * @param classes The classes of the version, mapped by name
+	 */
+	public VersionColumns(Map<String, ClassMetricData> classes)
+	{
+		this.classes = classes.values().toArray(new ClassMetricData[classes.size()]);
+		this.classIndex = new HashMap<String, Integer>(classes.size() * 2);
+
+		for (int i = 0; i < this.classes.length; i++)
+			classIndex.put(this.classes[i].getClassName(), i);
+	}
+
+	/**
+	 * @return The number of classes in the view
+	 */
+	public int getClassCount()
+	{
+		return classes.length;
+	}
+
+	/**
+	 * Gets the class at an index
+	 * @param index The index of the class
+	 * @return The class
+	 */
+	public ClassMetricData getClass(int index)
+	{
+		return classes[index];
+	}
+
+	/**
+	 * Gets the name of the class at an index
+	 * @param index The index of the class
+	 * @return The classes name
+	 */
+	public String getClassName(int index)
+	{
+		return classes[index].getClassName();
+	}
+
+	/**
+	 * Gets the index of a class
+	 * @param className The name of the class
+	 * @return The index of the class, or -1 if the class is not in the view
+	 */
+	public int indexOf(String className)
+	{
+		Integer index = classIndex.get(className);
+
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Gets the values of a metric for all classes, indexed by class index. The column returned is shared
+	 * and must not be modified
+	 * @param metric The metric to get the values of
+	 * @return The metric values
+	 */
+	public synchronized int[] getColumn(EClassMetricName metric)
+	{
+		if (metric == null)
+			throw new NullPointerException("Could not get metric column, given metric name was null.");
+
+		if (metric == EClassMetricName.UNKNOWN)
+			throw new IllegalArgumentException("Could not get metric column, " + metric + " is not a valid metric name.");
+
+		int[] column = columns[metric.ordinal()];
+
+		if (column == null)
+		{
+			column = new int[classes.length];
+
+			for (int i = 0; i < classes.length; i++)
+				column[i] = classes[i].getMetricValue(metric);
+
+			columns[metric.ordinal()] = column;
+		}
+
+		return column;
+	}
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+import model.vocab.EClassCollectionName;
+import model.vocab.EClassMetricName;
+
+/**
+ * Specifies the parts of a versions classes that are required when reading a version, so that the parts
+ * not required can be skipped rather than loaded. The version meta-data and metrics, along with the meta-data
+ * of each class, are always loaded.<br />
+ * <br />
+ * Classes read with a projection hold their initial value for each metric not included and an empty collection
+ * for each collection not included. Such versions are only suitable for reporting, and should not be processed
+ * further, written back or have their classes compared (classes read without a persisted fingerprint compute it
+ * from the parts that were read)
+ * @author Allan Jones
+ */
+public final class VersionProjection
+{
+	/**
+	 * Projection including every metric and collection, i.e. the whole version
+	 */
+	public static final VersionProjection ALL = new VersionProjection(EnumSet.complementOf(EnumSet.of(EClassMetricName.UNKNOWN)),
+																	  EnumSet.allOf(EClassCollectionName.class));
+	
+	/**
+	 * Projection including no metrics or collections, for when only the versions own meta-data and metrics, or
+	 * the class meta-data (e.g. class names, package names) are required
+	 */
+	public static final VersionProjection META_DATA = new VersionProjection(EnumSet.noneOf(EClassMetricName.class),
+																			EnumSet.noneOf(EClassCollectionName.class));
+	
+	//Whether each metric is included, indexed by the ordinal of the metric name
+	private boolean[] includedMetrics = new boolean[EClassMetricName.values().length];
+	private boolean hasMetrics;
+	
+	private Set<EClassCollectionName> collections;
+	
+	/**
+	 * Creates a projection including the given metrics and collections
+	 * @param metrics The class metrics required
+	 * @param collections The class collections required
+	 */
+	public VersionProjection(Collection<EClassMetricName> metrics, Collection<EClassCollectionName> collections)
+	{
+		for (EClassMetricName metric : metrics)
+		{
+			includedMetrics[metric.ordinal()] = true;
+			hasMetrics = true;
+		}
+		
+		this.collections = collections.isEmpty() ? EnumSet.noneOf(EClassCollectionName.class) : EnumSet.copyOf(collections);
+	}
+	
+	/**
+	 * Creates a projection including the given metrics, and none of the class collections
+	 * @param metrics The class metrics required
+	 * @return The projection
+	 */
+	public static VersionProjection ofMetrics(EClassMetricName... metrics)
+	{
+		return new VersionProjection(Arrays.asList(metrics), EnumSet.noneOf(EClassCollectionName.class));
+	}
+	
+	/**
+	 * @param metric The metric name
+	 * @return Whether the values of the metric are included
+	 */
+	public boolean includesMetric(EClassMetricName metric)
+	{
+		return includedMetrics[metric.ordinal()];
+	}
+	
+	/**
+	 * @return Whether the values of any metric are included
+	 */
+	public boolean includesMetrics()
+	{
+		return hasMetrics;
+	}
+	
+	/**
+	 * @param collection The collection name
+	 * @return Whether the collection is included
+	 */
+	public boolean includesCollection(EClassCollectionName collection)
+	{
+		return collections.contains(collection);
+	}
+	
+	/**
+	 * Determines whether this projection includes every metric and collection included by another projection, so
+	 * that a version read with this projection can stand in for one read with the other
+	 * @param projection The other projection
+	 * @return Whether the other projection is included
+	 */
+	public boolean includes(VersionProjection projection)
+	{
+		if (projection == this) return true;
+		
+		for (int i = 0; i < includedMetrics.length; i++)
+			if (projection.includedMetrics[i] && !includedMetrics[i]) return false;
+		
+		return collections.containsAll(projection.collections);
+	}
+
+	/**
+	 * Creates a projection including every metric and collection included by either this or another projection,
+	 * so that a single read of a version can serve both
+	 * @param projection The other projection
+	 * @return The combined projection
+	 */
+	public VersionProjection union(VersionProjection projection)
+	{
+		if (includes(projection)) return this;
+		if (projection.includes(this)) return projection;
+
+		VersionProjection union = new VersionProjection(EnumSet.noneOf(EClassMetricName.class), collections);
+
+		for (int i = 0; i < includedMetrics.length; i++)
+			union.includedMetrics[i] = includedMetrics[i] || projection.includedMetrics[i];
+
+		union.hasMetrics = hasMetrics || projection.hasMetrics;
+		union.collections.addAll(projection.collections);
+
+		return union;
+	}
+}
@@ -0,0 +1,21 @@
+package model.vocab;
+
+/**
+ * Enum type representing the collections of names associated with a class (see ClassMetricData)
+ * 
+ * @author Allan Jones
+ */
+public enum EClassCollectionName
+{
+	METHODS,
+	SHORT_METHODS,
+	FIELDS,
+	DEPENDENCIES,
+	USERS,
+	CHILDREN,
+	INTERFACES,
+	INTERNAL_DEPENDENCIES,
+	EXTERNAL_CALLS,
+	INTERNAL_LIBRARY_CALLS,
+	EXTERNAL_LIBRARY_CALLS
+}
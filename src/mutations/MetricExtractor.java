@@ -1,6 +1,8 @@
 package mutations;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import model.History;
 import report.EReportConfigOption;
@@ -20,8 +22,13 @@ import extraction.HistoryFactory;
  */
 public class MetricExtractor
 {	
+	//Separates the arguments of each report when several reports are requested
+	private static final String REPORT_SEPARATOR = "+";
+	
 	/**
-	 * Takes max of 7 arguments: fileName, reportNumber, Show Report Header, Show Processing and 3 report arguments
+	 * Takes max of 7 arguments: fileName, reportNumber, Show Report Header, Show Processing and 3 report arguments.
+	 * Further reports may be requested by following these with '+' and the arguments for each further report
+	 * (excluding fileName), in which case every report is built from a single pass over the versions
 	 */
 	public static void main(String[] args) throws Exception
 	{
@@ -32,10 +39,15 @@ public class MetricExtractor
 			
 			try
 			{
-				ReportConfig config = extractReportConfig(args);
+				List<ReportConfig> configs = extractReportConfigs(args);
 				
 				History history = HistoryFactory.getInstance().getHistory(new File(ConfigManager.getStringProperty(ConfigKeys.BUILDS_DIRECTORY) + fileName));
-				ReportWriter.printReports(history, config);
+				
+				//A single report is left to fail as a whole, rather than being printed as null
+				if(configs.size() == 1)
+					ReportWriter.printReports(history, configs.get(0));
+				else
+					ReportWriter.printReports(history, configs);
 			}
 			catch (ReportConfigException e)
 			{
@@ -64,6 +76,38 @@ public class MetricExtractor
 		}
 	}
 
+	/**
+	 * Extracts the config for each report requested, splitting the arguments at each report separator
+	 * @param args The arguments passed, starting with the file name
+	 * @return The config for each report, in the order they were requested
+	 * @throws ReportConfigException If the arguments for a report are not valid
+	 */
+	private static List<ReportConfig> extractReportConfigs(String[] args) throws ReportConfigException
+	{
+		List<ReportConfig> reportConfigs = new ArrayList<ReportConfig>();
+		
+		//The arguments for each report are preceded by the file name, as when a single report is requested
+		List<String> reportArgs = new ArrayList<String>();
+		reportArgs.add(args[0]);
+		
+		for(int i = 1; i <= args.length; i++)
+		{
+			if(i < args.length && !args[i].equals(REPORT_SEPARATOR))
+			{
+				reportArgs.add(args[i]);
+				continue;
+			}
+			
+			if(reportArgs.size() < 2)
+				throw new ReportConfigException("No report code specified for report " + (reportConfigs.size() + 1));
+			
+			reportConfigs.add(extractReportConfig(reportArgs.toArray(new String[reportArgs.size()])));
+			reportArgs.subList(1, reportArgs.size()).clear();
+		}
+		
+		return reportConfigs;
+	}
+	
 	//TODO Cleanup and refactor -- hack to the max
 	private static ReportConfig extractReportConfig(String[] args) throws ReportConfigException
 	{
@@ -135,8 +179,10 @@ public class MetricExtractor
 		usageFormatString.append("\r\n");
 		usageFormatString.append("Usage:").append("\r\n");
 		
-		usageFormatString.append("\tVERSIONS_FILE REPORT_CODE SHOW_REPORT_HEADER [REPORT_ARG_1] [REPORT_ARG_2] [REPORT_ARG_3]").append("\r\n\r\n");
-		usageFormatString.append("\te.g.: ant/ant.versions 20 y methodCount 0 ,");
+		usageFormatString.append("\tVERSIONS_FILE REPORT_CODE SHOW_REPORT_HEADER [REPORT_ARG_1] [REPORT_ARG_2] [REPORT_ARG_3]").append("\r\n");
+		usageFormatString.append("\t\t[+ REPORT_CODE SHOW_REPORT_HEADER [REPORT_ARG_1] [REPORT_ARG_2] [REPORT_ARG_3] ...]").append("\r\n\r\n");
+		usageFormatString.append("\te.g.: ant/ant.versions 20 y methodCount 0 ,").append("\r\n");
+		usageFormatString.append("\t      ant/ant.versions 0 y + 4 y + 60 y methodCount 20 y");
 		
 		System.out.println(usageFormatString.toString());
 	}
@@ -1,5 +1,7 @@
 package mutations;
 
+import java.util.List;
+
 import model.History;
 import report.Report;
 import report.ReportConfig;
@@ -28,4 +30,34 @@ public class ReportWriter
 				
 		System.out.println(report);
 	}
+	
+	/**
+	 * Prints a report for each of the report configs, with every report being built from a single pass over the
+	 * versions in the history. A report that could not be built is not printed, the failure being printed to
+	 * the error stream in it's place
+	 * @param history The history to report on
+	 * @param configs The configuration of each report, in the order the reports are printed
+	 */
+	public static void printReports(History history, List<ReportConfig> configs)
+	{
+		//TODO: Give more descriptive error messages
+		if(history == null)
+		{
+			//TODO: Log error
+			System.err.println("Could not print reports...History is null");
+			return;
+		}
+		
+		if(configs == null || configs.isEmpty() || configs.contains(null))
+		{
+			System.err.println("Could not print reports...Config is null");
+			return;
+		}
+		
+		ReportFactory reportFactory = ReportFactory.getInstance();
+		List<Report> reports = reportFactory.getReports(history, configs);
+		
+		for(Report report : reports)
+			if(report != null) System.out.println(report);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package mutations;
+
+import java.util.Arrays;
+
+import model.Version;
+import persistence.ArchiveVersionWriter;
+import persistence.BinaryFileVersionWriter;
+import persistence.IVersionReader;
+import persistence.IVersionWriter;
+import persistence.JSONFileVersionReader;
+
+/**
+ * Driver class for converting the versions of extracted systems from the JSON format to the binary format,
+ * so that they can be read with versionPersistenceFormat=binary without being extracted again. If the -archive
+ * option is given, each systems versions are instead written to a single archive file, to be read with
+ * versionPersistenceFormat=archive. Versions are read from and written to the configured version persistence
+ * directory, with the JSON files being kept
+ *
+ * @author Allan Jones
+ */
+public class VersionConverter
+{
+	/**
+	 * Takes the short names of the systems to convert, optionally preceded by -archive
+	 */
+	public static void main(String[] args)
+	{
+		boolean archive = args.length > 0 && args[0].equals("-archive");
+		
+		if (archive) args = Arrays.copyOfRange(args, 1, args.length);
+		
+		if (args.length == 0)
+		{
+			System.err.println("Error: Insufficient number of arguments entered...you must enter the systems to convert");
+			printUsageFormat();
+			return;
+		}
+
+		IVersionReader reader = new JSONFileVersionReader();
+		IVersionWriter writer = archive ? new ArchiveVersionWriter() : new BinaryFileVersionWriter();
+
+		for (String system : args)
+		{
+			int rsn = 1;
+
+			//Versions are numbered from 1 without gaps, so convert until there are no more
+			for (; reader.versionExtracted(system, rsn); rsn++)
+			{
+				Version version = reader.readVersion(system, rsn);
+
+				if (version == null)
+				{
+					//TODO: Log error
+					System.err.println("Could not convert " + system + ", version " + rsn + " could not be read");
+					break;
+				}
+
+				writer.writeVersion(system, version);
+			}
+
+			System.out.println("Converted " + (rsn - 1) + " versions of " + system);
+		}
+	}
+
+	private static void printUsageFormat()
+	{
+		StringBuilder usageFormatString = new StringBuilder();
+
+		usageFormatString.append("\r\n");
+		usageFormatString.append("Usage:").append("\r\n");
+
+		usageFormatString.append("\t[-archive] SYSTEM [SYSTEM ...]").append("\r\n\r\n");
+		usageFormatString.append("\te.g.: ant jedit").append("\r\n");
+		usageFormatString.append("\t      -archive ant jedit");
+
+		System.out.println(usageFormatString.toString());
+	}
+}
@@ -0,0 +1,57 @@
+package persistence;
+
+import java.io.IOException;
+
+import model.Version;
+import model.VersionProjection;
+
+/**
+ * Provides a means of loading a Version object from the version archive of it's system (see VersionArchive),
+ * reconstructing it from the previous versions if it is held as it's changes from the previous version
+ * 
+ * @author Allan Jones
+ */
+public class ArchiveVersionReader implements IVersionReader
+{
+	@Override
+	public Version readVersion(String system, int rsn)
+	{
+		return readVersion(system, rsn, VersionProjection.ALL);
+	}
+	
+	@Override
+	public Version readVersion(String system, int rsn, VersionProjection projection)
+	{
+		Version version = null;
+		
+		try
+		{
+			version = VersionArchive.getInstance(system).readVersion(rsn, projection);
+		}
+		catch(IOException ioe)
+		{
+			ioe.printStackTrace(); //TODO: Log and throw a de-serialization exception
+		}
+		catch(IllegalStateException ise)
+		{
+			ise.printStackTrace(); //TODO: Log and throw a de-serialization exception
+		}
+		
+		return version;
+	}
+
+	@Override
+	public boolean versionExtracted(String system, int rsn)
+	{
+		try
+		{
+			//Considered extracted if the archive indexes the version
+			return VersionArchive.getInstance(system).contains(rsn);
+		}
+		catch (IOException ioe)
+		{
+			ioe.printStackTrace(); //TODO: Log
+			return false;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package persistence;
+
+import java.io.IOException;
+
+import model.Version;
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * Provides a means for writing Version objects to the version archive of their system (see VersionArchive).
+ * Versions are held as their changes from the previous version, other than every n-th version (as configured
+ * by versionKeyframeInterval), which is held in full
+ * 
+ * @author Allan Jones
+ */
+public class ArchiveVersionWriter implements IVersionWriter
+{
+	//The interval between versions held in full, if not configured
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+	
+	@Override
+	public void writeVersion(String system, Version version)
+	{
+		try
+		{
+			if(version == null)
+				throw new NullPointerException("Could not write version as the specified version object was null");
+			
+			int keyframeInterval = ConfigManager.getIntProperty(ConfigKeys.VERSION_KEYFRAME_INTERVAL, DEFAULT_KEYFRAME_INTERVAL);
+			
+			VersionArchive.getInstance(system).writeVersion(version, keyframeInterval);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace(); //TODO: Log and throw serialization exception
+		}
+		catch (IllegalStateException ise)
+		{
+			ise.printStackTrace(); //TODO: Log and throw serialization exception
+		}
+		
+		//Any cached copy of the version is now stale
+		VersionCache.getInstance().invalidate(system, version.getRSN());
+	}
+}
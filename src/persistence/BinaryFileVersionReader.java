@@ -0,0 +1,82 @@
+package persistence;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import model.Version;
+import model.VersionProjection;
+
+/**
+ * Provides a means of loading a Version object from a file holding it in the binary version format
+ * (see BinaryVersionEncoder)
+ * 
+ * @author Allan Jones
+ */
+public class BinaryFileVersionReader implements IVersionReader
+{
+	@Override
+	public Version readVersion(String system, int rsn)
+	{
+		return readVersion(system, rsn, VersionProjection.ALL);
+	}
+	
+	@Override
+	public Version readVersion(String system, int rsn, VersionProjection projection)
+	{
+		Version version = null;
+		
+		try
+		{
+			File versionFile = VersionFileStreamAccessor.getInstance().getVersionFile(system, rsn, BinaryVersionEncoder.FILE_EXTENSION);
+			
+			if(versionFile == null)
+				return null;
+			
+			//Read the encoded version as a whole and decode it
+			byte[] encodedVersion = readFile(versionFile);
+			version = new BinaryVersionDecoder().decode(encodedVersion, 0, encodedVersion.length, projection);
+		}
+		catch(IOException ioe)
+		{
+			ioe.printStackTrace(); //TODO: Log and throw a de-serialization exception
+		}
+		catch(IllegalStateException ise)
+		{
+			ise.printStackTrace(); //TODO: Log and throw a de-serialization exception
+		}
+		
+		return version;
+	}
+	
+	/**
+	 * Reads the contents of a file
+	 * @param file The file to read
+	 * @return The bytes held by the file
+	 * @throws IOException if the file could not be read
+	 */
+	static byte[] readFile(File file) throws IOException
+	{
+		byte[] contents = new byte[(int)file.length()];
+		DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+		
+		try
+		{
+			inputStream.readFully(contents);
+		}
+		finally
+		{
+			inputStream.close();
+		}
+		
+		return contents;
+	}
+
+	@Override
+	public boolean versionExtracted(String system, int rsn)
+	{
+		//Considered extracted if there is actually something to load
+		return VersionFileStreamAccessor.getInstance().getVersionFile(system, rsn, BinaryVersionEncoder.FILE_EXTENSION) != null;
+	}
+}
@@ -0,0 +1,63 @@
+package persistence;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import model.Version;
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * Provides a means for writing Version objects to file in the binary version format (see BinaryVersionEncoder)
+ * 
+ * @author Allan Jones
+ */
+public class BinaryFileVersionWriter implements IVersionWriter
+{
+	@Override
+	public void writeVersion(String system, Version version)
+	{
+		try
+		{
+			if(version == null)
+				throw new NullPointerException("Could not write version as the specified version object was null");
+			
+			//Encode the version
+			byte[] encodedVersion = new BinaryVersionEncoder().encode(version);
+			
+			//Create the output folder for the system
+			File outputFolder = new File(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_DIRECTORY) + system + "/");
+			
+			if(!outputFolder.exists())
+			{
+				boolean foldersCreated = outputFolder.mkdirs();
+				
+				//Folders may have been created concurrently by another writer
+				if(!foldersCreated && !outputFolder.isDirectory())
+					throw new IOException("Could not create folders for path: " + outputFolder.getPath());
+			}
+			
+			//Write the encoded version to file
+			OutputStream outputStream = new FileOutputStream(new File(outputFolder.getPath() + "/" + system + "-" + version.getRSN()
+																		+ BinaryVersionEncoder.FILE_EXTENSION));
+			
+			try
+			{
+				outputStream.write(encodedVersion);
+			}
+			finally
+			{
+				outputStream.close();
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace(); //TODO: Log and throw serialization exception
+		}
+		
+		//Any cached copy of the version is now stale
+		VersionCache.getInstance().invalidate(system, version.getRSN());
+	}
+}
@@ -0,0 +1,416 @@
+package persistence;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.ClassFingerprint;
+import model.ClassMetricData;
+import model.SymbolSet;
+import model.SymbolTable;
+import model.Version;
+import model.VersionProjection;
+import model.vocab.EClassCollectionName;
+import model.vocab.EClassMetricName;
+import model.vocab.EProcessingStatus;
+import model.vocab.EVersionMetricName;
+
+/**
+ * Decodes versions encoded in the binary version format (see BinaryVersionEncoder). The sections of each class
+ * not included by the projection being decoded are skipped over using their lengths, and the strings in the
+ * string table are only decoded once they are referred to by a section that is decoded
+ *
+ * @author Allan Jones
+ */
+class BinaryVersionDecoder
+{
+	//Holds the single instance of each class name, method and field name read
+	private static final SymbolTable symbolTable = SymbolTable.getInstance();
+
+	private BinaryVersionInput input;
+
+	//The class metric for each metric held by the classes, in the order they are held (null if unknown)
+	private EClassMetricName[] metrics;
+	//Whether each metric held by the classes is included by the projection, in the order they are held
+	private boolean[] includedMetrics;
+	
+	//The parts of the classes to decode
+	private VersionProjection projection;
+	
+	//Reads the strings in the string table, which are held at the given positions
+	private BinaryVersionInput stringInput;
+	private int[] stringPositions;
+	//The strings from the string table that have been decoded
+	private String[] strings;
+
+	/**
+	 * Decodes an encoded version
+	 * @param data The bytes holding the encoded version
+	 * @param offset The position of the encoded version within the bytes
+	 * @param length The length of the encoded version
+	 * @return The decoded version
+	 * @throws IllegalStateException if the bytes do not hold a version in a supported format
+	 */
+	Version decode(byte[] data, int offset, int length)
+	{
+		return decode(data, offset, length, VersionProjection.ALL);
+	}
+	
+	/**
+	 * Decodes the parts of an encoded version included by a projection
+	 * @param data The bytes holding the encoded version
+	 * @param offset The position of the encoded version within the bytes
+	 * @param length The length of the encoded version
+	 * @param projection The parts of the versions classes to decode
+	 * @return The decoded version
+	 * @throws IllegalStateException if the bytes do not hold a version in a supported format
+	 */
+	Version decode(byte[] data, int offset, int length, VersionProjection projection)
+	{
+		this.projection = projection;
+		input = new BinaryVersionInput(data, offset, length);
+
+		readHeader(BinaryVersionEncoder.MAGIC);
+		Version version = readVersion();
+		readStringTable(data, offset, length);
+
+		//Classes
+		int classCount = input.readVarint();
+		Map<String, ClassMetricData> classes = version.getClasses();
+
+		for (int i = 0; i < classCount; i++)
+		{
+			int classLength = input.readVarint();
+			int classEnd = input.getPosition() + classLength;
+
+			ClassMetricData classMetricData = decodeClass();
+			classes.put(classMetricData.getClassName(), classMetricData);
+
+			input.setPosition(classEnd);
+		}
+
+		return version;
+	}
+
+	/**
+	 * Decodes the parts included by a projection of a version encoded as it's changes from a base version (see
+	 * BinaryVersionEncoder.encodeDelta). The classes of the base version are not modified, with those that are
+	 * unchanged being held by the decoded version as well
+	 * @param data The bytes holding the encoded version
+	 * @param offset The position of the encoded version within the bytes
+	 * @param length The length of the encoded version
+	 * @param baseClasses The classes of the base version, decoded with the same projection
+	 * @param projection The parts of the versions classes to decode
+	 * @return The decoded version
+	 * @throws IllegalStateException if the bytes do not hold a version in a supported format
+	 */
+	Version decodeDelta(byte[] data, int offset, int length, Map<String, ClassMetricData> baseClasses, VersionProjection projection)
+	{
+		this.projection = projection;
+		input = new BinaryVersionInput(data, offset, length);
+
+		readHeader(BinaryVersionEncoder.DELTA_MAGIC);
+		Version version = readVersion();
+		//The base RSN is also held by the index of the archive, so isn't needed
+		input.readVarint();
+		readStringTable(data, offset, length);
+
+		Map<String, ClassMetricData> classes = version.getClasses();
+		classes.putAll(baseClasses);
+
+		//Deleted classes
+		int deletedClassCount = input.readVarint();
+
+		for (int i = 0; i < deletedClassCount; i++)
+			classes.remove(getString(input.readVarint()));
+
+		//Changed and added classes
+		int changedClassCount = input.readVarint();
+
+		for (int i = 0; i < changedClassCount; i++)
+		{
+			int classLength = input.readVarint();
+			int classEnd = input.getPosition() + classLength;
+
+			String className = getString(input.readVarint());
+			ClassMetricData baseClass = classes.get(className);
+
+			classes.put(className, decodeClassChanges(baseClass == null ? new ClassMetricData() : baseClass.copy()));
+
+			input.setPosition(classEnd);
+		}
+
+		return version;
+	}
+
+	/**
+	 * Reads the versions meta-data, metrics, modification times and status
+	 * @return The version, holding no classes
+	 */
+	private Version readVersion()
+	{
+		int metaDataCount = input.readVarint();
+		Map<EVersionMetricName, String> metaData = new HashMap<EVersionMetricName, String>(5);
+
+		for (int i = 0; i < metaDataCount; i++)
+			metaData.put(EVersionMetricName.valueOf(input.readString()), input.readString());
+
+		int metricCount = input.readVarint();
+		Map<EVersionMetricName, Integer> versionMetrics = new HashMap<EVersionMetricName, Integer>(5);
+
+		for (int i = 0; i < metricCount; i++)
+			versionMetrics.put(EVersionMetricName.valueOf(input.readString()), input.readSignedVarint());
+
+		long lastModifiedTime = input.readLong();
+		long lastModifiedDate = input.readLong();
+		boolean hasDeletedClasses = input.readBoolean();
+		EProcessingStatus processingStatus = EProcessingStatus.valueOf(input.readString());
+
+		Version version = new Version(metaData, versionMetrics, new HashMap<String, ClassMetricData>(), lastModifiedTime,
+										lastModifiedDate, hasDeletedClasses);
+		version.setProcessingStatus(processingStatus);
+
+		return version;
+	}
+
+	/**
+	 * Reads the positions of the strings in the string table, which are only decoded once they are requested
+	 */
+	private void readStringTable(byte[] data, int offset, int length)
+	{
+		stringInput = new BinaryVersionInput(data, offset, length);
+		stringPositions = new int[input.readVarint()];
+		strings = new String[stringPositions.length];
+
+		for (int i = 0; i < stringPositions.length; i++)
+		{
+			stringPositions[i] = input.getPosition();
+
+			int stringLength = input.readVarint();
+			if (stringLength > 0) input.skip(stringLength - 1);
+		}
+	}
+
+	private void readHeader(int expectedMagic)
+	{
+		int magic = input.readInt();
+
+		if (magic != expectedMagic)
+			throw new IllegalStateException("Could not decode version, the data is not in the binary version format.");
+
+		int formatVersion = input.readVarint();
+
+		if (formatVersion != BinaryVersionEncoder.FORMAT_VERSION)
+			throw new IllegalStateException("Could not decode version, format version " + formatVersion + " is not supported.");
+
+		metrics = new EClassMetricName[input.readVarint()];
+		includedMetrics = new boolean[metrics.length];
+
+		for (int i = 0; i < metrics.length; i++)
+		{
+			String metricName = input.readString();
+
+			try
+			{
+				metrics[i] = EClassMetricName.valueOf(metricName);
+			}
+			catch (IllegalArgumentException iae)
+			{
+				//Metric no longer exists, so it's values are ignored
+				continue;
+			}
+
+			includedMetrics[i] = metrics[i] != EClassMetricName.UNKNOWN && projection.includesMetric(metrics[i]);
+		}
+	}
+
+	private ClassMetricData decodeClass()
+	{
+		ClassMetricData classMetricData = new ClassMetricData();
+
+		classMetricData.setMetaData(readMetaData());
+
+		//Metrics
+		if (projection.includesMetrics())
+		{
+			input.readVarint();
+
+			for (int i = 0; i < metrics.length; i++)
+			{
+				int value = input.readSignedVarint();
+
+				if (includedMetrics[i]) classMetricData.setMetricValue(metrics[i], value);
+			}
+		}
+		else skipSection();
+
+		//Sets of names
+		if (projection.includesCollection(EClassCollectionName.METHODS)) classMetricData.setMethods(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.SHORT_METHODS)) classMetricData.setShortMethods(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.FIELDS)) classMetricData.setFields(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.DEPENDENCIES)) classMetricData.setDependencies(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.USERS)) classMetricData.setUsers(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.CHILDREN)) classMetricData.setChildren(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.INTERFACES)) classMetricData.setInterfaces(readNames());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.INTERNAL_DEPENDENCIES)) classMetricData.setInternalDependencies(readNames());
+		else skipSection();
+
+		//Calls
+		if (projection.includesCollection(EClassCollectionName.EXTERNAL_CALLS)) classMetricData.setExternalCalls(readCalls());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.INTERNAL_LIBRARY_CALLS)) classMetricData.setInternalLibraryCalls(readCalls());
+		else skipSection();
+		if (projection.includesCollection(EClassCollectionName.EXTERNAL_LIBRARY_CALLS)) classMetricData.setExternalLibraryCalls(readCalls());
+		else skipSection();
+
+		//Fingerprint (set last, as setting the classes structure discards it)
+		input.readVarint();
+		classMetricData.setFingerprint(new ClassFingerprint(input.readLong(), input.readLong()));
+
+		return classMetricData;
+	}
+
+	/**
+	 * Decodes the parts of a class that have changed from it's base class, applying them to the base class
+	 * @param classMetricData A copy of the base class, or a new ClassMetricData if the class has been added
+	 * @return The changed class
+	 */
+	private ClassMetricData decodeClassChanges(ClassMetricData classMetricData)
+	{
+		int changedParts = input.readVarint();
+
+		//The fingerprint is kept unless a new one is held, being set after the other parts as setting them discards it
+		ClassFingerprint fingerprint = null;
+		if ((changedParts & (1 << BinaryVersionEncoder.FINGERPRINT_PART)) == 0) fingerprint = classMetricData.getFingerprint();
+
+		if ((changedParts & (1 << BinaryVersionEncoder.META_DATA_PART)) != 0) classMetricData.setMetaData(readMetaData());
+
+		if ((changedParts & (1 << BinaryVersionEncoder.METRICS_PART)) != 0)
+		{
+			if (projection.includesMetrics())
+			{
+				input.readVarint();
+				int changedMetricCount = input.readVarint();
+
+				for (int i = 0; i < changedMetricCount; i++)
+				{
+					int metric = input.readVarint();
+					int value = input.readSignedVarint();
+
+					if (includedMetrics[metric]) classMetricData.setMetricValue(metrics[metric], value);
+				}
+			}
+			else skipSection();
+		}
+
+		for (EClassCollectionName collection : EClassCollectionName.values())
+		{
+			if ((changedParts & (1 << (BinaryVersionEncoder.COLLECTIONS_PART + collection.ordinal()))) == 0) continue;
+
+			if (!projection.includesCollection(collection))
+			{
+				skipSection();
+				continue;
+			}
+
+			switch (collection)
+			{
+				case METHODS: classMetricData.setMethods(readNames()); break;
+				case SHORT_METHODS: classMetricData.setShortMethods(readNames()); break;
+				case FIELDS: classMetricData.setFields(readNames()); break;
+				case DEPENDENCIES: classMetricData.setDependencies(readNames()); break;
+				case USERS: classMetricData.setUsers(readNames()); break;
+				case CHILDREN: classMetricData.setChildren(readNames()); break;
+				case INTERFACES: classMetricData.setInterfaces(readNames()); break;
+				case INTERNAL_DEPENDENCIES: classMetricData.setInternalDependencies(readNames()); break;
+				case EXTERNAL_CALLS: classMetricData.setExternalCalls(readCalls()); break;
+				case INTERNAL_LIBRARY_CALLS: classMetricData.setInternalLibraryCalls(readCalls()); break;
+				default: classMetricData.setExternalLibraryCalls(readCalls());
+			}
+		}
+
+		if (fingerprint == null)
+		{
+			input.readVarint();
+			fingerprint = new ClassFingerprint(input.readLong(), input.readLong());
+		}
+
+		classMetricData.setFingerprint(fingerprint);
+
+		return classMetricData;
+	}
+
+	private Map<EClassMetricName, String> readMetaData()
+	{
+		input.readVarint();
+		int metaDataCount = input.readVarint();
+		Map<EClassMetricName, String> metaData = new HashMap<EClassMetricName, String>(metaDataCount * 4 / 3 + 1);
+
+		for (int i = 0; i < metaDataCount; i++)
+		{
+			EClassMetricName metric = metrics[input.readVarint()];
+			String value = getString(input.readVarint());
+
+			if (metric != null) metaData.put(metric, value);
+		}
+
+		return metaData;
+	}
+
+	private SymbolSet readNames()
+	{
+		input.readVarint();
+		String[] names = new String[input.readVarint()];
+
+		for (int i = 0; i < names.length; i++)
+			names[i] = getString(input.readVarint());
+
+		return new SymbolSet(Arrays.asList(names));
+	}
+
+	private Map<String, Integer> readCalls()
+	{
+		input.readVarint();
+		int callCount = input.readVarint();
+		Map<String, Integer> calls = new HashMap<String, Integer>(callCount * 4 / 3 + 1);
+
+		for (int i = 0; i < callCount; i++)
+			calls.put(getString(input.readVarint()), input.readSignedVarint());
+
+		return calls;
+	}
+
+	/**
+	 * Skips over a section of a class, using it's length
+	 */
+	private void skipSection()
+	{
+		input.skip(input.readVarint());
+	}
+
+	/**
+	 * Gets a string from the string table, decoding it the first time it is requested
+	 * @param index The index of the string in the string table
+	 * @return The string
+	 */
+	private String getString(int index)
+	{
+		String string = strings[index];
+
+		if (string == null)
+		{
+			stringInput.setPosition(stringPositions[index]);
+			string = symbolTable.intern(stringInput.readString());
+			strings[index] = string;
+		}
+
+		return string;
+	}
+}
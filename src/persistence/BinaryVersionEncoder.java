@@ -0,0 +1,422 @@
+package persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import model.ClassFingerprint;
+import model.ClassMetricData;
+import model.Version;
+import model.vocab.EClassCollectionName;
+import model.vocab.EClassMetricName;
+import model.vocab.EVersionMetricName;
+
+/**
+ * Encodes versions in the binary version format. A version is encoded as:
+ * <ul>
+ * <li>a header: the format magic number and version, and the names of the class metrics in the order their
+ * values are held by each class</li>
+ * <li>the versions meta-data, metrics, modification times and status</li>
+ * <li>a string table holding each distinct name (class, method, field, meta-data value) once</li>
+ * <li>the classes, each as a length-prefixed record of length-prefixed sections: meta-data, metric values
+ * (in header order), the sets of names, the call maps and the fingerprint</li>
+ * </ul>
+ * Names held by classes are written as their index within the string table, and all counts, indices and
+ * metric values are written as varints. The lengths allow a reader to skip any class or section without
+ * decoding it. Classes, names and map entries are written in a fixed order (by name, or by metric ordinal), so
+ * that a version is encoded the same way however it's classes were extracted.<br />
+ * <br />
+ * A version may instead be encoded as it's changes from a base version (see encodeDelta), in which case the
+ * string table is followed by the names of the classes deleted from the base version and the classes changed
+ * or added, each as a record holding the class name, flags indicating the parts of the class that differ from
+ * the base class, and a section for each of those parts. Changed metrics are written as pairs of metric index
+ * and value. Classes added are written as their changes from a new ClassMetricData
+ *
+ * @author Allan Jones
+ */
+class BinaryVersionEncoder
+{
+	//Identifies a file as holding a version in the binary format ("MVER")
+	static final int MAGIC = 0x4D564552;
+	//Identifies a version encoded as it's changes from a base version ("MDLT")
+	static final int DELTA_MAGIC = 0x4D444C54;
+	//The version of the format written
+	static final int FORMAT_VERSION = 1;
+	//The extension of files holding versions in the binary format
+	static final String FILE_EXTENSION = ".ver.bin";
+
+	//The parts of a class that may be written for a changed class, as the bit representing each part within
+	//the flags of the record. Each collection is represented by the bit following COLLECTIONS_PART by it's ordinal
+	static final int META_DATA_PART = 0;
+	static final int METRICS_PART = 1;
+	static final int COLLECTIONS_PART = 2;
+	static final int FINGERPRINT_PART = COLLECTIONS_PART + EClassCollectionName.values().length;
+
+	//The class metrics, in the order their values are written
+	static final EClassMetricName[] CLASS_METRICS = getClassMetrics();
+	//The index of each class metric within CLASS_METRICS, by ordinal
+	private static final int[] CLASS_METRIC_INDEX = getClassMetricIndex();
+
+	//Index of each name within the string table
+	private Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+	//The string table, in index order
+	private List<String> strings = new ArrayList<String>();
+
+	//Buffers reused for each class and section encoded
+	private BinaryVersionOutput classOutput = new BinaryVersionOutput();
+	private BinaryVersionOutput sectionOutput = new BinaryVersionOutput();
+
+	/**
+	 * Encodes a version
+	 * @param version The version to encode
+	 * @return The encoded version
+	 */
+	byte[] encode(Version version)
+	{
+		//Encode the classes first, so that the string table holds all of the names they use
+		BinaryVersionOutput classesOutput = new BinaryVersionOutput(version.getClassCount() * 512 + 16);
+
+		for (ClassMetricData classMetricData : new TreeMap<String, ClassMetricData>(version.getClasses()).values())
+		{
+			encodeClass(classMetricData);
+			classesOutput.writeSection(classOutput);
+		}
+
+		BinaryVersionOutput output = new BinaryVersionOutput(classesOutput.size() + strings.size() * 32 + 1024);
+
+		writeHeader(output, MAGIC);
+		writeVersion(output, version);
+
+		output.writeVarint(strings.size());
+		for (String string : strings) output.writeString(string);
+
+		output.writeVarint(version.getClassCount());
+		output.writeBytes(classesOutput.toByteArray());
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Encodes a version as it's changes from a base version, i.e. the classes deleted from the base version,
+	 * along with the parts of each class that have changed or been added
+	 * @param version The version to encode
+	 * @param baseRSN The RSN of the base version
+	 * @param baseClasses The classes of the base version, mapped by name
+	 * @return The encoded version
+	 */
+	byte[] encodeDelta(Version version, int baseRSN, Map<String, ClassMetricData> baseClasses)
+	{
+		Map<String, ClassMetricData> classes = version.getClasses();
+
+		//Encode the changed classes first, so that the string table holds all of the names they use
+		BinaryVersionOutput classesOutput = new BinaryVersionOutput(version.getClassCount() * 16 + 16);
+		int changedClassCount = 0;
+
+		for (ClassMetricData classMetricData : new TreeMap<String, ClassMetricData>(classes).values())
+		{
+			ClassMetricData baseClass = baseClasses.get(classMetricData.getClassName());
+
+			if (baseClass == null) baseClass = new ClassMetricData();
+
+			if (encodeClassChanges(classMetricData, baseClass))
+			{
+				classesOutput.writeSection(classOutput);
+				changedClassCount++;
+			}
+		}
+
+		List<Integer> deletedClasses = new ArrayList<Integer>();
+
+		for (String className : new TreeSet<String>(baseClasses.keySet()))
+			if (!classes.containsKey(className)) deletedClasses.add(getStringIndex(className));
+
+		BinaryVersionOutput output = new BinaryVersionOutput(classesOutput.size() + strings.size() * 32 + 1024);
+
+		writeHeader(output, DELTA_MAGIC);
+		writeVersion(output, version);
+		output.writeVarint(baseRSN);
+
+		output.writeVarint(strings.size());
+		for (String string : strings) output.writeString(string);
+
+		output.writeVarint(deletedClasses.size());
+		for (int deletedClass : deletedClasses) output.writeVarint(deletedClass);
+
+		output.writeVarint(changedClassCount);
+		output.writeBytes(classesOutput.toByteArray());
+
+		return output.toByteArray();
+	}
+
+	private static void writeHeader(BinaryVersionOutput output, int magic)
+	{
+		output.writeInt(magic);
+		output.writeVarint(FORMAT_VERSION);
+
+		output.writeVarint(CLASS_METRICS.length);
+		for (EClassMetricName metric : CLASS_METRICS) output.writeString(metric.name());
+	}
+
+	private static void writeVersion(BinaryVersionOutput output, Version version)
+	{
+		Map<EVersionMetricName, String> metaData = new EnumMap<EVersionMetricName, String>(EVersionMetricName.class);
+		metaData.putAll(version.getMetaData());
+
+		output.writeVarint(metaData.size());
+
+		for (Map.Entry<EVersionMetricName, String> entry : metaData.entrySet())
+		{
+			output.writeString(entry.getKey().name());
+			output.writeString(entry.getValue());
+		}
+
+		Map<EVersionMetricName, Integer> metrics = new EnumMap<EVersionMetricName, Integer>(EVersionMetricName.class);
+		metrics.putAll(version.getMetrics());
+
+		output.writeVarint(metrics.size());
+
+		for (Map.Entry<EVersionMetricName, Integer> entry : metrics.entrySet())
+		{
+			output.writeString(entry.getKey().name());
+			output.writeSignedVarint(entry.getValue());
+		}
+
+		output.writeLong(version.getLastModifiedTime());
+		output.writeLong(version.getLastModifiedDate().getTime());
+		output.writeBoolean(version.hasDeletedClasses());
+		output.writeString(version.getProcessingStatus().name());
+	}
+
+	/**
+	 * Encodes a class into the class buffer
+	 * @param classMetricData The class to encode
+	 */
+	private void encodeClass(ClassMetricData classMetricData)
+	{
+		classOutput.reset();
+
+		writeMetaData(classMetricData.getMetaData());
+
+		//Metrics
+		sectionOutput.reset();
+
+		for (EClassMetricName metric : CLASS_METRICS)
+			sectionOutput.writeSignedVarint(classMetricData.getMetricValue(metric));
+
+		classOutput.writeSection(sectionOutput);
+
+		//Sets of names
+		writeNames(classMetricData.getMethods());
+		writeNames(classMetricData.getShortMethods());
+		writeNames(classMetricData.getFields());
+		writeNames(classMetricData.getDependencies());
+		writeNames(classMetricData.getUsers());
+		writeNames(classMetricData.getChildren());
+		writeNames(classMetricData.getInterfaces());
+		writeNames(classMetricData.getInternalDependencies());
+
+		//Calls
+		writeCalls(classMetricData.getExternalCalls());
+		writeCalls(classMetricData.getInternalLibraryCalls());
+		writeCalls(classMetricData.getExternalLibraryCalls());
+
+		writeFingerprint(classMetricData.getFingerprint());
+	}
+
+	/**
+	 * Encodes the parts of a class that differ from it's base class into the class buffer
+	 * @param classMetricData The class to encode
+	 * @param baseClass The class in the base version, or a new ClassMetricData if the class has been added
+	 * @return Whether any part of the class differs, the class buffer only holding the class if it does
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean encodeClassChanges(ClassMetricData classMetricData, ClassMetricData baseClass)
+	{
+		int changedParts = 0;
+
+		if (!classMetricData.getMetaData().equals(baseClass.getMetaData())) changedParts |= 1 << META_DATA_PART;
+
+		int changedMetricCount = 0;
+
+		for (EClassMetricName metric : CLASS_METRICS)
+			if (classMetricData.getMetricValue(metric).intValue() != baseClass.getMetricValue(metric).intValue()) changedMetricCount++;
+
+		if (changedMetricCount > 0) changedParts |= 1 << METRICS_PART;
+
+		for (EClassCollectionName collection : EClassCollectionName.values())
+			if (!getCollection(classMetricData, collection).equals(getCollection(baseClass, collection)))
+				changedParts |= 1 << (COLLECTIONS_PART + collection.ordinal());
+
+		if (!classMetricData.getFingerprint().equals(baseClass.getFingerprint())) changedParts |= 1 << FINGERPRINT_PART;
+
+		if (changedParts == 0) return false;
+
+		classOutput.reset();
+		classOutput.writeVarint(getStringIndex(classMetricData.getClassName()));
+		classOutput.writeVarint(changedParts);
+
+		if ((changedParts & (1 << META_DATA_PART)) != 0) writeMetaData(classMetricData.getMetaData());
+
+		if ((changedParts & (1 << METRICS_PART)) != 0)
+		{
+			sectionOutput.reset();
+			sectionOutput.writeVarint(changedMetricCount);
+
+			for (int i = 0; i < CLASS_METRICS.length; i++)
+			{
+				int value = classMetricData.getMetricValue(CLASS_METRICS[i]);
+
+				if (value != baseClass.getMetricValue(CLASS_METRICS[i]).intValue())
+				{
+					sectionOutput.writeVarint(i);
+					sectionOutput.writeSignedVarint(value);
+				}
+			}
+
+			classOutput.writeSection(sectionOutput);
+		}
+
+		for (EClassCollectionName collection : EClassCollectionName.values())
+		{
+			if ((changedParts & (1 << (COLLECTIONS_PART + collection.ordinal()))) == 0) continue;
+
+			Object names = getCollection(classMetricData, collection);
+
+			if (names instanceof Set) writeNames((Set<String>)names);
+			else writeCalls((Map<String, Integer>)names);
+		}
+
+		if ((changedParts & (1 << FINGERPRINT_PART)) != 0) writeFingerprint(classMetricData.getFingerprint());
+
+		return true;
+	}
+
+	/**
+	 * Gets one of the collections of a class
+	 * @param classMetricData The class
+	 * @param collection The name of the collection
+	 * @return The set of names, or map of calls
+	 */
+	private static Object getCollection(ClassMetricData classMetricData, EClassCollectionName collection)
+	{
+		switch (collection)
+		{
+			case METHODS: return classMetricData.getMethods();
+			case SHORT_METHODS: return classMetricData.getShortMethods();
+			case FIELDS: return classMetricData.getFields();
+			case DEPENDENCIES: return classMetricData.getDependencies();
+			case USERS: return classMetricData.getUsers();
+			case CHILDREN: return classMetricData.getChildren();
+			case INTERFACES: return classMetricData.getInterfaces();
+			case INTERNAL_DEPENDENCIES: return classMetricData.getInternalDependencies();
+			case EXTERNAL_CALLS: return classMetricData.getExternalCalls();
+			case INTERNAL_LIBRARY_CALLS: return classMetricData.getInternalLibraryCalls();
+			default: return classMetricData.getExternalLibraryCalls();
+		}
+	}
+
+	private void writeMetaData(Map<EClassMetricName, String> metaData)
+	{
+		Map<EClassMetricName, String> orderedMetaData = new EnumMap<EClassMetricName, String>(EClassMetricName.class);
+		orderedMetaData.putAll(metaData);
+
+		sectionOutput.reset();
+		sectionOutput.writeVarint(orderedMetaData.size());
+
+		for (Map.Entry<EClassMetricName, String> entry : orderedMetaData.entrySet())
+		{
+			sectionOutput.writeVarint(CLASS_METRIC_INDEX[entry.getKey().ordinal()]);
+			sectionOutput.writeVarint(getStringIndex(entry.getValue()));
+		}
+
+		classOutput.writeSection(sectionOutput);
+	}
+
+	private void writeFingerprint(ClassFingerprint fingerprint)
+	{
+		sectionOutput.reset();
+		sectionOutput.writeLong(fingerprint.getHigh());
+		sectionOutput.writeLong(fingerprint.getLow());
+		classOutput.writeSection(sectionOutput);
+	}
+
+	private void writeNames(Set<String> names)
+	{
+		sectionOutput.reset();
+		String[] sortedNames = names.toArray(new String[names.size()]);
+		Arrays.sort(sortedNames);
+
+		sectionOutput.writeVarint(sortedNames.length);
+
+		for (String name : sortedNames)
+			sectionOutput.writeVarint(getStringIndex(name));
+
+		classOutput.writeSection(sectionOutput);
+	}
+
+	/**
+	 * Writes a map of calls. The counts are read as Numbers, as maps read by the JSON reader hold Longs
+	 * @param calls The calls made to each class
+	 */
+	private void writeCalls(Map<String, Integer> calls)
+	{
+		sectionOutput.reset();
+		sectionOutput.writeVarint(calls.size());
+
+		for (Map.Entry<?, ?> entry : new TreeMap<Object, Object>((Map<?, ?>)calls).entrySet())
+		{
+			sectionOutput.writeVarint(getStringIndex((String)entry.getKey()));
+			sectionOutput.writeSignedVarint(((Number)entry.getValue()).intValue());
+		}
+
+		classOutput.writeSection(sectionOutput);
+	}
+
+	/**
+	 * Gets the index of a name within the string table, adding the name to the table if it is not yet held
+	 * @param string The name
+	 * @return The names index
+	 */
+	private int getStringIndex(String string)
+	{
+		Integer index = stringIndex.get(string);
+
+		if (index == null)
+		{
+			index = strings.size();
+			stringIndex.put(string, index);
+			strings.add(string);
+		}
+
+		return index;
+	}
+
+	/**
+	 * @return The class metric names that hold values (all but UNKNOWN), in ordinal order
+	 */
+	private static EClassMetricName[] getClassMetrics()
+	{
+		List<EClassMetricName> metrics = new ArrayList<EClassMetricName>();
+
+		for (EClassMetricName metric : EClassMetricName.values())
+			if (metric != EClassMetricName.UNKNOWN) metrics.add(metric);
+
+		return metrics.toArray(new EClassMetricName[metrics.size()]);
+	}
+
+	private static int[] getClassMetricIndex()
+	{
+		int[] index = new int[EClassMetricName.values().length];
+
+		for (int i = 0; i < CLASS_METRICS.length; i++)
+			index[CLASS_METRICS[i].ordinal()] = i;
+
+		return index;
+	}
+}
@@ -0,0 +1,139 @@
+package persistence;
+
+/**
+ * Reads the values written by a BinaryVersionOutput from a byte array
+ *
+ * @author Allan Jones
+ */
+class BinaryVersionInput
+{
+	private byte[] buffer;
+	private int position;
+	private int limit;
+
+	/**
+	 * Creates an input reading a range of a byte array
+	 * @param buffer The bytes to read
+	 * @param offset The position of the first byte to read
+	 * @param length The number of bytes that may be read
+	 */
+	BinaryVersionInput(byte[] buffer, int offset, int length)
+	{
+		this.buffer = buffer;
+		this.position = offset;
+		this.limit = offset + length;
+	}
+
+	int getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Moves to a position within the byte array
+	 * @param position The position of the next byte to read
+	 */
+	void setPosition(int position)
+	{
+		if (position < 0 || position > limit)
+			throw new IllegalArgumentException("Could not move to position " + position + ", it is outside of the input.");
+
+		this.position = position;
+	}
+
+	/**
+	 * Skips over a number of bytes
+	 * @param count The number of bytes to skip
+	 */
+	void skip(int count)
+	{
+		setPosition(position + count);
+	}
+
+	int readByte()
+	{
+		checkAvailable(1);
+		return buffer[position++] & 0xFF;
+	}
+
+	boolean readBoolean()
+	{
+		return readByte() != 0;
+	}
+
+	/**
+	 * Reads an unsigned varint
+	 * @return The value
+	 */
+	int readVarint()
+	{
+		int value = 0;
+
+		for (int shift = 0; shift < 35; shift += 7)
+		{
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) return value;
+		}
+
+		throw new IllegalStateException("Could not read varint, it is longer than 5 bytes.");
+	}
+
+	/**
+	 * Reads a zig-zag encoded signed varint
+	 * @return The value
+	 */
+	int readSignedVarint()
+	{
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	int readInt()
+	{
+		checkAvailable(4);
+		int value = 0;
+
+		for (int i = 0; i < 4; i++)
+			value = (value << 8) | (buffer[position++] & 0xFF);
+
+		return value;
+	}
+
+	long readLong()
+	{
+		checkAvailable(8);
+		long value = 0;
+
+		for (int i = 0; i < 8; i++)
+			value = (value << 8) | (buffer[position++] & 0xFF);
+
+		return value;
+	}
+
+	/**
+	 * Reads a string written by BinaryVersionOutput.writeString
+	 * @return The string, or null if a null string was written
+	 */
+	String readString()
+	{
+		int length = readVarint();
+
+		if (length == 0) return null;
+
+		length--;
+		checkAvailable(length);
+
+		String value = new String(buffer, position, length, BinaryVersionOutput.UTF_8);
+		position += length;
+
+		return value;
+	}
+
+	private void checkAvailable(int count)
+	{
+		if (count < 0 || position + count > limit)
+			throw new IllegalStateException("Could not read " + count + " bytes at position " + position + ", the input ends at " + limit + ".");
+	}
+}
@@ -0,0 +1,157 @@
+package persistence;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Growable buffer that versions are encoded into in the binary version format. Integers are written as
+ * varints (7 bits per byte, least significant group first), with signed values zig-zag encoded so that
+ * small negative values remain small
+ *
+ * @author Allan Jones
+ */
+class BinaryVersionOutput
+{
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private byte[] buffer;
+	private int size;
+
+	BinaryVersionOutput()
+	{
+		this(256);
+	}
+
+	BinaryVersionOutput(int initialCapacity)
+	{
+		buffer = new byte[initialCapacity];
+	}
+
+	/**
+	 * @return The number of bytes written
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Discards the bytes written, so that the buffer can be reused
+	 */
+	void reset()
+	{
+		size = 0;
+	}
+
+	void writeByte(int value)
+	{
+		ensureCapacity(1);
+		buffer[size++] = (byte)value;
+	}
+
+	void writeBytes(byte[] bytes)
+	{
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	void writeBoolean(boolean value)
+	{
+		writeByte(value ? 1 : 0);
+	}
+
+	/**
+	 * Writes a value as 4 bytes, most significant byte first
+	 * @param value The value
+	 */
+	void writeInt(int value)
+	{
+		ensureCapacity(4);
+
+		for (int shift = 24; shift >= 0; shift -= 8)
+			buffer[size++] = (byte)(value >>> shift);
+	}
+
+	/**
+	 * Writes a value as an unsigned varint
+	 * @param value The value, treated as unsigned
+	 */
+	void writeVarint(int value)
+	{
+		ensureCapacity(5);
+
+		while ((value & ~0x7F) != 0)
+		{
+			buffer[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		buffer[size++] = (byte)value;
+	}
+
+	/**
+	 * Writes a signed value as a zig-zag encoded varint
+	 * @param value The value
+	 */
+	void writeSignedVarint(int value)
+	{
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Writes a value as 8 bytes, most significant byte first
+	 * @param value The value
+	 */
+	void writeLong(long value)
+	{
+		ensureCapacity(8);
+
+		for (int shift = 56; shift >= 0; shift -= 8)
+			buffer[size++] = (byte)(value >>> shift);
+	}
+
+	/**
+	 * Writes a string as it's UTF-8 byte length plus 1 followed by the bytes, with null written as a length of 0
+	 * @param value The string, which may be null
+	 */
+	void writeString(String value)
+	{
+		if (value == null)
+		{
+			writeVarint(0);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(UTF_8);
+
+		writeVarint(bytes.length + 1);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * Writes the bytes held by another buffer preceded by their length, so that a reader can skip them
+	 * @param section The buffer holding the section
+	 */
+	void writeSection(BinaryVersionOutput section)
+	{
+		writeVarint(section.size);
+		ensureCapacity(section.size);
+		System.arraycopy(section.buffer, 0, buffer, size, section.size);
+		size += section.size;
+	}
+
+	/**
+	 * @return A copy of the bytes written
+	 */
+	byte[] toByteArray()
+	{
+		return Arrays.copyOf(buffer, size);
+	}
+
+	private void ensureCapacity(int count)
+	{
+		if (size + count > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+	}
+}
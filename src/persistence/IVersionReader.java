@@ -1,6 +1,7 @@
 package persistence;
 
 import model.Version;
+import model.VersionProjection;
 
 /**
  * Interface for classes that retrieve Version objects
@@ -17,6 +18,16 @@ public interface IVersionReader
 	 */
 	Version readVersion(String system, int rsn);
 	
+	/**
+	 * Loads the parts of a Version object corresponding to the specified system and RSN that are included by a
+	 * projection, skipping the rest, and returns the result
+	 * @param system The system that the version belongs to
+	 * @param rsn The versions Release Sequence Number
+	 * @param projection The parts of the versions classes to load
+	 * @return The Version object corresponding the specified system and RSN that was read
+	 */
+	Version readVersion(String system, int rsn, VersionProjection projection);
+	
 	/**
 	 * Determines whether a Version object corresponding to the specified system and RSN has been extracted
 	 * @param system The system that the version belongs to
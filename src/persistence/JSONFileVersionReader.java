@@ -4,32 +4,44 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import model.ClassFingerprint;
 import model.ClassMetricData;
+import model.SymbolSet;
+import model.SymbolTable;
 import model.Version;
+import model.VersionProjection;
+import model.vocab.EClassCollectionName;
 import model.vocab.EClassMetricName;
 import model.vocab.EVersionMetricName;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
 /**
  * Provides a means of loading a Version object from an InputStream containing it in
- * JSON (JavaScript Object Notation) format
+ * JSON (JavaScript Object Notation) format. The JSON is read with a pull parser, straight into
+ * the Version and ClassMetricData objects, rather than being parsed into JSON objects first
  * 
  * @author Allan Jones
  */
 public class JSONFileVersionReader implements IVersionReader
 {
-	@SuppressWarnings("rawtypes")
+	//Holds the single instance of each class name, method and field name read
+	private SymbolTable symbolTable = SymbolTable.getInstance();
+	
+	//Reused to hold the names in each set of names read
+	private List<String> names = new ArrayList<String>();
+	
 	@Override
 	public Version readVersion(String system, int rsn)
+	{
+		return readVersion(system, rsn, VersionProjection.ALL);
+	}
+	
+	@Override
+	public Version readVersion(String system, int rsn, VersionProjection projection)
 	{
 		Version version = null;
 		
@@ -38,183 +50,300 @@ public class JSONFileVersionReader implements IVersionReader
 			//Get the InputStream for the specified version
 			InputStream versionStream = VersionFileStreamAccessor.getInstance().getVersionStream(system, rsn);
 			
-			//Load the JSON formatted Version object
-			JSONObject versionObject = getVersionObjectFromStream(versionStream);
+			//Wrap a buffered reader around the InputStream
+			BufferedReader reader = new BufferedReader(new InputStreamReader(versionStream));
 			
-			//Extract the versions meta-data
-			Map<EVersionMetricName, String> metaData = new HashMap<EVersionMetricName, String>(5);
-			metaData.put(EVersionMetricName.ID, (String)((Map)(versionObject.get("metaData"))).get("ID"));
-			
-			//Extract the versions metrics
-			Map<EVersionMetricName, Integer> metrics = getVersionMetrics((JSONObject)versionObject.get("metrics"));
-		
-			//Get the classes that make up this version
-			Map<String, ClassMetricData> classes = getClasses(versionObject);
-			
-			//Get the flag that indicates whether the version contains classes that deleted in the following version
-			boolean hasDeletedClasses = ((Boolean)versionObject.get("hasDeletedClasses")).booleanValue();
-			
-			//Construct the Version object with the extracted information
-			version = new Version(metaData, metrics, classes,
-									(Long)versionObject.get("lastModifiedTime"),
-									(Long)versionObject.get("lastModifiedDate"),
-									hasDeletedClasses);
+			try
+			{
+				version = readVersion(new JSONPullParser(reader), projection);
+			}
+			finally
+			{
+				reader.close();
+			}
 		}
 		catch(IOException ioe)
 		{
 			ioe.printStackTrace(); //TODO: Log and throw a de-serialization exception
 		}
-		catch(ParseException pe)
-		{
-			pe.printStackTrace();
-		}
 		
 		return version;
 	}
-
-	/** 
-	 * Loads the JSON representation of the Version from the specified InputStream
-	 * @param versionStream The InputStream containing the versions JSON
-	 * @return The JSON representation of the version being loaded
-	 * @throws IOException if the InputStream could not be read from
-	 * @throws ParseException if the JSON string was incorrectly formed and could not be parsed
+	
+	/**
+	 * Reads a Version object from its JSON representation. The members of the version may be held in any order
+	 * @param parser The parser positioned at the start of the versions JSON representation
+	 * @param projection The parts of the versions classes to read, the rest being skipped
+	 * @return The Version object read
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	private JSONObject getVersionObjectFromStream(InputStream versionStream) throws IOException, ParseException
+	private Version readVersion(JSONPullParser parser, VersionProjection projection) throws IOException
 	{
-		//Wrap a buffered reader around the InputStream
-		BufferedReader reader = new BufferedReader(new InputStreamReader(versionStream));
-		//Parse the stream using the JSONParser and return the result
-		return (JSONObject)(new JSONParser().parse(reader));
+		Map<EVersionMetricName, String> metaData = new HashMap<EVersionMetricName, String>(5);
+		Map<EVersionMetricName, Integer> metrics = null;
+		Map<String, ClassMetricData> classes = null;
+		Long lastModifiedTime = null;
+		Long lastModifiedDate = null;
+		Boolean hasDeletedClasses = null;
+		
+		parser.beginObject();
+		
+		while(parser.hasNext())
+		{
+			String name = parser.nextName();
+			
+			if(name.equals("metaData"))
+			{
+				//Extract the versions meta-data
+				parser.beginObject();
+				
+				while(parser.hasNext())
+				{
+					String key = parser.nextName();
+					
+					if(key.equals("ID")) metaData.put(EVersionMetricName.ID, parser.nextString());
+					else parser.skipValue();
+				}
+				
+				parser.endObject();
+			}
+			//Extract the versions metrics
+			else if(name.equals("metrics")) metrics = readVersionMetrics(parser);
+			//Get the classes that make up this version
+			else if(name.equals("classes")) classes = readClasses(parser, projection);
+			else if(name.equals("lastModifiedTime")) lastModifiedTime = parser.nextLong();
+			else if(name.equals("lastModifiedDate")) lastModifiedDate = parser.nextLong();
+			//Get the flag that indicates whether the version contains classes that deleted in the following version
+			else if(name.equals("hasDeletedClasses")) hasDeletedClasses = parser.nextBoolean();
+			else parser.skipValue();
+		}
+		
+		parser.endObject();
+		
+		if(metrics == null || classes == null || lastModifiedTime == null || lastModifiedDate == null || hasDeletedClasses == null)
+			throw new IOException("Could not read version, the JSON representation is incomplete.");
+		
+		//Construct the Version object with the extracted information
+		return new Version(metaData, metrics, classes, lastModifiedTime, lastModifiedDate, hasDeletedClasses);
 	}
 	
 	/**
-	 * Extracts the metrics key-value map for the versions metrics from a JSONObject representation of the metrics map
-	 * @param versionMetricsObject The JSON representation of the version metrics to be extracted
-	 * @return The version metrics key-value map extracted from the JSON representation
+	 * Reads the metrics key-value map for the versions metrics
+	 * @param parser The parser positioned at the start of the JSON representation of the version metrics
+	 * @return The version metrics key-value map
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	private Map<EVersionMetricName, Integer> getVersionMetrics(JSONObject versionMetricsObject)
+	private Map<EVersionMetricName, Integer> readVersionMetrics(JSONPullParser parser) throws IOException
 	{
 		Map<EVersionMetricName, Integer> metrics = new HashMap<EVersionMetricName, Integer>(5);
-		metrics.put(EVersionMetricName.RSN, ((Long)versionMetricsObject.get("RSN")).intValue());
 		
-		Long daysSinceBirth = (Long)versionMetricsObject.get("DAYS_SINCE_BIRTH");
+		parser.beginObject();
 		
-		if(daysSinceBirth != null)
-			metrics.put(EVersionMetricName.DAYS_SINCE_BIRTH, daysSinceBirth.intValue());
+		while(parser.hasNext())
+		{
+			String name = parser.nextName();
+			
+			if(name.equals("RSN") || name.equals("DAYS_SINCE_BIRTH") || name.equals("DAYS_SINCE_LAST_VERSION"))
+			{
+				if(parser.peek() == JSONPullParser.NULL) parser.nextNull();
+				else metrics.put(EVersionMetricName.valueOf(name), (int)parser.nextLong());
+			}
+			else parser.skipValue();
+		}
 		
-		Long daysSinceLastVersion = (Long)versionMetricsObject.get("DAYS_SINCE_LAST_VERSION");
+		parser.endObject();
 		
-		if(daysSinceLastVersion != null)
-			metrics.put(EVersionMetricName.DAYS_SINCE_LAST_VERSION, daysSinceLastVersion.intValue());
+		if(!metrics.containsKey(EVersionMetricName.RSN))
+			throw new IOException("Could not read version metrics, the RSN is missing.");
 		
 		return metrics;
 	}
 	
 	/**
-	 * Extracts a map of class name -> ClassMetricData representing the collection of classes that make up the version
-	 * from the JSON representation of the versions data
-	 * @param versionObject The JSON representation of the version to extract classes from
-	 * @return The versions collection of classes extracted from the JSON representation 
+	 * Reads the map of class name -> ClassMetricData representing the collection of classes that make up the version
+	 * @param parser The parser positioned at the start of the JSON array of classes
+	 * @param projection The parts of the classes to read
+	 * @return The versions collection of classes
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	private Map<String, ClassMetricData> getClasses(JSONObject versionObject)
+	private Map<String, ClassMetricData> readClasses(JSONPullParser parser, VersionProjection projection) throws IOException
 	{
-		//Retrieve the array storing the classes from the JSON object and initialise the
-		//class map to hold the specified number of classes
-		JSONArray classesArray = (JSONArray)versionObject.get("classes");
-		Map<String, ClassMetricData> classes = new HashMap<String, ClassMetricData>(classesArray.size());
+		Map<String, ClassMetricData> classes = new HashMap<String, ClassMetricData>();
+		
+		parser.beginArray();
 		
 		//For each class found in the JSON array
-		for(Object classObject : classesArray)
+		while(parser.hasNext())
 		{
-			//Cast the current class as a JSONObject and use the object to extract
-			//class info
-			ClassMetricData classMetricData = extractClass((JSONObject)classObject);
+			ClassMetricData classMetricData = readClass(parser, projection);
 			classes.put(classMetricData.getClassName(), classMetricData);
 		}
 		
+		parser.endArray();
+		
 		return classes;
 	}
 	
 	/**
-	 * Extracts a ClassMetricData object from a given JSONObject representation of the class
-	 * @param classObject The JSON representation of the class to be extracted
-	 * @return The ClassMetricData object that has been extracted from the JSONObject
+	 * Reads a ClassMetricData object from it's JSON representation. The members of the class may be held in any order
+	 * @param parser The parser positioned at the start of the JSON representation of the class
+	 * @param projection The parts of the class to read, the rest being skipped
+	 * @return The ClassMetricData object read
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	@SuppressWarnings("unchecked")
-	private ClassMetricData extractClass(JSONObject classObject)
+	private ClassMetricData readClass(JSONPullParser parser, VersionProjection projection) throws IOException
 	{
 		ClassMetricData classMetricData = new ClassMetricData();
+		String fingerprint = null;
+		
+		parser.beginObject();
+		
+		while(parser.hasNext())
+		{
+			String name = parser.nextName();
+			
+			//Meta-data
+			if(name.equals("metaData")) classMetricData.setMetaData(readClassMetaData(parser));
+			//Metrics
+			else if(name.equals("metrics") && projection.includesMetrics()) readClassMetrics(parser, classMetricData, projection);
+			//Methods
+			else if(name.equals("methods") && projection.includesCollection(EClassCollectionName.METHODS))
+				classMetricData.setMethods(readNames(parser));
+			//Short methods
+			else if(name.equals("shortMethods") && projection.includesCollection(EClassCollectionName.SHORT_METHODS))
+				classMetricData.setShortMethods(readNames(parser));
+			//Fields
+			else if(name.equals("fields") && projection.includesCollection(EClassCollectionName.FIELDS))
+				classMetricData.setFields(readNames(parser));
+			//Dependencies
+			else if(name.equals("dependencies") && projection.includesCollection(EClassCollectionName.DEPENDENCIES))
+				classMetricData.setDependencies(readNames(parser));
+			//Users
+			else if(name.equals("users") && projection.includesCollection(EClassCollectionName.USERS))
+				classMetricData.setUsers(readNames(parser));
+			//Children
+			else if(name.equals("children") && projection.includesCollection(EClassCollectionName.CHILDREN))
+				classMetricData.setChildren(readNames(parser));
+			//Interfaces
+			else if(name.equals("interfaces") && projection.includesCollection(EClassCollectionName.INTERFACES))
+				classMetricData.setInterfaces(readNames(parser));
+			//Internal dependencies
+			else if(name.equals("internalDependencies") && projection.includesCollection(EClassCollectionName.INTERNAL_DEPENDENCIES))
+				classMetricData.setInternalDependencies(readNames(parser));
+			//External calls
+			else if(name.equals("externalCalls") && projection.includesCollection(EClassCollectionName.EXTERNAL_CALLS))
+				classMetricData.setExternalCalls(readCalls(parser));
+			//Internal library calls
+			else if(name.equals("internalLibCalls") && projection.includesCollection(EClassCollectionName.INTERNAL_LIBRARY_CALLS))
+				classMetricData.setInternalLibraryCalls(readCalls(parser));
+			//External library calls
+			else if(name.equals("externalLibCalls") && projection.includesCollection(EClassCollectionName.EXTERNAL_LIBRARY_CALLS))
+				classMetricData.setExternalLibraryCalls(readCalls(parser));
+			//Fingerprint
+			else if(name.equals("fingerprint")) fingerprint = parser.nextString();
+			else parser.skipValue();
+		}
+		
+		parser.endObject();
 		
-		//Meta-data
-		classMetricData.setMetaData(getClassMetaData((JSONObject)classObject.get("metaData")));
-		//Metrics
-		classMetricData.setMetrics(getClassMetrics((JSONObject)classObject.get("metrics")));
-		//Methods
-		classMetricData.setMethods(new HashSet<String>((List<String>)classObject.get("methods")));
-		//Short methods
-		classMetricData.setShortMethods(new HashSet<String>((List<String>)classObject.get("shortMethods")));
-		//Fields
-		classMetricData.setFields(new HashSet<String>((List<String>)classObject.get("fields")));
-		//Dependencies
-		classMetricData.setDependencies(new HashSet<String>((List<String>)classObject.get("dependencies")));
-		//Users
-		classMetricData.setUsers(new HashSet<String>((List<String>)classObject.get("users")));
-		//Children
-		classMetricData.setChildren(new HashSet<String>((List<String>)classObject.get("children")));
-		//Interfaces
-		classMetricData.setInterfaces(new HashSet<String>((List<String>)classObject.get("interfaces")));
-		//Internal dependencies
-		classMetricData.setInternalDependencies(new HashSet<String>((List<String>)classObject.get("internalDependencies")));
-		//External calls
-		classMetricData.setExternalCalls(new HashMap<String, Integer>((Map<String, Integer>)classObject.get("externalCalls")));
-		//Internal library calls
-		classMetricData.setInternalLibraryCalls(new HashMap<String, Integer>((Map<String, Integer>)classObject.get("internalLibCalls")));
-		//External library calls
-		classMetricData.setExternalLibraryCalls(new HashMap<String, Integer>((Map<String, Integer>)classObject.get("externalLibCalls")));
+		//The fingerprint is set last, as setting the classes structure discards it. Versions persisted without
+		//fingerprints have them computed when first needed
+		if (fingerprint != null) classMetricData.setFingerprint(ClassFingerprint.valueOf(fingerprint));
 		
 		return classMetricData;
 	}
 	
 	/**
-	 * Extracts the meta-data key-value map for a class from a JSONObject representation of the class
-	 * @param classMetaDataObject The JSON representation of the class meta-data to be extracted
-	 * @return The class meta-data key-value map extracted from the JSON representation
+	 * Reads the meta-data key-value map for a class
+	 * @param parser The parser positioned at the start of the JSON representation of the class meta-data
+	 * @return The class meta-data key-value map
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	private Map<EClassMetricName, String> getClassMetaData(JSONObject classMetaDataObject)
+	private Map<EClassMetricName, String> readClassMetaData(JSONPullParser parser) throws IOException
 	{
-		//Create the map and set it's size the number of elements in the JSONObject
-		Map<EClassMetricName, String> classMetaData = new HashMap<EClassMetricName, String>(classMetaDataObject.size());
+		Map<EClassMetricName, String> classMetaData = new HashMap<EClassMetricName, String>(20);
+		
+		parser.beginObject();
 		
 		//For each metric name in the JSON map
-		for(Object key : classMetaDataObject.keySet())
+		while(parser.hasNext())
 		{
 			//Get the corresponding metric name for the key and store the value in the map
-			EClassMetricName metric = EClassMetricName.valueOf((String)key);
-			classMetaData.put(metric, (String)classMetaDataObject.get(key));
+			EClassMetricName metric = EClassMetricName.valueOf(parser.nextName());
+			classMetaData.put(metric, symbolTable.intern(parser.nextString()));
 		}
 		
+		parser.endObject();
+		
 		return classMetaData;
 	}
 	
 	/**
-	 * Extracts the metrics key-value map for a class from a JSONObject representation of the class
-	 * @param classMetaDataObject The JSON representation of the class metrics to be extracted
-	 * @return The class metrics key-value map extracted from the JSON representation
+	 * Reads the metric values of a class into the class
+	 * @param parser The parser positioned at the start of the JSON representation of the class metrics
+	 * @param classMetricData The class to set the metric values of
+	 * @param projection The projection specifying the metrics to read, the rest being skipped
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
 	 */
-	private Map<EClassMetricName, Integer> getClassMetrics(JSONObject classMetricsObject)
+	private void readClassMetrics(JSONPullParser parser, ClassMetricData classMetricData, VersionProjection projection) throws IOException
 	{
-		//Create the map and set it's size the number of elements in the JSONObject
-		Map<EClassMetricName, Integer> classMetrics = new HashMap<EClassMetricName, Integer>(classMetricsObject.size());
+		parser.beginObject();
 		
 		//For each metric name in the JSON map
-		for(Object key : classMetricsObject.keySet())
+		while(parser.hasNext())
 		{
-			//Get the corresponding metric name for the key and store the value in the map
-			EClassMetricName metric = EClassMetricName.valueOf((String)key);
-			classMetrics.put(metric, ((Long)classMetricsObject.get(key)).intValue());
+			//Get the corresponding metric name for the key and set the value
+			EClassMetricName metric = EClassMetricName.valueOf(parser.nextName());
+			
+			if(projection.includesMetric(metric)) classMetricData.setMetricValue(metric, (int)parser.nextLong());
+			else parser.skipValue();
+		}
+		
+		parser.endObject();
+	}
+	
+	/**
+	 * Reads a set of names, holding them by their symbol table IDs
+	 * @param parser The parser positioned at the start of the JSON array of names
+	 * @return The set of names
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
+	 */
+	private SymbolSet readNames(JSONPullParser parser) throws IOException
+	{
+		names.clear();
+		
+		parser.beginArray();
+		
+		while(parser.hasNext())
+			names.add(parser.nextString());
+		
+		parser.endArray();
+		
+		return new SymbolSet(names);
+	}
+	
+	/**
+	 * Reads a map of the calls made by a class, holding the names of the classes called as
+	 * their symbol table instances
+	 * @param parser The parser positioned at the start of the JSON representation of the calls
+	 * @return The map of the calls made
+	 * @throws IOException if the JSON could not be read or was incorrectly formed
+	 */
+	private Map<String, Integer> readCalls(JSONPullParser parser) throws IOException
+	{
+		Map<String, Integer> calls = new HashMap<String, Integer>();
+		
+		parser.beginObject();
+		
+		while(parser.hasNext())
+		{
+			String calledClass = symbolTable.intern(parser.nextName());
+			calls.put(calledClass, (int)parser.nextLong());
 		}
 		
-		return classMetrics;
+		parser.endObject();
+		
+		return calls;
 	}
 
 	@Override
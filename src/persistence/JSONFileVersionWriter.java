@@ -5,11 +5,18 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import model.ClassMetricData;
 import model.Version;
+import model.vocab.EClassMetricName;
+import model.vocab.EVersionMetricName;
 
 import org.json.simple.JSONObject;
 
@@ -17,7 +24,9 @@ import config.ConfigKeys;
 import config.ConfigManager;
 
 /**
- * Provides a means for writing Version objects to file in JSON (JavaScript Object Notation) format
+ * Provides a means for writing Version objects to file in JSON (JavaScript Object Notation) format. Classes,
+ * names and map entries are written in a fixed order (by name, or by metric ordinal), so that a version is
+ * written the same way however it's classes were extracted
  * 
  * @author Allan Jones
  */
@@ -41,7 +50,8 @@ public class JSONFileVersionWriter implements IVersionWriter
 			{
 				boolean foldersCreated = outputFolder.mkdirs();
 				
-				if(!foldersCreated)
+				//Folders may have been created concurrently by another writer
+				if(!foldersCreated && !outputFolder.isDirectory())
 					throw new IOException("Could not create folders for path: " + outputFolder.getPath());
 			}
 			
@@ -52,6 +62,9 @@ public class JSONFileVersionWriter implements IVersionWriter
 		{
 			e.printStackTrace(); //TODO: Log and throw serialization exception
 		}
+		
+		//Any cached copy of the version is now stale
+		VersionCache.getInstance().invalidate(system, version.getRSN());
 	}
 
 	/**
@@ -66,9 +79,9 @@ public class JSONFileVersionWriter implements IVersionWriter
 		JSONObject versionObject = new JSONObject();
 		
 		//Meta-data
-		versionObject.put("metaData", version.getMetaData());
+		versionObject.put("metaData", inOrdinalOrder(EVersionMetricName.class, version.getMetaData()));
 		//Metrics
-		versionObject.put("metrics", version.getMetrics());
+		versionObject.put("metrics", inOrdinalOrder(EVersionMetricName.class, version.getMetrics()));
 		//Time since the version was last modified
 		versionObject.put("lastModifiedTime", version.getLastModifiedTime());
 		//Date the version was last modified
@@ -93,9 +106,9 @@ public class JSONFileVersionWriter implements IVersionWriter
 	private LinkedList<JSONObject> getClasses(Version version)
 	{
 		LinkedList<JSONObject> classObjects = new LinkedList<JSONObject>();
-		Map<String, ClassMetricData> classes = version.getClasses();
+		Map<String, ClassMetricData> classes = new TreeMap<String, ClassMetricData>(version.getClasses());
 	
-		//For each class in the version, add to the list
+		//For each class in the version in name order, add to the list
 		for(ClassMetricData classMetricData : classes.values())
 			classObjects.add(getClassObject(classMetricData));
 		
@@ -114,35 +127,65 @@ public class JSONFileVersionWriter implements IVersionWriter
 		JSONObject classMetricDataObject = new JSONObject();
 		
 		//Meta-data
-		classMetricDataObject.put("metaData", classMetricData.getMetaData());
-		//Metrics
+		classMetricDataObject.put("metaData", inOrdinalOrder(EClassMetricName.class, classMetricData.getMetaData()));
+		//Metrics (the metric map is already held in ordinal order)
 		classMetricDataObject.put("metrics", classMetricData.getMetrics());
 		//Methods
-		classMetricDataObject.put("methods", new ArrayList<String>(classMetricData.getMethods()));
+		classMetricDataObject.put("methods", getSortedList(classMetricData.getMethods()));
 		//Short methods
-		classMetricDataObject.put("shortMethods", new ArrayList<String>(classMetricData.getShortMethods()));
+		classMetricDataObject.put("shortMethods", getSortedList(classMetricData.getShortMethods()));
 		//Fields
-		classMetricDataObject.put("fields", new ArrayList<String>(classMetricData.getFields()));
+		classMetricDataObject.put("fields", getSortedList(classMetricData.getFields()));
 		//Dependencies
-		classMetricDataObject.put("dependencies", new ArrayList<String>(classMetricData.getDependencies()));
+		classMetricDataObject.put("dependencies", getSortedList(classMetricData.getDependencies()));
 		//Users
-		classMetricDataObject.put("users", new ArrayList<String>(classMetricData.getUsers()));
+		classMetricDataObject.put("users", getSortedList(classMetricData.getUsers()));
 		//Children
-		classMetricDataObject.put("children", new ArrayList<String>(classMetricData.getChildren()));
+		classMetricDataObject.put("children", getSortedList(classMetricData.getChildren()));
 		//Interfaces
-		classMetricDataObject.put("interfaces", new ArrayList<String>(classMetricData.getInterfaces()));
+		classMetricDataObject.put("interfaces", getSortedList(classMetricData.getInterfaces()));
 		//Internal dependencies
-		classMetricDataObject.put("internalDependencies", new ArrayList<String>(classMetricData.getInternalDependencies()));
+		classMetricDataObject.put("internalDependencies", getSortedList(classMetricData.getInternalDependencies()));
 		//External calls
-		classMetricDataObject.put("externalCalls", classMetricData.getExternalCalls());
+		classMetricDataObject.put("externalCalls", new TreeMap<String, Integer>(classMetricData.getExternalCalls()));
 		//Internal library calls
-		classMetricDataObject.put("internalLibCalls", classMetricData.getInternalLibraryCalls());
+		classMetricDataObject.put("internalLibCalls", new TreeMap<String, Integer>(classMetricData.getInternalLibraryCalls()));
 		//External library calls
-		classMetricDataObject.put("externalLibCalls", classMetricData.getExternalLibraryCalls());
+		classMetricDataObject.put("externalLibCalls", new TreeMap<String, Integer>(classMetricData.getExternalLibraryCalls()));
+		//Fingerprint
+		classMetricDataObject.put("fingerprint", classMetricData.getFingerprint().toString());
 		
 		return classMetricDataObject;
 	}
 	
+	/**
+	 * Gets the names held by a set as a list in name order
+	 * @param names The set of names
+	 * @return The sorted list of names
+	 */
+	private List<String> getSortedList(Set<String> names)
+	{
+		List<String> sortedNames = new ArrayList<String>(names);
+		Collections.sort(sortedNames);
+		
+		return sortedNames;
+	}
+	
+	/**
+	 * Gets a copy of a map keyed by metric names that iterates in the order the metrics are declared, as
+	 * the iteration order of a HashMap keyed by enums differs between runs
+	 * @param metricType The type of metric name
+	 * @param metricMap The map to copy
+	 * @return The copy of the map, in metric ordinal order
+	 */
+	private <K extends Enum<K>, V> Map<K, V> inOrdinalOrder(Class<K> metricType, Map<K, V> metricMap)
+	{
+		Map<K, V> orderedMap = new EnumMap<K, V>(metricType);
+		orderedMap.putAll(metricMap);
+		
+		return orderedMap;
+	}
+	
 	/**
 	 * Writes a Version object represented JSON format to a text file 
 	 * @param versionObject The JSON representation of the version to be written to file
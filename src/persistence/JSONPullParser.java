@@ -0,0 +1,379 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser reading JSON values from a Reader one token at a time, so that a document can be read
+ * straight into the objects it describes without first being parsed into a tree of JSON objects. The
+ * caller drives the parser according to the structure it expects, e.g.
+ * <pre>
+ * parser.beginObject();
+ * while (parser.hasNext())
+ * {
+ *     String name = parser.nextName();
+ *     ...read or skip the value...
+ * }
+ * parser.endObject();
+ * </pre>
+ *
+ * @author Allan Jones
+ */
+class JSONPullParser
+{
+	//Types of the value that may be read next, as returned by peek()
+	static final int OBJECT = 0;
+	static final int ARRAY = 1;
+	static final int STRING = 2;
+	static final int NUMBER = 3;
+	static final int BOOLEAN = 4;
+	static final int NULL = 5;
+
+	private Reader reader;
+
+	//Characters read from the reader but not yet consumed
+	private char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	//The number of characters consumed before those in the buffer, for error messages
+	private long bufferOffset;
+
+	//Reused to build strings that contain escape sequences or cross the buffer boundary
+	private StringBuilder stringBuilder = new StringBuilder();
+
+	JSONPullParser(Reader reader)
+	{
+		this.reader = reader;
+	}
+
+	void beginObject() throws IOException
+	{
+		expect('{');
+	}
+
+	void endObject() throws IOException
+	{
+		expect('}');
+	}
+
+	void beginArray() throws IOException
+	{
+		expect('[');
+	}
+
+	void endArray() throws IOException
+	{
+		expect(']');
+	}
+
+	/**
+	 * Determines whether the current object or array holds another member, skipping the comma separating it
+	 * from the previous member
+	 * @return Whether there is another member
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	boolean hasNext() throws IOException
+	{
+		int c = peekChar();
+
+		if (c == ',')
+		{
+			position++;
+			c = peekChar();
+		}
+
+		return c != '}' && c != ']';
+	}
+
+	/**
+	 * Reads the name of an object member, along with the colon following it
+	 * @return The name
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	String nextName() throws IOException
+	{
+		String name = nextString();
+		expect(':');
+
+		return name;
+	}
+
+	/**
+	 * @return The type of the next value (OBJECT, ARRAY, STRING, NUMBER, BOOLEAN or NULL)
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	int peek() throws IOException
+	{
+		int c = peekChar();
+
+		switch (c)
+		{
+			case '{': return OBJECT;
+			case '[': return ARRAY;
+			case '"': return STRING;
+			case 't':
+			case 'f': return BOOLEAN;
+			case 'n': return NULL;
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) return NUMBER;
+				throw syntaxError("Unexpected character '" + (char)c + "'");
+		}
+	}
+
+	/**
+	 * Reads a string value
+	 * @return The string, or null if the value was null
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	String nextString() throws IOException
+	{
+		if (peekChar() == 'n')
+		{
+			nextNull();
+			return null;
+		}
+
+		expect('"');
+
+		//Strings without escapes that lie within the buffer are created without being copied to the builder
+		for (int i = position; i < limit; i++)
+		{
+			char c = buffer[i];
+
+			if (c == '"')
+			{
+				String string = new String(buffer, position, i - position);
+				position = i + 1;
+				return string;
+			}
+
+			if (c == '\\') break;
+		}
+
+		stringBuilder.setLength(0);
+
+		while (true)
+		{
+			if (position == limit && !fill()) throw syntaxError("Unterminated string");
+
+			char c = buffer[position++];
+
+			if (c == '"') return stringBuilder.toString();
+
+			if (c == '\\')
+				stringBuilder.append(readEscape());
+			else
+				stringBuilder.append(c);
+		}
+	}
+
+	/**
+	 * Reads a number value as a long, truncating any fractional part
+	 * @return The number
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	long nextLong() throws IOException
+	{
+		peekChar();
+
+		boolean negative = false;
+		boolean integral = true;
+		long value = 0;
+
+		stringBuilder.setLength(0);
+
+		while (position < limit || fill())
+		{
+			char c = buffer[position];
+
+			if (c >= '0' && c <= '9') value = value * 10 + (c - '0');
+			else if (c == '-' && stringBuilder.length() == 0) negative = true;
+			else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') integral = false;
+			else break;
+
+			stringBuilder.append(c);
+			position++;
+		}
+
+		if (stringBuilder.length() == 0 || (negative && stringBuilder.length() == 1))
+			throw syntaxError("Expected a number");
+
+		if (!integral) return (long)Double.parseDouble(stringBuilder.toString());
+
+		return negative ? -value : value;
+	}
+
+	boolean nextBoolean() throws IOException
+	{
+		if (peekChar() == 't')
+		{
+			expectLiteral("true");
+			return true;
+		}
+
+		expectLiteral("false");
+		return false;
+	}
+
+	void nextNull() throws IOException
+	{
+		expectLiteral("null");
+	}
+
+	/**
+	 * Skips the next value, including any members it holds
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	void skipValue() throws IOException
+	{
+		switch (peek())
+		{
+			case OBJECT:
+				beginObject();
+				while (hasNext())
+				{
+					nextName();
+					skipValue();
+				}
+				endObject();
+				break;
+			case ARRAY:
+				beginArray();
+				while (hasNext()) skipValue();
+				endArray();
+				break;
+			case STRING:
+				skipString();
+				break;
+			case NUMBER:
+				nextLong();
+				break;
+			case BOOLEAN:
+				nextBoolean();
+				break;
+			default:
+				nextNull();
+		}
+	}
+
+	/**
+	 * Skips a string value without building it
+	 * @throws IOException if the reader could not be read from, or the JSON is malformed
+	 */
+	private void skipString() throws IOException
+	{
+		expect('"');
+
+		while (true)
+		{
+			if (position == limit && !fill()) throw syntaxError("Unterminated string");
+
+			char c = buffer[position++];
+
+			if (c == '"') return;
+
+			if (c == '\\') readEscape();
+		}
+	}
+
+	/**
+	 * Reads the character following a backslash in a string
+	 * @return The character escaped
+	 */
+	private char readEscape() throws IOException
+	{
+		if (position == limit && !fill()) throw syntaxError("Unterminated escape sequence");
+
+		char c = buffer[position++];
+
+		switch (c)
+		{
+			case 'b': return '\b';
+			case 'f': return '\f';
+			case 'n': return '\n';
+			case 'r': return '\r';
+			case 't': return '\t';
+			case 'u':
+				int value = 0;
+
+				for (int i = 0; i < 4; i++)
+				{
+					if (position == limit && !fill()) throw syntaxError("Unterminated escape sequence");
+
+					int digit = Character.digit(buffer[position++], 16);
+
+					if (digit < 0) throw syntaxError("Invalid unicode escape sequence");
+
+					value = (value << 4) | digit;
+				}
+
+				return (char)value;
+			default:
+				//Quotes, backslashes and slashes stand for themselves
+				return c;
+		}
+	}
+
+	private void expectLiteral(String literal) throws IOException
+	{
+		peekChar();
+
+		for (int i = 0; i < literal.length(); i++)
+		{
+			if ((position == limit && !fill()) || buffer[position] != literal.charAt(i))
+				throw syntaxError("Expected " + literal);
+
+			position++;
+		}
+	}
+
+	private void expect(char expected) throws IOException
+	{
+		if (peekChar() != expected) throw syntaxError("Expected '" + expected + "'");
+
+		position++;
+	}
+
+	/**
+	 * Skips whitespace and returns the next character without consuming it
+	 * @return The next character
+	 * @throws IOException if the reader could not be read from, or the input has ended
+	 */
+	private int peekChar() throws IOException
+	{
+		while (position < limit || fill())
+		{
+			char c = buffer[position];
+
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+
+			position++;
+		}
+
+		throw syntaxError("Unexpected end of input");
+	}
+
+	/**
+	 * Reads more characters into the buffer, once those it holds have all been consumed
+	 * @return Whether any characters were read
+	 */
+	private boolean fill() throws IOException
+	{
+		bufferOffset += limit;
+		position = 0;
+		limit = 0;
+
+		int count = reader.read(buffer, 0, buffer.length);
+
+		if (count <= 0) return false;
+
+		limit = count;
+
+		return true;
+	}
+
+	private IOException syntaxError(String message)
+	{
+		return new IOException(message + " at position " + (bufferOffset + position) + " of JSON input.");
+	}
+}
@@ -0,0 +1,594 @@
+package persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import model.ClassMetricData;
+import model.Version;
+import model.VersionProjection;
+import model.vocab.EProcessingStatus;
+import model.vocab.EVersionMetricName;
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * A single file holding every version of a system in the binary version format (see BinaryVersionEncoder).
+ * The file is laid out as:
+ * <ul>
+ * <li>a header: the archive magic number and format version</li>
+ * <li>segments, each holding an encoded version, appended in the order the versions were written</li>
+ * <li>a footer: the index, mapping each RSN to the position and length of it's latest segment, along with
+ * the processing status of the version (the manifest) and the RSN of the version it's changes are held from</li>
+ * <li>a trailer: the position of the footer and the archive magic number</li>
+ * </ul>
+ * Writing a version appends it's segment followed by a new footer and trailer, leaving the previous segment
+ * for the RSN (if any) and the previous footer in place as unused space. Once the unused space exceeds the
+ * space in use, the archive is compacted by copying the latest segments to a new file.<br />
+ * <br />
+ * Versions may be held as their changes from the previous version (see BinaryVersionEncoder.encodeDelta), with
+ * every n-th version being held in full (a keyframe) to bound the number of versions that must be decoded to
+ * reconstruct a version. The versions most recently reconstructed or written are kept, so that reading or
+ * writing versions in RSN order only decodes the changes held for each version. When a version is rewritten,
+ * the following version is re-encoded if it is held as it's changes from the version. A version whose changes
+ * would take as much space as the version itself is held in full.<br />
+ * <br />
+ * The file is mapped into memory once when the archive is opened (and again after each write), with
+ * versions being served from the mapping by their position. An archive is assumed to only be written by the
+ * process that has it open
+ *
+ * @author Allan Jones
+ */
+class VersionArchive
+{
+	//Identifies a file as a version archive ("MARC")
+	static final int MAGIC = 0x4D415243;
+	//The version of the archive format written
+	static final int FORMAT_VERSION = 2;
+	//The extension of version archive files
+	static final String FILE_EXTENSION = ".ver.archive";
+
+	//The length of the header and trailer
+	private static final int HEADER_LENGTH = 5;
+	private static final int TRAILER_LENGTH = 12;
+
+	//The number of reconstructed versions kept
+	private static final int RECONSTRUCTED_VERSION_LIMIT = 3;
+
+	//The archives that are open, mapped by their file path
+	private static final Map<String, VersionArchive> archives = new HashMap<String, VersionArchive>();
+
+	private File file;
+
+	//The contents of the file, or null if the file does not exist
+	private MappedByteBuffer contents;
+	//The index of the latest segment for each RSN, in RSN order
+	private TreeMap<Integer, Entry> index = new TreeMap<Integer, Entry>();
+	//The position of the current footer, after which the next segment is written
+	private long footerPosition;
+	//The number of bytes taken up by the latest segments
+	private long usedLength;
+
+	//The versions most recently reconstructed or written, most recent first. These are never modified, with
+	//copies being returned to readers
+	private LinkedList<ReconstructedVersion> reconstructedVersions = new LinkedList<ReconstructedVersion>();
+
+	private VersionArchive(File file) throws IOException
+	{
+		this.file = file;
+
+		if (file.exists()) open();
+	}
+
+	/**
+	 * Gets the archive holding the versions of a system, opening it if it is not already open
+	 * @param system The system
+	 * @return The systems archive, which will be empty if the system has no archive yet
+	 * @throws IOException if the archive could not be opened
+	 */
+	static synchronized VersionArchive getInstance(String system) throws IOException
+	{
+		File file = new File(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_DIRECTORY) + system + "/" + system + FILE_EXTENSION);
+		String path = file.getAbsolutePath();
+
+		VersionArchive archive = archives.get(path);
+
+		if (archive == null)
+		{
+			archive = new VersionArchive(file);
+			archives.put(path, archive);
+		}
+
+		return archive;
+	}
+
+	/**
+	 * @param rsn The RSN of the version
+	 * @return Whether the archive holds the version
+	 */
+	synchronized boolean contains(int rsn)
+	{
+		return index.containsKey(rsn);
+	}
+
+	/**
+	 * @param rsn The RSN of the version
+	 * @return The processing status of the version when it was written, or null if the archive does not hold the version
+	 */
+	synchronized EProcessingStatus getProcessingStatus(int rsn)
+	{
+		Entry entry = index.get(rsn);
+
+		return entry == null ? null : entry.processingStatus;
+	}
+
+	/**
+	 * Reads a version
+	 * @param rsn The RSN of the version
+	 * @param projection The parts of the versions classes to read
+	 * @return The version, or null if the archive does not hold the version
+	 * @throws IllegalStateException if the version could not be decoded
+	 */
+	synchronized Version readVersion(int rsn, VersionProjection projection)
+	{
+		if (!index.containsKey(rsn)) return null;
+
+		return copy(reconstruct(rsn, projection));
+	}
+
+	/**
+	 * Writes a version, replacing any version previously written with the same RSN
+	 * @param version The version
+	 * @param keyframeInterval The interval between versions that are held in full, with the versions between them
+	 * being held as their changes from the previous version (1 to hold all versions in full)
+	 * @throws IOException if the archive could not be written to
+	 * @throws IllegalStateException if the version following the version could not be decoded
+	 */
+	synchronized void writeVersion(Version version, int keyframeInterval) throws IOException
+	{
+		int rsn = version.getRSN();
+
+		//The following version must be re-encoded if it is held as it's changes from the version being replaced
+		Entry nextEntry = index.get(rsn + 1);
+		Version nextVersion = null;
+
+		if (nextEntry != null && nextEntry.baseRSN == rsn) nextVersion = reconstruct(rsn + 1, VersionProjection.ALL);
+
+		//Hold the version in full if it is a keyframe, or the previous version has not been written
+		boolean keyframe = keyframeInterval <= 1 || (rsn - 1) % keyframeInterval == 0 || !index.containsKey(rsn - 1);
+
+		if (keyframe)
+			append(rsn, new BinaryVersionEncoder().encode(version), version.getProcessingStatus(), 0);
+		else
+			appendChanges(version, reconstruct(rsn - 1, VersionProjection.ALL).getClasses(), version.getProcessingStatus());
+
+		//Keep a copy of the version written, replacing any reconstruction of the version it replaces
+		Version writtenVersion = copy(version);
+
+		for (Iterator<ReconstructedVersion> i = reconstructedVersions.iterator(); i.hasNext();)
+			if (i.next().rsn == rsn) i.remove();
+
+		keepReconstruction(rsn, VersionProjection.ALL, writtenVersion);
+
+		if (nextVersion != null) appendChanges(nextVersion, writtenVersion.getClasses(), nextEntry.processingStatus);
+	}
+
+	/**
+	 * Appends a version as it's changes from the previous version, or in full if that would take no more space
+	 * (e.g. when most of it's classes have changed)
+	 * @param version The version
+	 * @param previousClasses The classes of the previous version
+	 * @param processingStatus The processing status to record for the version
+	 * @throws IOException if the archive could not be written to
+	 */
+	private void appendChanges(Version version, Map<String, ClassMetricData> previousClasses, EProcessingStatus processingStatus) throws IOException
+	{
+		int rsn = version.getRSN();
+		byte[] changes = new BinaryVersionEncoder().encodeDelta(version, rsn - 1, previousClasses);
+		byte[] full = new BinaryVersionEncoder().encode(version);
+
+		if (changes.length < full.length)
+			append(rsn, changes, processingStatus, rsn - 1);
+		else
+			append(rsn, full, processingStatus, 0);
+	}
+
+	/**
+	 * Reconstructs a version, decoding the versions it's changes are held from back to the nearest keyframe or
+	 * version already reconstructed
+	 * @param rsn The RSN of the version
+	 * @param projection The parts of the versions classes to decode
+	 * @return The reconstructed version, which must not be modified
+	 */
+	private Version reconstruct(int rsn, VersionProjection projection)
+	{
+		List<Integer> chain = new ArrayList<Integer>();
+		Version version = null;
+
+		for (int chainRSN = rsn; version == null;)
+		{
+			version = getReconstruction(chainRSN, projection);
+			if (version != null) break;
+
+			Entry entry = index.get(chainRSN);
+
+			if (entry == null)
+				throw new IllegalStateException("Could not reconstruct version " + rsn + ", version " + chainRSN + " is not held by " + file.getPath() + ".");
+
+			chain.add(chainRSN);
+
+			if (entry.baseRSN == 0) break;
+
+			chainRSN = entry.baseRSN;
+		}
+
+		//Decode the chain, from the earliest version
+		for (int i = chain.size() - 1; i >= 0; i--)
+		{
+			Entry entry = index.get(chain.get(i));
+			byte[] segment = readSegment(entry);
+
+			if (entry.baseRSN == 0)
+				version = new BinaryVersionDecoder().decode(segment, 0, segment.length, projection);
+			else
+				version = new BinaryVersionDecoder().decodeDelta(segment, 0, segment.length, version.getClasses(), projection);
+		}
+
+		keepReconstruction(rsn, projection, version);
+
+		return version;
+	}
+
+	/**
+	 * Gets a version that has been reconstructed with a projection
+	 * @return The reconstructed version, or null if the version has not been reconstructed with the projection
+	 */
+	private Version getReconstruction(int rsn, VersionProjection projection)
+	{
+		for (Iterator<ReconstructedVersion> i = reconstructedVersions.iterator(); i.hasNext();)
+		{
+			ReconstructedVersion reconstructedVersion = i.next();
+
+			//Projections are compared by identity, as readers reuse a projection when reading a series of versions
+			if (reconstructedVersion.rsn == rsn && reconstructedVersion.projection == projection)
+			{
+				//Move to the front, as the most recently used
+				i.remove();
+				reconstructedVersions.addFirst(reconstructedVersion);
+
+				return reconstructedVersion.version;
+			}
+		}
+
+		return null;
+	}
+
+	private void keepReconstruction(int rsn, VersionProjection projection, Version version)
+	{
+		if (getReconstruction(rsn, projection) != null) return;
+
+		reconstructedVersions.addFirst(new ReconstructedVersion(rsn, projection, version));
+
+		if (reconstructedVersions.size() > RECONSTRUCTED_VERSION_LIMIT) reconstructedVersions.removeLast();
+	}
+
+	/**
+	 * Copies a version and it's classes
+	 * @param version The version to copy
+	 * @return The copy
+	 */
+	private static Version copy(Version version)
+	{
+		Map<String, ClassMetricData> classes = new HashMap<String, ClassMetricData>(version.getClassCount() * 4 / 3 + 1);
+
+		for (ClassMetricData classMetricData : version.getClasses().values())
+			classes.put(classMetricData.getClassName(), classMetricData.copy());
+
+		Version copy = new Version(new HashMap<EVersionMetricName, String>(version.getMetaData()),
+									new HashMap<EVersionMetricName, Integer>(version.getMetrics()), classes,
+									version.getLastModifiedTime(), version.getLastModifiedDate().getTime(), version.hasDeletedClasses());
+		copy.setProcessingStatus(version.getProcessingStatus());
+
+		return copy;
+	}
+
+	/**
+	 * Reads the segment holding a version
+	 * @param entry The index entry of the version
+	 * @return The encoded version
+	 */
+	private byte[] readSegment(Entry entry)
+	{
+		byte[] segment = new byte[entry.length];
+
+		ByteBuffer view = contents.duplicate();
+		view.position((int)entry.position);
+		view.get(segment);
+
+		return segment;
+	}
+
+	/**
+	 * Appends the segment holding a version, replacing any segment previously written for the version
+	 * @param rsn The RSN of the version
+	 * @param segment The encoded version
+	 * @param processingStatus The processing status of the version
+	 * @param baseRSN The RSN of the version the changes held are from, or 0 if the version is held in full
+	 * @throws IOException if the archive could not be written to
+	 */
+	private void append(int rsn, byte[] segment, EProcessingStatus processingStatus, int baseRSN) throws IOException
+	{
+		Entry previous = index.get(rsn);
+		long previousFooterPosition = footerPosition;
+
+		//Create the output folder for the system
+		File outputFolder = file.getParentFile();
+
+		if(!outputFolder.exists())
+		{
+			boolean foldersCreated = outputFolder.mkdirs();
+
+			//Folders may have been created concurrently by another writer
+			if(!foldersCreated && !outputFolder.isDirectory())
+				throw new IOException("Could not create folders for path: " + outputFolder.getPath());
+		}
+
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+
+		try
+		{
+			long position;
+
+			if (contents == null)
+			{
+				//Create the archive, beginning with the header
+				BinaryVersionOutput header = new BinaryVersionOutput(HEADER_LENGTH);
+				header.writeInt(MAGIC);
+				header.writeVarint(FORMAT_VERSION);
+
+				output.setLength(0);
+				output.write(header.toByteArray());
+				position = HEADER_LENGTH;
+			}
+			else position = output.length();
+
+			//Append the segment, then the footer indexing it
+			output.seek(position);
+			output.write(segment);
+
+			index.put(rsn, new Entry(position, segment.length, processingStatus, baseRSN));
+			footerPosition = position + segment.length;
+
+			output.write(encodeFooter(index, footerPosition));
+		}
+		catch (IOException ioe)
+		{
+			//Restore the index to that of the previous footer, which has been left intact
+			if (previous == null) index.remove(rsn);
+			else index.put(rsn, previous);
+
+			footerPosition = previousFooterPosition;
+
+			throw ioe;
+		}
+		finally
+		{
+			output.close();
+		}
+
+		usedLength += segment.length - (previous == null ? 0 : previous.length);
+
+		map();
+
+		//Compact the archive once most of it is unused
+		if (footerPosition - HEADER_LENGTH - usedLength > usedLength) compact();
+	}
+
+	/**
+	 * Rewrites the archive holding only the latest segment for each version, replacing the file once it has
+	 * been written completely
+	 * @throws IOException if the archive could not be written
+	 */
+	private void compact() throws IOException
+	{
+		File compactedFile = new File(file.getPath() + ".tmp");
+		RandomAccessFile output = new RandomAccessFile(compactedFile, "rw");
+
+		TreeMap<Integer, Entry> compactedIndex = new TreeMap<Integer, Entry>();
+		long position = HEADER_LENGTH;
+
+		try
+		{
+			BinaryVersionOutput header = new BinaryVersionOutput(HEADER_LENGTH);
+			header.writeInt(MAGIC);
+			header.writeVarint(FORMAT_VERSION);
+
+			output.setLength(0);
+			output.write(header.toByteArray());
+
+			for (Map.Entry<Integer, Entry> indexEntry : index.entrySet())
+			{
+				Entry entry = indexEntry.getValue();
+
+				output.write(readSegment(entry));
+				compactedIndex.put(indexEntry.getKey(), new Entry(position, entry.length, entry.processingStatus, entry.baseRSN));
+				position += entry.length;
+			}
+
+			output.write(encodeFooter(compactedIndex, position));
+		}
+		finally
+		{
+			output.close();
+		}
+
+		if (!compactedFile.renameTo(file))
+		{
+			//Renaming over an existing file is not supported on all platforms
+			if (!file.delete() || !compactedFile.renameTo(file))
+				throw new IOException("Could not replace " + file.getPath() + " with it's compacted archive.");
+		}
+
+		index = compactedIndex;
+		footerPosition = position;
+
+		map();
+	}
+
+	/**
+	 * Encodes the footer for an index, followed by the trailer
+	 * @param index The index of the latest segment for each RSN
+	 * @param footerPosition The position the footer is written at
+	 * @return The encoded footer and trailer
+	 */
+	private static byte[] encodeFooter(TreeMap<Integer, Entry> index, long footerPosition)
+	{
+		BinaryVersionOutput footer = new BinaryVersionOutput(index.size() * 16 + TRAILER_LENGTH);
+
+		footer.writeVarint(index.size());
+
+		for (Map.Entry<Integer, Entry> indexEntry : index.entrySet())
+		{
+			Entry entry = indexEntry.getValue();
+
+			footer.writeVarint(indexEntry.getKey());
+			footer.writeLong(entry.position);
+			footer.writeVarint(entry.length);
+			footer.writeString(entry.processingStatus.name());
+			footer.writeVarint(entry.baseRSN);
+		}
+
+		footer.writeLong(footerPosition);
+		footer.writeInt(MAGIC);
+
+		return footer.toByteArray();
+	}
+
+	/**
+	 * Maps an existing archive file and reads it's index from the footer
+	 * @throws IOException if the file could not be read or is not a version archive
+	 */
+	private void open() throws IOException
+	{
+		map();
+
+		long length = contents.capacity();
+
+		if (length < HEADER_LENGTH + TRAILER_LENGTH)
+			throw new IOException("Could not open " + file.getPath() + ", it is not a version archive.");
+
+		byte[] header = new byte[HEADER_LENGTH];
+		ByteBuffer view = contents.duplicate();
+		view.get(header);
+
+		BinaryVersionInput headerInput = new BinaryVersionInput(header, 0, header.length);
+
+		if (headerInput.readInt() != MAGIC)
+			throw new IOException("Could not open " + file.getPath() + ", it is not a version archive.");
+
+		int formatVersion = headerInput.readVarint();
+
+		//Archives in format version 1 hold all versions in full
+		if (formatVersion != FORMAT_VERSION && formatVersion != 1)
+			throw new IOException("Could not open " + file.getPath() + ", archive format version " + formatVersion + " is not supported.");
+
+		//Read the position of the footer from the trailer, then the footer itself
+		byte[] trailer = new byte[TRAILER_LENGTH];
+		view.position((int)(length - TRAILER_LENGTH));
+		view.get(trailer);
+
+		BinaryVersionInput trailerInput = new BinaryVersionInput(trailer, 0, trailer.length);
+		footerPosition = trailerInput.readLong();
+
+		if (trailerInput.readInt() != MAGIC || footerPosition < HEADER_LENGTH || footerPosition > length - TRAILER_LENGTH)
+			throw new IOException("Could not open " + file.getPath() + ", the archive is incomplete.");
+
+		byte[] footer = new byte[(int)(length - TRAILER_LENGTH - footerPosition)];
+		view.position((int)footerPosition);
+		view.get(footer);
+
+		BinaryVersionInput footerInput = new BinaryVersionInput(footer, 0, footer.length);
+		int entryCount = footerInput.readVarint();
+
+		for (int i = 0; i < entryCount; i++)
+		{
+			int rsn = footerInput.readVarint();
+			Entry entry = new Entry(footerInput.readLong(), footerInput.readVarint(), EProcessingStatus.valueOf(footerInput.readString()),
+									formatVersion == 1 ? 0 : footerInput.readVarint());
+
+			index.put(rsn, entry);
+			usedLength += entry.length;
+		}
+	}
+
+	/**
+	 * Maps the contents of the file into memory
+	 * @throws IOException if the file could not be mapped
+	 */
+	private void map() throws IOException
+	{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+
+		try
+		{
+			FileChannel channel = input.getChannel();
+
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Could not open " + file.getPath() + ", archives larger than 2GB are not supported.");
+
+			//The mapping remains valid once the file is closed
+			contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * The position and length of a versions segment, along with the versions processing status and the RSN of
+	 * the version it's changes are held from (0 if it is held in full)
+	 */
+	private static class Entry
+	{
+		private long position;
+		private int length;
+		private EProcessingStatus processingStatus;
+		private int baseRSN;
+
+		private Entry(long position, int length, EProcessingStatus processingStatus, int baseRSN)
+		{
+			this.position = position;
+			this.length = length;
+			this.processingStatus = processingStatus;
+			this.baseRSN = baseRSN;
+		}
+	}
+
+	/**
+	 * A version reconstructed with a projection
+	 */
+	private static class ReconstructedVersion
+	{
+		private int rsn;
+		private VersionProjection projection;
+		private Version version;
+
+		private ReconstructedVersion(int rsn, VersionProjection projection, Version version)
+		{
+			this.rsn = rsn;
+			this.projection = projection;
+			this.version = version;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package persistence;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.ClassMetricData;
+import model.Version;
+import model.VersionProjection;
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * In-memory cache of the versions read from the underlying data store, so that a version read repeatedly (e.g. by
+ * several report builders, or once alone and again as part of a pair) is only read once while it remains cached.
+ * Versions are cached until their estimated size exceeds the configured limit, at which point the least recently
+ * used versions are evicted. Versions are also held by soft references, so that the garbage collector may reclaim
+ * them if memory runs short before the limit is reached.<br />
+ * <br />
+ * A cached version that was read with a projection serves later reads whose projection it includes, with a version
+ * read in full serving any read. The versions served are shared by every caller, and must not be modified. Writers
+ * invalidate the cached copy of each version they write, and a version read while another version is being written
+ * is not cached, as it may be the version being written
+ * @author Allan Jones
+ */
+public class VersionCache implements IVersionReader
+{
+	private static VersionCache instance;
+
+	//Estimated bytes held by each class (including it's metric values), along with each meta-data value and
+	//collection element it holds
+	private static final int CLASS_SIZE = 1024;
+	private static final int META_DATA_SIZE = 96;
+	private static final int ELEMENT_SIZE = 80;
+
+	//The maximum estimated size of the cached versions in bytes, or 0 if the cache is disabled
+	private long sizeLimit;
+	//The estimated size of the cached versions in bytes
+	private long size;
+
+	//Maps the system and RSN of each cached version to it's entry, in order of least recent use
+	private LinkedHashMap<String, CachedVersion> versions = new LinkedHashMap<String, CachedVersion>(16, 0.75f, true);
+
+	//The number of versions invalidated, so that reads that overlap an invalidation can be detected
+	private long invalidationCount;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	private VersionCache()
+	{
+		sizeLimit = ConfigManager.getIntProperty(ConfigKeys.VERSION_CACHE_SIZE_LIMIT, 128) * 1024L * 1024L;
+	}
+
+	public static synchronized VersionCache getInstance()
+	{
+		if (instance == null) instance = new VersionCache();
+		return instance;
+	}
+
+	/**
+	 * Determines whether the cache has been given a size limit
+	 * @return Whether the cache is enabled
+	 */
+	public boolean isEnabled()
+	{
+		return sizeLimit > 0;
+	}
+
+	@Override
+	public Version readVersion(String system, int rsn)
+	{
+		return readVersion(system, rsn, VersionProjection.ALL);
+	}
+
+	/**
+	 * Gets the parts of a version included by a projection, from the cache if a version including them is cached or
+	 * otherwise by reading the version with the configured reader and caching it
+	 * @param system The system that the version belongs to
+	 * @param rsn The versions Release Sequence Number
+	 * @param projection The parts of the versions classes required
+	 * @return The version, which must not be modified, or null if it could not be read
+	 */
+	@Override
+	public Version readVersion(String system, int rsn, VersionProjection projection)
+	{
+		IVersionReader versionReader = VersionReaderFactory.getInstance().getVersionReader();
+
+		if (!isEnabled()) return versionReader.readVersion(system, rsn, projection);
+
+		String key = getKey(system, rsn);
+		long readInvalidationCount;
+
+		synchronized (this)
+		{
+			CachedVersion cachedVersion = versions.get(key);
+
+			if (cachedVersion != null)
+			{
+				Version version = cachedVersion.version.get();
+
+				if (version == null)
+				{
+					//Reclaimed by the garbage collector
+					remove(key);
+				}
+				else if (cachedVersion.projection.includes(projection))
+				{
+					hitCount++;
+					return version;
+				}
+			}
+
+			missCount++;
+			readInvalidationCount = invalidationCount;
+		}
+
+		//Read outside of the lock, so that reads of other versions are not held up
+		Version version = versionReader.readVersion(system, rsn, projection);
+
+		if (version != null) put(key, version, projection, readInvalidationCount);
+
+		return version;
+	}
+
+	@Override
+	public boolean versionExtracted(String system, int rsn)
+	{
+		return VersionReaderFactory.getInstance().getVersionReader().versionExtracted(system, rsn);
+	}
+
+	/**
+	 * Removes the cached copy of a version, as the version has been written
+	 * @param system The system that the version belongs to
+	 * @param rsn The versions Release Sequence Number
+	 */
+	synchronized void invalidate(String system, int rsn)
+	{
+		invalidationCount++;
+		remove(getKey(system, rsn));
+	}
+
+	/**
+	 * Removes every cached version
+	 */
+	public synchronized void clear()
+	{
+		invalidationCount++;
+		versions.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return The number of reads served from the cache
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * @return The number of reads that were not served from the cache
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * @return The number of versions evicted to keep the cache within it's size limit
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	/**
+	 * @return The estimated size of the cached versions in bytes
+	 */
+	public synchronized long getSize()
+	{
+		return size;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "Version cache: " + hitCount + " hits, " + missCount + " misses, " + evictionCount + " evictions, "
+				+ versions.size() + " versions cached (" + (size / 1024) + " KB)";
+	}
+
+	/**
+	 * Caches a version that has been read, replacing any version cached for the same RSN, and evicts the least
+	 * recently used versions until the cache is within it's size limit
+	 * @param key The key of the version
+	 * @param version The version read
+	 * @param projection The projection the version was read with
+	 * @param readInvalidationCount The invalidation count when the version was read
+	 */
+	private void put(String key, Version version, VersionProjection projection, long readInvalidationCount)
+	{
+		long versionSize = estimateSize(version);
+
+		//Versions that would not fit alone are not cached, rather than evicting every other version
+		if (versionSize > sizeLimit) return;
+
+		synchronized (this)
+		{
+			//A version may have been written since the version was read, which may leave it stale
+			if (invalidationCount != readInvalidationCount) return;
+
+			remove(key);
+			versions.put(key, new CachedVersion(version, projection, versionSize));
+			size += versionSize;
+
+			for (Iterator<Map.Entry<String, CachedVersion>> i = versions.entrySet().iterator(); size > sizeLimit && i.hasNext();)
+			{
+				size -= i.next().getValue().size;
+				i.remove();
+				evictionCount++;
+			}
+		}
+	}
+
+	private void remove(String key)
+	{
+		CachedVersion cachedVersion = versions.remove(key);
+
+		if (cachedVersion != null) size -= cachedVersion.size;
+	}
+
+	private static String getKey(String system, int rsn)
+	{
+		return system + "-" + rsn;
+	}
+
+	/**
+	 * Estimates the memory held by a version from the number of classes, metrics and collection elements it holds
+	 * @param version The version
+	 * @return The estimated size of the version in bytes
+	 */
+	private static long estimateSize(Version version)
+	{
+		long estimatedSize = 0;
+
+		for (ClassMetricData classMetricData : version.getClasses().values())
+		{
+			estimatedSize += CLASS_SIZE + (long)classMetricData.getMetaData().size() * META_DATA_SIZE;
+
+			int elementCount = classMetricData.getMethodCount() + classMetricData.getShortMethodCount() + classMetricData.getFieldCount()
+							   + classMetricData.getDependencyCount() + classMetricData.getUserCount() + classMetricData.getChildCount()
+							   + classMetricData.getInterfaceCount() + classMetricData.getInternalDependencyCount()
+							   + classMetricData.getExternalCallCount() + classMetricData.getInternalLibraryCalls().size()
+							   + classMetricData.getExternalLibraryCalls().size();
+
+			estimatedSize += (long)elementCount * ELEMENT_SIZE;
+		}
+
+		return estimatedSize;
+	}
+
+	/**
+	 * A cached version, along with the projection it was read with and it's estimated size
+	 */
+	private static class CachedVersion
+	{
+		private SoftReference<Version> version;
+		private VersionProjection projection;
+		private long size;
+
+		private CachedVersion(Version version, VersionProjection projection, long size)
+		{
+			this.version = new SoftReference<Version>(version);
+			this.projection = projection;
+			this.size = size;
+		}
+	}
+}
@@ -18,6 +18,9 @@ public class VersionFileStreamAccessor
 {
 	private static VersionFileStreamAccessor instance;
 	
+	//The extension of files holding versions in JSON format
+	public static final String JSON_FILE_EXTENSION = ".ver.json";
+	
 	private VersionFileStreamAccessor()
 	{
 		
@@ -36,6 +39,35 @@ public class VersionFileStreamAccessor
 	 * @return The InputStream to the version with the specified system and RSN
 	 */
 	public InputStream getVersionStream(String system, int rsn) throws IOException
+	{
+		return getVersionStream(system, rsn, JSON_FILE_EXTENSION);
+	}
+	
+	/**
+	 * Loads an InputStream for a version of a specified system and RSN, held in a file of a given type
+	 * @param system The system that the version belongs to
+	 * @param rsn The RSN for the version (Release Sequence Number)
+	 * @param extension The extension of the file holding the version
+	 * @return The InputStream to the version with the specified system and RSN, or null if there is no such version
+	 */
+	public InputStream getVersionStream(String system, int rsn, String extension) throws IOException
+	{
+		File versionFile = getVersionFile(system, rsn, extension);
+		
+		if(versionFile == null)
+			return null;
+		
+		return new BufferedInputStream(new FileInputStream(versionFile));
+	}
+	
+	/**
+	 * Gets the file holding a version of a specified system and RSN
+	 * @param system The system that the version belongs to
+	 * @param rsn The RSN for the version (Release Sequence Number)
+	 * @param extension The extension of the file holding the version
+	 * @return The file holding the version, or null if there is no such file
+	 */
+	public File getVersionFile(String system, int rsn, String extension)
 	{
 		//Get directory path
 		File historyDir = new File(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_DIRECTORY) + system);
@@ -53,15 +85,14 @@ public class VersionFileStreamAccessor
 //											+ historyDir.getAbsolutePath()
 //											+ ", specified path is not a directory.");
 		
-		//TODO: Make this configurable for different file types 
-		File versionFile = new File(historyDir + "/" + system + "-" + rsn + ".ver.json");
+		File versionFile = new File(historyDir + "/" + system + "-" + rsn + extension);
 		
 		if(!versionFile.exists())
 			return null;
 //			throw new FileNotFoundException("Cannot load Version from "
 //					+ versionFile.getPath()
 //					+ ", file not found.");
-			 
-		 return new BufferedInputStream(new FileInputStream(versionFile));
+		
+		return versionFile;
 	}
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package persistence;
 
+import config.ConfigKeys;
+import config.ConfigManager;
+
 /**
  * Factory class to build IVersionReader objects that can obtain Versions
  * 
@@ -9,22 +12,45 @@ public class VersionReaderFactory
 {
 	private static VersionReaderFactory instance;
 	
+	//Names of the formats that versions may be configured to be persisted in
+	public static final String JSON_FORMAT = "json";
+	public static final String BINARY_FORMAT = "binary";
+	public static final String ARCHIVE_FORMAT = "archive";
+	
 	private VersionReaderFactory()
 	{ }
 	
-	public static VersionReaderFactory getInstance()
+	public static synchronized VersionReaderFactory getInstance()
 	{
 		if (instance == null) instance = new VersionReaderFactory();
 		return instance;
 	}
 	
 	/**
-	 * Creates an IVersionReader object to read versions 
+	 * Creates an IVersionReader object to read versions in the configured persistence format
 	 * @return An IVersionReader to read versions
 	 */
 	public <T extends IVersionReader> IVersionReader getVersionReader()
 	{
-		//TODO: Add class loading for writer based on config
+		if(isBinaryFormat()) return new BinaryFileVersionReader();
+		if(isArchiveFormat()) return new ArchiveVersionReader();
+		
 		return new JSONFileVersionReader();
 	}
+	
+	/**
+	 * @return Whether versions are configured to be persisted in the binary format
+	 */
+	static boolean isBinaryFormat()
+	{
+		return BINARY_FORMAT.equalsIgnoreCase(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_FORMAT, JSON_FORMAT));
+	}
+	
+	/**
+	 * @return Whether versions are configured to be persisted in a single archive file per system
+	 */
+	static boolean isArchiveFormat()
+	{
+		return ARCHIVE_FORMAT.equalsIgnoreCase(ConfigManager.getStringProperty(ConfigKeys.VERSION_PERSISTENCE_FORMAT, JSON_FORMAT));
+	}
 }
\ No newline at end of file
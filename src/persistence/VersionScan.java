@@ -0,0 +1,216 @@
+package persistence;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import model.Version;
+import model.VersionProjection;
+import config.ConfigKeys;
+import config.ConfigManager;
+
+/**
+ * Iterates over a range of a systems versions in RSN order, reading the versions following the current version
+ * on background threads while the caller processes it, so that reading the versions overlaps with their
+ * processing. At most the configured number of versions (versionReadAhead) are read ahead of the current version,
+ * bounding the number of versions held in memory at once.<br />
+ * <br />
+ * Versions are read either through the VersionCache, for versions that will only be reported on, or with a
+ * reader of their own, for versions that will be modified. A scan may only be iterated once. The reads remaining
+ * are cancelled once the last version is returned, while a scan that is abandoned early should be closed. The
+ * versions returned are null if they could not be read
+ * @author Allan Jones
+ */
+public class VersionScan implements Iterable<Version>, Iterator<Version>
+{
+	//The number of versions read ahead, if not configured
+	public static final int DEFAULT_READ_AHEAD = 2;
+
+	//Threads reading versions ahead do not keep the JVM running if a scan is abandoned without being closed
+	private static final ThreadFactory READ_AHEAD_THREAD_FACTORY = new ThreadFactory()
+	{
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "version-read-ahead");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	//Whether the versions are read through the version cache
+	private boolean cached;
+	private String system;
+	private VersionProjection projection;
+
+	//The RSN of the next version to return
+	private int nextRSN;
+	//The RSN of the next version to start reading
+	private int nextReadRSN;
+	private int toRSN;
+
+	//The threads reading versions ahead, or null if versions are read as they are returned
+	private ExecutorService executor;
+	//The reads of the versions following the current version, in RSN order
+	private LinkedList<Future<Version>> pendingReads = new LinkedList<Future<Version>>();
+
+	/**
+	 * Creates a scan reading the configured number of versions ahead
+	 * @param system The system that the versions belong to
+	 * @param fromRSN The RSN of the first version to return
+	 * @param toRSN The RSN of the last version to return
+	 * @param projection The parts of the versions classes to read
+	 * @param cached Whether to read the versions through the version cache, in which case they are shared and
+	 * must not be modified
+	 */
+	public VersionScan(String system, int fromRSN, int toRSN, VersionProjection projection, boolean cached)
+	{
+		this(system, fromRSN, toRSN, projection, cached, ConfigManager.getIntProperty(ConfigKeys.VERSION_READ_AHEAD, DEFAULT_READ_AHEAD));
+	}
+
+	/**
+	 * Creates a scan
+	 * @param system The system that the versions belong to
+	 * @param fromRSN The RSN of the first version to return
+	 * @param toRSN The RSN of the last version to return
+	 * @param projection The parts of the versions classes to read
+	 * @param cached Whether to read the versions through the version cache, in which case they are shared and
+	 * must not be modified
+	 * @param readAhead The maximum number of versions to read ahead of the current version (0 to read each
+	 * version when it is returned)
+	 */
+	public VersionScan(String system, int fromRSN, int toRSN, VersionProjection projection, boolean cached, int readAhead)
+	{
+		this.cached = cached;
+		this.system = system;
+		this.projection = projection;
+		this.nextRSN = fromRSN;
+		this.nextReadRSN = fromRSN;
+		this.toRSN = toRSN;
+
+		int versionCount = toRSN - fromRSN + 1;
+
+		if (readAhead > 0 && versionCount > 1)
+		{
+			executor = Executors.newFixedThreadPool(Math.min(readAhead, versionCount), READ_AHEAD_THREAD_FACTORY);
+
+			//The first version is waited for straight away, so it is read along with the versions ahead of it
+			for (int i = 0; i <= readAhead; i++) startNextRead();
+		}
+	}
+
+	public Iterator<Version> iterator()
+	{
+		return this;
+	}
+
+	public boolean hasNext()
+	{
+		return nextRSN <= toRSN;
+	}
+
+	public Version next()
+	{
+		if (!hasNext()) throw new NoSuchElementException("The scan of " + system + " has passed RSN " + toRSN);
+
+		Version version;
+
+		if (executor == null)
+		{
+			version = readVersion(nextRSN);
+		}
+		else
+		{
+			Future<Version> read = pendingReads.removeFirst();
+
+			//Keep the same number of versions being read ahead while the caller processes this one
+			startNextRead();
+
+			version = getReadVersion(read);
+		}
+
+		nextRSN++;
+
+		if (!hasNext()) close();
+
+		return version;
+	}
+
+	public void remove()
+	{
+		throw new UnsupportedOperationException("Versions cannot be removed by a scan");
+	}
+
+	/**
+	 * Cancels the reads not yet started and releases the threads reading versions ahead. Reads already started
+	 * are left to complete
+	 */
+	public void close()
+	{
+		if (executor == null) return;
+
+		for (Future<Version> read : pendingReads) read.cancel(false);
+
+		pendingReads.clear();
+		executor.shutdown();
+		executor = null;
+	}
+
+	private void startNextRead()
+	{
+		if (nextReadRSN > toRSN) return;
+
+		final int rsn = nextReadRSN++;
+
+		pendingReads.add(executor.submit(new Callable<Version>()
+		{
+			public Version call()
+			{
+				return readVersion(rsn);
+			}
+		}));
+	}
+
+	private Version readVersion(int rsn)
+	{
+		if (cached) return VersionCache.getInstance().readVersion(system, rsn, projection);
+
+		//Readers may hold state while reading, so each read uses a reader of it's own
+		return VersionReaderFactory.getInstance().getVersionReader().readVersion(system, rsn, projection);
+	}
+
+	/**
+	 * Waits for a version being read ahead, surfacing any failure to read it
+	 * @param read The read of the version
+	 * @return The version read
+	 */
+	private Version getReadVersion(Future<Version> read)
+	{
+		try
+		{
+			return read.get();
+		}
+		catch (InterruptedException ie)
+		{
+			close();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading version " + nextRSN + " of " + system, ie);
+		}
+		catch (ExecutionException ee)
+		{
+			close();
+
+			Throwable cause = ee.getCause();
+
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+
+			throw new IllegalStateException("Failed to read version " + nextRSN + " of " + system, cause);
+		}
+	}
+}
@@ -13,18 +13,20 @@ public class VersionWriterFactory
 	private VersionWriterFactory()
 	{ }
 	
-	public static VersionWriterFactory getInstance()
+	public static synchronized VersionWriterFactory getInstance()
 	{
 		if (instance == null) instance = new VersionWriterFactory();
 		return instance;
 	}
 	
 	/**
-	 * @return An IVersionWriter object to write versions
+	 * @return An IVersionWriter object to write versions in the configured persistence format
 	 */
 	public IVersionWriter getWriter()
 	{
-		//TODO: Add class loading for writer based on config
+		if(VersionReaderFactory.isBinaryFormat()) return new BinaryFileVersionWriter();
+		if(VersionReaderFactory.isArchiveFormat()) return new ArchiveVersionWriter();
+		
 		return new JSONFileVersionWriter();
 	}
 }
\ No newline at end of file
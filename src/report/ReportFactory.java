@@ -1,10 +1,16 @@
 package report;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import model.History;
 import report.builder.AllMetricHistoryReportBuilder;
 import report.builder.FocusReportBuilder;
 import report.builder.FrequencyReportBuilder;
 import report.builder.GiniDetailedReportBuilder;
+import report.builder.HistoryScan;
+import report.builder.IVersionVisitor;
 import report.builder.MetricHistoryReportBuilder;
 import report.builder.OutlyingVersionsReportBuilder;
 import report.builder.PredictionReportBuilder;
@@ -49,9 +55,116 @@ public class ReportFactory
 	 */
 	public Report getReport(History history, ReportConfig reportConfig)
 	{
-		ReportBuilder builder = null;
+		HistoryScan historyScan = new HistoryScan(history);
+		List<ReportBuilder> builders = getReportBuilders(historyScan, history, Collections.singletonList(reportConfig));
+		ReportBuilder builder = builders.get(0);
+		
+		return builder != null ? buildReport(historyScan, builder) : null;
+	}
+	
+	/**
+	 * Generates a report for a systems history for each of a number of report configs, with the information
+	 * that each report is built from being collected in a single pass over the versions in the history
+	 * @param history The history to generate the reports for
+	 * @param reportConfigs The configuration options for each of the reports
+	 * @return The reports that were built, in the order of their configurations (null for a report that could
+	 * not be built, the reason for which is printed to the error stream)
+	 */
+	public List<Report> getReports(History history, List<ReportConfig> reportConfigs)
+	{
+		HistoryScan historyScan = new HistoryScan(history);
+		List<ReportBuilder> builders = getReportBuilders(historyScan, history, reportConfigs);
+		List<Report> reports = new ArrayList<Report>(builders.size());
+		
+		for(int i = 0; i < builders.size(); i++)
+		{
+			ReportBuilder builder = builders.get(i);
+			EReportType reportType = reportConfigs.get(i).getReportType();
+			Report report = null;
+			
+			try
+			{
+				if(builder != null)
+					report = buildReport(historyScan, builder);
+				else
+					System.err.println("Could not build report " + reportType + ", there is no builder for the report type");
+			}
+			catch(Exception e)
+			{
+				//TODO: Log error
+				//A report that could not be built does not prevent the remaining reports from being built
+				e.printStackTrace();
+				System.err.println("Could not build report " + reportType + ", there was an error: " + e.getMessage());
+			}
+			
+			reports.add(report);
+		}
 		
-		EReportType reportType = reportConfig.getReportType();
+		return reports;
+	}
+	
+	/**
+	 * Creates the builder for each report config and scans the history once for all of the builders, leaving
+	 * them ready to build their reports
+	 * @param historyScan The scan to register the builders version visitors with
+	 * @param history The history to generate the reports for
+	 * @param reportConfigs The configuration options for each of the reports
+	 * @return The builder for each report config (null for a report type that has no builder)
+	 */
+	private List<ReportBuilder> getReportBuilders(HistoryScan historyScan, History history, List<ReportConfig> reportConfigs)
+	{
+		List<ReportBuilder> builders = new ArrayList<ReportBuilder>(reportConfigs.size());
+		
+		for(ReportConfig reportConfig : reportConfigs)
+		{
+			ReportBuilder builder = getReportBuilder(reportConfig.getReportType());
+			
+			if(builder != null)
+			{
+				builder.setHistory(history);
+				builder.setConfig(reportConfig);
+				
+				IVersionVisitor visitor = builder.getVersionVisitor();
+				
+				if(visitor != null)
+					historyScan.addVisitor(visitor);
+			}
+			
+			builders.add(builder);
+		}
+		
+		//Visit the versions once for every report
+		historyScan.scan();
+		
+		return builders;
+	}
+	
+	/**
+	 * Builds the report for a builder that has taken part in a history scan
+	 * @param historyScan The scan that the builder took part in
+	 * @param builder The report builder
+	 * @return The report that was built
+	 * @throws RuntimeException The exception thrown by the builders version visitor, if it failed during the scan
+	 */
+	private Report buildReport(HistoryScan historyScan, ReportBuilder builder)
+	{
+		IVersionVisitor visitor = builder.getVersionVisitor();
+		RuntimeException scanFailure = visitor != null ? historyScan.getFailure(visitor) : null;
+		
+		//The visitor was dropped from the scan, so the report would be built from partial information
+		if(scanFailure != null) throw scanFailure;
+		
+		return builder.buildReport();
+	}
+	
+	/**
+	 * Creates the builder for a type of report
+	 * @param reportType The type of report
+	 * @return The report builder, or null if there is no builder for the report type
+	 */
+	private ReportBuilder getReportBuilder(EReportType reportType)
+	{
+		ReportBuilder builder = null;
 
 		// TODO: Replace massive switch statement with reflective report loading
 		switch(reportType)
@@ -115,9 +228,6 @@ public class ReportFactory
 				break;
 		}
 		
-		builder.setHistory(history);
-		builder.setConfig(reportConfig);
-		
-		return builder != null ?  builder.buildReport() : null;
+		return builder;
 	}
 }
\ No newline at end of file
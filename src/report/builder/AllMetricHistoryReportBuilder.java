@@ -11,6 +11,7 @@ import java.util.TreeMap;
 
 import model.ClassMetricData;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.MetricNameMappingUtil;
 import report.EReportConfigOption;
@@ -18,17 +19,19 @@ import report.table.Column;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that contains the history of values for a given metric for each of the classes in the system, for each version
  * 
  * @author Allan Jones
  */
-public class AllMetricHistoryReportBuilder extends TabularReportBuilder
+public class AllMetricHistoryReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {
 	private static EClassMetricName[] metrics;
 	
+	//Map of class names to their history of values for each metric
+	private Map<String, Map<EClassMetricName, Integer[]>> historyMap = new TreeMap<String, Map<EClassMetricName, Integer[]>>();
+	
 	static
 	{
 		Set<EClassMetricName> ignoreMetrics = new HashSet<EClassMetricName>();
@@ -76,9 +79,6 @@ public class AllMetricHistoryReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{	
-		Map<String, Map<EClassMetricName, Integer[]>> historyMap = new TreeMap<String, Map<EClassMetricName, Integer[]>>();
-		extractClassMetricHistoryMap(historyMap);
-		
 		List<Row> reportRows = new ArrayList<Row>(historyMap.size());
 		
 		String separator = config.getEntry(EReportConfigOption.SEPARATOR);
@@ -94,58 +94,72 @@ public class AllMetricHistoryReportBuilder extends TabularReportBuilder
 		return reportRows;
 	}
 	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+	
 	/**
-	 * Creates a map of class names to their history of values for the specified metric
-	 * @param metric The metric to extract the history for
-	 * @return The map of class names to their history of values for the specified metrics
+	 * Adds the versions values for each metric to the history of values for each of it's classes
 	 */
-	public void extractClassMetricHistoryMap(Map<String, Map<EClassMetricName, Integer[]>> historyMap)
+	@Override
+	public void onVersion(Version version)
 	{
-		String shortName = history.getShortName();
+		int rsn = version.getRSN();
 		int releaseCount = history.getReleaseCount();
 		
-		VersionFactory versionFactory = VersionFactory.getInstance();
+		Map<String, Map<EClassMetricName, Integer>> classNameMetricMap = new HashMap<String, Map<EClassMetricName,Integer>>();
+		getClassNameMetricMap(classNameMetricMap, version);
+		
+		Set<Entry<String, Map<EClassMetricName, Integer>>> classMetricEntries = classNameMetricMap.entrySet();
 		
-		for(Integer rsn : history.getVersions().keySet())
+		for (Entry<String, Map<EClassMetricName, Integer>> classMetricEntry : classMetricEntries)
 		{
-			Version version = versionFactory.getVersion(shortName, rsn);
-			
-			Map<String, Map<EClassMetricName, Integer>> classNameMetricMap = new HashMap<String, Map<EClassMetricName,Integer>>();
-			getClassNameMetricMap(classNameMetricMap, version);
-			
-			Set<Entry<String, Map<EClassMetricName, Integer>>> classMetricEntries = classNameMetricMap.entrySet();
+			String className = classMetricEntry.getKey();
+
+			Map<EClassMetricName, Integer[]> metricMap = historyMap.get(className);
 			
-			for (Entry<String, Map<EClassMetricName, Integer>> classMetricEntry : classMetricEntries)
+			// first time, create the array object
+			if (metricMap == null)
 			{
-				String className = classMetricEntry.getKey();
+				metricMap = new HashMap<EClassMetricName, Integer[]>(metrics.length);
+				historyMap.put(className, metricMap);
+			}
 
-				Map<EClassMetricName, Integer[]> metricMap = historyMap.get(className);
+			Set<Entry<EClassMetricName, Integer>> metricEntries = classMetricEntry.getValue().entrySet(); 
+			
+			for(Entry<EClassMetricName, Integer> metricEntry : metricEntries)
+			{
+				EClassMetricName metric = metricEntry.getKey();
+				Integer[] values = metricMap.get(metric);
 				
-				// first time, create the array object
-				if (metricMap == null)
+				if(values == null)
 				{
-					metricMap = new HashMap<EClassMetricName, Integer[]>(metrics.length);
-					historyMap.put(className, metricMap);
+					values = new Integer[releaseCount];
+					metricMap.put(metric, values);
 				}
-
-				Set<Entry<EClassMetricName, Integer>> metricEntries = classMetricEntry.getValue().entrySet(); 
 				
-				for(Entry<EClassMetricName, Integer> metricEntry : metricEntries)
-				{
-					EClassMetricName metric = metricEntry.getKey();
-					Integer[] values = metricMap.get(metric);
-					
-					if(values == null)
-					{
-						values = new Integer[releaseCount];
-						metricMap.put(metric, values);
-					}
-					
-					values[rsn - 1] = metricEntry.getValue();
-				}
+				values[rsn - 1] = metricEntry.getValue();
 			}
 		}
 	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
+	}
 
 	/**
 	 * Extracts a single table row containing the metric values history for a given history
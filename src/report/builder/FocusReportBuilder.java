@@ -12,6 +12,7 @@ import java.util.Map.Entry;
 import model.ClassMetricData;
 import model.MetricUtil;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import report.Report;
 import report.ReportDataMap;
@@ -26,7 +27,7 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class FocusReportBuilder extends ReportBuilder
+public class FocusReportBuilder extends ReportBuilder implements IVersionVisitor
 {
 	// Map of package names to the list of classes that are identified as
 	// requiring focus
@@ -34,7 +35,7 @@ public class FocusReportBuilder extends ReportBuilder
 
 	// Map of the metric history for each of the classes identified as requiring
 	// focus
-	private Map<Integer, Map<String, Map<EClassMetricName, Integer>>> focusClassMetricMap;
+	private Map<Integer, Map<String, Map<EClassMetricName, Integer>>> focusClassMetricMap = new TreeMap<Integer, Map<String, Map<EClassMetricName, Integer>>>();
 
 	// The days since birth for the release date for versions in the systems
 	// history
@@ -47,11 +48,6 @@ public class FocusReportBuilder extends ReportBuilder
 	@Override
 	public Report buildReport()
 	{
-		// Extract the classes requiring focus
-		extractFocusClasses();
-		// Extract the modification history for the focus classes identified
-		extractFocusClassModificationInfo();
-
 		ReportDataMap reportData = new ReportDataMap();
 		reportData.add("daysSinceBirth", daysSinceBirthList);
 		reportData.add("focusClasses", packageFocusClassMap);
@@ -246,84 +242,106 @@ public class FocusReportBuilder extends ReportBuilder
 		}
 	}
 
-	private void extractFocusClassModificationInfo()
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+
+	/**
+	 * Extracts the modification history for the focus classes from each
+	 * version in the systems history, identifying the focus classes first
+	 */
+	@Override
+	public void onVersion(Version version)
 	{
+		// Extract the classes requiring focus
+		if (packageFocusClassMap == null)
+			extractFocusClasses();
+
 		// TODO: Make this configurable
 		// These metrics will be attached to the modification history to provide
 		// an depth to the evolution distance values
 		EClassMetricName[] distanceMetrics = MetricUtil.getDistanceMetrics();
 
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		Version version = null;
+		int rsn = version.getRSN();
 
-		focusClassMetricMap = new TreeMap<Integer, Map<String, Map<EClassMetricName, Integer>>>();
+		// Create a map of focus class name to it's associated distance
+		// metrics to house the focus class metrics for the
+		// version
+		Map<String, Map<EClassMetricName, Integer>> versionMetricMap = new HashMap<String, Map<EClassMetricName, Integer>>();
 
-		// For each version
-		for (Integer rsn : history.getVersions().keySet())
-		{
-			// Create a map of focus class name to it's associated distance
-			// metrics to house the focus class metrics for the
-			// version
-			Map<String, Map<EClassMetricName, Integer>> versionMetricMap = new HashMap<String, Map<EClassMetricName, Integer>>();
+		daysSinceBirthList.add(version.getDaysSinceBirth());
 
-			// Get the current version
-			version = versionFactory.getVersion(history.getShortName(), rsn);
-			daysSinceBirthList.add(version.getDaysSinceBirth());
+		// Get the classes that make up the current version
+		Map<String, ClassMetricData> versionClasses = version.getClasses();
 
-			// Get the classes that make up the current version
-			Map<String, ClassMetricData> versionClasses = version.getClasses();
+		// For each package containing focus classes
+		for (String packageName : packageFocusClassMap.keySet())
+		{
+			// Get the list of focus classes for the package
+			List<ClassMetricData> packageClasses = packageFocusClassMap.get(packageName);
 
-			// For each package containing focus classes
-			for (String packageName : packageFocusClassMap.keySet())
+			// For each class within the package
+			for (ClassMetricData packageClass : packageClasses)
 			{
-				// Get the list of focus classes for the package
-				List<ClassMetricData> packageClasses = packageFocusClassMap.get(packageName);
-
-				// For each class within the package
-				for (ClassMetricData packageClass : packageClasses)
+				// Get the version of the class corresponding to the focus
+				// class within the current
+				// version
+				ClassMetricData classVersion = versionClasses.get(packageClass.getClassName());
+
+				// Assign a default value of null to the metric map, rather
+				// than
+				// creating a new map, as the class may not exist in this
+				// version
+				Map<EClassMetricName, Integer> classMetricMap = null;
+
+				// if the class exists within this version
+				if (classVersion != null)
 				{
-					// Get the version of the class corresponding to the focus
-					// class within the current
-					// version
-					ClassMetricData classVersion = versionClasses.get(packageClass.getClassName());
-
-					// Assign a default value of null to the metric map, rather
-					// than
-					// creating a new map, as the class may not exist in this
-					// version
-					Map<EClassMetricName, Integer> classMetricMap = null;
-
-					// if the class exists within this version
-					if (classVersion != null)
-					{
-						// Initialise it's metric map
-						classMetricMap = new HashMap<EClassMetricName, Integer>(distanceMetrics.length + 1);
-						// Store the flag that indicates whether the class was
-						// modified in this version
-						classMetricMap.put(EClassMetricName.IS_MODIFIED, classVersion
-								.getMetricValue(EClassMetricName.IS_MODIFIED));
-
-						// Store each of the distance metrics for this version
-						// of the focus class
-						for (EClassMetricName distanceMetric : distanceMetrics)
-							classMetricMap.put(distanceMetric, classVersion.getMetricValue(distanceMetric));
-
-						// Store the evolution distance for the class
-						classMetricMap.put(EClassMetricName.EVOLUTION_DISTANCE, classVersion
-								.getMetricValue(EClassMetricName.EVOLUTION_DISTANCE));
-					}
-
-					// Map the focus class to it's associated metric values for
-					// the version
-					versionMetricMap.put(packageClass.getClassName(), classMetricMap);
+					// Initialise it's metric map
+					classMetricMap = new HashMap<EClassMetricName, Integer>(distanceMetrics.length + 1);
+					// Store the flag that indicates whether the class was
+					// modified in this version
+					classMetricMap.put(EClassMetricName.IS_MODIFIED, classVersion
+							.getMetricValue(EClassMetricName.IS_MODIFIED));
+
+					// Store each of the distance metrics for this version
+					// of the focus class
+					for (EClassMetricName distanceMetric : distanceMetrics)
+						classMetricMap.put(distanceMetric, classVersion.getMetricValue(distanceMetric));
+
+					// Store the evolution distance for the class
+					classMetricMap.put(EClassMetricName.EVOLUTION_DISTANCE, classVersion
+							.getMetricValue(EClassMetricName.EVOLUTION_DISTANCE));
 				}
-			}
 
-			// Store the focus class metric maps that were extracted for the
-			// current
-			// version
-			focusClassMetricMap.put(rsn, versionMetricMap);
+				// Map the focus class to it's associated metric values for
+				// the version
+				versionMetricMap.put(packageClass.getClassName(), classMetricMap);
+			}
 		}
+
+		// Store the focus class metric maps that were extracted for the
+		// current
+		// version
+		focusClassMetricMap.put(rsn, versionMetricMap);
+	}
+
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+
+	@Override
+	public void onComplete()
+	{
 	}
 
 	private Report getReport(final ReportDataMap reportData)
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.MetricNameMappingUtil;
 import report.EReportConfigOption;
@@ -12,7 +13,6 @@ import report.table.DecimalColumn;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that displays the frequency distribution of a given metric
@@ -25,8 +25,11 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class FrequencyReportBuilder extends TabularReportBuilder
+public class FrequencyReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {	
+	//The frequency distribution row for each version visited
+	private List<Row> rows = new ArrayList<Row>();
+	
 	@Override
 	protected String getHeader()
 	{
@@ -59,23 +62,53 @@ public class FrequencyReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		
-		List<Row> rows = new ArrayList<Row>(history.getReleaseCount());
-		
+		return rows;
+	}
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		//Only the metric is read for each version
+		return VersionProjection.ofMetrics(getMetric());
+	}
+	
+	@Override
+	public void onVersion(Version version)
+	{
 		String system = history.getShortName();		
 		//Get the metric to display the distribution for
-		EClassMetricName metric = MetricNameMappingUtil.classMetricFromCamelString(config.getEntry(EReportConfigOption.METRIC));
+		EClassMetricName metric = getMetric();
 		//Get the max frequency value
 		int maxValue = Integer.parseInt(config.getEntry(EReportConfigOption.MAX_VALUE));
 		//Get the flag indicating whether the frequency distribution should be relative
 		boolean relative = config.getEntry(EReportConfigOption.RELATIVE).equalsIgnoreCase("Y");
 		
-		//For each version, get the frequency distribution row
-		for(Integer rsn : history.getVersions().keySet())
-			rows.add(getVersionRow(system, versionFactory.getVersion(system, rsn.intValue()), metric, maxValue, relative));
-		
-		return rows;
+		//Get the frequency distribution row for the version
+		rows.add(getVersionRow(system, version, metric, maxValue, relative));
+	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
+	}
+	
+	/**
+	 * @return The metric to display the distribution for
+	 */
+	private EClassMetricName getMetric()
+	{
+		return MetricNameMappingUtil.classMetricFromCamelString(config.getEntry(EReportConfigOption.METRIC));
 	}
 
 	/**
@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.EEvolutionCategory;
 import model.vocab.EVersionMetricName;
@@ -16,8 +17,8 @@ import report.table.DecimalColumn;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
+import util.DistributionSummary;
 import util.MathUtil;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that shows different Gini related calculations for a number of
@@ -38,7 +39,7 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class GiniDetailedReportBuilder extends TabularReportBuilder
+public class GiniDetailedReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {
 	//Map of rsn to metric map
 	private Map<Integer, Map<EVersionMetricName, Integer>> versionMetricsMap = new TreeMap<Integer, Map<EVersionMetricName, Integer>>();
@@ -79,8 +80,6 @@ public class GiniDetailedReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		extractHistoryInformation();
-		
 		EClassMetricName[] metrics = ReportBuilderUtil.getMMGiniMetrics();
 		List<Row> rows = new ArrayList<Row>();
 		
@@ -107,28 +106,43 @@ public class GiniDetailedReportBuilder extends TabularReportBuilder
 		return rows;
 	}
 	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+	
 	/**
-	 * Extracts information from the systems history for post-processing.
+	 * Extracts information from each version in the systems history for post-processing.
 	 * In particular, version-level metrics and Gini values for a number of different metrics
 	 * are extracted.
 	 */
-	private void extractHistoryInformation()
+	@Override
+	public void onVersion(Version version)
 	{
 		//Get the array of metrics to calculate Gini coefficients for
 		EClassMetricName[] metrics = ReportBuilderUtil.getMMGiniMetrics();
 		
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		
-		//For each version
-		for(Integer rsn : history.getVersions().keySet())
-		{
-			Version version = versionFactory.getVersion(history.getShortName(), rsn);
-			
-			//Extract version-level metrics
-			extractVersionMetrics(version);
-			//Extract Gini coefficients
-			extractVersionGiniValues(version, metrics);
-		}
+		//Extract version-level metrics
+		extractVersionMetrics(version);
+		//Extract Gini coefficients
+		extractVersionGiniValues(version, metrics);
+	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
 	}
 	
 	/**
@@ -173,6 +187,10 @@ public class GiniDetailedReportBuilder extends TabularReportBuilder
 			{
 				double gini = ReportBuilderUtil.calcGiniCoefficient(version, metric, false);
 				double zGini = ReportBuilderUtil.calcGiniCoefficient(version, metric, true);
+				//Both percentile cut offs are found from a single summary of the values of every class
+				DistributionSummary metricSummary = new DistributionSummary(version.getColumns().getColumn(metric));
+				int cutOffValue95 = metricSummary.findValueUnderPercentile(.95);
+				int cutOffValue80 = metricSummary.findValueUnderPercentile(.80);
 				
 				//Assume the first version is being processed
 				double deltaGini = 0;
@@ -181,12 +199,12 @@ public class GiniDetailedReportBuilder extends TabularReportBuilder
 				double previousZGini = 0;
 				
 				metricGiniValues.put(GINI, gini);
-				metricGiniValues.put(GINI_95, ReportBuilderUtil.calcGiniCoefficient(version, metric, false, .95)); 
-				metricGiniValues.put(GINI_80, ReportBuilderUtil.calcGiniCoefficient(version, metric, false, .80));
+				metricGiniValues.put(GINI_95, ReportBuilderUtil.calcGiniCoefficientBelow(version, metric, false, cutOffValue95)); 
+				metricGiniValues.put(GINI_80, ReportBuilderUtil.calcGiniCoefficientBelow(version, metric, false, cutOffValue80));
 		
 				metricGiniValues.put(Z_GINI, zGini);
-				metricGiniValues.put(Z_GINI_95, ReportBuilderUtil.calcGiniCoefficient(version, metric, true, .95));
-				metricGiniValues.put(Z_GINI_80, ReportBuilderUtil.calcGiniCoefficient(version, metric, true, .80));
+				metricGiniValues.put(Z_GINI_95, ReportBuilderUtil.calcGiniCoefficientBelow(version, metric, true, cutOffValue95));
+				metricGiniValues.put(Z_GINI_80, ReportBuilderUtil.calcGiniCoefficientBelow(version, metric, true, cutOffValue80));
 				
 				metricGiniValues.put(MOD_GINI, ReportBuilderUtil.calcGiniCoefficient(version, metric, false, EEvolutionCategory.MODIFIED));
 				metricGiniValues.put(NEW_GINI, ReportBuilderUtil.calcGiniCoefficient(version, metric, false, EEvolutionCategory.ADDED));
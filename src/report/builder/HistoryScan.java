@@ -0,0 +1,242 @@
+package report.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import model.History;
+import model.Version;
+import model.VersionProjection;
+import config.ConfigKeys;
+import config.ConfigManager;
+import extraction.HistoryFactory;
+import extraction.VersionFactory;
+
+/**
+ * Makes a single pass over the versions of a systems history, passing each version to every visitor that has
+ * been registered for the scan. The versions are read once, with the parts of the classes required by any of
+ * the visitors. A visitor that throws an exception is dropped from the rest of the scan, leaving the other
+ * visitors unaffected, and it's exception is kept so that the failure can be reported for that visitor alone
+ *
+ * @author Allan Jones
+ */
+public class HistoryScan
+{
+	private History history;
+	private List<IVersionVisitor> visitors = new ArrayList<IVersionVisitor>();
+	//The exception thrown by each visitor that failed during the scan
+	private Map<IVersionVisitor, RuntimeException> failures = new IdentityHashMap<IVersionVisitor, RuntimeException>();
+
+	/**
+	 * Creates a scan over a history
+	 * @param history The history to scan
+	 */
+	public HistoryScan(History history)
+	{
+		this.history = history;
+	}
+
+	/**
+	 * Registers a visitor to be passed the versions when the history is scanned
+	 * @param visitor The visitor
+	 */
+	public void addVisitor(IVersionVisitor visitor)
+	{
+		visitors.add(visitor);
+	}
+
+	/**
+	 * Passes each version in the history, and each pair of adjacent versions, to the visitors in RSN order,
+	 * then notifies the visitors that the scan is complete
+	 */
+	public void scan()
+	{
+		//The visitors that have not failed, in the order they were registered
+		List<IVersionVisitor> activeVisitors = new ArrayList<IVersionVisitor>(visitors);
+		VersionProjection projection = getProjection(activeVisitors);
+
+		//There is nothing to read the versions for
+		if (activeVisitors.isEmpty()) return;
+
+		VersionFactory versionFactory = VersionFactory.getInstance();
+		Version previousVersion = null;
+
+		//For each version
+		for (Version version : versionFactory.scan(history.getShortName(), 1, history.getReleaseCount(), projection))
+		{
+			Iterator<IVersionVisitor> visitorIterator = activeVisitors.iterator();
+
+			while (visitorIterator.hasNext())
+			{
+				IVersionVisitor visitor = visitorIterator.next();
+
+				try
+				{
+					visitor.onVersion(version);
+
+					if (previousVersion != null) visitor.onVersionPair(previousVersion, version);
+				}
+				catch (RuntimeException e)
+				{
+					failures.put(visitor, e);
+					visitorIterator.remove();
+				}
+			}
+
+			previousVersion = version;
+		}
+
+		for (IVersionVisitor visitor : activeVisitors)
+		{
+			try
+			{
+				visitor.onComplete();
+			}
+			catch (RuntimeException e)
+			{
+				failures.put(visitor, e);
+			}
+		}
+	}
+
+	/**
+	 * @param visitor A visitor registered for the scan
+	 * @return The exception that the visitor threw during the scan, or null if it completed the scan
+	 */
+	public RuntimeException getFailure(IVersionVisitor visitor)
+	{
+		return failures.get(visitor);
+	}
+
+	/**
+	 * Unions the parts of the versions classes required by each of the visitors, removing any visitor that
+	 * fails to provide it's projection
+	 * @param activeVisitors The visitors taking part in the scan
+	 * @return The projection including the parts of the versions classes required by each of the visitors
+	 */
+	private VersionProjection getProjection(List<IVersionVisitor> activeVisitors)
+	{
+		VersionProjection projection = VersionProjection.META_DATA;
+		Iterator<IVersionVisitor> visitorIterator = activeVisitors.iterator();
+
+		while (visitorIterator.hasNext())
+		{
+			IVersionVisitor visitor = visitorIterator.next();
+
+			try
+			{
+				projection = projection.union(visitor.getProjection());
+			}
+			catch (RuntimeException e)
+			{
+				failures.put(visitor, e);
+				visitorIterator.remove();
+			}
+		}
+
+		return projection;
+	}
+
+	/**
+	 * Counts the versions, and pairs of versions, that it visits, optionally throwing once it has seen a number
+	 * of versions
+	 */
+	private static class CountingVisitor implements IVersionVisitor
+	{
+		private int failAfter;
+		private int versionCount;
+		private int pairCount;
+		private boolean complete;
+
+		/**
+		 * @param failAfter The number of versions to visit before throwing, or -1 to never throw
+		 */
+		public CountingVisitor(int failAfter)
+		{
+			this.failAfter = failAfter;
+		}
+
+		public VersionProjection getProjection()
+		{
+			return VersionProjection.META_DATA;
+		}
+
+		public void onVersion(Version version)
+		{
+			if (versionCount == failAfter) throw new IllegalStateException("Failed after " + failAfter + " versions");
+			versionCount++;
+		}
+
+		public void onVersionPair(Version previousVersion, Version version)
+		{
+			pairCount++;
+		}
+
+		public void onComplete()
+		{
+			complete = true;
+		}
+	}
+
+	/** Test harness: scans a history with several visitors, one of which throws part way through the scan
+	 * and one of which throws when asked for it's projection */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 1)
+		{
+			System.out.println("Usage: HistoryScan <history file>");
+			return;
+		}
+
+		History history = HistoryFactory.getInstance().getHistory(new File(ConfigManager.getStringProperty(ConfigKeys.BUILDS_DIRECTORY) + args[0]));
+		int releaseCount = history.getReleaseCount();
+
+		CountingVisitor first = new CountingVisitor(-1);
+		CountingVisitor failing = new CountingVisitor(releaseCount / 2);
+		CountingVisitor last = new CountingVisitor(-1);
+		IVersionVisitor badProjection = new CountingVisitor(-1)
+		{
+			public VersionProjection getProjection()
+			{
+				throw new IllegalStateException("No projection");
+			}
+		};
+
+		HistoryScan scan = new HistoryScan(history);
+		scan.addVisitor(first);
+		scan.addVisitor(failing);
+		scan.addVisitor(badProjection);
+		scan.addVisitor(last);
+		scan.scan();
+
+		boolean passed = true;
+
+		for (CountingVisitor visitor : new CountingVisitor[] {first, last})
+		{
+			if (visitor.versionCount != releaseCount || visitor.pairCount != releaseCount - 1 || !visitor.complete
+					|| scan.getFailure(visitor) != null)
+			{
+				System.out.println("FAIL: a healthy visitor saw " + visitor.versionCount + " of " + releaseCount + " versions");
+				passed = false;
+			}
+		}
+
+		if (scan.getFailure(failing) == null || failing.versionCount != releaseCount / 2 || failing.complete)
+		{
+			System.out.println("FAIL: the failing visitor was not dropped after " + releaseCount / 2 + " versions");
+			passed = false;
+		}
+
+		if (scan.getFailure(badProjection) == null || ((CountingVisitor) badProjection).versionCount != 0)
+		{
+			System.out.println("FAIL: the visitor without a projection was not dropped before the scan");
+			passed = false;
+		}
+
+		System.out.println(passed ? "PASS" : "FAIL");
+	}
+}
@@ -0,0 +1,37 @@
+package report.builder;
+
+import model.Version;
+import model.VersionProjection;
+
+/**
+ * Collects information from the versions of a systems history as they are visited by a HistoryScan, so that
+ * several reports can be built from a single pass over the versions. Versions are visited in RSN order, and are
+ * shared between the visitors of a scan, so must not be modified
+ *
+ * @author Allan Jones
+ */
+public interface IVersionVisitor
+{
+	/**
+	 * @return The parts of the versions classes that the visitor requires
+	 */
+	VersionProjection getProjection();
+
+	/**
+	 * Visits the next version in the history
+	 * @param version The version
+	 */
+	void onVersion(Version version);
+
+	/**
+	 * Visits the next pair of adjacent versions in the history, after both have been visited alone
+	 * @param previousVersion The version preceding the version
+	 * @param version The version
+	 */
+	void onVersionPair(Version previousVersion, Version version);
+
+	/**
+	 * Called once every version in the history has been visited
+	 */
+	void onComplete();
+}
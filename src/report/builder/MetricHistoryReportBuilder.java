@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 
 import model.ClassMetricData;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.MetricNameMappingUtil;
 import report.EReportConfigOption;
@@ -15,15 +16,19 @@ import report.table.Column;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that contains the history of values for a given metric for each of the classes in the system, for each version
  * 
  * @author Allan Jones
  */
-public class MetricHistoryReportBuilder extends TabularReportBuilder
+public class MetricHistoryReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {
+	// TODO: This is not smart enough, as it will not work well when we have
+	// classes that are removed for a version, then come back again.
+	//Map of class names to their history of values for the metric
+	private Map<String, Integer[]> historyMap = new HashMap<String, Integer[]>();
+	
 	@Override
 	protected String getHeader()
 	{
@@ -34,22 +39,12 @@ public class MetricHistoryReportBuilder extends TabularReportBuilder
 	protected List<Row> getRows()
 	{
 		//The metric whose history of values is to be displayed
-		EClassMetricName metric = MetricNameMappingUtil.classMetricFromCamelString(config.getEntry(EReportConfigOption.METRIC));
-		
-		//Extract the metric history for classes
-		Map<String, Integer[]> historyMap = extractClassMetricHistoryMap(metric);
+		EClassMetricName metric = getMetric();
 		
 		List<Row> reportRows = new ArrayList<Row>();
 		
 		String separator = config.getEntry(EReportConfigOption.SEPARATOR);
 		
-		if (historyMap == null)
-		{
-			//TODO: Log error
-			System.err.println("History map was null");
-			return reportRows;
-		}
-		
 		int releases = history.getReleaseCount();
 		
 		//For each class, extract a row containing the history of values for the given metric
@@ -59,40 +54,59 @@ public class MetricHistoryReportBuilder extends TabularReportBuilder
 		return reportRows;
 	}
 	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		//Only the metric is read for each version
+		return VersionProjection.ofMetrics(getMetric());
+	}
+	
 	/**
-	 * Creates a map of class names to their history of values for the specified metric
-	 * @param metric The metric to extract the history for
-	 * @return The map of class names to their history of values for the specified metrics
+	 * Adds the versions value of the metric to the history of values for each of it's classes
 	 */
-	public Map<String, Integer[]> extractClassMetricHistoryMap(EClassMetricName metric)
+	@Override
+	public void onVersion(Version version)
 	{
-		// TODO: This is not smart enough, as it will not work well when we have
-		// classes that are removed for a version, then come back again.
-		Map<String, Integer[]> historyMap = new HashMap<String, Integer[]>();
-		
-		String shortName = history.getShortName();
+		int rsn = version.getRSN();
 		int releaseCount = history.getReleaseCount();
 		
-		VersionFactory versionFactory = VersionFactory.getInstance();
+		Map<String, Integer> classNameMetricMap = getClassNameMetricMap(version, getMetric());
 		
-		for(Integer rsn : history.getVersions().keySet())
+		for (Entry<String, Integer> classMetricEntry : classNameMetricMap.entrySet())
 		{
-			Version version = versionFactory.getVersion(shortName, rsn);
-			Map<String, Integer> classNameMetricMap = getClassNameMetricMap(version, metric);
+			String className = classMetricEntry.getKey();
 			
-			for (Entry<String, Integer> classMetricEntry : classNameMetricMap.entrySet())
-			{
-				String className = classMetricEntry.getKey();
-				
-				// first time, create the array object
-				if (!historyMap.containsKey(className))
-					historyMap.put(className, new Integer[releaseCount]);
-				
-				// Store the metric value against the version in array
-				historyMap.get(className)[rsn - 1] = classMetricEntry.getValue();
-			}
+			// first time, create the array object
+			if (!historyMap.containsKey(className))
+				historyMap.put(className, new Integer[releaseCount]);
+			
+			// Store the metric value against the version in array
+			historyMap.get(className)[rsn - 1] = classMetricEntry.getValue();
 		}
-		return historyMap;
+	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
+	}
+	
+	/**
+	 * @return The metric whose history of values is to be displayed
+	 */
+	private EClassMetricName getMetric()
+	{
+		return MetricNameMappingUtil.classMetricFromCamelString(config.getEntry(EReportConfigOption.METRIC));
 	}
 
 	/* Tabular-specific code */
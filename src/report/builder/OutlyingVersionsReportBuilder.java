@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 
 import model.MetricUtil;
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.EEvolutionCategory;
 import model.vocab.EVersionMetricName;
@@ -23,7 +24,6 @@ import report.rule.RuleArguments;
 import report.rule.RuleChecker;
 import report.rule.RuleUtil;
 import util.StatsUtil;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that identifies versions with an abnormal level of growth or change and flags
@@ -39,7 +39,7 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class OutlyingVersionsReportBuilder extends ReportBuilder
+public class OutlyingVersionsReportBuilder extends ReportBuilder implements IVersionVisitor
 {
 	//The total class count for versions in the systems history
 	private List<Integer> totalClassCounts = new ArrayList<Integer>();
@@ -76,8 +76,6 @@ public class OutlyingVersionsReportBuilder extends ReportBuilder
 	@Override
 	public Report buildReport()
 	{
-		extractVersionInformation();
-		extractBhattacharyyaDistances();
 		determineRulesBroken();
 		
 		ReportDataMap reportData = new ReportDataMap();
@@ -98,40 +96,83 @@ public class OutlyingVersionsReportBuilder extends ReportBuilder
 		return getReport(reportData);
 	}
 
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+	
 	/**
-	 * Iterates over the history for the system and extracts information needed for
-	 * identifying outliers against the set of rules
+	 * Extracts information needed for identifying outliers against the set of rules from
+	 * each version in the history for the system
 	 */
-	private void extractVersionInformation()
+	@Override
+	public void onVersion(Version version)
 	{
-		//For each version
-		for(Integer rsn : history.getVersions().keySet())
+		int rsn = version.getRSN();
+		//Get the versions total class count
+		totalClassCounts.add(version.getClassCount());
+		//Extract the versions class change information
+		extractClassChangeInformation(version);
+		
+		try
 		{
-			Version version = VersionFactory.getInstance().getVersion(history.getShortName(), rsn.intValue());
-			//Get the versions total class count
-			totalClassCounts.add(version.getClassCount());
-			//Extract the versions class change information
-			extractClassChangeInformation(version);
-			
-			try
-			{
-				//Get the versions gini values and store for post-processing
-				Map<EClassMetricName, Double> ginisMap = ReportBuilderUtil.getGiniValuesMapForVersion(version, ReportBuilderUtil.getMMGiniMetrics(), true);
-				versionGinisMap.put(rsn, ginisMap);
-			}
-			catch(Exception e)
-			{
-				//TODO: Log error
-				e.printStackTrace();
-			}
-			
-			//Get the versions beta values and store for post-processing
-			Map<EClassMetricName, Double> betaValuesMap = ReportBuilderUtil.getBetaValuesMapForVersion(version, ReportBuilderUtil.getMMLongMetrics());
-			versionBetaValuesMap.put(rsn, betaValuesMap);
+			//Get the versions gini values and store for post-processing
+			Map<EClassMetricName, Double> ginisMap = ReportBuilderUtil.getGiniValuesMapForVersion(version, ReportBuilderUtil.getMMGiniMetrics(), true);
+			versionGinisMap.put(rsn, ginisMap);
+		}
+		catch(Exception e)
+		{
+			//TODO: Log error
+			e.printStackTrace();
+		}
+		
+		//Get the versions beta values and store for post-processing
+		Map<EClassMetricName, Double> betaValuesMap = ReportBuilderUtil.getBetaValuesMapForVersion(version, ReportBuilderUtil.getMMLongMetrics());
+		versionBetaValuesMap.put(rsn, betaValuesMap);
+
+		//Extract the growth-related metrics for the version
+		extractGrowthInformation(version);
+	}
 	
-			//Extract the growth-related metrics for the version
-			extractGrowthInformation(version);
+	/**
+	 * Extracts the Bhattacharyya distances between each pair of adjacent versions, starting at
+	 * version 2, for a pre-defined set of metrics
+	 */
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+		//Starting at version 2
+		if(previousVersion.getRSN() < 2)
+			return;
+		
+		//Get the metrics to be checked against the rules
+		EClassMetricName[] metricsNeeded = ReportBuilderUtil.getMMLongMetrics();
+		
+		HashMap<EClassMetricName, Double> versionBhattacharyyaMeasures = new HashMap<EClassMetricName, Double>(metricsNeeded.length);
+		
+		//For each of the involved metrics
+		for(EClassMetricName metric : metricsNeeded)
+		{
+			//TODO: Make percentile configurable
+			//Get the bhattacharyya distance for the metric and store for post-processing
+			double bhattacharyyaMeasure = ReportBuilderUtil.bhattacharyyaDistance(previousVersion, version, metric, 0.95);
+			versionBhattacharyyaMeasures.put(metric, bhattacharyyaMeasure);
 		}
+		
+		//Store the calculated bhattacharyya distances
+		versionBhattacharyyaMeasuresMap.put(previousVersion.getRSN(), versionBhattacharyyaMeasures);
+	}
+	
+	@Override
+	public void onComplete()
+	{
 	}
 	
 	/**
@@ -175,37 +216,6 @@ public class OutlyingVersionsReportBuilder extends ReportBuilder
 		versionGrowthValuesMap.put(version.getRSN(), growthValuesMap);
 	}
 	
-	/**
-	 * Extracts the Bhattacharyya distances between each adjacent version for a pre-defined
-	 * set of metrics
-	 */
-	private void extractBhattacharyyaDistances()
-	{
-		//Get the metrics to be checked against the rules
-		EClassMetricName[] metricsNeeded = ReportBuilderUtil.getMMLongMetrics();
-		
-		//Starting at version 2
-		for(int i = 3; i <= history.getReleaseCount(); i++)
-		{
-			Version previousVersion = VersionFactory.getInstance().getVersion(history.getShortName(), i - 1);
-			Version currentVersion = VersionFactory.getInstance().getVersion(history.getShortName(), i);
-			
-			HashMap<EClassMetricName, Double> versionBhattacharyyaMeasures = new HashMap<EClassMetricName, Double>(metricsNeeded.length);
-			
-			//For each of the involved metrics
-			for(EClassMetricName metric : metricsNeeded)
-			{
-				//TODO: Make percentile configurable
-				//Get the bhattacharyya distance for the metric and store for post-processing
-				double bhattacharyyaMeasure = ReportBuilderUtil.bhattacharyyaDistance(previousVersion, currentVersion, metric, 0.95);
-				versionBhattacharyyaMeasures.put(metric, bhattacharyyaMeasure);
-			}
-			
-			//Store the calculated bhattacharyya distances
-			versionBhattacharyyaMeasuresMap.put(i - 1, versionBhattacharyyaMeasures);
-		}
-	}
-	
 	/**
 	 * Determines which of the rules have been broken using the data has been extracted
 	 * from the systems history
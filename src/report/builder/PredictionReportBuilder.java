@@ -7,7 +7,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
-import model.ClassMetricData;
 import model.Version;
 import model.vocab.EClassMetricName;
 import model.vocab.MetricNameMappingUtil;
@@ -100,9 +99,9 @@ public class PredictionReportBuilder extends TabularReportBuilder
 		
 		EClassMetricName[] metrics = ReportBuilderUtil.getMMLongMetrics();
 		
-		for(Integer rsn : history.getVersions().keySet())
+		for(Version version : versionFactory.scan(system, 1, history.getReleaseCount()))
 		{
-			Version version = versionFactory.getVersion(system, rsn);
+			int rsn = version.getRSN();
 			Map<EClassMetricName, Integer> metricISumMap = new LinkedHashMap<EClassMetricName, Integer>(metrics.length);
 			Map<EClassMetricName, double[]> metricHistMap = new LinkedHashMap<EClassMetricName, double[]>(metrics.length);
 			
@@ -123,8 +122,8 @@ public class PredictionReportBuilder extends TabularReportBuilder
 	{
 		int sum = 0;
 		
-		for (ClassMetricData classMetricData : version.getClasses().values())
-			sum += classMetricData.getMetricValue(metric);
+		for (int metricValue : version.getColumns().getColumn(metric))
+			sum += metricValue;
 		
 		return sum;
 	}
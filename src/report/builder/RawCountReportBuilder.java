@@ -4,13 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import model.vocab.MetricNameMappingUtil;
 import report.table.Column;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
-import extraction.VersionFactory;
 
 /**
  * Builds a report that contains the cumulative total of a number of growth-related class metrics (i.e. all classes within the version)
@@ -30,8 +30,11 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class RawCountReportBuilder extends TabularReportBuilder
+public class RawCountReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {
+	//The row for each version visited
+	private List<Row> rows = new ArrayList<Row>();
+	
 	@Override
 	protected String getHeader()
 	{
@@ -58,8 +61,25 @@ public class RawCountReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		List<Row> rows = new ArrayList<Row>(history.getReleaseCount());
-		
+		return rows;
+	}
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		//Only the growth-related metrics are read for each version
+		return VersionProjection.ofMetrics(ReportBuilderUtil.getGrowthMetrics());
+	}
+	
+	@Override
+	public void onVersion(Version version)
+	{
 		String separator = config.getSeparator();
 		
 		String shortName = history.getShortName(); 
@@ -68,38 +88,37 @@ public class RawCountReportBuilder extends TabularReportBuilder
 		//Get the growth-related metrics
 		EClassMetricName[] metrics = ReportBuilderUtil.getGrowthMetrics();
 		
-		VersionFactory versionFactory = VersionFactory.getInstance();
+		Column[] columns = new Column[7 + metrics.length];
 		
-		//For each version
-		for (Integer rsn : history.getVersions().keySet())
-        {
-			Version version = versionFactory.getVersion(shortName, rsn);
-			
-			Column[] columns = new Column[7 + metrics.length];
-            
-			//Short name
-            columns[0] = new StringColumn(shortName);
-            //App type
-            columns[1] = new StringColumn(appType);
-            //ID
-            columns[2] = new StringColumn(version.getId());
-            //RSN
-            columns[3] = new IntegerColumn(version.getRSN());
-            //Days since birth
-            columns[4] = new IntegerColumn(version.getDaysSinceBirth());
-            //Class count
-            columns[5] = new IntegerColumn(version.getClassCount());
-            //Package count
-            columns[6] = new IntegerColumn(version.getPackageCount());
-            
-            //Add a column for each metric
-            for (int j = 0; j < metrics.length; j++) 
-            	columns[j + 7] = new IntegerColumn(ReportBuilderUtil.getMetricValueSum(version, metrics[j]));
-
-            
-            rows.add(new Row(columns, separator));
-        }
+		//Short name
+		columns[0] = new StringColumn(shortName);
+		//App type
+		columns[1] = new StringColumn(appType);
+		//ID
+		columns[2] = new StringColumn(version.getId());
+		//RSN
+		columns[3] = new IntegerColumn(version.getRSN());
+		//Days since birth
+		columns[4] = new IntegerColumn(version.getDaysSinceBirth());
+		//Class count
+		columns[5] = new IntegerColumn(version.getClassCount());
+		//Package count
+		columns[6] = new IntegerColumn(version.getPackageCount());
 		
-		return rows;
+		//Add a column for each metric
+		for (int j = 0; j < metrics.length; j++) 
+			columns[j + 7] = new IntegerColumn(ReportBuilderUtil.getMetricValueSum(version, metrics[j]));
+		
+		rows.add(new Row(columns, separator));
+	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
 	}
 }
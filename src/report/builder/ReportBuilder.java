@@ -14,6 +14,17 @@ public abstract class ReportBuilder
 	protected ReportConfig config;
 	
 	public abstract Report buildReport();
+	
+	/**
+	 * Gets the visitor that collects the information the report is built from as the versions in the history are
+	 * scanned, so that reports on the same history can share a single scan. The history is scanned before the
+	 * report is built
+	 * @return The visitor, or null if the builder does not need the versions to be scanned
+	 */
+	public IVersionVisitor getVersionVisitor()
+	{
+		return null;
+	}
 
 	public void setHistory(History history)
 	{
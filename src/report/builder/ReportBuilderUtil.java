@@ -1,13 +1,13 @@
 package report.builder;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import model.ClassMetricData;
 import model.MetricUtil;
 import model.Version;
+import model.VersionColumns;
 import model.vocab.EClassMetricName;
 import model.vocab.EEvolutionCategory;
 import util.MathUtil;
@@ -99,21 +99,26 @@ public class ReportBuilderUtil
 	 */
 	public static double calcGiniCoefficient(Version version, EClassMetricName metric, boolean ignoreZero, EEvolutionCategory evolutionCategory) throws Exception
 	{
-		List<Double> values = new ArrayList<Double>(version.getClasses().values().size());
+		VersionColumns columns = version.getColumns();
+		int[] metricValues = columns.getColumn(metric);
+		int[] isInterfaceValues = columns.getColumn(EClassMetricName.IS_INTERFACE);
+		int[] evolutionStatusValues = columns.getColumn(EClassMetricName.EVOLUTION_STATUS);
+		int[] values = new int[metricValues.length];
+		int valueCount = 0;
 		
 		//For each class
-		for (ClassMetricData classMetricData : version.getClasses().values()) 
+		for (int i = 0; i < metricValues.length; i++) 
 		{
 			//Skip the class if the Gini coefficient cannot be calculated
-			if (!isGiniComputable(classMetricData, metric, ignoreZero) == false) continue;
+			if (!isGiniComputable(metricValues[i], isInterfaceValues[i], metric, ignoreZero) == false) continue;
 			
 			//If the class belongs to the specified evolution category, add it's value to the list of
 			//values to be factored into the calculation of the Gini
-			if (classMetricData.getMetricValue(EClassMetricName.EVOLUTION_STATUS) == evolutionCategory.getValue())
-				values.add((double)classMetricData.getMetricValue(metric));
+			if (evolutionStatusValues[i] == evolutionCategory.getValue())
+				values[valueCount++] = metricValues[i];
 		}
 		
-		return StatsUtil.calcGiniCoefficient(values);
+		return StatsUtil.calcGiniCoefficient(Arrays.copyOf(values, valueCount));
 	}
 
 	/**
@@ -128,27 +133,45 @@ public class ReportBuilderUtil
 	 */
 	public static double calcGiniCoefficient(Version version, EClassMetricName metric, boolean ignoreZero, double cutOffPercentile) throws Exception
 	{
-		List<Double> values = new ArrayList<Double>(version.getClasses().values().size());
-		int cutOffValue = findValueUnderPercentile(version, cutOffPercentile, metric);
+		return calcGiniCoefficientBelow(version, metric, ignoreZero, findValueUnderPercentile(version, cutOffPercentile, metric));
+	}
+	
+	/**
+	 * Extracts the values for a given metric for each class in a given version and calculates the Gini coefficient of
+	 * the metric values falling below a given cut off value, e.g. one found from the DistributionSummary of the metric
+	 * @param version The version to extract class metric values from
+	 * @param metric The metric that the Gini coefficient is being calculated for
+	 * @param ignoreZero Whether to ignore classes that have a value of 0 for the given metric
+	 * @param cutOffValue The value at which classes at or above should be ignored
+	 * @return The Gini coefficient for the specified metric in the given version
+	 * @throws Exception - if there was an error in the calculation of the Gini coefficient from the extracted values
+	 */
+	public static double calcGiniCoefficientBelow(Version version, EClassMetricName metric, boolean ignoreZero, int cutOffValue) throws Exception
+	{
+		VersionColumns columns = version.getColumns();
+		int[] metricValues = columns.getColumn(metric);
+		int[] isInterfaceValues = columns.getColumn(EClassMetricName.IS_INTERFACE);
+		int[] values = new int[metricValues.length];
+		int valueCount = 0;
 		
 		//For each class
-		for (ClassMetricData classMetricData : version.getClasses().values()) 
+		for (int i = 0; i < metricValues.length; i++) 
 		{
 			//Skip the class if the Gini coefficient cannot be calculated
-			if (!isGiniComputable(classMetricData, metric, ignoreZero) == false) continue;
+			if (!isGiniComputable(metricValues[i], isInterfaceValues[i], metric, ignoreZero) == false) continue;
 			
 			//Get the classes value for the metric
-			int metricValue = classMetricData.getMetricValue(metric);
+			int metricValue = metricValues[i];
 			
 			//If the metric value is below the cut off value, add it's value to the list of
 			//values to be factored into the calculation of the Gini
 			if (metricValue < cutOffValue)
 			{
-				values.add((double)metricValue);
+				values[valueCount++] = metricValue;
 			}
 		}
 		
-		return StatsUtil.calcGiniCoefficient(values);
+		return StatsUtil.calcGiniCoefficient(Arrays.copyOf(values, valueCount));
 	}
 	
 	/**
@@ -163,24 +186,29 @@ public class ReportBuilderUtil
 	 */
 	public static double calcGiniCoefficient(Version version, EClassMetricName metric, boolean ignoreZero, boolean ignoreNew) throws Exception
 	{
-		List<Double> values = new ArrayList<Double>(version.getClassCount());
+		VersionColumns columns = version.getColumns();
+		int[] metricValues = columns.getColumn(metric);
+		int[] isInterfaceValues = columns.getColumn(EClassMetricName.IS_INTERFACE);
+		int[] evolutionStatusValues = columns.getColumn(EClassMetricName.EVOLUTION_STATUS);
+		int[] values = new int[metricValues.length];
+		int valueCount = 0;
 		
 		//For each class
-		for (ClassMetricData classMetricData : version.getClasses().values()) 
+		for (int i = 0; i < metricValues.length; i++) 
 		{
 			//Skip the class if the Gini coefficient cannot be calculated
-			if (!isGiniComputable(classMetricData, metric, ignoreZero)) continue;
+			if (!isGiniComputable(metricValues[i], isInterfaceValues[i], metric, ignoreZero)) continue;
 			
 			if(ignoreNew)
 			{
-				if(classMetricData.getMetricValue(EClassMetricName.EVOLUTION_STATUS) != EEvolutionCategory.ADDED.getValue())
-					values.add((double)classMetricData.getMetricValue(metric));
+				if(evolutionStatusValues[i] != EEvolutionCategory.ADDED.getValue())
+					values[valueCount++] = metricValues[i];
 			}
 			else
-				values.add((double)classMetricData.getMetricValue(metric));
+				values[valueCount++] = metricValues[i];
 		}
 		
-		return StatsUtil.calcGiniCoefficient(values);
+		return StatsUtil.calcGiniCoefficient(Arrays.copyOf(values, valueCount));
 	}
 	
 	/**
@@ -196,20 +224,21 @@ public class ReportBuilderUtil
 	 * 
 	 * Additionally, the check will fail if the ignoreZero flag is set and the value for the specified metric is equal to 0
 	 * 
-	 * @param classMetricData The class to be checked  
+	 * @param metricValue The classes value for the metric
+	 * @param isInterface The classes value for the IS_INTERFACE metric
 	 * @param metric The metric
 	 * @param ignoreZero Whether to ignore the class if it has a value of 0 for the specified metric
 	 * @return Whether the Gini coefficient can sensibly be calculated, given the class and metric type
 	 */
-	private static boolean isGiniComputable(ClassMetricData classMetricData, EClassMetricName metric, boolean ignoreZero)
+	private static boolean isGiniComputable(int metricValue, int isInterface, EClassMetricName metric, boolean ignoreZero)
 	{
-		if ((metric.equals(EClassMetricName.LOAD_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1)) return false;
-		if ((metric.equals(EClassMetricName.STORE_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1))  return false;
-		if ((metric.equals(EClassMetricName.BRANCH_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1)) return false;
-		if ((metric.equals(EClassMetricName.FIELD_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1))  return false;
-		if ((metric.equals(EClassMetricName.METHOD_CALL_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1))  return false;
-		if ((metric.equals(EClassMetricName.TYPE_CONSTRUCTION_COUNT)) && (classMetricData.getMetricValue(EClassMetricName.IS_INTERFACE) == 1))  return false;
-		if (ignoreZero && (classMetricData.getMetricValue(metric) == 0))  return false;
+		if ((metric.equals(EClassMetricName.LOAD_COUNT)) && (isInterface == 1)) return false;
+		if ((metric.equals(EClassMetricName.STORE_COUNT)) && (isInterface == 1))  return false;
+		if ((metric.equals(EClassMetricName.BRANCH_COUNT)) && (isInterface == 1)) return false;
+		if ((metric.equals(EClassMetricName.FIELD_COUNT)) && (isInterface == 1))  return false;
+		if ((metric.equals(EClassMetricName.METHOD_CALL_COUNT)) && (isInterface == 1))  return false;
+		if ((metric.equals(EClassMetricName.TYPE_CONSTRUCTION_COUNT)) && (isInterface == 1))  return false;
+		if (ignoreZero && (metricValue == 0))  return false;
 		
 		return true;
 	}
@@ -259,11 +288,11 @@ public class ReportBuilderUtil
 	{
 		int sum = 0;
 		
-		Map<String, ClassMetricData> classes = version.getClasses();
+		int[] metricValues = version.getColumns().getColumn(metric);
 
 		//For each class, increment the sum by the metric value for the class
-		for (ClassMetricData classMetricData : classes.values())
-			sum += classMetricData.getMetricValue(metric);
+		for (int metricValue : metricValues)
+			sum += metricValue;
 		
 		return sum;
 	}
@@ -365,17 +394,11 @@ public class ReportBuilderUtil
 	{
 		int max = 0;
 		
-		Map<String, ClassMetricData> classes = version.getClasses();
+		int[] metricValues = version.getColumns().getColumn(metric);
+		
+		for (int metricValue : metricValues)
+			if (metricValue > max) max = metricValue;
 		
-		for (ClassMetricData classMetricData : classes.values())
-		{
-			try 
-			{
-				int metricValue = classMetricData.getMetricValue(metric);
-				if (metricValue > max) max = metricValue;
-			} 
-			catch (Exception e) { e.printStackTrace(); }
-		}
 		return max;
 	}
 	
@@ -449,15 +472,13 @@ public class ReportBuilderUtil
 		//Assume metric value is 0
 		int index = 0;
 		
-		Map<String, ClassMetricData> classes = version.getClasses();
+		int[] metricValues = version.getColumns().getColumn(metric);
 		
 		//For each class
-		for (ClassMetricData classMetricData : classes.values())
+		for (int metricValue : metricValues)
 		{
 			try
 			{
-				int metricValue = classMetricData.getMetricValue(metric);
-				
 				//If the metric value is greater than the length of the frequency table (i.e., above the max value),
 				//clip it's value and increment the count for the last index (i.e., higher than max),
 				//else increment the count for the metric value
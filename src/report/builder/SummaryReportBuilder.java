@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import model.Version;
+import model.VersionProjection;
 import model.vocab.EClassMetricName;
 import report.EReportConfigOption;
 import report.table.Column;
@@ -35,10 +36,12 @@ import extraction.VersionFactory;
  * 
  * @author Allan Jones
  */
-public class SummaryReportBuilder extends TabularReportBuilder
+public class SummaryReportBuilder extends TabularReportBuilder implements IVersionVisitor
 {
 	private Map<Integer, Map<EClassMetricName, double[]>> versionFrequencyDistributionMap = new TreeMap<Integer, Map<EClassMetricName,double[]>>();
 	private List<Integer> classCounts = new ArrayList<Integer>();
+	//Map of metrics to their associated frequency table maximum values
+	private Map<EClassMetricName, Integer> metricLimits;
 	
 	@Override
 	protected String getHeader()
@@ -68,47 +71,69 @@ public class SummaryReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		extractHistoryInformation();
-		
 		List<Row> rows = new ArrayList<Row>(1);
 		rows.add(extractSummaryValuesRow());
 		
 		return rows;
 	}
 	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return this;
+	}
+	
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+	
 	/**
-	 * Iterates through the versions that form the systems history, extracting necessary information for post-processing
+	 * Extracts the information necessary for post-processing from each of the versions that form the systems history
 	 */
-	private void extractHistoryInformation()
+	@Override
+	public void onVersion(Version version)
 	{
-		VersionFactory versionFactory = VersionFactory.getInstance();
-		
-		//Retrieve the last version
-		Version lastVersion = versionFactory.getVersion(history.getShortName(), history.getReleaseCount());
-	
 		//Get the metrics to be used in determining the amount of change
 		EClassMetricName[] metrics = ReportBuilderUtil.getMMLongMetrics();
 		
-		//Initialise the map of metrics to their associated frequency table maximum values
+		if(metricLimits == null)
+			metricLimits = extractMetricLimits(metrics);
+		
+		//Extract the frequency distributions for the version
+		extractVersionFrequencyDistributions(version, metrics, metricLimits);
+		//Store the versions class count
+		classCounts.add(version.getClassCount());
+	}
+	
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+	
+	@Override
+	public void onComplete()
+	{
+	}
+	
+	/**
+	 * Gets the max value for each of the metrics using the value under the percentile from the last version
+	 * @param metrics The metrics to get the max values for
+	 * @return The map of metrics to their associated frequency table maximum values
+	 */
+	private Map<EClassMetricName, Integer> extractMetricLimits(EClassMetricName[] metrics)
+	{
+		//Retrieve the last version
+		Version lastVersion = VersionFactory.getInstance().getVersion(history.getShortName(), history.getReleaseCount());
+		
 		Map<EClassMetricName, Integer> metricLimits = new HashMap<EClassMetricName, Integer>(metrics.length);
 		
-		//Get the max value for each of the metrics using the value under the percentile from the last
-		//version
 		//TODO: Make percentile configurable
 		for(EClassMetricName metric : metrics)
 			metricLimits.put(metric, ReportBuilderUtil.findValueUnderPercentile(lastVersion, 0.9, metric));
 		
-		//For each version
-		for(Integer rsn : history.getVersions().keySet())
-		{
-			//Retrieve the version
-			Version version = versionFactory.getVersion(history.getShortName(), rsn);
-			
-			//Extract the frequency distributions for the version
-			extractVersionFrequencyDistributions(version, metrics, metricLimits);
-			//Store the versions class count
-			classCounts.add(version.getClassCount());
-		}
+		return metricLimits;
 	}
 
 	/**
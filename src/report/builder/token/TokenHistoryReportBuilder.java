@@ -8,6 +8,9 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.Map.Entry;
 
+import model.Version;
+import model.VersionProjection;
+
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
@@ -81,8 +84,8 @@ public class TokenHistoryReportBuilder extends TabularReportBuilder
 		{
 			daysSinceBirth = new TreeMap<Integer, Integer>();
 			VersionFactory versionFactory = VersionFactory.getInstance();
-			for(Integer rsn : history.getVersions().keySet())
-				daysSinceBirth.put(rsn, versionFactory.getVersion(history.getShortName(), rsn).getDaysSinceBirth());
+			for(Version version : versionFactory.scan(history.getShortName(), 1, history.getReleaseCount(), VersionProjection.META_DATA))
+				daysSinceBirth.put(version.getRSN(), version.getDaysSinceBirth());
 		}
 		
 		System.out.println("RSN,Days,Tokens");
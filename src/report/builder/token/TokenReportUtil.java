@@ -119,10 +119,8 @@ public class TokenReportUtil
 		VersionFactory versionFactory = VersionFactory.getInstance();
 
 		// For each version
-		for (Entry<Integer, String> versionEntry : history.getVersions().entrySet())
+		for (Version version : versionFactory.scan(history.getShortName(), 1, history.getReleaseCount()))
 		{
-			// Get the current version object
-			Version version = versionFactory.getVersion(history.getShortName(), versionEntry.getKey());
 
 			if(daysSinceBirth != null)
 				daysSinceBirth.put(version.getRSN(), version.getDaysSinceBirth());
@@ -152,9 +150,9 @@ public class TokenReportUtil
 			}
 
 			// Store the maps extracted for the version
-			versionClassNameTokenMap.put(versionEntry.getKey(), classNameTokenMap);
-			versionMethodTokenCountMap.put(versionEntry.getKey(), classMethodTokenMap);
-			versionFieldTokenCountMap.put(versionEntry.getKey(), classFieldTokenMap);
+			versionClassNameTokenMap.put(version.getRSN(), classNameTokenMap);
+			versionMethodTokenCountMap.put(version.getRSN(), classMethodTokenMap);
+			versionFieldTokenCountMap.put(version.getRSN(), classFieldTokenMap);
 		}
 	}
 
@@ -615,13 +613,13 @@ public class TokenReportUtil
 
 	public static double calculateTokenGini(Map<String, Integer> versionTokenCounts)
 	{
-		double[] values = new double[versionTokenCounts.size()];
+		int[] values = new int[versionTokenCounts.size()];
 
 		int valueIndex = 0;
 
 		for (Integer tokenCount : versionTokenCounts.values())
 		{
-			values[valueIndex] = (double) tokenCount.intValue();
+			values[valueIndex] = tokenCount.intValue();
 			valueIndex++;
 		}
 
@@ -9,6 +9,7 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -17,6 +18,14 @@ import report.table.StringColumn;
 
 public class PopularTermHistoryReportBuilder extends TabularReportBuilder
 {
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	@Override
 	protected String getHeader()
 	{
@@ -37,8 +46,8 @@ public class PopularTermHistoryReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		Map<Integer, Integer> daysSinceBirth = new TreeMap<Integer, Integer>();
-		Map<Integer, Map<String, Integer>> termHistory = VocabularyReportUtil.getVocabularyUsageHistory(history, daysSinceBirth);
+		Map<Integer, Map<String, Integer>> termHistory = vocabulary.getVocabularyUsageHistory();
+		Map<Integer, Integer> daysSinceBirth = vocabulary.getDaysSinceBirth();
 
 		Map<Integer, List<String>> versionNewTokensMap = new TreeMap<Integer, List<String>>();
 		Map<String, Integer> tokenFirstAppearanceMap = new LinkedHashMap<String, Integer>();
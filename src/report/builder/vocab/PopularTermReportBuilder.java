@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -16,6 +17,14 @@ import report.table.StringColumn;
 
 public class PopularTermReportBuilder extends TabularReportBuilder
 {
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	@Override
 	protected String getHeader()
 	{
@@ -30,7 +39,7 @@ public class PopularTermReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		Map<Integer, Map<String, Integer>> tokenHistory = VocabularyReportUtil.getVocabularyUsageHistory(history);
+		Map<Integer, Map<String, Integer>> tokenHistory = vocabulary.getVocabularyUsageHistory();
 
 		int latestVersionRSN = history.getReleaseCount();
 		String latestVersionID = history.getVersionID(latestVersionRSN);
@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -16,6 +17,13 @@ import report.table.StringColumn;
 
 public class TermFrequencyAgeReportBuilder extends TabularReportBuilder
 {
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
 
 	@Override
 	protected String getHeader()
@@ -32,8 +40,8 @@ public class TermFrequencyAgeReportBuilder extends TabularReportBuilder
 	protected List<Row> getRows()
 	{
 		
-		Map<Integer, Integer> daysSinceBirth = new TreeMap<Integer, Integer>();
-		Map<Integer, Map<String, Integer>> tokenHistory = VocabularyReportUtil.getVocabularyUsageHistory(history, daysSinceBirth);
+		Map<Integer, Map<String, Integer>> tokenHistory = vocabulary.getVocabularyUsageHistory();
+		Map<Integer, Integer> daysSinceBirth = vocabulary.getDaysSinceBirth();
 
 		Map<Integer, List<String>> versionNewTokensMap = new TreeMap<Integer, List<String>>();
 		Map<String, Integer> tokenFirstAppearanceMap = new LinkedHashMap<String, Integer>();
@@ -7,6 +7,7 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -15,6 +16,14 @@ import report.table.StringColumn;
 
 public class TermFrequencyReportBuilder extends TabularReportBuilder
 {	
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	@Override
 	protected String getHeader()
 	{
@@ -40,8 +49,8 @@ public class TermFrequencyReportBuilder extends TabularReportBuilder
 	{
 		int maxValue = Integer.parseInt(config.getEntry(EReportConfigOption.MAX_VALUE));
 		
-		Map<Integer, Integer> daysSinceBirth = new TreeMap<Integer, Integer>();
-		Map<Integer, Map<String, Integer>> versionTermCountMap = VocabularyReportUtil.getVocabularyUsageHistory(history, daysSinceBirth);
+		Map<Integer, Map<String, Integer>> versionTermCountMap = vocabulary.getVocabularyUsageHistory();
+		Map<Integer, Integer> daysSinceBirth = vocabulary.getDaysSinceBirth();
 				
 		Map<Integer, int[]> versionTermFreqDistMap = new TreeMap<Integer, int[]>();
 		VocabularyReportUtil.extractTermFreqDists(versionTermCountMap, versionTermFreqDistMap, maxValue);
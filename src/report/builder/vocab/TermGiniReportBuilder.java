@@ -7,16 +7,18 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.DecimalColumn;
 import report.table.IntegerColumn;
 import report.table.Row;
 import report.table.StringColumn;
-import extraction.VersionFactory;
 
 public class TermGiniReportBuilder extends TabularReportBuilder
 {
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
 	private Map<Integer, Integer> daysSinceBirth;
 	
 	public void setDaysSinceBirth(Map<Integer, Integer> daysSinceBirth)
@@ -31,6 +33,12 @@ public class TermGiniReportBuilder extends TabularReportBuilder
 		this.versionTokenCountMap = versionTokenCountMap;
 	}
 	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	@Override
 	protected String getHeader()
 	{	
@@ -46,7 +54,7 @@ public class TermGiniReportBuilder extends TabularReportBuilder
 	protected List<Row> getRows()
 	{
 		if(versionTokenCountMap == null)
-			versionTokenCountMap = VocabularyReportUtil.getVocabularyUsageHistory(history);
+			versionTokenCountMap = vocabulary.getVocabularyUsageHistory();
 		
 		Map<Integer, Double> versionGiniMap = new TreeMap<Integer, Double>();
 		extractTokenGinis(versionTokenCountMap, versionGiniMap);
@@ -55,12 +63,7 @@ public class TermGiniReportBuilder extends TabularReportBuilder
 		List<Row> rows = new ArrayList<Row>(history.getReleaseCount());
 		
 		if(daysSinceBirth == null)
-		{
-			daysSinceBirth = new TreeMap<Integer, Integer>();
-			VersionFactory versionFactory = VersionFactory.getInstance();
-			for(Integer rsn : history.getVersions().keySet())
-				daysSinceBirth.put(rsn, versionFactory.getVersion(history.getShortName(), rsn).getDaysSinceBirth());
-		}
+			daysSinceBirth = vocabulary.getDaysSinceBirth();
 		
 		for(Entry<Integer, String> versionEntry : history.getVersions().entrySet())
 		{
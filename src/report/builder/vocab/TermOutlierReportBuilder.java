@@ -6,10 +6,19 @@ import java.util.Map.Entry;
 
 import report.Report;
 import report.ReportDataMap;
+import report.builder.IVersionVisitor;
 import report.builder.ReportBuilder;
 
 public class TermOutlierReportBuilder extends ReportBuilder
 {
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	private final double relativeGrowthThreshold = 1.0;
 //	private final double giniThreshold = 0.04;
 	private final int newTokenCountThreshold = 5;
@@ -27,7 +36,7 @@ public class TermOutlierReportBuilder extends ReportBuilder
 	{
 		ReportDataMap reportData = new ReportDataMap();
 		
-		Map<Integer, Map<String, Integer>> versionTokenCountMap = VocabularyReportUtil.getVocabularyUsageHistory(history);
+		Map<Integer, Map<String, Integer>> versionTokenCountMap = vocabulary.getVocabularyUsageHistory();
 		
 		StringBuilder reportString = new StringBuilder();
 		
@@ -7,6 +7,7 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import report.EReportConfigOption;
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -15,6 +16,14 @@ import report.table.StringColumn;
 
 public class TermUsageHistoryReportBuilder extends TabularReportBuilder
 {	
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
+	
 	@Override
 	protected String getHeader()
 	{
@@ -35,7 +44,7 @@ public class TermUsageHistoryReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		Map<Integer, Map<String, Integer>> versionTermCountMap = VocabularyReportUtil.getVocabularyUsageHistory(history);
+		Map<Integer, Map<String, Integer>> versionTermCountMap = vocabulary.getVocabularyUsageHistory();
 		
 		Map<String, int[]> termHistoryMap = new TreeMap<String, int[]>(); 
 		extractTermHistoryMap(termHistoryMap, versionTermCountMap);
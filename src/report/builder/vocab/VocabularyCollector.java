@@ -0,0 +1,63 @@
+package report.builder.vocab;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import model.Version;
+import model.VersionProjection;
+import report.builder.IVersionVisitor;
+
+/**
+ * Collects the vocabulary (class name, method and field terms) of each version in a systems history as it is
+ * scanned, for the vocabulary reports to be built from
+ */
+public class VocabularyCollector implements IVersionVisitor
+{
+	private Map<Integer, Map<String, Map<String, Integer>>> versionMethodTokenCountMap = new TreeMap<Integer, Map<String, Map<String, Integer>>>();
+	private Map<Integer, Map<String, Map<String, Integer>>> versionFieldTokenCountMap = new TreeMap<Integer, Map<String, Map<String, Integer>>>();
+	private Map<Integer, Map<String, Integer>> versionClassNameTokenMap = new TreeMap<Integer, Map<String, Integer>>();
+	private Map<Integer, Integer> daysSinceBirth = new TreeMap<Integer, Integer>();
+
+	@Override
+	public VersionProjection getProjection()
+	{
+		return VersionProjection.ALL;
+	}
+
+	@Override
+	public void onVersion(Version version)
+	{
+		daysSinceBirth.put(version.getRSN(), version.getDaysSinceBirth());
+
+		VocabularyReportUtil.extractVersionVocabulary(version, versionMethodTokenCountMap, versionFieldTokenCountMap, versionClassNameTokenMap);
+	}
+
+	@Override
+	public void onVersionPair(Version previousVersion, Version version)
+	{
+	}
+
+	@Override
+	public void onComplete()
+	{
+	}
+
+	/**
+	 * @return The map of RSN -> term -> total occurrence count for the versions collected
+	 */
+	public Map<Integer, Map<String, Integer>> getVocabularyUsageHistory()
+	{
+		Map<Integer, Map<String, Integer>> versionTokenCountMap = new TreeMap<Integer, Map<String, Integer>>();
+		VocabularyReportUtil.calculateTotalTermCounts(versionTokenCountMap, versionMethodTokenCountMap, versionFieldTokenCountMap, versionClassNameTokenMap);
+
+		return versionTokenCountMap;
+	}
+
+	/**
+	 * @return The map of RSN -> days since birth for the versions collected
+	 */
+	public Map<Integer, Integer> getDaysSinceBirth()
+	{
+		return daysSinceBirth;
+	}
+}
@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import report.builder.IVersionVisitor;
 import report.builder.TabularReportBuilder;
 import report.table.Column;
 import report.table.IntegerColumn;
@@ -15,7 +16,13 @@ import report.table.StringColumn;
 
 public class VocabularyModificationReportBuilder extends TabularReportBuilder
 {
-	private Map<Integer, Integer> daysSinceBirth;
+	private VocabularyCollector vocabulary = new VocabularyCollector();
+	
+	@Override
+	public IVersionVisitor getVersionVisitor()
+	{
+		return vocabulary;
+	}
 	
 	@Override
 	protected String getHeader()
@@ -39,16 +46,8 @@ public class VocabularyModificationReportBuilder extends TabularReportBuilder
 	@Override
 	protected List<Row> getRows()
 	{
-		Map<Integer, Map<String, Map<String, Integer>>> versionMethodTokenCountMap = new TreeMap<Integer, Map<String, Map<String, Integer>>>();
-		Map<Integer, Map<String, Map<String, Integer>>> versionFieldTokenCountMap = new TreeMap<Integer, Map<String, Map<String, Integer>>>();
-		Map<Integer, Map<String, Integer>> versionClassNameTokenMap = new TreeMap<Integer, Map<String, Integer>>();
-		VocabularyReportUtil.extractVocabulary(history, versionMethodTokenCountMap, versionFieldTokenCountMap, versionClassNameTokenMap);
-		
-		Map<Integer, Map<String, Integer>> versionTokenCountMap = new TreeMap<Integer, Map<String,Integer>>();
-		VocabularyReportUtil.calculateTotalTermCounts(versionTokenCountMap, versionMethodTokenCountMap, versionFieldTokenCountMap, versionClassNameTokenMap);
-		
-		Map<Integer, Map<String, Map<String, Integer>>> versionClassTokenMap = new TreeMap<Integer, Map<String,Map<String,Integer>>>();
-		VocabularyReportUtil.extractVersionClassTokenMap(versionClassTokenMap, versionMethodTokenCountMap, versionFieldTokenCountMap);
+		Map<Integer, Map<String, Integer>> versionTokenCountMap = vocabulary.getVocabularyUsageHistory();
+		Map<Integer, Integer> daysSinceBirth = vocabulary.getDaysSinceBirth();
 		
 		Map<Integer, List<String>> versionNewTokensMap = new TreeMap<Integer, List<String>>();
 		Map<String, Integer> tokenFirstAppearanceMap = new LinkedHashMap<String, Integer>();
@@ -104,35 +104,37 @@ public class VocabularyReportUtil
 		VersionFactory versionFactory = VersionFactory.getInstance();
 
 		// For each version
-		for (Entry<Integer, String> versionEntry : history.getVersions().entrySet())
+		for (Version version : versionFactory.scan(history.getShortName(), 1, history.getReleaseCount()))
 		{
-			// Get the current version object
-			Version version = versionFactory.getVersion(history.getShortName(), versionEntry.getKey());
-
 			if (daysSinceBirth != null) daysSinceBirth.put(version.getRSN(), version.getDaysSinceBirth());
 
-			// Create the map of class term -> term occurrence
-			// count
-			Map<String, Integer> classNameTermMap = new HashMap<String, Integer>(version.getClassCount());
-			// Create the map of class name -> method token -> token occurrence
-			// count
-			Map<String, Map<String, Integer>> classMethodTermMap = new HashMap<String, Map<String, Integer>>(version.getClassCount());
-			// Create the map of class name -> field token -> token occurrence
-			// count
-			Map<String, Map<String, Integer>> classFieldTermMap = new HashMap<String, Map<String, Integer>>(version.getClassCount());
-
-			int rsn = versionEntry.getKey();
-			
-			// For each class in the current version
-			for (Entry<String, ClassMetricData> classEntry : version.getClasses().entrySet())
-				consumeClassTermOccurrences(classEntry, classNameTermMap, classMethodTermMap, classFieldTermMap);
-
-			// Store the maps extracted for the version
-			versionClassNameTokenMap.put(rsn, classNameTermMap);
-			versionMethodTokenCountMap.put(rsn, classMethodTermMap);
-			versionFieldTokenCountMap.put(rsn, classFieldTermMap);
+			extractVersionVocabulary(version, versionMethodTokenCountMap, versionFieldTokenCountMap, versionClassNameTokenMap);
 		}
 	}
+
+	public static void extractVersionVocabulary(Version version, Map<Integer, Map<String, Map<String, Integer>>> versionMethodTokenCountMap, Map<Integer, Map<String, Map<String, Integer>>> versionFieldTokenCountMap, Map<Integer, Map<String, Integer>> versionClassNameTokenMap)
+	{
+		// Create the map of class term -> term occurrence
+		// count
+		Map<String, Integer> classNameTermMap = new HashMap<String, Integer>(version.getClassCount());
+		// Create the map of class name -> method token -> token occurrence
+		// count
+		Map<String, Map<String, Integer>> classMethodTermMap = new HashMap<String, Map<String, Integer>>(version.getClassCount());
+		// Create the map of class name -> field token -> token occurrence
+		// count
+		Map<String, Map<String, Integer>> classFieldTermMap = new HashMap<String, Map<String, Integer>>(version.getClassCount());
+
+		int rsn = version.getRSN();
+		
+		// For each class in the current version
+		for (Entry<String, ClassMetricData> classEntry : version.getClasses().entrySet())
+			consumeClassTermOccurrences(classEntry, classNameTermMap, classMethodTermMap, classFieldTermMap);
+
+		// Store the maps extracted for the version
+		versionClassNameTokenMap.put(rsn, classNameTermMap);
+		versionMethodTokenCountMap.put(rsn, classMethodTermMap);
+		versionFieldTokenCountMap.put(rsn, classFieldTermMap);
+	}
 	
 	private static void consumeClassTermOccurrences(Entry<String, ClassMetricData> classEntry, Map<String, Integer> classNameTermMap, Map<String, Map<String, Integer>> classMethodTokenMap, Map<String, Map<String, Integer>> classFieldTokenMap)
 	{
@@ -577,13 +579,13 @@ public class VocabularyReportUtil
 
 	public static double calculateTokenGini(Map<String, Integer> versionTokenCounts)
 	{
-		double[] values = new double[versionTokenCounts.size()];
+		int[] values = new int[versionTokenCounts.size()];
 
 		int valueIndex = 0;
 
 		for (Integer tokenCount : versionTokenCounts.values())
 		{
-			values[valueIndex] = (double) tokenCount.intValue();
+			values[valueIndex] = tokenCount.intValue();
 			valueIndex++;
 		}
 
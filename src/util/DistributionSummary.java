@@ -0,0 +1,142 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Summarises the distribution of a column of integer values (e.g. the values of a metric for each class in a
+ * version) by sorting the values once, so that the values under several percentiles can be found from the runs
+ * of equal values without building a cumulative frequency table for each
+ * @author Allan Jones
+ */
+public final class DistributionSummary
+{
+	//The values, in ascending order
+	private int[] sortedValues;
+
+	/**
+	 * Summarises the distribution of the given values. The values are copied, so are left unsorted
+	 * @param values The values
+	 */
+	public DistributionSummary(int[] values)
+	{
+		sortedValues = values.clone();
+		Arrays.sort(sortedValues);
+	}
+
+	/**
+	 * @param start The index of the first value of a run of equal values
+	 * @return The index following the last value of the run
+	 */
+	private int getRunEnd(int start)
+	{
+		int value = sortedValues[start];
+		int end = start + 1;
+
+		while (end < sortedValues.length && sortedValues[end] == value) end++;
+
+		return end;
+	}
+
+	/**
+	 * Finds the smallest value for which the proportion of the values no greater than it exceeds a given
+	 * percentile, giving the same value as ReportBuilderUtil.findValueUnderPercentile does from the cumulative
+	 * frequency table of the (non-negative) values
+	 * @param percentValue The percentile, between 0 and 1 (1 is assumed if it is outside of this range)
+	 * @return The value under the percentile, or one more than the largest value if no value exceeds it
+	 */
+	public int findValueUnderPercentile(double percentValue)
+	{
+		double pv = percentValue;
+		if ((percentValue < 0.0) || (percentValue > 1.0)) pv = 1.0;
+
+		//The relative frequencies are accumulated in the same order as the frequency table, so that the
+		//cumulative frequencies are rounded the same
+		double count = sortedValues.length;
+		double cumulativeFrequency = 0.0;
+
+		for (int start = 0, end; start < sortedValues.length; start = end)
+		{
+			end = getRunEnd(start);
+			cumulativeFrequency += (end - start) / count;
+
+			if (cumulativeFrequency > pv) return sortedValues[start];
+		}
+
+		return sortedValues.length == 0 ? 1 : Math.max(sortedValues[sortedValues.length - 1], 0) + 1;
+	}
+
+	/** 
+	 * Test harness -- cross-checks the values under a number of percentiles against the cumulative frequency table,
+	 * for random data sets of a number of sizes and shapes
+	 */
+	public static void main(String[] args)
+	{
+		Random random = new Random(42);
+		int[] sizes = {0, 1, 2, 3, 10, 100, 1000};
+		int[] maxValues = {1, 10, 200, 100000};
+		double[] percentiles = {0.0, 0.5, 0.8, 0.9, 0.95, 1.0};
+		int checks = 0;
+		int failures = 0;
+		
+		for (int size : sizes)
+		{
+			for (int maxValue : maxValues)
+			{
+				//Uniform values, then skewed (power law) values as for most metrics
+				for (int shape = 0; shape < 2; shape++)
+				{
+					int[] values = new int[size];
+					
+					for (int i = 0; i < size; i++)
+					{
+						double value = shape == 0 ? random.nextInt(maxValue + 1)
+												  : Math.floor(1.0 / Math.pow(1.0 - random.nextDouble(), 1.5)) - 1;
+						values[i] = (int)Math.min(maxValue, value);
+					}
+					
+					String dataSet = size + " values up to " + maxValue + (shape == 0 ? ", uniform" : ", skewed");
+					DistributionSummary summary = new DistributionSummary(values);
+					
+					for (double percentile : percentiles)
+					{
+						int expected = findValueUnderPercentile(values, percentile);
+						int actual = summary.findValueUnderPercentile(percentile);
+						checks++;
+						
+						if (expected != actual)
+						{
+							System.out.println("Mismatch for " + dataSet + ", value under " + percentile + ": expected " + expected + ", was " + actual);
+							failures++;
+						}
+					}
+				}
+			}
+		}
+		
+		System.out.println("Distribution summary cross-check: " + (checks - failures) + " of " + checks + " checks passed");
+	}
+	
+	/**
+	 * The value under a percentile as found by ReportBuilderUtil, from the cumulative frequency table of the values
+	 */
+	private static int findValueUnderPercentile(int[] values, double percentValue)
+	{
+		int maxValue = 0;
+		
+		for (int value : values)
+			if (value > maxValue) maxValue = value;
+		
+		int[] frequencyTable = new int[maxValue + 1];
+		
+		for (int value : values)
+			frequencyTable[value]++;
+		
+		double[] cumlFreq = StatsUtil.computeCummulFreqTable(frequencyTable);
+		
+		for (int i = 0; i < cumlFreq.length; i++)
+			if (cumlFreq[i] > percentValue) return i;
+		
+		return cumlFreq.length;
+	}
+}
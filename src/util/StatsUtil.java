@@ -3,6 +3,7 @@ package util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import umontreal.iro.lecuyer.gof.FDist;
 import umontreal.iro.lecuyer.gof.GofStat;
@@ -13,6 +14,11 @@ import flanagan.analysis.Stat;
 
 public class StatsUtil 
 {
+	//Integer values are counting sorted for the Gini if their range is no more than this many times their
+	//number, plus the minimum range below
+	private static final int COUNTING_SORT_RANGE_FACTOR = 4;
+	private static final int COUNTING_SORT_MIN_RANGE = 1024;
+	
 	/***** Gini *****/
 	
 	/**
@@ -86,6 +92,141 @@ public class StatsUtil
 		return gini;
 	}
 	
+	/**
+	 * Calculate Gini value from the values in sorted order, giving the same value as calcGiniCoefficient
+	 * in O(n log n) rather than O(n^2). The values are left unsorted
+	 * @param values
+	 * @return
+	 */
+	public static double calcGiniCoefficientSorted(double[] values)
+	{
+		if (values.length < 1) return 0;  //not computable
+		if (values.length == 1) return 0;
+		
+		double descMean = Stat.mean(values);
+		if (descMean == 0.0) return 0; // only possible if all data is zero
+		
+		double[] sortedValues = values.clone();
+		Arrays.sort(sortedValues);
+		
+		return sumOfSortedDifferences(sortedValues) / ((double)values.length * values.length) / descMean;
+	}
+	
+	/**
+	 * Calculate gini value using a slight variation of the mean difference, giving the same value as
+	 * calcGiniCoefficient2 in O(n log n) rather than O(n^2). The values are left unsorted
+	 * @param values
+	 * @return
+	 */
+	public static double calcGiniCoefficient2Sorted(double[] values)
+	{
+		double[] sortedValues = values.clone();
+		Arrays.sort(sortedValues);
+		
+		double nSquare = values.length * values.length;
+		double mean = Stat.mean(sortedValues);
+		
+		return sumOfSortedDifferences(sortedValues) / (nSquare * mean);
+	}
+	
+	/**
+	 * Calculate Gini value of integer values, giving the same value as calcGiniCoefficient. When the values
+	 * fall within a range no larger than a small multiple of their number (as with most class metrics), they
+	 * are ordered with a counting sort in O(n + range), otherwise they are sorted in O(n log n)
+	 * @param values
+	 * @return
+	 */
+	public static double calcGiniCoefficient(int[] values)
+	{
+		if (values.length < 1) return 0;  //not computable
+		if (values.length == 1) return 0;
+		
+		int min = values[0];
+		int max = values[0];
+		long total = 0;
+		
+		for (int value : values)
+		{
+			if (value < min) min = value;
+			if (value > max) max = value;
+			total += value;
+		}
+		
+		double descMean = (double)total / values.length;
+		if (descMean == 0.0) return 0; // only possible if all data is zero
+		
+		double nSquare = (double)values.length * values.length;
+		long range = (long)max - min + 1;
+		
+		if (range > COUNTING_SORT_RANGE_FACTOR * (long)values.length + COUNTING_SORT_MIN_RANGE)
+		{
+			int[] sortedValues = values.clone();
+			Arrays.sort(sortedValues);
+			
+			return sumOfSortedDifferences(sortedValues) / nSquare / descMean;
+		}
+		
+		//Count the occurrences of each value, offset by the minimum value
+		int[] counts = new int[(int)range];
+		
+		for (int value : values)
+			counts[value - min]++;
+		
+		//Each of the equal values at ranks [rank, rank + count) differs from the values below it
+		//by the same total, (rank * value) - (sum of the values below)
+		double sum = 0.0;
+		double lowerSum = 0.0;
+		long rank = 0;
+		
+		for (int i = 0; i < counts.length; i++)
+		{
+			int count = counts[i];
+			if (count == 0) continue;
+			
+			double value = (double)min + i;
+			
+			sum += count * (rank * value - lowerSum);
+			lowerSum += count * value;
+			rank += count;
+		}
+		
+		return sum / nSquare / descMean;
+	}
+	
+	/**
+	 * Sums the differences between each pair of sorted values, i.e. the sum over i of
+	 * (i * values[i]) - (values[0] + ... + values[i - 1])
+	 * @param sortedValues The values in ascending order
+	 * @return The sum of the differences
+	 */
+	private static double sumOfSortedDifferences(double[] sortedValues)
+	{
+		double sum = 0.0;
+		double lowerSum = 0.0;
+		
+		for (int i = 0; i < sortedValues.length; i++)
+		{
+			sum += (i * sortedValues[i]) - lowerSum;
+			lowerSum += sortedValues[i];
+		}
+		
+		return sum;
+	}
+	
+	private static double sumOfSortedDifferences(int[] sortedValues)
+	{
+		double sum = 0.0;
+		double lowerSum = 0.0;
+		
+		for (int i = 0; i < sortedValues.length; i++)
+		{
+			sum += ((double)i * sortedValues[i]) - lowerSum;
+			lowerSum += sortedValues[i];
+		}
+		
+		return sum;
+	}
+	
 	
 	/***** Beta *****/
 	
@@ -845,6 +986,95 @@ public class StatsUtil
 	{
 		return Stat.corrCoeff(values1, values2);
 	}
+	
+	/** 
+	 * Test harness -- cross-checks the sorted and counted Gini calculations against the nested loop 
+	 * calculations for random data sets of a number of sizes and shapes
+	 */
+	public static void main(String[] args)
+	{
+		Random random = new Random(42);
+		int[] sizes = {0, 1, 2, 3, 10, 100, 1000, 5000};
+		//Max values for small metric domains (counting sorted), large domains (sorted) and skewed values
+		int[] maxValues = {1, 10, 200, 1000000};
+		int checks = 0;
+		int failures = 0;
+		
+		for (int size : sizes)
+		{
+			for (int maxValue : maxValues)
+			{
+				for (int shape = 0; shape < 4; shape++)
+				{
+					int[] intValues = new int[size];
+					double[] values = new double[size];
+					double[] fractionalValues = new double[size];
+					
+					for (int i = 0; i < size; i++)
+					{
+						//Uniform, power-law skewed (as most class metrics are), all equal and signed values
+						if (shape == 0) intValues[i] = random.nextInt(maxValue + 1);
+						else if (shape == 1) intValues[i] = (int)Math.min(maxValue, Math.floor(1.0 / Math.pow(1.0 - random.nextDouble(), 1.5)) - 1);
+						else if (shape == 2) intValues[i] = maxValue;
+						else intValues[i] = random.nextInt(2 * maxValue + 1) - maxValue;
+						
+						values[i] = intValues[i];
+						fractionalValues[i] = intValues[i] * random.nextDouble();
+					}
+					
+					String dataSet = "size " + size + ", max " + maxValue + ", shape " + shape;
+					
+					//Integer valued data gives identical results, while fractional data is only equal to within the
+					//rounding of the nested loop sums
+					failures += checkGini(dataSet + ", sorted", calcGiniCoefficient(values), calcGiniCoefficientSorted(values), 0);
+					failures += checkGini(dataSet + ", counted", calcGiniCoefficient(values), calcGiniCoefficient(intValues), 0);
+					failures += checkGini(dataSet + ", sorted fractional", calcGiniCoefficient(fractionalValues), calcGiniCoefficientSorted(fractionalValues), 1e-9);
+					
+					if (size > 0)
+						failures += checkGini(dataSet + ", sorted 2", calcGiniCoefficient2(values.clone()), calcGiniCoefficient2Sorted(values), 0);
+					
+					checks += size > 0 ? 4 : 3;
+				}
+			}
+		}
+		
+		System.out.println("Gini cross-check: " + (checks - failures) + " of " + checks + " checks passed");
+		
+		//Time the calculations for a version sized data set of skewed metric values
+		int[] intValues = new int[40000];
+		double[] values = new double[intValues.length];
+		
+		for (int i = 0; i < intValues.length; i++)
+			values[i] = intValues[i] = (int)Math.min(1000, Math.floor(1.0 / Math.pow(1.0 - random.nextDouble(), 1.5)) - 1);
+		
+		long start = System.nanoTime();
+		double gini = calcGiniCoefficient(values);
+		long nestedTime = System.nanoTime() - start;
+		
+		//The faster calculations are timed after a first run, so that the timings are not dominated by compilation
+		calcGiniCoefficientSorted(values);
+		start = System.nanoTime();
+		double sortedGini = calcGiniCoefficientSorted(values);
+		long sortedTime = System.nanoTime() - start;
+		
+		calcGiniCoefficient(intValues);
+		start = System.nanoTime();
+		double countedGini = calcGiniCoefficient(intValues);
+		long countedTime = System.nanoTime() - start;
+		
+		System.out.println("40000 values -- nested loop: " + gini + " (" + nestedTime / 1000 + "us), sorted: " + sortedGini
+						   + " (" + sortedTime / 1000 + "us), counted: " + countedGini + " (" + countedTime / 1000 + "us)");
+	}
+	
+	private static int checkGini(String dataSet, double expected, double actual, double tolerance)
+	{
+		boolean equal = Double.compare(expected, actual) == 0 || Math.abs(expected - actual) <= tolerance * Math.max(1.0, Math.abs(expected));
+		
+		if (equal) return 0;
+		
+		System.out.println("Gini mismatch for " + dataSet + ": expected " + expected + ", was " + actual);
+		return 1;
+	}
     
 //  //TODO: Maybe move to StatsUtil
 //  /** 